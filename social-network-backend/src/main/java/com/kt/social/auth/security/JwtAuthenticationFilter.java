@@ -6,6 +6,7 @@ import com.kt.social.auth.model.UserCredential;
 import com.kt.social.auth.repository.UserCredentialRepository;
 import com.kt.social.common.constants.ApiConstants;
 import com.kt.social.common.exception.ErrorResponse;
+import com.kt.social.domain.user.service.UserActivityTracker;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -35,6 +36,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtProvider jwtProvider;
     private final UserDetailsService userDetailsService;
     private final UserCredentialRepository userCredentialRepository;
+    private final UserActivityTracker userActivityTracker;
 
     @Override
     protected void doFilterInternal(
@@ -91,6 +93,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
                 // Đặt user đã xác thực vào SecurityContext
                 SecurityContextHolder.getContext().setAuthentication(authToken);
+
+                // Cập nhật lastActiveAt (gom trong bộ nhớ, ghi theo lô)
+                userActivityTracker.touchFromRequest(userId);
             }
         }
 
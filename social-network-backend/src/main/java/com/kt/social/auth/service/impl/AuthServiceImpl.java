@@ -22,6 +22,7 @@ import com.kt.social.domain.audit.service.ActivityLogService;
 import com.kt.social.domain.user.model.UserInfo;
 import com.kt.social.domain.user.repository.UserInfoRepository;
 import com.kt.social.domain.user.repository.UserRepository;
+import com.kt.social.domain.user.service.UserProfileCache;
 import com.kt.social.domain.user.service.UserService;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
@@ -53,6 +54,7 @@ public class AuthServiceImpl implements AuthService {
     private final RefreshTokenService refreshTokenService;
     private final RefreshTokenRepository refreshTokenRepository;
     private final UserRepository userRepository;
+    private final UserProfileCache userProfileCache;
     private final UserInfoRepository userInfoRepository;
     private final UserService userService;
     private final EmailService emailService;
@@ -290,6 +292,7 @@ public class AuthServiceImpl implements AuthService {
             user.setVerificationCode(null);
             user.setVerificationCodeExpiry(null);
             userCredentialRepository.save(user);
+            userProfileCache.invalidate(user.getId());
 
             if (user.getUser() != null) {
                 activityLogService.logActivity(
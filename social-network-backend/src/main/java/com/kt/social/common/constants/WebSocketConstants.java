@@ -50,4 +50,23 @@ public final class WebSocketConstants {
      */
     public static final String CHAT_CONVERSATION_QUEUE = QUEUE_PREFIX + "/conversation";
 
-}
+    /**
+     * Kênh ack riêng của người gửi: trả về messageId + seq đã cấp (hoặc lỗi) cho từng tin gửi qua WS.
+     * Client sẽ subscribe: /user/queue/chat.ack
+     */
+    public static final String CHAT_ACK_QUEUE = QUEUE_PREFIX + "/chat.ack";
+
+    /**
+     * Kênh presence riêng của mỗi user: chỉ nhận USER_ONLINE / USER_OFFLINE của bạn bè.
+     * Client sẽ subscribe: /user/queue/presence
+     */
+    public static final String PRESENCE_QUEUE = QUEUE_PREFIX + "/presence";
+
+    /**
+     * Kênh tin nhắn riêng của mỗi user cho nhóm lớn: nhận EVENT_MESSAGE_BATCH (gộp nhiều tin trong 1 frame)
+     * thay vì topic của hội thoại.
+     * Client sẽ subscribe: /user/queue/messages
+     */
+    public static final String MESSAGES_QUEUE = QUEUE_PREFIX + "/messages";
+
+}
\ No newline at end of file
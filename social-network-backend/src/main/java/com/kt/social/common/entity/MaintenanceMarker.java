@@ -0,0 +1,26 @@
+package com.kt.social.common.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Đánh dấu 1 tác vụ bảo trì chạy 1 lần (đồng bộ dữ liệu cũ...) đã xong, dùng chung cho mọi node.
+ * Xem MaintenanceMarkerRepository.claim.
+ */
+@Entity
+@Table(name = "maintenance_markers")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MaintenanceMarker {
+
+    @Id
+    @Column(length = 100)
+    private String name;
+
+    @Column(name = "done_at", nullable = false)
+    private Instant doneAt;
+}
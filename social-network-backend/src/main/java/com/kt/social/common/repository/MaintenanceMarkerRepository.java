@@ -0,0 +1,26 @@
+package com.kt.social.common.repository;
+
+import com.kt.social.common.entity.MaintenanceMarker;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+
+@Repository
+public interface MaintenanceMarkerRepository extends JpaRepository<MaintenanceMarker, String> {
+
+    /**
+     * Giành quyền chạy tác vụ 1 lần: trả về name nếu vừa ghi marker, null nếu tác vụ đã (hoặc đang) chạy.
+     * Gọi trong cùng transaction với tác vụ: lỗi thì rollback cả marker, lần khởi động sau chạy lại;
+     * node khác chèn cùng lúc sẽ chờ transaction này xong rồi nhận null.
+     */
+    @Query(value = """
+        INSERT INTO maintenance_markers (name, done_at)
+        VALUES (:name, :now)
+        ON CONFLICT (name) DO NOTHING
+        RETURNING name
+    """, nativeQuery = true)
+    String claim(@Param("name") String name, @Param("now") Instant now);
+}
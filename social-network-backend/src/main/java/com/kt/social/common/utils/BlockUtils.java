@@ -7,6 +7,10 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+/**
+ * Kiểm tra chặn luôn đọc DB (không qua ViewerContext cache): dùng cho thao tác ghi / xem hồ sơ,
+ * nơi vừa chặn là phải có hiệu lực ngay trên mọi node.
+ */
 @Component
 public class BlockUtils {
 
@@ -24,4 +28,9 @@ public class BlockUtils {
         List<Long> blocked = friendshipRepository.findBlockedUserIds(currentUserId);
         return blocked.contains(targetId);
     }
+
+    // Một trong 2 người đã chặn người kia
+    public boolean isBlockedEitherWay(Long currentUserId, Long targetId) {
+        return friendshipRepository.existsBlockBetween(currentUserId, targetId);
+    }
 }
\ No newline at end of file
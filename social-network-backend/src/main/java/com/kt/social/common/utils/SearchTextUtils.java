@@ -0,0 +1,56 @@
+package com.kt.social.common.utils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Chuẩn hóa văn bản cho tìm kiếm toàn văn: bỏ dấu tiếng Việt ("Đã gửi" -> "da gui"), chữ thường,
+ * ký tự không phải chữ / số thành khoảng trắng. Dùng chung cho lúc đánh chỉ mục và lúc tạo truy vấn
+ * nên "gui", "gửi", "GỬI" đều khớp nhau.
+ */
+public final class SearchTextUtils {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern NON_TOKEN = Pattern.compile("[^a-z0-9]");
+
+    // Giới hạn số từ trong 1 truy vấn
+    private static final int MAX_QUERY_TOKENS = 8;
+
+    private SearchTextUtils() {
+    }
+
+    public static String fold(String text) {
+        if (text == null || text.isEmpty()) return "";
+        String s = Normalizer.normalize(text, Normalizer.Form.NFD);
+        s = MARKS.matcher(s).replaceAll("");
+        s = s.replace('đ', 'd').replace('Đ', 'D');
+        s = s.toLowerCase(Locale.ROOT);
+        return NON_WORD.matcher(s).replaceAll(" ").trim();
+    }
+
+    /**
+     * Truy vấn to_tsquery: các từ nối bằng AND, từ cuối khớp theo tiền tố (gõ dở vẫn ra kết quả).
+     * Trả về null nếu không còn từ nào dùng được.
+     */
+    public static String toTsQuery(String query) {
+        String folded = fold(query);
+        if (folded.isEmpty()) return null;
+
+        List<String> tokens = new ArrayList<>();
+        for (String token : folded.split(" ")) {
+            // Chỉ giữ [a-z0-9] -> không thể chứa toán tử của tsquery
+            String t = NON_TOKEN.matcher(token).replaceAll("");
+            if (!t.isEmpty()) tokens.add(t);
+            if (tokens.size() >= MAX_QUERY_TOKENS) break;
+        }
+        if (tokens.isEmpty()) return null;
+
+        int last = tokens.size() - 1;
+        tokens.set(last, tokens.get(last) + ":*");
+        return String.join(" & ", tokens);
+    }
+}
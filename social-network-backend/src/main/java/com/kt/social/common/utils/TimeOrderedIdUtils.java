@@ -0,0 +1,30 @@
+package com.kt.social.common.utils;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+
+/**
+ * Sinh UUID version 7: 48 bit đầu là epoch millis nên id tăng dần theo thời gian
+ * (sắp xếp chuỗi / index B-tree theo thứ tự tạo), phần còn lại là ngẫu nhiên.
+ */
+public final class TimeOrderedIdUtils {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private TimeOrderedIdUtils() {
+    }
+
+    public static UUID uuidV7() {
+        long millis = System.currentTimeMillis();
+        long randA = RANDOM.nextInt(1 << 12);
+        long randB = RANDOM.nextLong();
+
+        long msb = (millis << 16) | (0x7L << 12) | randA;          // 48 bit time | version 7 | 12 bit random
+        long lsb = (randB & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L; // variant 10 | 62 bit random
+        return new UUID(msb, lsb);
+    }
+
+    public static String newId() {
+        return uuidV7().toString();
+    }
+}
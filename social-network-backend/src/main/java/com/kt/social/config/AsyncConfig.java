@@ -2,6 +2,7 @@ package com.kt.social.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
@@ -12,8 +13,10 @@ public class AsyncConfig {
 
     /**
      * Cấu hình một "luồng" (thread pool) riêng để chạy các tác vụ @Async
+     * (@Primary: @Async không chỉ định tên vẫn dùng pool này khi có nhiều TaskExecutor)
      */
     @Bean(name = "asyncTaskExecutor")
+    @Primary
     public TaskExecutor asyncTaskExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(5);   // Số luồng chạy thường trực
@@ -24,4 +27,18 @@ public class AsyncConfig {
         return executor;
     }
 
+    /**
+     * Pool cho các writer ghi tin nhắn theo từng hội thoại (MessageIngestionService).
+     * Mỗi task drain 1 hội thoại nên số luồng cũng là số transaction ghi tin nhắn chạy song song tối đa.
+     */
+    @Bean(name = "chatWriterExecutor")
+    public TaskExecutor chatWriterExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(16);
+        executor.setQueueCapacity(10000);
+        executor.setThreadNamePrefix("ChatWriter-");
+        executor.initialize();
+        return executor;
+    }
 }
@@ -0,0 +1,12 @@
+package com.kt.social.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Bật @Scheduled cho các job nền (migration dữ liệu, flush batch...)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
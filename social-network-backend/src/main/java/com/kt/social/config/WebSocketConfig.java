@@ -1,14 +1,19 @@
 package com.kt.social.config;
 
+import com.kt.social.infra.websocket.ConversationFrameFilter;
+import com.kt.social.infra.websocket.ConversationSubscriptionGuard;
 import com.kt.social.infra.websocket.JwtHandshakeInterceptor;
+import com.kt.social.infra.websocket.SlowConsumerGuard;
 import com.kt.social.infra.websocket.StompPrincipalInterceptor;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 @Configuration
 @EnableWebSocketMessageBroker
@@ -17,6 +22,37 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     private final JwtHandshakeInterceptor jwtHandshakeInterceptor;
     private final StompPrincipalInterceptor stompPrincipalInterceptor;
+    private final SlowConsumerGuard slowConsumerGuard;
+    private final ConversationFrameFilter conversationFrameFilter;
+    private final ConversationSubscriptionGuard conversationSubscriptionGuard;
+
+    // Giới hạn buffer gửi của từng session: vượt thời gian / dung lượng thì Spring đóng session
+    @Value("${chat.ws.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    @Value("${chat.ws.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${chat.ws.message-size-limit:65536}")
+    private int messageSizeLimit;
+
+    @Value("${chat.ws.inbound.core-pool-size:8}")
+    private int inboundCorePoolSize;
+
+    @Value("${chat.ws.inbound.max-pool-size:32}")
+    private int inboundMaxPoolSize;
+
+    @Value("${chat.ws.inbound.queue-capacity:10000}")
+    private int inboundQueueCapacity;
+
+    @Value("${chat.ws.outbound.core-pool-size:8}")
+    private int outboundCorePoolSize;
+
+    @Value("${chat.ws.outbound.max-pool-size:32}")
+    private int outboundMaxPoolSize;
+
+    @Value("${chat.ws.outbound.queue-capacity:50000}")
+    private int outboundQueueCapacity;
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
@@ -32,9 +68,34 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .setAllowedOriginPatterns("*");
     }
 
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimitMs)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setMessageSizeLimit(messageSizeLimit)
+                // Theo dõi frame thực sự ghi xuống socket của từng session
+                .addDecoratorFactory(slowConsumerGuard);
+    }
+
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
         // Đăng ký Interceptor của bạn để nó gán Principal (user) cho MỌI tin nhắn STOMP
-        registration.interceptors(stompPrincipalInterceptor);
+        // Sau đó chặn SUBSCRIBE hội thoại của người không phải thành viên
+        registration.interceptors(stompPrincipalInterceptor, conversationSubscriptionGuard);
+        registration.taskExecutor()
+                .corePoolSize(inboundCorePoolSize)
+                .maxPoolSize(inboundMaxPoolSize)
+                .queueCapacity(inboundQueueCapacity);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // Bỏ frame hội thoại gửi tới người đã bị xóa / rời nhóm,
+        // sau đó bỏ event không quan trọng / đóng session khi client không đọc kịp
+        registration.interceptors(conversationFrameFilter, slowConsumerGuard);
+        registration.taskExecutor()
+                .corePoolSize(outboundCorePoolSize)
+                .maxPoolSize(outboundMaxPoolSize)
+                .queueCapacity(outboundQueueCapacity);
     }
-}
\ No newline at end of file
+}
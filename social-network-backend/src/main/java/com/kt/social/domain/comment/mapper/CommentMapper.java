@@ -2,16 +2,17 @@ package com.kt.social.domain.comment.mapper;
 
 import com.kt.social.domain.comment.dto.CommentResponse;
 import com.kt.social.domain.comment.model.Comment;
+import com.kt.social.domain.user.mapper.AuthorProfileMapper;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.ReportingPolicy;
 
-@Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.IGNORE)
+@Mapper(componentModel = "spring", uses = AuthorProfileMapper.class, unmappedTargetPolicy = ReportingPolicy.IGNORE)
 public interface CommentMapper {
 
     @Mapping(source = "author.id", target = "authorId")
-    @Mapping(source = "author.displayName", target = "authorName")
-    @Mapping(source = "author.avatarUrl", target = "authorAvatar")
+    @Mapping(source = "author", target = "authorName", qualifiedByName = "authorName")
+    @Mapping(source = "author", target = "authorAvatar", qualifiedByName = "authorAvatar")
     @Mapping(source = "post.id", target = "postId")
     @Mapping(source = "parent.id", target = "parentId")
     @Mapping(target = "reactSummary", ignore = true)
@@ -48,6 +48,8 @@ public class Comment {
     @Type(JsonBinaryType.class)
     @Column(columnDefinition = "jsonb")
     private List<Map<String, String>> media;
+    // Chỉ thay đổi qua EngagementCounterService (UPDATE ... + delta), save entity không ghi đè
+    @Column(updatable = false)
     private int reactCount;
 
     @CreationTimestamp
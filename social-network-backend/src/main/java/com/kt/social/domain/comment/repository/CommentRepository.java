@@ -6,6 +6,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -36,6 +37,18 @@ public interface CommentRepository extends JpaRepository<Comment, Long> {
                 ));
     }
 
+    @Query("SELECT c.reactCount FROM Comment c WHERE c.id = :commentId")
+    Optional<Integer> findReactCount(@Param("commentId") Long commentId);
+
+    // Cộng delta cho nhiều bình luận trong 1 câu (EngagementCounterService flush)
+    @Modifying
+    @Query(value = """
+        UPDATE comment c SET react_count = c.react_count + d.delta
+        FROM unnest(CAST(:ids AS bigint[]), CAST(:deltas AS bigint[])) AS d(id, delta)
+        WHERE c.id = d.id
+        """, nativeQuery = true)
+    int addReactCounts(@Param("ids") Long[] ids, @Param("deltas") Long[] deltas);
+
     @Query(value = "SELECT * FROM comment WHERE id = :id", nativeQuery = true)
     Optional<Comment> findByIdIncludingDeleted(@Param("id") Long id);
 
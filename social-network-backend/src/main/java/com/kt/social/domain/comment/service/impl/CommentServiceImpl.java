@@ -10,20 +10,22 @@ import com.kt.social.domain.comment.mapper.CommentMapper;
 import com.kt.social.domain.comment.model.Comment;
 import com.kt.social.domain.comment.repository.CommentRepository;
 import com.kt.social.domain.comment.service.CommentService;
-import com.kt.social.domain.friendship.repository.FriendshipRepository;
 import com.kt.social.domain.moderation.event.ContentCreatedEvent;
 import com.kt.social.domain.notification.enums.NotificationType;
 import com.kt.social.domain.notification.service.NotificationService;
+import com.kt.social.domain.post.enums.EngagementCounter;
 import com.kt.social.domain.post.model.Post;
 import com.kt.social.domain.post.repository.PostRepository;
+import com.kt.social.domain.post.service.EngagementCounterService;
 import com.kt.social.domain.react.dto.ReactSummaryDto;
 import com.kt.social.domain.react.enums.TargetType;
 import com.kt.social.domain.react.service.ReactService;
 import com.kt.social.domain.user.model.User;
+import com.kt.social.domain.user.service.UserProfileCache;
 import com.kt.social.domain.user.service.UserService;
+import com.kt.social.domain.user.service.ViewerContextService;
 import com.kt.social.infra.ai.AiServiceClient;
 import com.kt.social.infra.storage.StorageService;
-import jakarta.persistence.OptimisticLockException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
@@ -44,7 +46,7 @@ import java.util.stream.Collectors;
 public class CommentServiceImpl implements CommentService {
 
     private final ApplicationEventPublisher eventPublisher;
-    private final FriendshipRepository friendshipRepository;
+    private final ViewerContextService viewerContextService;
     private final CommentRepository commentRepository;
     private final PostRepository postRepository;
     private final CommentMapper commentMapper;
@@ -52,6 +54,8 @@ public class CommentServiceImpl implements CommentService {
     private final ReactService reactService;
     private final StorageService storageService;
     private final NotificationService notificationService;
+    private final UserProfileCache userProfileCache;
+    private final EngagementCounterService engagementCounterService;
 //    private final ActivityLogService activityLogService;
 
     // ---------------- CREATE ----------------
@@ -279,17 +283,9 @@ public class CommentServiceImpl implements CommentService {
 //        );
     }
 
-    // ---------------- SAFE UPDATE COMMENT COUNT WITH RETRY ----------------
-    @Transactional
+    // ---------------- UPDATE COMMENT COUNT (cộng dồn trong bộ nhớ, flush theo lô) ----------------
     public void safeUpdateCommentCount(Long postId, int delta) {
-        for (int i = 0; i < 3; i++) {
-            try {
-                postRepository.updateCommentCount(postId, delta);
-                return;
-            } catch (OptimisticLockException e) {
-                if (i == 2) throw e;
-            }
-        }
+        engagementCounterService.increment(EngagementCounter.POST_COMMENTS, postId, delta);
     }
 
     // ---------------- PRIVATE HELPER METHODS ----------------
@@ -309,6 +305,9 @@ public class CommentServiceImpl implements CommentService {
 
         List<Long> commentIds = comments.stream().map(Comment::getId).toList();
 
+        // Tên / avatar tác giả cả trang trong 1 query (CommentMapper đọc từ cache)
+        userProfileCache.getAll(comments.stream().map(c -> c.getAuthor().getId()).toList());
+
         Map<Long, ReactSummaryDto> reactMap = reactService.getReactSummaries(commentIds, viewerId, TargetType.COMMENT);
 
         Map<Long, Integer> childrenCountMap = (depth < 2)
@@ -318,6 +317,7 @@ public class CommentServiceImpl implements CommentService {
         List<CommentResponse> content = comments.stream()
                 .map(comment -> {
                     CommentResponse dto = commentMapper.toDto(comment);
+                    dto.setReactCount(currentReactCount(comment));
                     dto.setReactSummary(reactMap.getOrDefault(
                             comment.getId(),
                             ReactSummaryDto.builder()
@@ -344,6 +344,7 @@ public class CommentServiceImpl implements CommentService {
 
     private CommentResponse toDtoWithChildrenAndReacts(Comment comment, Long viewerId, int depth) {
         CommentResponse dto = commentMapper.toDto(comment);
+        dto.setReactCount(currentReactCount(comment));
 
         dto.setReactSummary(reactService.getReactSummary(comment.getId(), TargetType.COMMENT, viewerId));
 
@@ -356,6 +357,12 @@ public class CommentServiceImpl implements CommentService {
         return dto;
     }
 
+    // Số react đã lưu + phần chưa flush
+    private int currentReactCount(Comment comment) {
+        return (int) engagementCounterService.current(
+                EngagementCounter.COMMENT_REACTS, comment.getId(), comment.getReactCount());
+    }
+
     private boolean currentUserHasAuthority(String authority) {
         var auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth == null || auth.getAuthorities() == null) {
@@ -383,7 +390,7 @@ public class CommentServiceImpl implements CommentService {
             case PRIVATE:
                 throw new AccessDeniedException("You don't have permission to view this private post");
             case FRIENDS:
-                if (!friendshipRepository.existsActiveFriendship(author, viewer)) {
+                if (!viewerContextService.get(viewer.getId()).isFriend(author.getId())) {
                     throw new AccessDeniedException("Only friends can view this post");
                 }
                 break;
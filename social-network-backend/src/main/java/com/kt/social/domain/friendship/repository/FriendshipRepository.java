@@ -12,6 +12,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -47,6 +48,30 @@ public interface FriendshipRepository extends JpaRepository<Friendship, Long>, J
         return result;
     }
 
+    @Query("""
+    SELECT CASE
+        WHEN f.sender.id = :userId THEN f.receiver.id
+        ELSE f.sender.id
+    END
+    FROM Friendship f
+    WHERE (f.sender.id = :userId OR f.receiver.id = :userId)
+      AND f.status = 'FRIEND'
+""")
+    List<Long> findFriendIds(@Param("userId") Long userId);
+
+    // Những user trong candidateIds đang là bạn bè của userId (kiểm tra quyền xem theo lô)
+    @Query("""
+    SELECT CASE
+        WHEN f.sender.id = :userId THEN f.receiver.id
+        ELSE f.sender.id
+    END
+    FROM Friendship f
+    WHERE ((f.sender.id = :userId AND f.receiver.id IN :candidateIds)
+        OR (f.receiver.id = :userId AND f.sender.id IN :candidateIds))
+      AND f.status = 'FRIEND'
+""")
+    List<Long> findFriendIdsAmong(@Param("userId") Long userId, @Param("candidateIds") Collection<Long> candidateIds);
+
     @Query("""
     SELECT CASE
         WHEN f.sender.id = :userId THEN f.receiver.id
@@ -69,6 +94,16 @@ public interface FriendshipRepository extends JpaRepository<Friendship, Long>, J
 """)
     List<Long> findBlockedUserIdsByTarget(@Param("userId") Long id);
 
+    // Một trong 2 người đã chặn người kia (1 lần dò, luôn đọc DB)
+    @Query("""
+    SELECT
+        CASE WHEN COUNT(f) > 0 THEN true ELSE false END
+    FROM Friendship f
+    WHERE ((f.sender.id = :user1Id AND f.receiver.id = :user2Id) OR (f.sender.id = :user2Id AND f.receiver.id = :user1Id))
+        AND f.status = 'BLOCKED'
+""")
+    boolean existsBlockBetween(@Param("user1Id") Long user1Id, @Param("user2Id") Long user2Id);
+
     @Query("""
     SELECT f 
     FROM Friendship f 
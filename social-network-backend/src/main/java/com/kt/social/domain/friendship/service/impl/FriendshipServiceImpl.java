@@ -24,6 +24,7 @@ import com.kt.social.domain.user.model.User;
 import com.kt.social.domain.user.model.UserRela;
 import com.kt.social.domain.user.repository.UserRelaRepository;
 import com.kt.social.domain.user.repository.UserRepository;
+import com.kt.social.domain.user.service.ViewerContextService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Pageable;
@@ -47,6 +48,7 @@ public class FriendshipServiceImpl extends BaseFilterService<Friendship, UserRel
     private final UserMapper userMapper;
     private final NotificationService notificationService;
     private final ApplicationEventPublisher eventPublisher;
+    private final ViewerContextService viewerContextService;
 
     // --------------------------- Friend Actions ---------------------------
 
@@ -56,7 +58,7 @@ public class FriendshipServiceImpl extends BaseFilterService<Friendship, UserRel
         if (userId.equals(targetId))
             throw new BadRequestException("You cannot send a friend request to yourself");
 
-        if (blockUtils.isBlocked(userId, targetId) || blockUtils.isBlocked(targetId, userId)) {
+        if (blockUtils.isBlockedEitherWay(userId, targetId)) {
             throw new BadRequestException("Cannot send request — one of you has blocked the other");
         }
 
@@ -117,7 +119,7 @@ public class FriendshipServiceImpl extends BaseFilterService<Friendship, UserRel
             throw new BadRequestException("Cannot approve a request that does not have status PENDING");
         }
 
-        if (blockUtils.isBlocked(senderId, receiverId) || blockUtils.isBlocked(receiverId, senderId)) {
+        if (blockUtils.isBlockedEitherWay(senderId, receiverId)) {
             throw new BadRequestException("Cannot send request — one of you has blocked the other");
         }
 
@@ -265,6 +267,7 @@ public class FriendshipServiceImpl extends BaseFilterService<Friendship, UserRel
             throw new BadRequestException("This user is not blocked");
 
         friendshipRepository.delete(friendship);
+        viewerContextService.invalidate(userId, targetId);
 
 //        activityLogService.logActivity(
 //                getUser(userId), // (Actor là người bỏ chặn)
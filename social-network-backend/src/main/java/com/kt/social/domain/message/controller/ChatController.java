@@ -4,8 +4,10 @@ import com.kt.social.common.constants.WebSocketConstants;
 import com.kt.social.common.exception.BadRequestException;
 import com.kt.social.domain.message.dto.MarkReadRequest;
 import com.kt.social.domain.message.dto.MessageRequest;
-import com.kt.social.domain.message.service.ConversationService;
+import com.kt.social.domain.message.dto.TypingRequest;
 import com.kt.social.domain.message.service.MessageService;
+import com.kt.social.domain.message.service.ReadReceiptCoalescer;
+import com.kt.social.domain.message.service.TypingIndicatorService;
 import com.kt.social.domain.user.service.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -24,8 +26,9 @@ import java.security.Principal;
 public class ChatController {
 
     private final MessageService messageService;
-    private final ConversationService conversationService;
     private final UserService userService;
+    private final ReadReceiptCoalescer readReceiptCoalescer;
+    private final TypingIndicatorService typingIndicatorService;
 
     /**
      * 📌 Gửi tin nhắn text qua WebSocket
@@ -72,7 +75,16 @@ public class ChatController {
     public void markAsRead(@Payload MarkReadRequest request, Principal principal) {
         Long userId = Long.parseLong(principal.getName());
 
-        // Gọi Service xử lý logic lưu DB
-        conversationService.markMessageAsRead(userId, request);
+        // Gộp theo cửa sổ ngắn rồi mới ghi DB + broadcast (xem ReadReceiptCoalescer)
+        readReceiptCoalescer.submit(userId, request);
+    }
+
+    /**
+     * Tín hiệu "đang gõ" / "dừng gõ": chỉ trong bộ nhớ, throttle phía server
+     */
+    @MessageMapping("/chat.typing")
+    public void typing(@Payload TypingRequest request, Principal principal) {
+        if (principal == null) return;
+        typingIndicatorService.onTyping(Long.parseLong(principal.getName()), request);
     }
 }
\ No newline at end of file
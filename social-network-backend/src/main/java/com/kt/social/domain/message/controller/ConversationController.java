@@ -1,6 +1,7 @@
 // ConversationController.java (get my conversations)
 package com.kt.social.domain.message.controller;
 
+import com.kt.social.common.vo.CursorPage;
 import com.kt.social.domain.message.dto.*;
 import com.kt.social.domain.message.service.ConversationService;
 import com.kt.social.domain.user.service.UserService;
@@ -79,6 +80,16 @@ public class ConversationController {
         return ResponseEntity.ok(conversationService.getUserConversations(userId));
     }
 
+    // Inbox phân trang keyset: GET /me/cursor?limit=20, trang sau thêm &cursor=<nextCursor>
+    @GetMapping("/me/cursor")
+    public ResponseEntity<CursorPage<ConversationSummaryResponse>> myConversationsCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        Long userId = userService.getCurrentUser().getId();
+        return ResponseEntity.ok(conversationService.getUserConversationsCursor(userId, cursor, limit));
+    }
+
     @GetMapping("/{conversationId}")
     public ResponseEntity<ConversationSummaryResponse> getConversationById(
             @PathVariable Long conversationId
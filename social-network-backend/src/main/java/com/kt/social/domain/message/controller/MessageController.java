@@ -2,9 +2,15 @@
 package com.kt.social.domain.message.controller;
 
 import com.kt.social.common.constants.ApiConstants;
+import com.kt.social.domain.message.dto.ConversationChangesResponse;
 import com.kt.social.domain.message.dto.MessageRequest;
 import com.kt.social.domain.message.dto.MessageResponse;
+import com.kt.social.domain.message.dto.MessageSyncResponse;
+import com.kt.social.domain.message.dto.MessageWindowResponse;
+import com.kt.social.domain.message.event.ChatMessageEvent;
 import com.kt.social.domain.message.service.MessageService;
+import com.kt.social.domain.message.service.MessageSyncService;
+import com.kt.social.domain.user.service.UserService;
 import com.kt.social.common.vo.CursorPage;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -20,11 +26,13 @@ import java.util.Map;
 public class MessageController {
 
     private final MessageService messageService;
+    private final MessageSyncService messageSyncService;
+    private final UserService userService;
 
     // POST multipart to send (returns created message object)
     @PostMapping(consumes = "multipart/form-data")
-    public ResponseEntity<Map<String,Object>> sendMessage(@ModelAttribute MessageRequest req) {
-        Map<String,Object> saved = messageService.sendMessage(req);
+    public ResponseEntity<ChatMessageEvent> sendMessage(@ModelAttribute MessageRequest req) {
+        ChatMessageEvent saved = messageService.sendMessage(req);
         return ResponseEntity.ok(saved);
     }
 
@@ -40,6 +48,61 @@ public class MessageController {
         return ResponseEntity.ok(page);
     }
 
+    // Cursor theo seq: ?before=<seq> đọc ngược (mới -> cũ), ?after=<seq> đọc xuôi (cũ -> mới)
+    @GetMapping("/{conversationId}/seq")
+    public ResponseEntity<CursorPage<MessageResponse>> getMessagesBySeq(
+            @PathVariable Long conversationId,
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "30") int limit
+    ) {
+        return ResponseEntity.ok(messageService.getMessagesBySeq(conversationId, before, after, limit));
+    }
+
+    // Tìm trong hội thoại: ?q=<từ khóa>, trang sau thêm ?before=<nextCursor>
+    @GetMapping("/{conversationId}/search")
+    public ResponseEntity<CursorPage<MessageResponse>> searchMessages(
+            @PathVariable Long conversationId,
+            @RequestParam String q,
+            @RequestParam(required = false) Long before,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        return ResponseEntity.ok(messageService.searchMessages(conversationId, q, before, limit));
+    }
+
+    // Jump to message: ?messageId=<uuid> hoặc ?seq=<seq>
+    @GetMapping("/{conversationId}/around")
+    public ResponseEntity<MessageWindowResponse> getMessagesAround(
+            @PathVariable Long conversationId,
+            @RequestParam(required = false) String messageId,
+            @RequestParam(required = false) Long seq,
+            @RequestParam(defaultValue = "30") int limit
+    ) {
+        return ResponseEntity.ok(messageService.getMessagesAround(conversationId, messageId, seq, limit));
+    }
+
+    // Delta sync sau khi reconnect: ?token=<nextToken lần trước> (bỏ trống -> reset + token hiện tại)
+    @GetMapping("/{conversationId}/sync")
+    public ResponseEntity<MessageSyncResponse> syncConversation(
+            @PathVariable Long conversationId,
+            @RequestParam(required = false) String token,
+            @RequestParam(defaultValue = "200") int limit
+    ) {
+        Long currentUserId = userService.getCurrentUser().getId();
+        return ResponseEntity.ok(messageSyncService.sync(currentUserId, conversationId, token, limit));
+    }
+
+    // Hội thoại có thay đổi từ mốc since (nextSince lần trước), phân trang bằng after = nextCursor
+    @GetMapping("/sync")
+    public ResponseEntity<ConversationChangesResponse> syncConversations(
+            @RequestParam(required = false) String since,
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "200") int limit
+    ) {
+        Long currentUserId = userService.getCurrentUser().getId();
+        return ResponseEntity.ok(messageSyncService.changedConversations(currentUserId, since, after, limit));
+    }
+
     // convenience endpoint to fetch all messages (careful)
     @GetMapping("/{conversationId}/all")
     public ResponseEntity<List<Map<String,Object>>> getAllMessages(@PathVariable Long conversationId) {
@@ -0,0 +1,34 @@
+package com.kt.social.domain.message.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Các hội thoại của user có thay đổi kể từ mốc since (tin mới, sửa / gỡ, người đọc, thành viên mới...).
+ * Client so lastMessageSeq / changeVersion với token đang giữ và chỉ sync những hội thoại bị lệch.
+ * Còn trang (hasMore) thì gọi lại với cùng since + after = nextCursor; hết trang thì lưu nextSince.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ConversationChangesResponse {
+    private List<ConversationState> conversations;
+    private Long nextCursor;
+    private boolean hasMore;
+    private String nextSince;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class ConversationState {
+        private Long conversationId;
+        private Long lastMessageSeq;
+        private Long changeVersion;
+    }
+}
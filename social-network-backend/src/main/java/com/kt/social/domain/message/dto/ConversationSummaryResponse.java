@@ -17,6 +17,7 @@ public class ConversationSummaryResponse {
 
     private Map<String, Object> lastMessage;
     private List<ParticipantDto> participants;
+    private long unreadCount;
 
     private Instant updatedAt;
 }
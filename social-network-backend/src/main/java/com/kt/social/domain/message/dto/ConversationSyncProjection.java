@@ -0,0 +1,7 @@
+package com.kt.social.domain.message.dto;
+
+public interface ConversationSyncProjection {
+    Long getConversationId();
+    Long getLastMessageSeq();
+    Long getChangeVersion();
+}
@@ -14,6 +14,9 @@ public class MessageRequest {
     private String content;
     private Long replyToId;
 
+    // Id tạm do client sinh, được trả lại trong ack (kèm seq) để client ghép với tin đang chờ
+    private String clientMessageId;
+
     // Có thể gửi nhiều file
     private List<MultipartFile> mediaFiles;
 }
\ No newline at end of file
@@ -14,6 +14,7 @@ import java.util.Map;
 public class MessageResponse {
     private String id;
     private Long conversationId;
+    private Long seq; // thứ tự tin nhắn trong hội thoại
     private Long senderId;
     private String senderName;
     private String senderAvatar;
@@ -23,6 +24,7 @@ public class MessageResponse {
     @JsonFormat(shape = JsonFormat.Shape.STRING)
     private Instant createdAt;
     private Boolean isRead;
+    private List<Long> readBy; // suy ra từ watermark last_read_seq của thành viên
     private List<Map<String,Object>> reactions; // list of reaction objects
     private Instant deletedAt;
 }
\ No newline at end of file
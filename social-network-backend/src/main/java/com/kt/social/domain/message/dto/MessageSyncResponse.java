@@ -0,0 +1,30 @@
+package com.kt.social.domain.message.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Delta của 1 hội thoại kể từ token của client.
+ *  - messages: tin mới (seq tăng dần), không kèm readBy -> client tự suy ra từ readWatermarks
+ *  - updates: trạng thái hiện tại của các tin cũ vừa bị sửa / gỡ / đổi reaction
+ *  - readWatermarks: các thành viên vừa đọc thêm
+ * hasMore = true thì gọi tiếp với nextToken. reset = true nghĩa là token quá cũ / không hợp lệ,
+ * client phải tải lại trang đầu rồi sync tiếp từ nextToken.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MessageSyncResponse {
+    private Long conversationId;
+    private List<MessageResponse> messages;
+    private List<MessageResponse> updates;
+    private List<ReadWatermarkResponse> readWatermarks;
+    private String nextToken;
+    private boolean hasMore;
+    private boolean reset;
+}
@@ -0,0 +1,23 @@
+package com.kt.social.domain.message.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Cửa sổ tin nhắn quanh 1 tin (jump to message). content sắp mới -> cũ như các trang cursor khác.
+ * olderCursor / newerCursor là seq để tiếp tục đọc về 2 phía (null nếu đã hết).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MessageWindowResponse {
+    private List<MessageResponse> content;
+    private Long anchorSeq;
+    private Long olderCursor;
+    private Long newerCursor;
+}
@@ -10,4 +10,5 @@ public class ParticipantDto {
     private String displayName;
     private String avatarUrl;
     private String role;
+    private Long lastReadSeq;
 }
\ No newline at end of file
@@ -0,0 +1,6 @@
+package com.kt.social.domain.message.dto;
+
+public interface ReadWatermarkProjection {
+    Long getUserId();
+    Long getLastReadSeq();
+}
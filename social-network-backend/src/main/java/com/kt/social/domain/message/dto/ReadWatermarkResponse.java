@@ -0,0 +1,15 @@
+package com.kt.social.domain.message.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReadWatermarkResponse {
+    private Long userId;
+    private Long lastReadSeq;
+}
@@ -0,0 +1,10 @@
+package com.kt.social.domain.message.dto;
+
+import lombok.Data;
+
+@Data
+public class TypingRequest {
+    private Long conversationId;
+    // true = đang gõ, false = dừng gõ (xóa nội dung / gửi xong)
+    private Boolean typing = true;
+}
@@ -0,0 +1,10 @@
+package com.kt.social.domain.message.enums;
+
+/**
+ * Loại thay đổi trên 1 tin nhắn đã gửi (tin mới không cần ghi log, client nhận theo seq).
+ */
+public enum MessageChangeType {
+    EDITED,
+    DELETED,
+    REACTED
+}
@@ -0,0 +1,25 @@
+package com.kt.social.domain.message.event;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Ack riêng cho người gửi qua WS (/user/queue/chat.ack): SENT kèm messageId + seq, hoặc FAILED kèm lỗi.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ChatAckEvent(
+        String status,
+        Long conversationId,
+        String clientMessageId,
+        String messageId,
+        Long seq,
+        String error
+) implements ChatEvent {
+
+    public static ChatAckEvent sent(Long conversationId, String clientMessageId, String messageId, Long seq) {
+        return new ChatAckEvent("SENT", conversationId, clientMessageId, messageId, seq, null);
+    }
+
+    public static ChatAckEvent failed(Long conversationId, String clientMessageId, String error) {
+        return new ChatAckEvent("FAILED", conversationId, clientMessageId, null, null, error);
+    }
+}
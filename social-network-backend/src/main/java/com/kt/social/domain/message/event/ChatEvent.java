@@ -0,0 +1,19 @@
+package com.kt.social.domain.message.event;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Payload gửi xuống client qua STOMP. Mỗi event được encode JSON đúng 1 lần
+ * (ChatBroadcaster) rồi dùng lại cho mọi destination / session.
+ */
+public interface ChatEvent {
+
+    /**
+     * true = có thể bỏ khi session của client đang nghẽn (SlowConsumerGuard),
+     * client tự bù lại qua delta sync / event kế tiếp.
+     */
+    @JsonIgnore
+    default boolean droppable() {
+        return false;
+    }
+}
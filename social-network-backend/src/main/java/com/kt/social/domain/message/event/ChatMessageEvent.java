@@ -0,0 +1,31 @@
+package com.kt.social.domain.message.event;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tin nhắn mới trên /queue/conversation/{id}. Giữ nguyên các field của payload Map cũ (MessageMapper.toMap).
+ */
+public record ChatMessageEvent(
+        String id,
+        Long conversationId,
+        Long seq,
+        Long senderId,
+        String senderName,
+        String senderAvatar,
+        Long replyToId,
+        String type,
+        String content,
+        List<Map<String, Object>> media,
+        String createdAt,
+        List<Map<String, Object>> reactions,
+        @JsonProperty("isDeleted") boolean isDeleted,
+        @JsonProperty("isSystemBan") boolean isSystemBan,
+        String deletedAt,
+        List<Long> readBy,
+        @JsonInclude(JsonInclude.Include.NON_NULL) String clientMessageId
+) implements ChatEvent {
+}
@@ -0,0 +1,10 @@
+package com.kt.social.domain.message.event;
+
+public record ConversationDeletedEvent(String type, Long conversationId) implements ChatEvent {
+
+    public static final String TYPE = "EVENT_CONVERSATION_DELETED";
+
+    public ConversationDeletedEvent(Long conversationId) {
+        this(TYPE, conversationId);
+    }
+}
@@ -0,0 +1,19 @@
+package com.kt.social.domain.message.event;
+
+import java.util.List;
+
+/**
+ * EVENT_MESSAGE_BATCH: các tin mới của 1 nhóm lớn trong 1 cửa sổ gộp, theo thứ tự seq.
+ */
+public record MessageBatchEvent(
+        String type,
+        Long conversationId,
+        List<ChatMessageEvent> messages
+) implements ChatEvent {
+
+    public static final String TYPE = "EVENT_MESSAGE_BATCH";
+
+    public MessageBatchEvent(Long conversationId, List<ChatMessageEvent> messages) {
+        this(TYPE, conversationId, messages);
+    }
+}
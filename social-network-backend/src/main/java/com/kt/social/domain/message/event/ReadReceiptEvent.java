@@ -0,0 +1,41 @@
+package com.kt.social.domain.message.event;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * EVENT_READ: các thành viên vừa đọc thêm trong 1 hội thoại.
+ * Khi chỉ có 1 người đọc thì lặp lại readerId / messageId / lastReadSeq ở cấp ngoài cho client cũ.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ReadReceiptEvent(
+        String type,
+        Long conversationId,
+        List<Reader> readers,
+        Long readerId,
+        String messageId,
+        Long lastReadSeq,
+        String timestamp
+) implements ChatEvent {
+
+    public static final String TYPE = "EVENT_READ";
+
+    // Watermark chỉ tăng: bỏ 1 event thì event sau vẫn mang vị trí mới nhất
+    @Override
+    public boolean droppable() {
+        return true;
+    }
+
+    public record Reader(Long readerId, String messageId, Long lastReadSeq) {
+    }
+
+    public static ReadReceiptEvent of(Long conversationId, List<Reader> readers, String timestamp) {
+        Reader single = readers.size() == 1 ? readers.get(0) : null;
+        return new ReadReceiptEvent(TYPE, conversationId, readers,
+                single != null ? single.readerId() : null,
+                single != null ? single.messageId() : null,
+                single != null ? single.lastReadSeq() : null,
+                timestamp);
+    }
+}
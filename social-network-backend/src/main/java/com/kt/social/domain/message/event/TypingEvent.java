@@ -0,0 +1,26 @@
+package com.kt.social.domain.message.event;
+
+/**
+ * EVENT_TYPING: 1 thành viên đang gõ / dừng gõ. Không lưu DB.
+ * Client tự ẩn trạng thái "đang gõ" nếu không nhận thêm event sau vài giây.
+ */
+public record TypingEvent(
+        String type,
+        Long conversationId,
+        Long userId,
+        boolean typing,
+        String timestamp
+) implements ChatEvent {
+
+    public static final String TYPE = "EVENT_TYPING";
+
+    public TypingEvent(Long conversationId, Long userId, boolean typing, String timestamp) {
+        this(TYPE, conversationId, userId, typing, timestamp);
+    }
+
+    // Trạng thái tạm thời, bỏ 1 event cũng không sao
+    @Override
+    public boolean droppable() {
+        return true;
+    }
+}
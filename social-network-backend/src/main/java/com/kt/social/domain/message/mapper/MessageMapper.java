@@ -0,0 +1,73 @@
+package com.kt.social.domain.message.mapper;
+
+import com.kt.social.domain.message.dto.MessageResponse;
+import com.kt.social.domain.message.event.ChatMessageEvent;
+import com.kt.social.domain.message.model.Message;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.ReportingPolicy;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.IGNORE)
+public interface MessageMapper {
+
+    @Mapping(source = "messageId", target = "id")
+    @Mapping(source = "id.conversationId", target = "conversationId")
+    @Mapping(source = "id.seq", target = "seq")
+    @Mapping(target = "isRead", ignore = true)
+    @Mapping(target = "readBy", ignore = true)
+    MessageResponse toResponse(Message message);
+
+    /**
+     * "readBy" không còn lưu theo từng tin nhắn: caller tự điền từ watermark của thành viên.
+     *
+     * Payload dạng Map giữ nguyên các key của JSON cũ (id, senderId, createdAt...)
+     * để FE và các API trả về Map không phải đổi.
+     */
+    default Map<String, Object> toMap(Message m) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("id", m.getMessageId());
+        map.put("conversationId", m.getId().getConversationId());
+        map.put("seq", m.getId().getSeq());
+        map.put("senderId", m.getSenderId());
+        map.put("senderName", m.getSenderName());
+        map.put("senderAvatar", m.getSenderAvatar());
+        map.put("replyToId", m.getReplyToId());
+        map.put("type", m.getType() != null ? m.getType().name() : null);
+        map.put("content", m.getContent());
+        map.put("media", m.getMedia() != null ? m.getMedia() : new ArrayList<>());
+        map.put("createdAt", m.getCreatedAt() != null ? m.getCreatedAt().toString() : null);
+        map.put("reactions", m.getReactions() != null ? m.getReactions() : new ArrayList<>());
+        map.put("isDeleted", m.isDeleted());
+        map.put("isSystemBan", m.isSystemBan());
+        map.put("deletedAt", m.getDeletedAt() != null ? m.getDeletedAt().toString() : null);
+        return map;
+    }
+
+    // Payload broadcast qua STOMP, cùng các field với toMap
+    default ChatMessageEvent toEvent(Message m, List<Long> readBy, String clientMessageId) {
+        return new ChatMessageEvent(
+                m.getMessageId(),
+                m.getId().getConversationId(),
+                m.getId().getSeq(),
+                m.getSenderId(),
+                m.getSenderName(),
+                m.getSenderAvatar(),
+                m.getReplyToId(),
+                m.getType() != null ? m.getType().name() : null,
+                m.getContent(),
+                m.getMedia() != null ? m.getMedia() : new ArrayList<>(),
+                m.getCreatedAt() != null ? m.getCreatedAt().toString() : null,
+                m.getReactions() != null ? m.getReactions() : new ArrayList<>(),
+                m.isDeleted(),
+                m.isSystemBan(),
+                m.getDeletedAt() != null ? m.getDeletedAt().toString() : null,
+                readBy,
+                clientMessageId
+        );
+    }
+}
\ No newline at end of file
@@ -1,17 +1,16 @@
 package com.kt.social.domain.message.model;
 
-import com.vladmihalcea.hibernate.type.json.JsonType;
 import jakarta.persistence.*;
 import lombok.*;
-import org.hibernate.annotations.Type;
 
 import java.time.Instant;
-import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 @Entity
-@Table(name = "conversations")
+@Table(name = "conversations", uniqueConstraints = {
+        // Mỗi cặp user chỉ có 1 hội thoại 1-1 (NULL với group nên không bị ràng buộc)
+        @UniqueConstraint(name = "uk_conversations_direct_pair", columnNames = {"direct_user_low", "direct_user_high"})
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -33,21 +32,40 @@ public class Conversation {
     private Set<ConversationMember> members;
 
     /**
-     * Lưu tất cả message dạng JSONB
-     * Cấu trúc:
-     * [
-     *   {
-     *     "id": "uuid",
-     *     "senderId": 3,
-     *     "content": "Hello",
-     *     "media": [ {"url": "...", "type": "image"} ],
-     *     "timestamp": "2025-11-08T15:24:12Z",
-     *     "deletedAt": null,
-     *   },
-     *   ...
-     * ]
+     * seq của tin nhắn cuối cùng trong bảng messages.
+     * Chỉ được cấp phát bằng native UPDATE ... RETURNING (ConversationRepository.allocateSequences),
+     * nên JPA không bao giờ ghi đè cột này.
+     *
+     * Lưu ý: cột JSONB "messages" cũ vẫn còn trong DB cho tới khi LegacyMessageMigrationService
+     * chuyển hết sang bảng messages (cột được set NULL sau khi migrate), entity không map cột đó nữa.
      */
-    @Type(JsonType.class)
-    @Column(columnDefinition = "jsonb")
-    private List<Map<String, Object>> messages;
-}
\ No newline at end of file
+    @Column(name = "last_message_seq", insertable = false, updatable = false,
+            columnDefinition = "bigint default 0")
+    private Long lastMessageSeq;
+
+    /**
+     * version của thay đổi cuối cùng trên tin nhắn đã gửi (sửa / gỡ / reaction), dùng cho delta sync.
+     * Cấp bằng ConversationRepository.allocateChangeVersion, JPA không ghi cột này.
+     */
+    @Column(name = "change_version", insertable = false, updatable = false,
+            columnDefinition = "bigint default 0")
+    private Long changeVersion;
+
+    /**
+     * Khóa chuẩn của hội thoại 1-1: (min(userA, userB), max(userA, userB)), NULL với group.
+     * Chỉ được ghi bằng ConversationRepository.insertDirectConversation (INSERT ... ON CONFLICT).
+     */
+    @Column(name = "direct_user_low", insertable = false, updatable = false)
+    private Long directUserLow;
+
+    @Column(name = "direct_user_high", insertable = false, updatable = false)
+    private Long directUserHigh;
+
+    /**
+     * Các tin có seq <= giá trị này đã được đưa vào message_search.
+     * Tiến cùng allocateSequences khi đã bắt kịp, phần còn thiếu do MessageSearchService backfill.
+     */
+    @Column(name = "search_indexed_seq", insertable = false, updatable = false,
+            columnDefinition = "bigint default 0")
+    private Long searchIndexedSeq;
+}
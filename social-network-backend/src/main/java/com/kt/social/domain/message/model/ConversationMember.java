@@ -8,7 +8,9 @@ import lombok.*;
 import java.time.Instant;
 
 @Entity
-@Table(name = "conversation_member")
+@Table(name = "conversation_member", indexes = {
+        @Index(name = "idx_conversation_member_user", columnList = "user_id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -37,4 +39,16 @@ public class ConversationMember {
     @Enumerated(EnumType.STRING)
     @Column(nullable = false, length = 20)
     private ConversationRole role;
+
+    /**
+     * Watermark đã đọc: seq lớn nhất member đã xem trong hội thoại.
+     * Chỉ tăng, được cập nhật bằng ConversationMemberRepository.advanceReadWatermark
+     * (updatable = false để save() entity không ghi đè giá trị cũ).
+     */
+    @Column(name = "last_read_seq", updatable = false, columnDefinition = "bigint default 0")
+    @Builder.Default
+    private Long lastReadSequence = 0L;
+
+    @Column(name = "last_read_at", updatable = false)
+    private Instant lastReadAt;
 }
\ No newline at end of file
@@ -0,0 +1,57 @@
+package com.kt.social.domain.message.model;
+
+import com.kt.social.domain.message.enums.MessageType;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Projection phi chuẩn hóa cho màn hình inbox: 1 row / hội thoại.
+ * Chỉ giữ snippet của tin nhắn cuối, inbox không bao giờ phải đọc nội dung bảng messages.
+ * Số tin chưa đọc của từng member = lastMessageSeq - ConversationMember.lastReadSequence.
+ */
+@Entity
+@Table(name = "conversation_summary", indexes = {
+        @Index(name = "idx_conversation_summary_updated", columnList = "updated_at, conversation_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ConversationSummary {
+
+    public static final int SNIPPET_LENGTH = 200;
+
+    @Id
+    @Column(name = "conversation_id")
+    private Long conversationId;
+
+    @Column(name = "last_message_id", length = 36)
+    private String lastMessageId;
+
+    @Column(name = "last_message_seq")
+    private Long lastMessageSeq;
+
+    @Column(name = "last_sender_id")
+    private Long lastSenderId;
+
+    @Column(name = "last_sender_name")
+    private String lastSenderName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "last_message_type", length = 20)
+    private MessageType lastMessageType;
+
+    @Column(name = "last_snippet", length = SNIPPET_LENGTH)
+    private String lastSnippet;
+
+    @Column(name = "last_message_deleted")
+    private boolean lastMessageDeleted;
+
+    @Column(name = "last_message_at")
+    private Instant lastMessageAt;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+}
@@ -0,0 +1,87 @@
+package com.kt.social.domain.message.model;
+
+import com.kt.social.domain.message.enums.MessageType;
+import com.vladmihalcea.hibernate.type.json.JsonType;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Type;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mỗi tin nhắn là một row riêng (append-only), thay cho mảng JSONB Conversation.messages.
+ * Gửi tin = 1 lệnh INSERT, không phải ghi lại toàn bộ lịch sử hội thoại.
+ */
+@Entity
+@Table(name = "messages")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Message implements Persistable<MessageKey> {
+
+    @EmbeddedId
+    private MessageKey id;
+
+    // UUID public của tin nhắn (FE, Report, Moderation đều dùng id này)
+    @Column(name = "message_id", nullable = false, length = 36)
+    private String messageId;
+
+    private Long senderId;
+    private String senderName;
+    private String senderAvatar;
+    private Long replyToId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private MessageType type;
+
+    @Column(columnDefinition = "text")
+    private String content;
+
+    @Type(JsonType.class)
+    @Column(columnDefinition = "jsonb")
+    private List<Map<String, Object>> media;
+
+    @Type(JsonType.class)
+    @Column(columnDefinition = "jsonb")
+    private List<Map<String, Object>> reactions;
+
+    private Instant createdAt;
+
+    private Instant updatedAt;
+
+    private Instant deletedAt;
+
+    @Column(name = "is_deleted")
+    private boolean isDeleted;
+
+    @Column(name = "is_system_ban")
+    private boolean isSystemBan;
+
+    /**
+     * Khóa (conversation_id, seq) được gán trước khi persist, nên cần tự báo "mới"
+     * để save() gọi persist() thay vì merge() (tránh 1 câu SELECT thừa mỗi lần gửi tin).
+     */
+    @Transient
+    @Builder.Default
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private boolean fresh = true;
+
+    @Override
+    public boolean isNew() {
+        return fresh;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        this.fresh = false;
+    }
+}
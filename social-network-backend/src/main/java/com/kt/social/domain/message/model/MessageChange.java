@@ -0,0 +1,47 @@
+package com.kt.social.domain.message.model;
+
+import com.kt.social.domain.message.enums.MessageChangeType;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Nhật ký thay đổi của tin nhắn đã gửi (sửa / gỡ / reaction), dùng cho delta sync.
+ * version được cấp tăng dần theo từng hội thoại (conversations.change_version, khóa row hội thoại)
+ * nên thứ tự version trùng với thứ tự commit. Chỉ giữ trong 1 khoảng thời gian (chat.sync.retention-days).
+ */
+@Entity
+@Table(name = "message_changes", indexes = {
+        @Index(name = "idx_message_changes_version", columnList = "conversation_id, version", unique = true),
+        @Index(name = "idx_message_changes_created", columnList = "created_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MessageChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "conversation_id", nullable = false)
+    private Long conversationId;
+
+    @Column(nullable = false)
+    private Long version;
+
+    @Column(nullable = false)
+    private Long seq;
+
+    @Column(name = "message_id", length = 36)
+    private String messageId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "change_type", nullable = false, length = 20)
+    private MessageChangeType changeType;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,24 @@
+package com.kt.social.domain.message.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * Khóa chính của bảng messages: (conversation_id, seq).
+ * seq tăng dần theo từng cuộc hội thoại nên PK cũng chính là index cho keyset paging.
+ */
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MessageKey implements Serializable {
+
+    @Column(name = "conversation_id")
+    private Long conversationId;
+
+    @Column(name = "seq")
+    private Long seq;
+}
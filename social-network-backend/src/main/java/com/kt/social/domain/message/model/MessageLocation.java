@@ -0,0 +1,29 @@
+package com.kt.social.domain.message.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Chỉ mục toàn cục: messageId (UUID) -> vị trí (conversation_id, seq) của tin nhắn.
+ * Report / Moderation / xóa tin chỉ có UUID, tra bảng này bằng PK rồi đọc đúng row trong messages.
+ */
+@Entity
+@Table(name = "message_locations", indexes = {
+        @Index(name = "idx_message_locations_conversation", columnList = "conversation_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MessageLocation {
+
+    @Id
+    @Column(name = "message_id", length = 36)
+    private String messageId;
+
+    @Column(name = "conversation_id", nullable = false)
+    private Long conversationId;
+
+    @Column(nullable = false)
+    private Long seq;
+}
@@ -0,0 +1,31 @@
+package com.kt.social.domain.message.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Chỉ mục tìm kiếm toàn văn của tin nhắn: mỗi tin văn bản 1 row (conversation_id, seq) -> tsvector.
+ * Tách khỏi bảng messages để vẫn tìm được tin đã bị đóng vào message_segments (tầng lạnh).
+ *
+ * Nội dung được bỏ dấu tiếng Việt trước khi đưa vào to_tsvector('simple', ...) (SearchTextUtils.fold),
+ * GIN index trên search_vector được tạo lúc khởi động (MessageSearchService).
+ */
+@Entity
+@Table(name = "message_search")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MessageSearchEntry {
+
+    @EmbeddedId
+    private MessageKey id;
+
+    // Chỉ ghi bằng native INSERT (MessageSearchRepository.indexAll)
+    @Column(name = "search_vector", columnDefinition = "tsvector", insertable = false, updatable = false)
+    private String searchVector;
+
+    private Instant createdAt;
+}
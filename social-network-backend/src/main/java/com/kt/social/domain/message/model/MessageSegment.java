@@ -0,0 +1,52 @@
+package com.kt.social.domain.message.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Tầng lưu trữ lạnh: một khối bất biến gồm vài nghìn tin nhắn cũ liên tiếp của 1 hội thoại,
+ * nén deflate thành bytea và đánh chỉ mục theo khoảng seq [fromSeq, toSeq].
+ * Row tương ứng trong bảng messages bị xóa sau khi đóng segment.
+ */
+@Entity
+@Table(name = "message_segments", indexes = {
+        @Index(name = "idx_message_segments_range", columnList = "conversation_id, from_seq", unique = true)
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MessageSegment {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "conversation_id", nullable = false)
+    private Long conversationId;
+
+    @Column(name = "from_seq", nullable = false)
+    private Long fromSeq;
+
+    @Column(name = "to_seq", nullable = false)
+    private Long toSeq;
+
+    @Column(name = "message_count", nullable = false)
+    private Integer messageCount;
+
+    // Kích thước JSON trước khi nén (theo dõi tỉ lệ nén)
+    @Column(name = "raw_size")
+    private Integer rawSize;
+
+    @Column(nullable = false, length = 20)
+    private String codec;
+
+    @Column(nullable = false, columnDefinition = "bytea")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private byte[] payload;
+
+    private Instant createdAt;
+}
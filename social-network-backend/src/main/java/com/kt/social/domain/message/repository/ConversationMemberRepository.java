@@ -1,13 +1,16 @@
 package com.kt.social.domain.message.repository;
 
-import com.kt.social.domain.message.model.Conversation;
+import com.kt.social.domain.message.dto.ReadWatermarkProjection;
 import com.kt.social.domain.message.model.ConversationMember;
 import com.kt.social.domain.message.model.ConversationMemberId;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -31,4 +34,61 @@ public interface ConversationMemberRepository extends JpaRepository<Conversation
             "LEFT JOIN FETCH m.user u " +     // Fetch user của members
             "WHERE cm.user.id = :userId")
     List<ConversationMember> findConversationsByUserId(@Param("userId") Long userId);
+
+    // Members (kèm user) của nhiều hội thoại trong 1 query - dùng cho 1 trang inbox
+    @Query("SELECT cm FROM ConversationMember cm JOIN FETCH cm.user WHERE cm.id.conversationId IN :conversationIds")
+    List<ConversationMember> findWithUsersByConversationIds(@Param("conversationIds") Collection<Long> conversationIds);
+
+    // Chỉ tăng watermark (không bao giờ lùi): 1 row, không đụng tới bảng messages
+    @Modifying
+    @Query(value = """
+        UPDATE conversation_member
+        SET last_read_seq = :seq, last_read_at = :readAt
+        WHERE conversation_id = :conversationId AND user_id = :userId
+        AND COALESCE(last_read_seq, 0) < :seq
+    """, nativeQuery = true)
+    int advanceReadWatermark(@Param("conversationId") Long conversationId,
+                             @Param("userId") Long userId,
+                             @Param("seq") Long seq,
+                             @Param("readAt") Instant readAt);
+
+    // Ghi gộp nhiều watermark trong 1 câu lệnh; trả về các cặp (conversation_id, user_id, last_read_seq) thực sự được tăng
+    @Query(value = """
+        UPDATE conversation_member cm
+        SET last_read_seq = v.seq, last_read_at = :readAt
+        FROM unnest(CAST(:conversationIds AS bigint[]), CAST(:userIds AS bigint[]), CAST(:seqs AS bigint[]))
+             AS v(conversation_id, user_id, seq)
+        WHERE cm.conversation_id = v.conversation_id AND cm.user_id = v.user_id
+        AND COALESCE(cm.last_read_seq, 0) < v.seq
+        RETURNING cm.conversation_id, cm.user_id, cm.last_read_seq
+    """, nativeQuery = true)
+    List<Object[]> advanceReadWatermarks(@Param("conversationIds") Long[] conversationIds,
+                                         @Param("userIds") Long[] userIds,
+                                         @Param("seqs") Long[] seqs,
+                                         @Param("readAt") Instant readAt);
+
+    // Watermark của mọi thành viên -> suy ra "đã xem bởi" cho từng tin nhắn
+    @Query(value = """
+        SELECT cm.user_id AS userId, COALESCE(cm.last_read_seq, 0) AS lastReadSeq
+        FROM conversation_member cm
+        WHERE cm.conversation_id = :conversationId
+    """, nativeQuery = true)
+    List<ReadWatermarkProjection> findReadWatermarks(@Param("conversationId") Long conversationId);
+
+    // Watermark vừa thay đổi sau mốc since (delta sync)
+    @Query(value = """
+        SELECT cm.user_id AS userId, COALESCE(cm.last_read_seq, 0) AS lastReadSeq
+        FROM conversation_member cm
+        WHERE cm.conversation_id = :conversationId AND cm.last_read_at > :since
+    """, nativeQuery = true)
+    List<ReadWatermarkProjection> findReadWatermarksSince(@Param("conversationId") Long conversationId,
+                                                          @Param("since") Instant since);
+
+    // (user_id, role) sắp theo user_id (cache membership)
+    @Query(value = """
+        SELECT cm.user_id, cm.role FROM conversation_member cm
+        WHERE cm.conversation_id = :conversationId
+        ORDER BY cm.user_id
+    """, nativeQuery = true)
+    List<Object[]> findMemberRoles(@Param("conversationId") Long conversationId);
 }
\ No newline at end of file
@@ -1,15 +1,18 @@
 package com.kt.social.domain.message.repository;
 
+import com.kt.social.domain.message.dto.ConversationSyncProjection;
 import com.kt.social.domain.moderation.dto.FlaggedMessageProjection;
 import com.kt.social.domain.moderation.dto.ModerationMessageResponse;
 import com.kt.social.domain.message.model.Conversation;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,70 +30,106 @@ public interface ConversationRepository extends JpaRepository<Conversation, Long
         """)
     Optional<Conversation> findDirectConversationBetween(@Param("userIds") List<Long> userIds);
 
-    @Query(value = """
-        SELECT * FROM conversations c
-        WHERE EXISTS (
-            SELECT 1
-            FROM jsonb_array_elements(c.messages) AS msg
-            WHERE msg->>'id' = :messageId
-        )
-    """, nativeQuery = true)
-    Optional<Conversation> findByMessageIdInJson(@Param("messageId") String messageId);
-
-    @Query("SELECT c FROM Conversation c " +
+    // Chỉ dùng cho hội thoại 1-1 cũ chưa được gán khóa chuẩn (trước khi backfill xong)
+    @Query("SELECT c.id FROM Conversation c " +
             "JOIN c.members m1 " +
             "JOIN c.members m2 " +
             "WHERE c.isGroup = false " +
             "AND m1.user.id = :userId1 " +
             "AND m2.user.id = :userId2")
-    Optional<Conversation> findExistingPrivateConversation(
+    List<Long> findLegacyDirectConversationIds(
             @Param("userId1") Long userId1,
             @Param("userId2") Long userId2
     );
 
+    // Hội thoại 1-1 theo khóa chuẩn (low < high): 1 lần dò unique index
+    @Query(value = """
+        SELECT id FROM conversations
+        WHERE direct_user_low = :low AND direct_user_high = :high
+    """, nativeQuery = true)
+    Optional<Long> findDirectConversationId(@Param("low") Long low, @Param("high") Long high);
+
+    /**
+     * Tạo hội thoại 1-1 nếu cặp chưa có. Trả về id mới, hoặc null nếu cặp đã tồn tại
+     * (transaction khác đang tạo cùng cặp thì câu lệnh chờ transaction đó xong rồi mới quyết định).
+     */
+    @Query(value = """
+        INSERT INTO conversations (is_group, created_at, updated_at, direct_user_low, direct_user_high,
+                                   last_message_seq, change_version)
+        VALUES (false, :now, :now, :low, :high, 0, 0)
+        ON CONFLICT (direct_user_low, direct_user_high) DO NOTHING
+        RETURNING id
+    """, nativeQuery = true)
+    Long insertDirectConversation(@Param("low") Long low, @Param("high") Long high, @Param("now") Instant now);
+
+    // Gán khóa chuẩn cho các hội thoại 1-1 cũ (cặp bị trùng thì chỉ hội thoại id nhỏ nhất được gán)
+    @Modifying
     @Query(value = """
-    SELECT 
-        CAST(msg ->> 'id' AS TEXT) as id,
-        CAST(c.id AS BIGINT) as conversationId,
+        UPDATE conversations c
+        SET direct_user_low = p.low, direct_user_high = p.high
+        FROM (
+            SELECT DISTINCT ON (pair.low, pair.high) pair.conversation_id, pair.low, pair.high
+            FROM (
+                SELECT cm.conversation_id, MIN(cm.user_id) AS low, MAX(cm.user_id) AS high
+                FROM conversation_member cm
+                JOIN conversations g ON g.id = cm.conversation_id
+                WHERE g.is_group = false AND g.direct_user_low IS NULL
+                GROUP BY cm.conversation_id
+                HAVING COUNT(*) = 2
+            ) pair
+            ORDER BY pair.low, pair.high, pair.conversation_id
+        ) p
+        WHERE c.id = p.conversation_id
+          AND NOT EXISTS (
+              SELECT 1 FROM conversations d
+              WHERE d.direct_user_low = p.low AND d.direct_user_high = p.high
+          )
+    """, nativeQuery = true)
+    int backfillDirectKeys();
+
+    @Query(value = """
+    SELECT
+        m.message_id as id,
+        m.conversation_id as conversationId,
         c.title as conversationTitle,
-        CAST(c.is_group AS BOOLEAN) as isGroup,
-        CAST(msg ->> 'senderId' AS BIGINT) as senderId,
-        msg ->> 'senderName' as senderName,
-        msg ->> 'senderAvatar' as senderAvatar,
-        msg ->> 'content' as content,
-        msg ->> 'createdAt' as sentAt,
-        CAST(msg ->> 'deletedAt' AS TIMESTAMP) as deletedAt,
-        CAST(msg -> 'media' AS TEXT) as media
-    FROM conversations c,
-         jsonb_array_elements(c.messages) msg
-    WHERE 
+        c.is_group as isGroup,
+        m.sender_id as senderId,
+        m.sender_name as senderName,
+        m.sender_avatar as senderAvatar,
+        m.content as content,
+        m.created_at as sentAt,
+        m.deleted_at as deletedAt,
+        CAST(m.media AS TEXT) as media
+    FROM messages m
+    JOIN conversations c ON c.id = m.conversation_id
+    WHERE
     (
         -- Điều kiện 1: Đã bị xóa (System ban hoặc delete)
-        (msg ->> 'deletedAt' IS NOT NULL)
-        OR 
+        (m.deleted_at IS NOT NULL OR m.is_deleted = true)
+        OR
         -- Điều kiện 2: Có nằm trong bảng Report
         EXISTS (
-            SELECT 1 FROM reports r 
-            WHERE r.target_type = 'MESSAGE' 
-            AND r.target_id = (msg ->> 'id')
+            SELECT 1 FROM reports r
+            WHERE r.target_type = 'MESSAGE'
+            AND r.target_id = m.message_id
         )
     )
-    AND (:filter IS NULL OR msg ->> 'content' ILIKE %:filter%)
+    AND (:filter IS NULL OR m.content ILIKE %:filter%)
 """,
             countQuery = """
     SELECT count(*)
-    FROM conversations c, jsonb_array_elements(c.messages) msg
-    WHERE 
+    FROM messages m
+    WHERE
     (
-        (msg ->> 'deletedAt' IS NOT NULL)
-        OR 
+        (m.deleted_at IS NOT NULL OR m.is_deleted = true)
+        OR
         EXISTS (
-            SELECT 1 FROM reports r 
-            WHERE r.target_type = 'MESSAGE' 
-            AND r.target_id = (msg ->> 'id')
+            SELECT 1 FROM reports r
+            WHERE r.target_type = 'MESSAGE'
+            AND r.target_id = m.message_id
         )
     )
-    AND (:filter IS NULL OR msg ->> 'content' ILIKE %:filter%)
+    AND (:filter IS NULL OR m.content ILIKE %:filter%)
 """,
             nativeQuery = true)
     Page<FlaggedMessageProjection> findFlaggedMessages(@Param("filter") String filter, Pageable pageable);
@@ -99,15 +138,17 @@ public interface ConversationRepository extends JpaRepository<Conversation, Long
         SELECT * FROM conversations c
         WHERE EXISTS (
             SELECT 1
-            FROM jsonb_array_elements(c.messages) AS msg
-            WHERE 
-                (msg ->> 'deletedAt' IS NOT NULL OR (msg ->> 'isDeleted')::boolean = true)
-                OR 
+            FROM messages m
+            WHERE m.conversation_id = c.id
+            AND (
+                (m.deleted_at IS NOT NULL OR m.is_deleted = true)
+                OR
                 EXISTS (
-                    SELECT 1 FROM reports r 
-                    WHERE r.target_type = 'MESSAGE' 
-                    AND r.target_id = (msg ->> 'id')
+                    SELECT 1 FROM reports r
+                    WHERE r.target_type = 'MESSAGE'
+                    AND r.target_id = m.message_id
                 )
+            )
         )
         ORDER BY c.updated_at DESC
     """,
@@ -115,17 +156,137 @@ public interface ConversationRepository extends JpaRepository<Conversation, Long
         SELECT count(*) FROM conversations c
         WHERE EXISTS (
             SELECT 1
-            FROM jsonb_array_elements(c.messages) AS msg
-            WHERE 
-                (msg ->> 'deletedAt' IS NOT NULL OR (msg ->> 'isDeleted')::boolean = true)
-                OR 
+            FROM messages m
+            WHERE m.conversation_id = c.id
+            AND (
+                (m.deleted_at IS NOT NULL OR m.is_deleted = true)
+                OR
                 EXISTS (
-                    SELECT 1 FROM reports r 
-                    WHERE r.target_type = 'MESSAGE' 
-                    AND r.target_id = (msg ->> 'id')
+                    SELECT 1 FROM reports r
+                    WHERE r.target_type = 'MESSAGE'
+                    AND r.target_id = m.message_id
                 )
+            )
         )
     """,
             nativeQuery = true)
     Page<Conversation> findConversationsWithFlaggedMessages(Pageable pageable);
+
+    /**
+     * Cấp phát {@code count} số thứ tự liên tiếp cho hội thoại (atomic, khóa đúng 1 row).
+     * Trả về seq lớn nhất vừa cấp, hoặc null nếu hội thoại không tồn tại.
+     * Nếu chỉ mục tìm kiếm đã bắt kịp thì tiến luôn search_indexed_seq (caller index các tin mới trong cùng transaction).
+     */
+    @Query(value = """
+        UPDATE conversations
+        SET last_message_seq = COALESCE(last_message_seq, 0) + :count,
+            search_indexed_seq = CASE
+                WHEN COALESCE(search_indexed_seq, 0) >= COALESCE(last_message_seq, 0)
+                    THEN COALESCE(last_message_seq, 0) + :count
+                ELSE search_indexed_seq
+            END,
+            updated_at = :now
+        WHERE id = :id
+        RETURNING last_message_seq
+    """, nativeQuery = true)
+    Long allocateSequences(@Param("id") Long id, @Param("count") int count, @Param("now") Instant now);
+
+    /**
+     * Cấp version tiếp theo cho nhật ký thay đổi tin nhắn của hội thoại (khóa row tới hết transaction,
+     * nên thứ tự version trùng thứ tự commit).
+     */
+    @Query(value = """
+        UPDATE conversations
+        SET change_version = COALESCE(change_version, 0) + 1,
+            updated_at = :now
+        WHERE id = :id
+        RETURNING change_version
+    """, nativeQuery = true)
+    Long allocateChangeVersion(@Param("id") Long id, @Param("now") Instant now);
+
+    // 1 lookup PK, không đọc nội dung tin (sync + đối chiếu cache tin nhắn gần đây)
+    @Query(value = """
+        SELECT c.id AS conversationId,
+               COALESCE(c.last_message_seq, 0) AS lastMessageSeq,
+               COALESCE(c.change_version, 0) AS changeVersion
+        FROM conversations c
+        WHERE c.id = :id
+    """, nativeQuery = true)
+    Optional<ConversationSyncProjection> findSyncState(@Param("id") Long id);
+
+    // Hội thoại của user có thay đổi sau mốc since (keyset theo id)
+    @Query(value = """
+        SELECT c.id AS conversationId,
+               COALESCE(c.last_message_seq, 0) AS lastMessageSeq,
+               COALESCE(c.change_version, 0) AS changeVersion
+        FROM conversation_member cm
+        JOIN conversations c ON c.id = cm.conversation_id
+        WHERE cm.user_id = :userId
+          AND c.id > :afterId
+          AND (
+              c.updated_at > :since
+              OR cm.joined_at > :since
+              OR EXISTS (
+                  SELECT 1 FROM conversation_member o
+                  WHERE o.conversation_id = c.id AND o.last_read_at > :since
+              )
+          )
+        ORDER BY c.id
+        LIMIT :limit
+    """, nativeQuery = true)
+    List<ConversationSyncProjection> findChangedSince(@Param("userId") Long userId,
+                                                      @Param("since") Instant since,
+                                                      @Param("afterId") Long afterId,
+                                                      @Param("limit") int limit);
+
+    // Hội thoại có tin chưa được đưa vào chỉ mục tìm kiếm: (id, search_indexed_seq, last_message_seq), keyset theo id
+    @Query(value = """
+        SELECT id, COALESCE(search_indexed_seq, 0), COALESCE(last_message_seq, 0)
+        FROM conversations
+        WHERE id > :afterId AND COALESCE(search_indexed_seq, 0) < COALESCE(last_message_seq, 0)
+        ORDER BY id
+        LIMIT :limit
+    """, nativeQuery = true)
+    List<Object[]> findSearchBacklog(@Param("afterId") Long afterId, @Param("limit") int limit);
+
+    // Tiến mốc đã index (chỉ khi chưa ai tiến trước đó)
+    @Modifying
+    @Query(value = """
+        UPDATE conversations SET search_indexed_seq = :toSeq
+        WHERE id = :id AND COALESCE(search_indexed_seq, 0) = :fromSeq
+    """, nativeQuery = true)
+    int advanceSearchIndexedSeq(@Param("id") Long id, @Param("fromSeq") Long fromSeq, @Param("toSeq") Long toSeq);
+
+    // Duyệt id hội thoại theo khoảng (dùng cho các job backfill)
+    @Query(value = "SELECT id FROM conversations WHERE id > :afterId ORDER BY id LIMIT :limit",
+            nativeQuery = true)
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, @Param("limit") int limit);
+
+    // ------------------- Legacy JSONB messages (chỉ dùng cho migration) -------------------
+
+    @Query(value = """
+        SELECT EXISTS (
+            SELECT 1 FROM information_schema.columns
+            WHERE table_name = 'conversations' AND column_name = 'messages'
+        )
+    """, nativeQuery = true)
+    boolean legacyMessagesColumnExists();
+
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM conversations WHERE id = :id AND messages IS NOT NULL)",
+            nativeQuery = true)
+    boolean hasLegacyMessages(@Param("id") Long id);
+
+    @Query(value = "SELECT id FROM conversations WHERE messages IS NOT NULL ORDER BY id LIMIT :limit",
+            nativeQuery = true)
+    List<Long> findIdsWithLegacyMessages(@Param("limit") int limit);
+
+    // Khóa row hội thoại để 2 node không migrate trùng
+    @Query(value = "SELECT CAST(messages AS TEXT) FROM conversations WHERE id = :id FOR UPDATE",
+            nativeQuery = true)
+    String lockLegacyMessages(@Param("id") Long id);
+
+    @Modifying
+    @Query(value = "UPDATE conversations SET messages = NULL, last_message_seq = :lastSeq WHERE id = :id",
+            nativeQuery = true)
+    void clearLegacyMessages(@Param("id") Long id, @Param("lastSeq") Long lastSeq);
 }
\ No newline at end of file
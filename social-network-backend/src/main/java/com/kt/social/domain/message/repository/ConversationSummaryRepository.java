@@ -0,0 +1,118 @@
+package com.kt.social.domain.message.repository;
+
+import com.kt.social.domain.message.model.ConversationSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface ConversationSummaryRepository extends JpaRepository<ConversationSummary, Long> {
+
+    // Inbox trang đầu: keyset (updated_at, conversation_id) giảm dần
+    @Query(value = """
+        SELECT s.* FROM conversation_summary s
+        JOIN conversation_member cm ON cm.conversation_id = s.conversation_id
+        WHERE cm.user_id = :userId
+        ORDER BY s.updated_at DESC, s.conversation_id DESC
+        LIMIT :limit
+    """, nativeQuery = true)
+    List<ConversationSummary> findInbox(@Param("userId") Long userId, @Param("limit") int limit);
+
+    // Inbox các trang sau cursor
+    @Query(value = """
+        SELECT s.* FROM conversation_summary s
+        JOIN conversation_member cm ON cm.conversation_id = s.conversation_id
+        WHERE cm.user_id = :userId
+        AND (s.updated_at, s.conversation_id) < (:cursorAt, :cursorId)
+        ORDER BY s.updated_at DESC, s.conversation_id DESC
+        LIMIT :limit
+    """, nativeQuery = true)
+    List<ConversationSummary> findInboxAfter(@Param("userId") Long userId,
+                                             @Param("cursorAt") Instant cursorAt,
+                                             @Param("cursorId") Long cursorId,
+                                             @Param("limit") int limit);
+
+    // Ghi tin nhắn cuối; không bao giờ lùi về tin cũ hơn (seq nhỏ hơn)
+    @Modifying
+    @Query(value = """
+        INSERT INTO conversation_summary (conversation_id, last_message_id, last_message_seq, last_sender_id,
+            last_sender_name, last_message_type, last_snippet, last_message_deleted, last_message_at, updated_at)
+        VALUES (:conversationId, :messageId, :seq, :senderId, :senderName, :type, :snippet, false, :at, :at)
+        ON CONFLICT (conversation_id) DO UPDATE SET
+            last_message_id = EXCLUDED.last_message_id,
+            last_message_seq = EXCLUDED.last_message_seq,
+            last_sender_id = EXCLUDED.last_sender_id,
+            last_sender_name = EXCLUDED.last_sender_name,
+            last_message_type = EXCLUDED.last_message_type,
+            last_snippet = EXCLUDED.last_snippet,
+            last_message_deleted = false,
+            last_message_at = EXCLUDED.last_message_at,
+            updated_at = EXCLUDED.updated_at
+        WHERE COALESCE(conversation_summary.last_message_seq, 0) < EXCLUDED.last_message_seq
+    """, nativeQuery = true)
+    void upsertLastMessage(@Param("conversationId") Long conversationId,
+                           @Param("messageId") String messageId,
+                           @Param("seq") Long seq,
+                           @Param("senderId") Long senderId,
+                           @Param("senderName") String senderName,
+                           @Param("type") String type,
+                           @Param("snippet") String snippet,
+                           @Param("at") Instant at);
+
+    // Hội thoại chưa có tin nhắn (vd: chat 1-1 vừa tạo) vẫn phải có row để hiện trong inbox
+    @Modifying
+    @Query(value = """
+        INSERT INTO conversation_summary (conversation_id, last_message_seq, last_message_deleted, updated_at)
+        VALUES (:conversationId, 0, false, :at)
+        ON CONFLICT (conversation_id) DO NOTHING
+    """, nativeQuery = true)
+    void insertEmpty(@Param("conversationId") Long conversationId, @Param("at") Instant at);
+
+    @Modifying
+    @Query(value = """
+        UPDATE conversation_summary
+        SET last_message_deleted = true, last_snippet = NULL
+        WHERE conversation_id = :conversationId AND last_message_seq = :seq
+    """, nativeQuery = true)
+    int markLastMessageDeleted(@Param("conversationId") Long conversationId, @Param("seq") Long seq);
+
+    // Dựng lại từ conversations + tin nhắn cuối (backfill / sau khi migrate JSONB cũ)
+    @Modifying
+    @Query(value = """
+        INSERT INTO conversation_summary (conversation_id, last_message_id, last_message_seq, last_sender_id,
+            last_sender_name, last_message_type, last_snippet, last_message_deleted, last_message_at, updated_at)
+        SELECT c.id, m.message_id, COALESCE(c.last_message_seq, 0), m.sender_id, m.sender_name, m.type,
+               CASE WHEN m.is_deleted OR m.deleted_at IS NOT NULL THEN NULL ELSE LEFT(m.content, 200) END,
+               COALESCE(m.is_deleted OR m.deleted_at IS NOT NULL, false),
+               m.created_at,
+               COALESCE(c.updated_at, m.created_at, c.created_at)
+        FROM conversations c
+        LEFT JOIN messages m ON m.conversation_id = c.id AND m.seq = c.last_message_seq
+        WHERE c.id > :fromId AND c.id <= :toId
+        ON CONFLICT (conversation_id) DO UPDATE SET
+            last_message_id = EXCLUDED.last_message_id,
+            last_message_seq = EXCLUDED.last_message_seq,
+            last_sender_id = EXCLUDED.last_sender_id,
+            last_sender_name = EXCLUDED.last_sender_name,
+            last_message_type = EXCLUDED.last_message_type,
+            last_snippet = EXCLUDED.last_snippet,
+            last_message_deleted = EXCLUDED.last_message_deleted,
+            last_message_at = EXCLUDED.last_message_at,
+            updated_at = EXCLUDED.updated_at
+        WHERE COALESCE(conversation_summary.last_message_seq, 0) <= EXCLUDED.last_message_seq
+    """, nativeQuery = true)
+    int rebuildRange(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    @Query(value = """
+        SELECT EXISTS (
+            SELECT 1 FROM conversations c
+            WHERE NOT EXISTS (SELECT 1 FROM conversation_summary s WHERE s.conversation_id = c.id)
+        )
+    """, nativeQuery = true)
+    boolean existsMissingSummaries();
+}
@@ -0,0 +1,38 @@
+package com.kt.social.domain.message.repository;
+
+import com.kt.social.domain.message.model.MessageChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface MessageChangeRepository extends JpaRepository<MessageChange, Long> {
+
+    // Các thay đổi sau version của client, theo đúng thứ tự commit
+    @Query(value = """
+        SELECT * FROM message_changes
+        WHERE conversation_id = :conversationId AND version > :afterVersion
+        ORDER BY version
+        LIMIT :limit
+    """, nativeQuery = true)
+    List<MessageChange> findAfter(@Param("conversationId") Long conversationId,
+                                  @Param("afterVersion") Long afterVersion,
+                                  @Param("limit") int limit);
+
+    // Dọn log cũ theo từng batch nhỏ để không giữ khóa lâu
+    @Modifying
+    @Query(value = """
+        DELETE FROM message_changes
+        WHERE id IN (SELECT id FROM message_changes WHERE created_at < :cutoff LIMIT :limit)
+    """, nativeQuery = true)
+    int deleteOlderThan(@Param("cutoff") Instant cutoff, @Param("limit") int limit);
+
+    @Modifying
+    @Query("DELETE FROM MessageChange c WHERE c.conversationId = :conversationId")
+    void deleteByConversationId(@Param("conversationId") Long conversationId);
+}
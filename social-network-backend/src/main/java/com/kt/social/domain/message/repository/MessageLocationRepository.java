@@ -0,0 +1,55 @@
+package com.kt.social.domain.message.repository;
+
+import com.kt.social.domain.message.model.MessageLocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface MessageLocationRepository extends JpaRepository<MessageLocation, String> {
+
+    // Ghi trực tiếp (không qua merge) để không tốn thêm 1 câu SELECT mỗi lần gửi tin
+    @Modifying
+    @Query(value = """
+        INSERT INTO message_locations (message_id, conversation_id, seq)
+        VALUES (:messageId, :conversationId, :seq)
+    """, nativeQuery = true)
+    void insert(@Param("messageId") String messageId,
+                @Param("conversationId") Long conversationId,
+                @Param("seq") Long seq);
+
+    // Ghi vị trí cho cả 1 batch tin nhắn (group commit) trong 1 câu lệnh
+    @Modifying
+    @Query(value = """
+        INSERT INTO message_locations (message_id, conversation_id, seq)
+        SELECT * FROM unnest(CAST(:messageIds AS varchar[]), CAST(:conversationIds AS bigint[]), CAST(:seqs AS bigint[]))
+    """, nativeQuery = true)
+    void insertAll(@Param("messageIds") String[] messageIds,
+                   @Param("conversationIds") Long[] conversationIds,
+                   @Param("seqs") Long[] seqs);
+
+    // Backfill theo khoảng conversation_id (idempotent)
+    @Modifying
+    @Query(value = """
+        INSERT INTO message_locations (message_id, conversation_id, seq)
+        SELECT m.message_id, m.conversation_id, m.seq
+        FROM messages m
+        WHERE m.conversation_id > :fromId AND m.conversation_id <= :toId
+        ON CONFLICT (message_id) DO NOTHING
+    """, nativeQuery = true)
+    int backfillRange(@Param("fromId") Long fromId, @Param("toId") Long toId);
+
+    @Query(value = """
+        SELECT EXISTS (
+            SELECT 1 FROM messages m
+            WHERE NOT EXISTS (SELECT 1 FROM message_locations l WHERE l.message_id = m.message_id)
+        )
+    """, nativeQuery = true)
+    boolean existsUnindexedMessages();
+
+    @Modifying
+    @Query("DELETE FROM MessageLocation l WHERE l.conversationId = :conversationId")
+    void deleteByConversationId(@Param("conversationId") Long conversationId);
+}
@@ -0,0 +1,89 @@
+package com.kt.social.domain.message.repository;
+
+import com.kt.social.domain.message.model.Message;
+import com.kt.social.domain.message.model.MessageKey;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface MessageRepository extends JpaRepository<Message, MessageKey> {
+
+    // Trang mới nhất (keyset trên PK conversation_id, seq)
+    @Query("SELECT m FROM Message m WHERE m.id.conversationId = :conversationId ORDER BY m.id.seq DESC")
+    List<Message> findLatest(@Param("conversationId") Long conversationId, Pageable pageable);
+
+    // Các tin cũ hơn cursor
+    @Query("SELECT m FROM Message m " +
+            "WHERE m.id.conversationId = :conversationId AND m.id.seq < :beforeSeq " +
+            "ORDER BY m.id.seq DESC")
+    List<Message> findBefore(@Param("conversationId") Long conversationId,
+                             @Param("beforeSeq") Long beforeSeq,
+                             Pageable pageable);
+
+    // Các tin mới hơn cursor (đọc xuôi), cũ -> mới
+    @Query("SELECT m FROM Message m " +
+            "WHERE m.id.conversationId = :conversationId AND m.id.seq > :afterSeq " +
+            "ORDER BY m.id.seq ASC")
+    List<Message> findAfter(@Param("conversationId") Long conversationId,
+                            @Param("afterSeq") Long afterSeq,
+                            Pageable pageable);
+
+    // Các tin cũ nhất còn ở tầng nóng, khóa lại để không bị sửa trong lúc đóng segment
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT m FROM Message m WHERE m.id.conversationId = :conversationId ORDER BY m.id.seq ASC")
+    List<Message> lockOldest(@Param("conversationId") Long conversationId, Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM Message m " +
+            "WHERE m.id.conversationId = :conversationId AND m.id.seq BETWEEN :fromSeq AND :toSeq")
+    int deleteRange(@Param("conversationId") Long conversationId,
+                    @Param("fromSeq") Long fromSeq,
+                    @Param("toSeq") Long toSeq);
+
+    // Gỡ 1 tin ở tầng nóng. UPDATE chờ lock của compaction (lockOldest): row đã được chuyển vào segment -> trả về 0
+    @Modifying
+    @Query(value = """
+        UPDATE messages
+        SET is_deleted = true,
+            is_system_ban = true,
+            deleted_at = :deletedAt,
+            updated_at = :deletedAt
+        WHERE conversation_id = :conversationId AND seq = :seq
+        """, nativeQuery = true)
+    int markDeleted(@Param("conversationId") Long conversationId,
+                    @Param("seq") Long seq,
+                    @Param("deletedAt") Instant deletedAt);
+
+    @Query("SELECT m FROM Message m WHERE m.id.conversationId = :conversationId ORDER BY m.id.seq DESC")
+    List<Message> findAllNewestFirst(@Param("conversationId") Long conversationId);
+
+    // Tin nhắn bị xóa hoặc bị report trong các hội thoại (màn hình Moderation)
+    @Query(value = """
+        SELECT m.* FROM messages m
+        WHERE m.conversation_id IN (:conversationIds)
+        AND (
+            m.deleted_at IS NOT NULL OR m.is_deleted = true
+            OR EXISTS (
+                SELECT 1 FROM reports r
+                WHERE r.target_type = 'MESSAGE'
+                AND r.target_id = m.message_id
+            )
+        )
+        ORDER BY m.conversation_id, m.seq DESC
+    """, nativeQuery = true)
+    List<Message> findFlaggedInConversations(@Param("conversationIds") Collection<Long> conversationIds);
+
+    @Modifying
+    @Query("DELETE FROM Message m WHERE m.id.conversationId = :conversationId")
+    void deleteByConversationId(@Param("conversationId") Long conversationId);
+}
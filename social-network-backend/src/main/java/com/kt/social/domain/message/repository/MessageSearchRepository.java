@@ -0,0 +1,58 @@
+package com.kt.social.domain.message.repository;
+
+import com.kt.social.domain.message.model.MessageKey;
+import com.kt.social.domain.message.model.MessageSearchEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface MessageSearchRepository extends JpaRepository<MessageSearchEntry, MessageKey> {
+
+    // Đánh chỉ mục cả 1 batch tin (nội dung đã bỏ dấu) trong 1 câu lệnh, idempotent
+    @Modifying
+    @Query(value = """
+        INSERT INTO message_search (conversation_id, seq, search_vector, created_at)
+        SELECT :conversationId, v.seq, to_tsvector('simple', v.body), :createdAt
+        FROM unnest(CAST(:seqs AS bigint[]), CAST(:bodies AS text[])) AS v(seq, body)
+        ON CONFLICT (conversation_id, seq) DO NOTHING
+    """, nativeQuery = true)
+    int indexAll(@Param("conversationId") Long conversationId,
+                 @Param("seqs") Long[] seqs,
+                 @Param("bodies") String[] bodies,
+                 @Param("createdAt") Instant createdAt);
+
+    // seq các tin khớp truy vấn, mới -> cũ, keyset theo seq (GIN lọc, PK sắp xếp)
+    @Query(value = """
+        SELECT s.seq FROM message_search s
+        WHERE s.conversation_id = :conversationId
+          AND s.search_vector @@ to_tsquery('simple', :query)
+          AND s.seq < :beforeSeq
+        ORDER BY s.seq DESC
+        LIMIT :limit
+    """, nativeQuery = true)
+    List<Long> search(@Param("conversationId") Long conversationId,
+                      @Param("query") String query,
+                      @Param("beforeSeq") Long beforeSeq,
+                      @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "DELETE FROM message_search WHERE conversation_id = :conversationId AND seq = :seq",
+            nativeQuery = true)
+    int deleteEntry(@Param("conversationId") Long conversationId, @Param("seq") Long seq);
+
+    @Modifying
+    @Query(value = "DELETE FROM message_search WHERE conversation_id = :conversationId", nativeQuery = true)
+    void deleteByConversationId(@Param("conversationId") Long conversationId);
+
+    // Hibernate không khai báo được index GIN -> tạo 1 lần lúc khởi động
+    @Modifying
+    @Query(value = "CREATE INDEX IF NOT EXISTS idx_message_search_vector ON message_search USING GIN (search_vector)",
+            nativeQuery = true)
+    void createVectorIndex();
+}
@@ -0,0 +1,38 @@
+package com.kt.social.domain.message.repository;
+
+import com.kt.social.domain.message.model.MessageSegment;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface MessageSegmentRepository extends JpaRepository<MessageSegment, Long> {
+
+    // Segment gần nhất có tin cũ hơn cursor (đọc ngược)
+    Optional<MessageSegment> findFirstByConversationIdAndFromSeqLessThanOrderByFromSeqDesc(Long conversationId, Long seq);
+
+    // Segment kế tiếp có tin mới hơn cursor (đọc xuôi)
+    Optional<MessageSegment> findFirstByConversationIdAndToSeqGreaterThanOrderByFromSeqAsc(Long conversationId, Long seq);
+
+    @Query("SELECT s FROM MessageSegment s " +
+            "WHERE s.conversationId = :conversationId AND s.fromSeq <= :seq AND s.toSeq >= :seq")
+    Optional<MessageSegment> findContaining(@Param("conversationId") Long conversationId, @Param("seq") Long seq);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM MessageSegment s " +
+            "WHERE s.conversationId = :conversationId AND s.fromSeq <= :seq AND s.toSeq >= :seq")
+    Optional<MessageSegment> lockContaining(@Param("conversationId") Long conversationId, @Param("seq") Long seq);
+
+    List<MessageSegment> findByConversationIdOrderByFromSeqDesc(Long conversationId);
+
+    @Modifying
+    @Query("DELETE FROM MessageSegment s WHERE s.conversationId = :conversationId")
+    void deleteByConversationId(@Param("conversationId") Long conversationId);
+}
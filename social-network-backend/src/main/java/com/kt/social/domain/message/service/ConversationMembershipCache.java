@@ -0,0 +1,129 @@
+package com.kt.social.domain.message.service;
+
+import com.kt.social.common.exception.AccessDeniedException;
+import com.kt.social.domain.message.enums.ConversationRole;
+import com.kt.social.domain.message.repository.ConversationMemberRepository;
+import com.kt.social.infra.cache.BoundedCache;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache thành viên của hội thoại: conversationId -> mảng long[] id thành viên đã sắp xếp + role tương ứng.
+ * Kiểm tra membership / role = binarySearch, không query DB cho mỗi thao tác chat (gửi, đọc, typing, sync...).
+ *
+ * Được làm mới khi thêm / xóa / rời nhóm / đổi role (ConversationServiceImpl). Invalidate chỉ có tác dụng trên node
+ * hiện tại -> ttl-ms để ngắn (vài giây, như ViewerContext): người bị xóa trên node khác mất quyền sau tối đa ttl-ms.
+ * Kết quả rỗng (hội thoại không tồn tại) không được cache.
+ */
+@Service
+@RequiredArgsConstructor
+public class ConversationMembershipCache {
+
+    private final ConversationMemberRepository memberRepository;
+
+    @Value("${chat.membership.ttl-ms:10000}")
+    private long ttlMs;
+
+    @Value("${chat.membership.max-conversations:50000}")
+    private int maxConversations;
+
+    // roles[i] là role của userIds[i]
+    private record Members(long[] userIds, ConversationRole[] roles) {
+    }
+
+    private static final Members EMPTY = new Members(new long[0], new ConversationRole[0]);
+
+    private BoundedCache<Long, Members> cache;
+
+    // Tăng mỗi lần invalidate: lần load bắt đầu trước đó không được ghi đè dữ liệu cũ vào cache
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        cache = new BoundedCache<>(maxConversations);
+    }
+
+    public boolean isMember(Long conversationId, Long userId) {
+        if (conversationId == null || userId == null) return false;
+        return Arrays.binarySearch(load(conversationId).userIds(), userId) >= 0;
+    }
+
+    /**
+     * Role của user trong hội thoại, null nếu không phải thành viên.
+     */
+    public ConversationRole roleOf(Long conversationId, Long userId) {
+        if (conversationId == null || userId == null) return null;
+        Members members = load(conversationId);
+        int i = Arrays.binarySearch(members.userIds(), userId);
+        return i >= 0 ? members.roles()[i] : null;
+    }
+
+    public void requireMember(Long conversationId, Long userId) {
+        if (!isMember(conversationId, userId)) {
+            throw new AccessDeniedException("Not a member.");
+        }
+    }
+
+    /**
+     * Id thành viên đã sắp xếp tăng dần (mảng dùng chung, không được sửa).
+     */
+    public long[] members(Long conversationId) {
+        return load(conversationId).userIds();
+    }
+
+    private Members load(Long conversationId) {
+        Members cached = cache.getIfFresh(conversationId, ttlMs);
+        if (cached != null) {
+            return cached;
+        }
+
+        long now = System.currentTimeMillis();
+        long epoch = invalidations.get();
+        List<Object[]> rows = memberRepository.findMemberRoles(conversationId);
+        if (rows.isEmpty()) {
+            cache.remove(conversationId);
+            return EMPTY;
+        }
+
+        long[] userIds = new long[rows.size()];
+        ConversationRole[] roles = new ConversationRole[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            Object[] row = rows.get(i);
+            userIds[i] = ((Number) row[0]).longValue();
+            roles[i] = row[1] != null ? ConversationRole.valueOf(row[1].toString()) : ConversationRole.MEMBER;
+        }
+        Members loaded = new Members(userIds, roles);
+
+        if (invalidations.get() == epoch) {
+            cache.put(conversationId, loaded, now);
+        }
+        return loaded;
+    }
+
+    /**
+     * Bỏ cache của hội thoại sau khi transaction hiện tại commit (thêm / xóa thành viên, đổi role, xóa hội thoại).
+     */
+    public void invalidate(Long conversationId) {
+        cache.remove(conversationId);
+        invalidations.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Bỏ thêm 1 lần sau commit: request khác có thể đã load lại dữ liệu cũ trong lúc transaction chưa xong
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.remove(conversationId);
+                    invalidations.incrementAndGet();
+                }
+            });
+        }
+    }
+
+}
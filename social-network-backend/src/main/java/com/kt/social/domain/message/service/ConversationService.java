@@ -1,5 +1,6 @@
 package com.kt.social.domain.message.service;
 
+import com.kt.social.common.vo.CursorPage;
 import com.kt.social.domain.message.dto.*;
 import com.kt.social.domain.message.enums.ConversationRole;
 
@@ -13,6 +14,7 @@ public interface ConversationService {
     void leaveConversation(Long currentUserId, Long conversationId);
     ConversationSummaryResponse updateMemberRole(Long currentUserId, UpdateMemberRoleRequest request);
     List<ConversationSummaryResponse> getUserConversations(Long userId);
+    CursorPage<ConversationSummaryResponse> getUserConversationsCursor(Long userId, String cursor, int limit);
     ConversationSummaryResponse getConversationById(Long currentUserId, Long conversationId);
     void findOrCreateDirectConversation(Long userAId, Long userBId);
 
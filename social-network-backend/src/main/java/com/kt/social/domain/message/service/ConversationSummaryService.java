@@ -0,0 +1,106 @@
+package com.kt.social.domain.message.service;
+
+import com.kt.social.domain.message.model.ConversationSummary;
+import com.kt.social.domain.message.model.Message;
+import com.kt.social.domain.message.repository.ConversationRepository;
+import com.kt.social.domain.message.repository.ConversationSummaryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Giữ bảng conversation_summary đồng bộ với luồng gửi / xóa tin nhắn.
+ * Đã đọc không cần ghi gì ở đây: unread được suy ra từ watermark của member.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ConversationSummaryService {
+
+    private final ConversationSummaryRepository summaryRepository;
+    private final ConversationRepository conversationRepository;
+
+    @Value("${chat.summary-backfill.batch-size:200}")
+    private int batchSize;
+
+    private volatile boolean backfillDone = false;
+    private volatile boolean backfillChecked = false;
+    private volatile long backfillCursor = 0L;
+
+    @Transactional
+    public void recordMessage(Message message) {
+        summaryRepository.upsertLastMessage(
+                message.getId().getConversationId(),
+                message.getMessageId(),
+                message.getId().getSeq(),
+                message.getSenderId(),
+                message.getSenderName(),
+                message.getType() != null ? message.getType().name() : null,
+                snippet(message.getContent()),
+                message.getCreatedAt()
+        );
+    }
+
+    /**
+     * Chỉ có tác dụng khi tin bị xóa đang là tin cuối của hội thoại.
+     */
+    @Transactional
+    public void recordDeleted(Long conversationId, Long seq) {
+        summaryRepository.markLastMessageDeleted(conversationId, seq);
+    }
+
+    @Transactional
+    public void recordCreated(Long conversationId, Instant createdAt) {
+        summaryRepository.insertEmpty(conversationId, createdAt);
+    }
+
+    @Transactional
+    public void rebuild(Long conversationId) {
+        summaryRepository.rebuildRange(conversationId - 1, conversationId);
+    }
+
+    @Transactional
+    public void delete(Long conversationId) {
+        summaryRepository.deleteById(conversationId);
+    }
+
+    @Scheduled(initialDelayString = "${chat.summary-backfill.initial-delay-ms:25000}",
+            fixedDelayString = "${chat.summary-backfill.delay-ms:2000}")
+    @Transactional
+    public void backfillBatch() {
+        if (backfillDone) return;
+
+        if (!backfillChecked) {
+            backfillChecked = true;
+            if (!summaryRepository.existsMissingSummaries()) {
+                backfillDone = true;
+                return;
+            }
+        }
+
+        List<Long> ids = conversationRepository.findIdsAfter(backfillCursor, batchSize);
+        if (ids.isEmpty()) {
+            backfillDone = true;
+            log.info("✅ Conversation summary backfill completed.");
+            return;
+        }
+
+        long toId = ids.get(ids.size() - 1);
+        int rows = summaryRepository.rebuildRange(backfillCursor, toId);
+        backfillCursor = toId;
+        log.info("🔄 Rebuilt {} conversation summaries (conversations up to {}).", rows, toId);
+    }
+
+    private String snippet(String content) {
+        if (content == null) return null;
+        return content.length() <= ConversationSummary.SNIPPET_LENGTH
+                ? content
+                : content.substring(0, ConversationSummary.SNIPPET_LENGTH);
+    }
+}
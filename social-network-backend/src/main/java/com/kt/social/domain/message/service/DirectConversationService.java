@@ -0,0 +1,118 @@
+package com.kt.social.domain.message.service;
+
+import com.kt.social.domain.message.repository.ConversationRepository;
+import com.kt.social.infra.cache.BoundedCache;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Hội thoại 1-1 theo khóa chuẩn (min(userA, userB), max(userA, userB)) có unique constraint.
+ *
+ *  - Tìm = cache cặp -> id, trượt cache thì 1 lần dò unique index (thay cho join conversation_member 2 lần).
+ *  - Tạo = INSERT ... ON CONFLICT DO NOTHING: 2 request mở cùng 1 cặp cùng lúc không tạo ra 2 hội thoại.
+ *  - Hội thoại 1-1 cũ được gán khóa 1 lần sau khi app khởi động (trước đó vẫn tìm được theo thành viên).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DirectConversationService {
+
+    private final ConversationRepository conversationRepository;
+
+    @Value("${chat.direct.cache-size:100000}")
+    private int cacheSize;
+
+    private volatile boolean backfillDone = false;
+
+    private record Pair(long low, long high) {
+        static Pair of(Long userA, Long userB) {
+            return new Pair(Math.min(userA, userB), Math.max(userA, userB));
+        }
+    }
+
+    /**
+     * @param created true nếu hội thoại vừa được tạo trong transaction hiện tại (caller phải thêm thành viên)
+     */
+    public record DirectConversation(Long conversationId, boolean created) {
+    }
+
+    private BoundedCache<Pair, Long> cache;
+
+    @PostConstruct
+    void init() {
+        cache = new BoundedCache<>(cacheSize);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Long> find(Long userA, Long userB) {
+        Pair pair = Pair.of(userA, userB);
+        Long cached = cache.get(pair);
+        if (cached != null) return Optional.of(cached);
+
+        Optional<Long> found = conversationRepository.findDirectConversationId(pair.low(), pair.high());
+        if (found.isEmpty() && !backfillDone) {
+            // Hội thoại cũ chưa có khóa: vẫn tìm theo thành viên để không tạo trùng trước khi backfill chạy
+            found = conversationRepository.findLegacyDirectConversationIds(pair.low(), pair.high())
+                    .stream().min(Long::compare);
+        }
+        found.ifPresent(id -> put(pair, id));
+        return found;
+    }
+
+    /**
+     * Lấy hoặc tạo hội thoại 1-1. Phải gọi trong transaction của caller: khi created = true,
+     * thành viên được thêm trong cùng transaction nên request khác không bao giờ thấy hội thoại rỗng.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public DirectConversation findOrCreate(Long userA, Long userB) {
+        Optional<Long> existing = find(userA, userB);
+        if (existing.isPresent()) return new DirectConversation(existing.get(), false);
+
+        Pair pair = Pair.of(userA, userB);
+        Long inserted = conversationRepository.insertDirectConversation(pair.low(), pair.high(), Instant.now());
+        if (inserted != null) {
+            // Chỉ cache sau commit (rollback thì id này không tồn tại)
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    put(pair, inserted);
+                }
+            });
+            return new DirectConversation(inserted, true);
+        }
+
+        // Vừa bị transaction khác tạo trước: đọc lại (câu lệnh mới -> thấy row đã commit)
+        Long id = conversationRepository.findDirectConversationId(pair.low(), pair.high())
+                .orElseThrow(() -> new IllegalStateException("Direct conversation disappeared: " + pair));
+        put(pair, id);
+        return new DirectConversation(id, false);
+    }
+
+    @Scheduled(initialDelayString = "${chat.direct.backfill-initial-delay-ms:5000}",
+            fixedDelayString = "${chat.direct.backfill-delay-ms:3600000}")
+    @Transactional
+    public void backfillKeys() {
+        if (backfillDone) return;
+        int rows = conversationRepository.backfillDirectKeys();
+        backfillDone = true;
+        if (rows > 0) {
+            log.info("✅ Assigned canonical keys to {} direct conversations.", rows);
+        }
+    }
+
+    // Đầy thì BoundedCache bỏ các cặp lâu không dùng (tra lại DB chỉ tốn 1 lần dò index)
+    private void put(Pair pair, Long conversationId) {
+        cache.put(pair, conversationId);
+    }
+}
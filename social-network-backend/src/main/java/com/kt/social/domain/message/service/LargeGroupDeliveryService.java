@@ -0,0 +1,122 @@
+package com.kt.social.domain.message.service;
+
+import com.kt.social.common.constants.WebSocketConstants;
+import com.kt.social.domain.message.event.ChatMessageEvent;
+import com.kt.social.domain.message.event.MessageBatchEvent;
+import com.kt.social.domain.user.service.PresenceService;
+import com.kt.social.infra.websocket.ChatBroadcaster;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Chế độ gửi riêng cho nhóm lớn (từ min-members thành viên trở lên).
+ *
+ *  - Thành viên lấy từ ConversationMembershipCache, không query conversation_member cho mỗi tin.
+ *  - Tin mới được gom theo hội thoại trong cửa sổ flush-ms rồi gửi 1 frame EVENT_MESSAGE_BATCH
+ *    (encode 1 lần) tới /user/queue/messages của các thành viên đang online theo PresenceService.
+ *  - Thành viên offline không nhận gì: unread = last_message_seq - watermark đã tự tăng khi cấp seq,
+ *    không ghi thêm gì cho từng người. Khi vào lại, client lấy phần thiếu qua delta sync.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LargeGroupDeliveryService {
+
+    private final ConversationMembershipCache membershipCache;
+    private final PresenceService presenceService;
+    private final ChatBroadcaster chatBroadcaster;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${chat.large-group.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chat.large-group.min-members:1000}")
+    private int minMembers;
+
+    // Số tin tối đa trong 1 frame
+    @Value("${chat.large-group.max-batch:50}")
+    private int maxBatch;
+
+    // conversationId -> tin chờ gửi trong cửa sổ hiện tại
+    private final Map<Long, Queue<ChatMessageEvent>> pending = new ConcurrentHashMap<>();
+
+    private Counter framesSent;
+    private Counter offlineSkipped;
+
+    @PostConstruct
+    void init() {
+        framesSent = Counter.builder("chat.large-group.frames").register(meterRegistry);
+        offlineSkipped = Counter.builder("chat.large-group.offline.skipped").register(meterRegistry);
+    }
+
+    public boolean isLargeGroup(Long conversationId) {
+        return enabled && membershipCache.members(conversationId).length >= minMembers;
+    }
+
+    /**
+     * Xếp tin vào cửa sổ gộp của hội thoại (gọi sau khi tin đã commit).
+     */
+    public void enqueue(Long conversationId, ChatMessageEvent event) {
+        // compute() nguyên tử theo key -> không đua với việc gỡ hàng đợi rỗng trong flush()
+        pending.compute(conversationId, (id, q) -> {
+            if (q == null) q = new ConcurrentLinkedQueue<>();
+            q.add(event);
+            return q;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${chat.large-group.flush-ms:200}")
+    public void flush() {
+        for (Long conversationId : pending.keySet()) {
+            Queue<ChatMessageEvent> queue = pending.get(conversationId);
+            if (queue == null) continue;
+
+            List<ChatMessageEvent> events = new ArrayList<>();
+            ChatMessageEvent e;
+            while ((e = queue.poll()) != null) events.add(e);
+            pending.computeIfPresent(conversationId, (id, q) -> q.isEmpty() ? null : q);
+            if (events.isEmpty()) continue;
+
+            try {
+                deliver(conversationId, events);
+            } catch (Exception ex) {
+                log.warn("⚠️ Failed to deliver {} messages of large group {}: {}",
+                        events.size(), conversationId, ex.getMessage());
+            }
+        }
+    }
+
+    private void deliver(Long conversationId, List<ChatMessageEvent> events) {
+        long[] members = membershipCache.members(conversationId);
+        List<Long> online = new ArrayList<>();
+        for (long userId : members) {
+            if (presenceService.isOnline(userId)) online.add(userId);
+        }
+        offlineSkipped.increment(members.length - online.size());
+        if (online.isEmpty()) return;
+
+        // writeInline (tin hệ thống) có thể chen giữa các batch của writer -> sắp lại theo seq
+        events.sort(Comparator.comparing(ChatMessageEvent::seq));
+        for (int from = 0; from < events.size(); from += maxBatch) {
+            List<ChatMessageEvent> chunk = events.subList(from, Math.min(events.size(), from + maxBatch));
+            ChatBroadcaster.EncodedEvent frame = chatBroadcaster.encode(
+                    new MessageBatchEvent(conversationId, List.copyOf(chunk)));
+            chatBroadcaster.toUsers(online, WebSocketConstants.MESSAGES_QUEUE, frame);
+            framesSent.increment(online.size());
+        }
+    }
+}
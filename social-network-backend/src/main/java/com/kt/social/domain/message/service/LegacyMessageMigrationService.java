@@ -0,0 +1,226 @@
+package com.kt.social.domain.message.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kt.social.domain.message.enums.MessageType;
+import com.kt.social.domain.message.model.Message;
+import com.kt.social.domain.message.model.MessageKey;
+import com.kt.social.domain.message.repository.ConversationMemberRepository;
+import com.kt.social.domain.message.repository.ConversationRepository;
+import com.kt.social.domain.message.repository.ConversationSummaryRepository;
+import com.kt.social.domain.message.repository.MessageLocationRepository;
+import com.kt.social.domain.message.repository.MessageRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Chuyển mảng JSONB conversations.messages (cách lưu cũ) sang bảng messages.
+ *
+ * Không cần downtime:
+ *  - Job nền migrate dần từng batch hội thoại, mỗi hội thoại 1 transaction riêng.
+ *  - Hội thoại chưa kịp migrate sẽ được migrate ngay khi có người gửi / đọc tin (lazy).
+ *  - Row hội thoại bị khóa (SELECT ... FOR UPDATE) trong lúc migrate nên nhiều node chạy song song vẫn an toàn.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LegacyMessageMigrationService {
+
+    private final ConversationRepository conversationRepository;
+    private final MessageRepository messageRepository;
+    private final ConversationMemberRepository memberRepository;
+    private final ConversationSummaryRepository summaryRepository;
+    private final MessageLocationRepository messageLocationRepository;
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${chat.migration.batch-size:50}")
+    private int batchSize;
+
+    private TransactionTemplate newTransaction;
+
+    // true khi không còn hội thoại nào chứa JSONB cũ -> bỏ qua mọi bước kiểm tra
+    private volatile boolean drained = false;
+    private volatile Boolean legacyColumnExists;
+
+    @PostConstruct
+    void init() {
+        newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Dùng trong luồng ghi (gửi tin, tin nhắn hệ thống): migrate trong cùng transaction của caller
+     * để seq của tin mới luôn lớn hơn seq của lịch sử cũ.
+     */
+    @Transactional
+    public void migrateIfNeeded(Long conversationId) {
+        if (isPending(conversationId)) {
+            migrateConversation(conversationId);
+        }
+    }
+
+    /**
+     * Dùng trong luồng đọc (thường là transaction readOnly): migrate trong transaction riêng.
+     */
+    public void ensureMigrated(Long conversationId) {
+        if (isPending(conversationId)) {
+            newTransaction.executeWithoutResult(status -> migrateConversation(conversationId));
+        }
+    }
+
+    @Scheduled(initialDelayString = "${chat.migration.initial-delay-ms:30000}",
+            fixedDelayString = "${chat.migration.delay-ms:5000}")
+    public void migratePendingBatch() {
+        if (!hasLegacyColumn()) return;
+
+        List<Long> ids = conversationRepository.findIdsWithLegacyMessages(batchSize);
+        if (ids.isEmpty()) {
+            drained = true;
+            log.info("✅ Legacy message migration completed.");
+            return;
+        }
+
+        int moved = 0;
+        for (Long id : ids) {
+            try {
+                Integer count = newTransaction.execute(status -> migrateConversation(id));
+                moved += count != null ? count : 0;
+            } catch (Exception e) {
+                log.error("❌ Failed to migrate messages of conversation {}: {}", id, e.getMessage());
+            }
+        }
+        log.info("🔄 Migrated {} legacy messages from {} conversations.", moved, ids.size());
+    }
+
+    private boolean isPending(Long conversationId) {
+        return hasLegacyColumn() && conversationRepository.hasLegacyMessages(conversationId);
+    }
+
+    // DB tạo mới sẽ không có cột messages -> không bao giờ query tới cột đó
+    private boolean hasLegacyColumn() {
+        if (drained) return false;
+        if (legacyColumnExists == null) {
+            legacyColumnExists = conversationRepository.legacyMessagesColumnExists();
+            if (!legacyColumnExists) drained = true;
+        }
+        return legacyColumnExists;
+    }
+
+    /**
+     * Yêu cầu đang ở trong transaction. Trả về số tin nhắn đã chuyển.
+     */
+    private int migrateConversation(Long conversationId) {
+        String json = conversationRepository.lockLegacyMessages(conversationId);
+        if (json == null) {
+            return 0; // Node khác đã migrate xong
+        }
+
+        List<Map<String, Object>> legacy;
+        try {
+            legacy = objectMapper.readValue(json, new TypeReference<List<Map<String, Object>>>() {});
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot parse legacy messages of conversation " + conversationId, e);
+        }
+
+        // Mảng cũ không có thứ tự cố định (tin thường addFirst, tin hệ thống addLast) -> sắp theo createdAt
+        List<Map<String, Object>> ordered = new ArrayList<>(legacy != null ? legacy : List.of());
+        ordered.sort(Comparator.comparing(
+                (Map<String, Object> m) -> parseInstant(m.get("createdAt")),
+                Comparator.nullsFirst(Comparator.naturalOrder())));
+
+        long seq = 0;
+        List<Message> rows = new ArrayList<>(ordered.size());
+        // readBy cũ -> watermark: seq lớn nhất mà từng user đã đọc
+        Map<Long, Long> readWatermarks = new HashMap<>();
+        for (Map<String, Object> m : ordered) {
+            rows.add(toMessage(conversationId, ++seq, m));
+            for (Long uid : parseReaders(m.get("readBy"))) {
+                readWatermarks.merge(uid, seq, Math::max);
+            }
+        }
+
+        messageRepository.saveAll(rows);
+        messageRepository.flush();
+        messageLocationRepository.backfillRange(conversationId - 1, conversationId);
+        conversationRepository.clearLegacyMessages(conversationId, seq);
+        summaryRepository.rebuildRange(conversationId - 1, conversationId);
+
+        Instant now = Instant.now();
+        readWatermarks.forEach((uid, readSeq) ->
+                memberRepository.advanceReadWatermark(conversationId, uid, readSeq, now));
+        return rows.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Message toMessage(Long conversationId, long seq, Map<String, Object> m) {
+        Object id = m.get("id");
+        Instant deletedAt = parseInstant(m.get("deletedAt"));
+
+        return Message.builder()
+                .id(new MessageKey(conversationId, seq))
+                .messageId(id != null ? String.valueOf(id) : UUID.randomUUID().toString())
+                .senderId(parseLong(m.get("senderId")))
+                .senderName((String) m.get("senderName"))
+                .senderAvatar((String) m.get("senderAvatar"))
+                .replyToId(parseLong(m.get("replyToId")))
+                .type(parseType(m.get("type")))
+                .content((String) m.get("content"))
+                .media(m.get("media") instanceof List<?> media ? (List<Map<String, Object>>) media : new ArrayList<>())
+                .reactions(m.get("reactions") instanceof List<?> r ? (List<Map<String, Object>>) r : new ArrayList<>())
+                .createdAt(parseInstant(m.get("createdAt")))
+                .deletedAt(deletedAt)
+                .isDeleted(deletedAt != null || "true".equalsIgnoreCase(String.valueOf(m.get("isDeleted"))))
+                .isSystemBan("true".equalsIgnoreCase(String.valueOf(m.get("isSystemBan"))))
+                .build();
+    }
+
+    private List<Long> parseReaders(Object obj) {
+        List<Long> readers = new ArrayList<>();
+        if (obj instanceof List<?> list) {
+            for (Object o : list) {
+                Long uid = parseLong(o);
+                if (uid != null) readers.add(uid);
+            }
+        }
+        return readers;
+    }
+
+    private MessageType parseType(Object obj) {
+        if (obj == null) return MessageType.TEXT;
+        try {
+            return MessageType.valueOf(String.valueOf(obj));
+        } catch (IllegalArgumentException e) {
+            return MessageType.TEXT;
+        }
+    }
+
+    private Instant parseInstant(Object obj) {
+        if (obj == null) return null;
+        try {
+            return Instant.parse(String.valueOf(obj));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private Long parseLong(Object obj) {
+        if (obj == null) return null;
+        try {
+            return Long.valueOf(String.valueOf(obj));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package com.kt.social.domain.message.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kt.social.domain.message.enums.MessageType;
+import com.kt.social.domain.message.model.Message;
+import com.kt.social.domain.message.model.MessageKey;
+import com.kt.social.domain.message.model.MessageSegment;
+import com.kt.social.domain.message.repository.ConversationRepository;
+import com.kt.social.domain.message.repository.MessageRepository;
+import com.kt.social.domain.message.repository.MessageSegmentRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Phân tầng lịch sử tin nhắn:
+ *  - Tầng nóng: bảng messages (tin mới, còn được sửa / react / xóa thường xuyên).
+ *  - Tầng lạnh: message_segments, mỗi segment là vài nghìn tin cũ liên tiếp nén deflate, bất biến.
+ *
+ * Job compaction chạy nền có giới hạn (số hội thoại quét + số segment đóng mỗi lượt), luôn đóng từ những tin cũ nhất,
+ * nên tầng lạnh luôn là phần đầu (seq nhỏ) của hội thoại và tầng nóng là phần đuôi.
+ * Các hàm page* đọc xuyên 2 tầng để caller không cần biết tin đang nằm ở đâu.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MessageArchiveService {
+
+    private static final String CODEC_DEFLATE = "deflate";
+
+    private final MessageRepository messageRepository;
+    private final MessageSegmentRepository segmentRepository;
+    private final ConversationRepository conversationRepository;
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${chat.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chat.archive.after-days:180}")
+    private long archiveAfterDays;
+
+    @Value("${chat.archive.segment-size:2000}")
+    private int segmentSize;
+
+    @Value("${chat.archive.min-segment-size:500}")
+    private int minSegmentSize;
+
+    @Value("${chat.archive.max-segments-per-run:5}")
+    private int maxSegmentsPerRun;
+
+    @Value("${chat.archive.conversations-per-run:200}")
+    private int conversationsPerRun;
+
+    @Value("${chat.archive.compression-level:6}")
+    private int compressionLevel;
+
+    private TransactionTemplate transactionTemplate;
+    private volatile long compactionCursor = 0L;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // ------------------------- ĐỌC XUYÊN 2 TẦNG -------------------------
+
+    /**
+     * Tối đa limit tin có seq < beforeSeq (null = mới nhất), sắp mới -> cũ.
+     */
+    @Transactional(readOnly = true)
+    public List<Message> pageBefore(Long conversationId, Long beforeSeq, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        List<Message> rows = new ArrayList<>(beforeSeq == null
+                ? messageRepository.findLatest(conversationId, page)
+                : messageRepository.findBefore(conversationId, beforeSeq, page));
+        if (rows.size() >= limit) return rows;
+
+        // Tầng nóng hết -> đọc tiếp các segment cũ hơn
+        long cursor = rows.isEmpty()
+                ? (beforeSeq != null ? beforeSeq : Long.MAX_VALUE)
+                : rows.get(rows.size() - 1).getId().getSeq();
+        while (rows.size() < limit) {
+            MessageSegment segment = segmentRepository
+                    .findFirstByConversationIdAndFromSeqLessThanOrderByFromSeqDesc(conversationId, cursor)
+                    .orElse(null);
+            if (segment == null) break;
+
+            List<Message> archived = decode(segment);
+            for (int i = archived.size() - 1; i >= 0 && rows.size() < limit; i--) {
+                Message m = archived.get(i);
+                if (m.getId().getSeq() < cursor) rows.add(m);
+            }
+            cursor = segment.getFromSeq();
+        }
+        return rows;
+    }
+
+    /**
+     * Tối đa limit tin có seq > afterSeq, sắp cũ -> mới.
+     */
+    @Transactional(readOnly = true)
+    public List<Message> pageAfter(Long conversationId, Long afterSeq, int limit) {
+        List<Message> rows = new ArrayList<>();
+        long cursor = afterSeq;
+
+        // Phần đầu có thể còn trong tầng lạnh
+        while (rows.size() < limit) {
+            MessageSegment segment = segmentRepository
+                    .findFirstByConversationIdAndToSeqGreaterThanOrderByFromSeqAsc(conversationId, cursor)
+                    .orElse(null);
+            if (segment == null) break;
+
+            for (Message m : decode(segment)) {
+                if (m.getId().getSeq() > cursor && rows.size() < limit) rows.add(m);
+            }
+            cursor = segment.getToSeq();
+        }
+
+        if (rows.size() < limit) {
+            long hotCursor = rows.isEmpty() ? afterSeq : rows.get(rows.size() - 1).getId().getSeq();
+            rows.addAll(messageRepository.findAfter(conversationId, hotCursor, PageRequest.of(0, limit - rows.size())));
+        }
+        return rows;
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Message> find(MessageKey key) {
+        Optional<Message> hot = messageRepository.findById(key);
+        if (hot.isPresent()) return hot;
+
+        return segmentRepository.findContaining(key.getConversationId(), key.getSeq())
+                .flatMap(segment -> decode(segment).stream()
+                        .filter(m -> m.getId().getSeq().equals(key.getSeq()))
+                        .findFirst());
+    }
+
+    /**
+     * Các tin theo danh sách seq (seq -> tin, seq không tồn tại thì không có trong map).
+     * Tin ở tầng lạnh: mỗi segment chỉ giải nén 1 lần dù chứa nhiều seq được hỏi.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, Message> findAll(Long conversationId, Collection<Long> seqs) {
+        Map<Long, Message> result = new HashMap<>();
+        if (seqs == null || seqs.isEmpty()) return result;
+
+        List<MessageKey> keys = seqs.stream().map(seq -> new MessageKey(conversationId, seq)).toList();
+        for (Message m : messageRepository.findAllById(keys)) {
+            result.put(m.getId().getSeq(), m);
+        }
+
+        Set<Long> wanted = new HashSet<>(seqs);
+        for (Long seq : wanted) {
+            if (result.containsKey(seq)) continue;
+            MessageSegment segment = segmentRepository.findContaining(conversationId, seq).orElse(null);
+            if (segment == null) continue;
+            for (Message m : decode(segment)) {
+                if (wanted.contains(m.getId().getSeq())) result.putIfAbsent(m.getId().getSeq(), m);
+            }
+        }
+        return result;
+    }
+
+    @Transactional(readOnly = true)
+    public List<Message> findAllNewestFirst(Long conversationId) {
+        List<Message> rows = new ArrayList<>(messageRepository.findAllNewestFirst(conversationId));
+        for (MessageSegment segment : segmentRepository.findByConversationIdOrderByFromSeqDesc(conversationId)) {
+            List<Message> archived = decode(segment);
+            for (int i = archived.size() - 1; i >= 0; i--) {
+                rows.add(archived.get(i));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Xóa mềm 1 tin đã nằm trong tầng lạnh (chỉ Moderation dùng, rất hiếm):
+     * ghi lại segment chứa tin đó. Trả về false nếu không có segment nào chứa tin.
+     */
+    @Transactional
+    public boolean markDeleted(MessageKey key, Instant deletedAt) {
+        MessageSegment segment = segmentRepository.lockContaining(key.getConversationId(), key.getSeq()).orElse(null);
+        if (segment == null) return false;
+
+        List<Message> archived = decode(segment);
+        boolean found = false;
+        for (Message m : archived) {
+            if (m.getId().getSeq().equals(key.getSeq())) {
+                m.setDeleted(true);
+                m.setDeletedAt(deletedAt);
+                m.setSystemBan(true);
+                m.setUpdatedAt(deletedAt);
+                found = true;
+            }
+        }
+        if (!found) return false;
+
+        applyPayload(segment, archived);
+        segmentRepository.save(segment);
+        return true;
+    }
+
+    @Transactional
+    public void deleteByConversation(Long conversationId) {
+        segmentRepository.deleteByConversationId(conversationId);
+    }
+
+    // ------------------------- COMPACTION -------------------------
+
+    @Scheduled(initialDelayString = "${chat.archive.initial-delay-ms:120000}",
+            fixedDelayString = "${chat.archive.delay-ms:60000}")
+    public void compact() {
+        if (!enabled) return;
+
+        Instant cutoff = Instant.now().minus(Duration.ofDays(archiveAfterDays));
+        List<Long> ids = conversationRepository.findIdsAfter(compactionCursor, conversationsPerRun);
+        if (ids.isEmpty()) {
+            compactionCursor = 0L; // Hết 1 vòng, lượt sau quét lại từ đầu
+            return;
+        }
+
+        int segments = 0;
+        for (Long id : ids) {
+            compactionCursor = id;
+            try {
+                // 1 hội thoại có thể đóng nhiều segment liên tiếp, nhưng vẫn trong giới hạn mỗi lượt
+                while (segments < maxSegmentsPerRun
+                        && Boolean.TRUE.equals(transactionTemplate.execute(status -> compactOldest(id, cutoff)))) {
+                    segments++;
+                }
+            } catch (Exception e) {
+                log.error("❌ Failed to archive messages of conversation {}: {}", id, e.getMessage());
+            }
+            if (segments >= maxSegmentsPerRun) break;
+        }
+
+        if (segments > 0) {
+            log.info("🗄️ Archived {} message segments (conversations up to {}).", segments, compactionCursor);
+        }
+    }
+
+    /**
+     * Yêu cầu đang ở trong transaction. Đóng 1 segment từ các tin cũ nhất của hội thoại nếu đủ điều kiện.
+     */
+    private boolean compactOldest(Long conversationId, Instant cutoff) {
+        // Seek trên PK, chỉ đọc tối đa segmentSize row
+        List<Message> oldest = messageRepository.lockOldest(conversationId, PageRequest.of(0, segmentSize));
+
+        List<Message> eligible = new ArrayList<>();
+        for (Message m : oldest) {
+            if (m.getCreatedAt() == null || !m.getCreatedAt().isBefore(cutoff)) break;
+            eligible.add(m);
+        }
+        if (eligible.size() < minSegmentSize) return false;
+
+        MessageSegment segment = MessageSegment.builder()
+                .conversationId(conversationId)
+                .fromSeq(eligible.get(0).getId().getSeq())
+                .toSeq(eligible.get(eligible.size() - 1).getId().getSeq())
+                .messageCount(eligible.size())
+                .codec(CODEC_DEFLATE)
+                .createdAt(Instant.now())
+                .build();
+        applyPayload(segment, eligible);
+
+        segmentRepository.save(segment);
+        messageRepository.deleteRange(conversationId, segment.getFromSeq(), segment.getToSeq());
+        return true;
+    }
+
+    // ------------------------- ENCODE / DECODE -------------------------
+
+    private void applyPayload(MessageSegment segment, List<Message> messages) {
+        List<Map<String, Object>> rows = messages.stream().map(this::toRow).toList();
+        try {
+            byte[] raw = objectMapper.writeValueAsBytes(rows);
+            segment.setRawSize(raw.length);
+            segment.setPayload(deflate(raw));
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot encode message segment of conversation " + segment.getConversationId(), e);
+        }
+    }
+
+    private List<Message> decode(MessageSegment segment) {
+        try {
+            byte[] raw = inflate(segment.getPayload(), segment.getRawSize());
+            List<Map<String, Object>> rows = objectMapper.readValue(raw, new TypeReference<List<Map<String, Object>>>() {});
+            List<Message> messages = new ArrayList<>(rows.size());
+            for (Map<String, Object> row : rows) {
+                messages.add(fromRow(segment.getConversationId(), row));
+            }
+            return messages;
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot decode message segment " + segment.getId(), e);
+        }
+    }
+
+    private Map<String, Object> toRow(Message m) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("seq", m.getId().getSeq());
+        row.put("messageId", m.getMessageId());
+        row.put("senderId", m.getSenderId());
+        row.put("senderName", m.getSenderName());
+        row.put("senderAvatar", m.getSenderAvatar());
+        row.put("replyToId", m.getReplyToId());
+        row.put("type", m.getType() != null ? m.getType().name() : null);
+        row.put("content", m.getContent());
+        row.put("media", m.getMedia());
+        row.put("reactions", m.getReactions());
+        row.put("createdAt", m.getCreatedAt() != null ? m.getCreatedAt().toString() : null);
+        row.put("updatedAt", m.getUpdatedAt() != null ? m.getUpdatedAt().toString() : null);
+        row.put("deletedAt", m.getDeletedAt() != null ? m.getDeletedAt().toString() : null);
+        row.put("isDeleted", m.isDeleted());
+        row.put("isSystemBan", m.isSystemBan());
+        return row;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Message fromRow(Long conversationId, Map<String, Object> row) {
+        return Message.builder()
+                .id(new MessageKey(conversationId, ((Number) row.get("seq")).longValue()))
+                .messageId((String) row.get("messageId"))
+                .senderId(row.get("senderId") != null ? ((Number) row.get("senderId")).longValue() : null)
+                .senderName((String) row.get("senderName"))
+                .senderAvatar((String) row.get("senderAvatar"))
+                .replyToId(row.get("replyToId") != null ? ((Number) row.get("replyToId")).longValue() : null)
+                .type(row.get("type") != null ? MessageType.valueOf((String) row.get("type")) : null)
+                .content((String) row.get("content"))
+                .media(row.get("media") != null ? (List<Map<String, Object>>) row.get("media") : new ArrayList<>())
+                .reactions(row.get("reactions") != null ? (List<Map<String, Object>>) row.get("reactions") : new ArrayList<>())
+                .createdAt(parseInstant(row.get("createdAt")))
+                .updatedAt(parseInstant(row.get("updatedAt")))
+                .deletedAt(parseInstant(row.get("deletedAt")))
+                .isDeleted(Boolean.TRUE.equals(row.get("isDeleted")))
+                .isSystemBan(Boolean.TRUE.equals(row.get("isSystemBan")))
+                .build();
+    }
+
+    private Instant parseInstant(Object obj) {
+        return obj != null ? Instant.parse(obj.toString()) : null;
+    }
+
+    private byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(compressionLevel);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private byte[] inflate(byte[] compressed, Integer rawSize) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(rawSize != null ? rawSize : compressed.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.kt.social.domain.message.service;
+
+import com.kt.social.common.exception.BadRequestException;
+import com.kt.social.common.exception.ResourceNotFoundException;
+import com.kt.social.common.utils.TimeOrderedIdUtils;
+import com.kt.social.domain.message.enums.MessageType;
+import com.kt.social.domain.message.event.ChatMessageEvent;
+import com.kt.social.domain.message.mapper.MessageMapper;
+import com.kt.social.domain.message.model.Message;
+import com.kt.social.domain.message.model.MessageKey;
+import com.kt.social.domain.message.repository.ConversationMemberRepository;
+import com.kt.social.domain.message.repository.ConversationRepository;
+import com.kt.social.domain.message.repository.MessageRepository;
+import com.kt.social.domain.moderation.event.MessageSentEvent;
+import com.kt.social.infra.websocket.ChatBroadcaster;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ghi tin nhắn theo mô hình single-writer cho từng hội thoại.
+ *
+ *  - Mỗi hội thoại đang có tin gửi tới có 1 writer (hàng đợi + cờ scheduled). Chỉ 1 task drain writer đó tại 1 thời điểm,
+ *    nên không cần synchronized / lock theo hội thoại.
+ *  - Task drain lấy tối đa batch-size tin đang chờ và ghi tất cả trong 1 transaction (group commit):
+ *    1 UPDATE cấp cả dải seq, 1 batch insert messages, 1 insert message_locations, 1 upsert conversation_summary,
+ *    1 insert message_search.
+ *  - Sau commit mới broadcast (theo đúng thứ tự seq) và trả ack (messageId + seq) cho người gửi.
+ *  - Writer rảnh được gỡ khỏi map, số tin chờ mỗi hội thoại bị giới hạn -> bộ nhớ không tăng mãi.
+ *
+ * Giữa nhiều node: UPDATE cấp seq khóa row hội thoại, nên thứ tự seq vẫn đúng khi chạy nhiều instance.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MessageIngestionService {
+
+    // Số batch tối đa 1 task được drain liên tục trước khi nhường luồng cho hội thoại khác
+    private static final int MAX_BATCHES_PER_RUN = 10;
+
+    private final ConversationRepository conversationRepository;
+    private final ConversationMemberRepository memberRepository;
+    private final MessageRepository messageRepository;
+    private final MessageMapper messageMapper;
+    private final LegacyMessageMigrationService legacyMessageMigrationService;
+    private final MessageLocationService messageLocationService;
+    private final ConversationSummaryService conversationSummaryService;
+    private final MessageSearchService messageSearchService;
+    private final RecentMessageCache recentMessageCache;
+    private final ChatBroadcaster chatBroadcaster;
+    private final LargeGroupDeliveryService largeGroupDeliveryService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("chatWriterExecutor")
+    private TaskExecutor chatWriterExecutor;
+
+    @Value("${chat.ingest.batch-size:100}")
+    private int batchSize;
+
+    @Value("${chat.ingest.max-pending-per-conversation:1000}")
+    private int maxPendingPerConversation;
+
+    private final Map<Long, ConversationWriter> writers = new ConcurrentHashMap<>();
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Nội dung 1 tin nhắn chờ ghi (media đã được upload trước khi vào hàng đợi).
+     */
+    public record MessageDraft(Long conversationId, Long senderId, String senderName, String senderAvatar,
+                               Long replyToId, MessageType type, String content,
+                               List<Map<String, Object>> media, String clientMessageId) {
+    }
+
+    private record Pending(MessageDraft draft, CompletableFuture<ChatMessageEvent> ack) {
+    }
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Đưa tin nhắn vào hàng đợi của hội thoại. Future hoàn thành sau khi tin đã commit + broadcast,
+     * với event chứa messageId và seq đã cấp.
+     */
+    public CompletableFuture<ChatMessageEvent> submit(MessageDraft draft) {
+        Pending pending = new Pending(draft, new CompletableFuture<>());
+        AtomicBoolean rejected = new AtomicBoolean(false);
+
+        // compute() chạy nguyên tử theo key -> không đua với việc gỡ writer rảnh trong release()
+        ConversationWriter writer = writers.compute(draft.conversationId(), (id, w) -> {
+            if (w == null) w = new ConversationWriter(id);
+            if (w.size.get() >= maxPendingPerConversation) {
+                rejected.set(true);
+            } else {
+                w.size.incrementAndGet();
+                w.queue.add(pending);
+            }
+            return w;
+        });
+
+        if (rejected.get()) {
+            throw new BadRequestException("Conversation is busy, please retry.");
+        }
+        writer.schedule();
+        return pending.ack();
+    }
+
+    /**
+     * Ghi ngay trong transaction của caller (tin nhắn hệ thống phát sinh giữa các thao tác nhóm:
+     * caller có thể đang giữ khóa row hội thoại hoặc hội thoại chưa commit, nên không thể chờ writer).
+     */
+    @Transactional
+    public ChatMessageEvent writeInline(MessageDraft draft) {
+        Message message = persist(draft.conversationId(), List.of(draft)).get(0);
+        return publish(message, draft);
+    }
+
+    private void drain(ConversationWriter writer) {
+        List<Pending> batch = new ArrayList<>(Math.min(batchSize, writer.size.get()));
+        Pending p;
+        while (batch.size() < batchSize && (p = writer.queue.poll()) != null) {
+            batch.add(p);
+        }
+        writer.size.addAndGet(-batch.size());
+        if (batch.isEmpty()) return;
+
+        List<MessageDraft> drafts = batch.stream().map(Pending::draft).toList();
+        List<Message> saved;
+        try {
+            saved = transactionTemplate.execute(status -> persist(writer.conversationId, drafts));
+        } catch (Exception e) {
+            log.error("❌ Failed to write {} messages to conversation {}: {}",
+                    batch.size(), writer.conversationId, e.getMessage());
+            batch.forEach(pending -> pending.ack().completeExceptionally(e));
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            Pending pending = batch.get(i);
+            try {
+                pending.ack().complete(publish(saved.get(i), pending.draft()));
+            } catch (Exception e) {
+                pending.ack().completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Yêu cầu đang ở trong transaction. Trả về các tin đã ghi theo đúng thứ tự drafts.
+     */
+    private List<Message> persist(Long conversationId, List<MessageDraft> drafts) {
+        // Lịch sử JSONB cũ phải được chuyển sang bảng messages trước khi cấp seq mới
+        legacyMessageMigrationService.migrateIfNeeded(conversationId);
+
+        Instant now = Instant.now();
+        // Cấp cả dải seq + cập nhật updatedAt trong 1 câu UPDATE
+        Long lastSeq = conversationRepository.allocateSequences(conversationId, drafts.size(), now);
+        if (lastSeq == null) {
+            throw new ResourceNotFoundException("Conversation not found");
+        }
+
+        long seq = lastSeq - drafts.size();
+        List<Message> messages = new ArrayList<>(drafts.size());
+        for (MessageDraft d : drafts) {
+            messages.add(Message.builder()
+                    .id(new MessageKey(conversationId, ++seq))
+                    .messageId(TimeOrderedIdUtils.newId())
+                    .senderId(d.senderId())
+                    .senderName(d.senderName())
+                    .senderAvatar(d.senderAvatar())
+                    .replyToId(d.replyToId())
+                    .type(d.type())
+                    .content(d.content())
+                    .media(d.media() != null ? d.media() : new ArrayList<>())
+                    .reactions(new ArrayList<>()) // initially empty
+                    .createdAt(now)
+                    .build());
+        }
+
+        messageRepository.saveAll(messages);
+        messageLocationService.recordAll(messages);
+        conversationSummaryService.recordMessage(messages.get(messages.size() - 1));
+        messageSearchService.index(conversationId, messages);
+
+        // Người gửi coi như đã đọc tới tin cuối của chính mình trong batch
+        Map<Long, Long> senderWatermarks = new HashMap<>();
+        for (Message m : messages) {
+            if (m.getType() != MessageType.SYSTEM && m.getSenderId() != null) {
+                senderWatermarks.merge(m.getSenderId(), m.getId().getSeq(), Math::max);
+            }
+        }
+        senderWatermarks.forEach((senderId, readSeq) ->
+                memberRepository.advanceReadWatermark(conversationId, senderId, readSeq, now));
+
+        // Cache chỉ thấy các thay đổi này sau khi transaction commit
+        recentMessageCache.onMessagesSaved(conversationId, messages);
+        senderWatermarks.forEach((senderId, readSeq) -> recentMessageCache.onRead(conversationId, senderId, readSeq));
+
+        return messages;
+    }
+
+    private ChatMessageEvent publish(Message message, MessageDraft draft) {
+        List<Long> readBy = message.getType() != MessageType.SYSTEM
+                ? List.of(message.getSenderId())
+                : List.of();
+
+        ChatMessageEvent payload = messageMapper.toEvent(message, readBy, draft.clientMessageId());
+
+        Long conversationId = message.getId().getConversationId();
+        if (largeGroupDeliveryService.isLargeGroup(conversationId)) {
+            // Nhóm lớn: gom theo cửa sổ ngắn, chỉ gửi cho thành viên đang online
+            largeGroupDeliveryService.enqueue(conversationId, payload);
+        } else {
+            // broadcast via STOMP (encode 1 lần cho mọi subscriber)
+            chatBroadcaster.toConversation(conversationId, payload);
+        }
+
+        // publish event for moderation logging
+        String content = message.getContent();
+        if (message.getType() != MessageType.SYSTEM && content != null && !content.isBlank()) {
+            eventPublisher.publishEvent(new MessageSentEvent(
+                    this,
+                    message.getMessageId(),
+                    conversationId,
+                    content,
+                    message.getSenderId(),
+                    message.getMedia()
+            ));
+        }
+
+        return payload;
+    }
+
+    private final class ConversationWriter implements Runnable {
+        private final Long conversationId;
+        private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+        private ConversationWriter(Long conversationId) {
+            this.conversationId = conversationId;
+        }
+
+        private void schedule() {
+            if (!scheduled.compareAndSet(false, true)) return;
+            try {
+                chatWriterExecutor.execute(this);
+            } catch (Exception e) {
+                // Pool đầy: trả lỗi cho các tin đang chờ thay vì treo
+                scheduled.set(false);
+                Pending p;
+                while ((p = queue.poll()) != null) {
+                    size.decrementAndGet();
+                    p.ack().completeExceptionally(new BadRequestException("Server is busy, please retry."));
+                }
+                release();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                // Mỗi vòng là 1 group commit
+                for (int i = 0; i < MAX_BATCHES_PER_RUN && !queue.isEmpty(); i++) {
+                    drain(this);
+                }
+            } finally {
+                scheduled.set(false);
+                release();
+                // Còn tin (hết lượt, hoặc tin tới đúng lúc vừa nhả cờ scheduled) -> xếp lại vào pool
+                if (!queue.isEmpty()) schedule();
+            }
+        }
+
+        private void release() {
+            writers.computeIfPresent(conversationId, (id, w) -> w == this && w.queue.isEmpty() ? null : w);
+        }
+    }
+}
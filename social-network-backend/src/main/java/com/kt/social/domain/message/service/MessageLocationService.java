@@ -0,0 +1,134 @@
+package com.kt.social.domain.message.service;
+
+import com.kt.social.domain.message.model.Message;
+import com.kt.social.domain.message.model.MessageKey;
+import com.kt.social.domain.message.model.MessageLocation;
+import com.kt.social.domain.message.repository.ConversationRepository;
+import com.kt.social.domain.message.repository.MessageLocationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Tra cứu tin nhắn theo messageId (UUID) qua bảng message_locations:
+ * 1 lần đọc PK message_locations + 1 lần đọc PK messages, không phải quét toàn bộ tin nhắn.
+ *
+ * Tin nhắn có trước bảng này được backfill dần theo khoảng conversation_id (idempotent).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MessageLocationService {
+
+    private final MessageLocationRepository messageLocationRepository;
+    private final MessageArchiveService messageArchiveService;
+    private final ConversationRepository conversationRepository;
+
+    @Value("${chat.location-backfill.batch-size:200}")
+    private int batchSize;
+
+    private volatile boolean backfillDone = false;
+    private volatile boolean backfillChecked = false;
+    private volatile long backfillCursor = 0L;
+
+    /**
+     * Ghi vị trí của tin vừa tạo, cùng transaction với insert vào messages.
+     */
+    @Transactional
+    public void record(Message message) {
+        messageLocationRepository.insert(
+                message.getMessageId(),
+                message.getId().getConversationId(),
+                message.getId().getSeq()
+        );
+    }
+
+    @Transactional
+    public void recordAll(List<Message> messages) {
+        if (messages.isEmpty()) return;
+        if (messages.size() == 1) {
+            record(messages.get(0));
+            return;
+        }
+
+        int n = messages.size();
+        String[] messageIds = new String[n];
+        Long[] conversationIds = new Long[n];
+        Long[] seqs = new Long[n];
+        for (int i = 0; i < n; i++) {
+            Message m = messages.get(i);
+            messageIds[i] = m.getMessageId();
+            conversationIds[i] = m.getId().getConversationId();
+            seqs[i] = m.getId().getSeq();
+        }
+        messageLocationRepository.insertAll(messageIds, conversationIds, seqs);
+    }
+
+    @Transactional
+    public void deleteByConversation(Long conversationId) {
+        messageLocationRepository.deleteByConversationId(conversationId);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<MessageLocation> locate(String messageId) {
+        if (messageId == null || messageId.isBlank()) return Optional.empty();
+        return messageLocationRepository.findById(messageId);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Message> findMessage(String messageId) {
+        return locate(messageId)
+                .flatMap(loc -> messageArchiveService.find(new MessageKey(loc.getConversationId(), loc.getSeq())));
+    }
+
+    /**
+     * Giống findMessage nhưng bắt buộc tin nhắn thuộc đúng hội thoại.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Message> findMessage(Long conversationId, String messageId) {
+        return findSeq(conversationId, messageId)
+                .flatMap(seq -> messageArchiveService.find(new MessageKey(conversationId, seq)));
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<Long> findSeq(Long conversationId, String messageId) {
+        return locate(messageId)
+                .filter(loc -> loc.getConversationId().equals(conversationId))
+                .map(MessageLocation::getSeq);
+    }
+
+    @Scheduled(initialDelayString = "${chat.location-backfill.initial-delay-ms:20000}",
+            fixedDelayString = "${chat.location-backfill.delay-ms:2000}")
+    @Transactional
+    public void backfillBatch() {
+        if (backfillDone) return;
+
+        if (!backfillChecked) {
+            backfillChecked = true;
+            if (!messageLocationRepository.existsUnindexedMessages()) {
+                backfillDone = true;
+                return;
+            }
+        }
+
+        List<Long> ids = conversationRepository.findIdsAfter(backfillCursor, batchSize);
+        if (ids.isEmpty()) {
+            backfillDone = true;
+            log.info("✅ Message location backfill completed.");
+            return;
+        }
+
+        long toId = ids.get(ids.size() - 1);
+        int inserted = messageLocationRepository.backfillRange(backfillCursor, toId);
+        backfillCursor = toId;
+        if (inserted > 0) {
+            log.info("🔄 Indexed {} message locations (conversations up to {}).", inserted, toId);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.kt.social.domain.message.service;
+
+import com.kt.social.common.utils.SearchTextUtils;
+import com.kt.social.domain.message.enums.MessageType;
+import com.kt.social.domain.message.model.Message;
+import com.kt.social.domain.message.model.MessageKey;
+import com.kt.social.domain.message.repository.ConversationRepository;
+import com.kt.social.domain.message.repository.MessageSearchRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tìm kiếm toàn văn tin nhắn trong 1 hội thoại (bảng message_search, tsvector + GIN).
+ *
+ *  - Tin mới được index trong cùng transaction ghi tin (MessageIngestionService.persist), không quét lại gì.
+ *  - Tin có trước khi bật tính năng (hoặc do migration JSONB) được backfill nền theo search_indexed_seq,
+ *    đọc xuyên 2 tầng nên cả tin đã lưu trữ cũng tìm được.
+ *  - Tin bị gỡ thì bỏ khỏi chỉ mục, xóa hội thoại thì xóa cả chỉ mục của nó.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MessageSearchService {
+
+    private final MessageSearchRepository messageSearchRepository;
+    private final ConversationRepository conversationRepository;
+    private final MessageArchiveService messageArchiveService;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${chat.search.backfill.batch-size:500}")
+    private int backfillBatchSize;
+
+    @Value("${chat.search.backfill.conversations-per-run:50}")
+    private int conversationsPerRun;
+
+    private TransactionTemplate transactionTemplate;
+    private volatile long backfillCursor = 0L;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndex() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> messageSearchRepository.createVectorIndex());
+        } catch (Exception e) {
+            log.warn("⚠️ Cannot create GIN index on message_search: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Yêu cầu đang ở trong transaction. Index các tin của 1 hội thoại (bỏ qua tin hệ thống / đã gỡ / không có chữ).
+     */
+    @Transactional
+    public void index(Long conversationId, List<Message> messages) {
+        List<Long> seqs = new ArrayList<>(messages.size());
+        List<String> bodies = new ArrayList<>(messages.size());
+        for (Message m : messages) {
+            if (m.getType() == MessageType.SYSTEM || m.isDeleted()) continue;
+            String body = SearchTextUtils.fold(m.getContent());
+            if (body.isEmpty()) continue;
+            seqs.add(m.getId().getSeq());
+            bodies.add(body);
+        }
+        if (seqs.isEmpty()) return;
+
+        messageSearchRepository.indexAll(conversationId, seqs.toArray(Long[]::new),
+                bodies.toArray(String[]::new), Instant.now());
+    }
+
+    @Transactional
+    public void remove(MessageKey key) {
+        messageSearchRepository.deleteEntry(key.getConversationId(), key.getSeq());
+    }
+
+    @Transactional
+    public void deleteByConversation(Long conversationId) {
+        messageSearchRepository.deleteByConversationId(conversationId);
+    }
+
+    /**
+     * seq các tin khớp query (mới -> cũ, seq < beforeSeq). Query rỗng / toàn ký tự đặc biệt thì không có kết quả.
+     */
+    @Transactional(readOnly = true)
+    public List<Long> searchSeqs(Long conversationId, String query, Long beforeSeq, int limit) {
+        String tsQuery = SearchTextUtils.toTsQuery(query);
+        if (tsQuery == null) return List.of();
+        return messageSearchRepository.search(conversationId, tsQuery,
+                beforeSeq != null ? beforeSeq : Long.MAX_VALUE, limit);
+    }
+
+    // ------------------------- BACKFILL -------------------------
+
+    @Scheduled(initialDelayString = "${chat.search.backfill.initial-delay-ms:60000}",
+            fixedDelayString = "${chat.search.backfill.delay-ms:30000}")
+    public void backfill() {
+        List<Object[]> backlog = conversationRepository.findSearchBacklog(backfillCursor, conversationsPerRun);
+        if (backlog.isEmpty()) {
+            backfillCursor = 0L; // Hết 1 vòng, lượt sau quét lại từ đầu
+            return;
+        }
+
+        int indexed = 0;
+        for (Object[] row : backlog) {
+            Long id = ((Number) row[0]).longValue();
+            long fromSeq = ((Number) row[1]).longValue();
+            long lastSeq = ((Number) row[2]).longValue();
+            backfillCursor = id;
+            try {
+                Integer n = transactionTemplate.execute(status -> backfillChunk(id, fromSeq, lastSeq));
+                indexed += n != null ? n : 0;
+            } catch (Exception e) {
+                log.error("❌ Failed to index messages of conversation {} for search: {}", id, e.getMessage());
+            }
+        }
+
+        if (indexed > 0) {
+            log.info("🔎 Indexed {} messages for search (conversations up to {}).", indexed, backfillCursor);
+        }
+    }
+
+    /**
+     * Yêu cầu đang ở trong transaction. Index tối đa backfillBatchSize tin sau fromSeq rồi tiến mốc;
+     * phần còn lại để lượt sau (hội thoại lớn không giữ transaction quá lâu).
+     */
+    private int backfillChunk(Long conversationId, long fromSeq, long lastSeq) {
+        List<Message> rows = messageArchiveService.pageAfter(conversationId, fromSeq, backfillBatchSize);
+        List<Message> chunk = rows.stream().filter(m -> m.getId().getSeq() <= lastSeq).toList();
+        index(conversationId, chunk);
+
+        // Đọc hết (hoặc đã vượt lastSeq) thì mọi tin <= lastSeq đều đã được index
+        long toSeq = rows.size() < backfillBatchSize || chunk.size() < rows.size()
+                ? lastSeq
+                : chunk.get(chunk.size() - 1).getId().getSeq();
+        // Node khác đã tiến mốc trước -> bỏ qua (các tin vừa index là idempotent)
+        conversationRepository.advanceSearchIndexedSeq(conversationId, fromSeq, toSeq);
+        return chunk.size();
+    }
+}
@@ -2,20 +2,37 @@ package com.kt.social.domain.message.service;
 
 import com.kt.social.domain.message.dto.MessageRequest;
 import com.kt.social.domain.message.dto.MessageResponse;
+import com.kt.social.domain.message.dto.MessageWindowResponse;
+import com.kt.social.domain.message.event.ChatMessageEvent;
 import com.kt.social.common.vo.CursorPage;
+import com.kt.social.domain.user.model.User;
 import java.util.List;
 import java.util.Map;
 
 public interface MessageService {
-    // HTTP multipart -> trả về message gửi thành công (map để giữ linh hoạt)
-    Map<String, Object> sendMessage(MessageRequest req);
+    // HTTP multipart -> trả về message gửi thành công (cùng payload đã broadcast)
+    ChatMessageEvent sendMessage(MessageRequest req);
 
     // WS (text-only) hoặc send as user
     void sendMessageAs(Long senderId, MessageRequest req);
 
+    // Tin nhắn hệ thống (tạo nhóm, thêm/xóa thành viên...) - dùng chung luồng append với tin thường
+    ChatMessageEvent sendSystemMessage(Long conversationId, User sender, String content);
+
     // lấy page theo cursor (before = messageId), limit default 30
     CursorPage<MessageResponse> getMessagesCursor(Long conversationId, String beforeMessageId, int limit);
 
+    // Cursor theo seq (không phụ thuộc tin làm cursor còn tồn tại):
+    //  - beforeSeq: các tin cũ hơn, mới -> cũ; nextCursor = seq nhỏ nhất của trang
+    //  - afterSeq: các tin mới hơn, cũ -> mới; nextCursor = seq lớn nhất của trang
+    CursorPage<MessageResponse> getMessagesBySeq(Long conversationId, Long beforeSeq, Long afterSeq, int limit);
+
+    // Tìm tin theo nội dung (không phân biệt dấu), mới -> cũ; trang sau: beforeSeq = nextCursor
+    CursorPage<MessageResponse> searchMessages(Long conversationId, String query, Long beforeSeq, int limit);
+
+    // "Jump to message": các tin quanh 1 tin (theo messageId hoặc seq)
+    MessageWindowResponse getMessagesAround(Long conversationId, String messageId, Long seq, int limit);
+
     // Lấy list messages toàn bộ (dùng hiếm) — trả về mới -> cũ
     List<Map<String,Object>> getMessages(Long conversationId);
 
@@ -0,0 +1,230 @@
+package com.kt.social.domain.message.service;
+
+import com.kt.social.common.exception.ResourceNotFoundException;
+import com.kt.social.domain.message.dto.*;
+import com.kt.social.domain.message.enums.MessageChangeType;
+import com.kt.social.domain.message.mapper.MessageMapper;
+import com.kt.social.domain.message.model.Message;
+import com.kt.social.domain.message.model.MessageChange;
+import com.kt.social.domain.message.model.MessageKey;
+import com.kt.social.domain.message.repository.ConversationMemberRepository;
+import com.kt.social.domain.message.repository.ConversationRepository;
+import com.kt.social.domain.message.repository.MessageChangeRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Delta sync cho client vừa kết nối lại: thay vì tải lại danh sách hội thoại và các trang tin nhắn,
+ * client gửi token đang giữ và chỉ nhận phần thay đổi.
+ *
+ * Token của 1 hội thoại gồm 3 phần "seq.version.at":
+ *  - seq: tin mới = seq lớn hơn (seq được cấp khi khóa row hội thoại nên thứ tự seq = thứ tự commit)
+ *  - version: thay đổi trên tin đã gửi (sửa / gỡ / reaction) nằm trong message_changes, cấp theo cùng cách
+ *  - at: mốc thời gian cho watermark đọc (đọc rất nhiều nên không ghi log, lọc theo last_read_at)
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MessageSyncService {
+
+    private static final int MAX_BATCH_SIZE = 500;
+
+    private final ConversationRepository conversationRepository;
+    private final ConversationMemberRepository memberRepository;
+    private final MessageChangeRepository messageChangeRepository;
+    private final MessageArchiveService messageArchiveService;
+    private final RecentMessageCache recentMessageCache;
+    private final ConversationMembershipCache membershipCache;
+    private final MessageMapper messageMapper;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${chat.sync.retention-days:7}")
+    private int retentionDays;
+
+    // Bù lệch đồng hồ giữa các node khi lọc watermark theo thời gian (trả trùng thì client bỏ qua được)
+    @Value("${chat.sync.clock-skew-ms:5000}")
+    private long clockSkewMs;
+
+    @Value("${chat.sync.prune-batch-size:5000}")
+    private int pruneBatchSize;
+
+    private TransactionTemplate transactionTemplate;
+
+    private record SyncToken(long seq, long version, Instant at) {
+
+        static SyncToken parse(String token) {
+            if (token == null || token.isBlank()) return null;
+            String[] parts = token.split("\\.");
+            if (parts.length != 3) return null;
+            try {
+                return new SyncToken(Long.parseLong(parts[0]), Long.parseLong(parts[1]),
+                        Instant.ofEpochMilli(Long.parseLong(parts[2])));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        String format() {
+            return seq + "." + version + "." + at.toEpochMilli();
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Ghi 1 thay đổi trên tin đã gửi. Yêu cầu đang ở trong transaction của thao tác sửa / gỡ.
+     *
+     * @return version đã cấp, null nếu hội thoại đã bị xóa
+     */
+    @Transactional
+    public Long recordChange(MessageKey key, String messageId, MessageChangeType type) {
+        Instant now = Instant.now();
+        Long version = conversationRepository.allocateChangeVersion(key.getConversationId(), now);
+        if (version == null) return null; // hội thoại đã bị xóa
+
+        messageChangeRepository.save(MessageChange.builder()
+                .conversationId(key.getConversationId())
+                .version(version)
+                .seq(key.getSeq())
+                .messageId(messageId)
+                .changeType(type)
+                .createdAt(now)
+                .build());
+        return version;
+    }
+
+    @Transactional(readOnly = true)
+    public MessageSyncResponse sync(Long userId, Long conversationId, String token, int limit) {
+        membershipCache.requireMember(conversationId, userId);
+        ConversationSyncProjection state = conversationRepository.findSyncState(conversationId)
+                .orElseThrow(() -> new ResourceNotFoundException("Conversation not found"));
+
+        Instant now = Instant.now();
+        SyncToken from = SyncToken.parse(token);
+        if (from == null || from.at().isBefore(now.minus(Duration.ofDays(retentionDays)))) {
+            // Log thay đổi đã bị dọn -> không đảm bảo đủ delta, client tải lại từ đầu
+            return MessageSyncResponse.builder()
+                    .conversationId(conversationId)
+                    .messages(List.of())
+                    .updates(List.of())
+                    .readWatermarks(List.of())
+                    .nextToken(new SyncToken(state.getLastMessageSeq(), state.getChangeVersion(), now).format())
+                    .reset(true)
+                    .build();
+        }
+
+        int batchSize = Math.max(1, Math.min(limit, MAX_BATCH_SIZE));
+
+        // 1. Đọc log thay đổi TRƯỚC tin mới: thay đổi nào đã thấy ở đây thì trạng thái tin đọc ở bước 2 đã bao gồm nó
+        List<MessageChange> changes = messageChangeRepository.findAfter(conversationId, from.version(), batchSize + 1);
+        boolean moreChanges = changes.size() > batchSize;
+        if (moreChanges) changes = changes.subList(0, batchSize);
+        long nextVersion = changes.isEmpty() ? from.version() : changes.get(changes.size() - 1).getVersion();
+
+        // 2. Tin mới (ưu tiên cache tin gần đây)
+        RecentMessageCache.CachedPage cached = recentMessageCache.pageAfter(conversationId, from.seq(), batchSize + 1);
+        List<Message> fresh = cached != null
+                ? cached.messages()
+                : messageArchiveService.pageAfter(conversationId, from.seq(), batchSize + 1);
+        boolean moreMessages = fresh.size() > batchSize;
+        if (moreMessages) fresh = fresh.subList(0, batchSize);
+        long nextSeq = fresh.isEmpty() ? from.seq() : fresh.get(fresh.size() - 1).getId().getSeq();
+
+        // 3. Chỉ gửi lại trạng thái của tin client đã có; tin mới hơn token sẽ tới kèm trạng thái hiện tại
+        SortedSet<Long> changedSeqs = new TreeSet<>();
+        for (MessageChange c : changes) {
+            if (c.getSeq() <= from.seq()) changedSeqs.add(c.getSeq());
+        }
+        List<MessageResponse> updates = new ArrayList<>(changedSeqs.size());
+        for (Long seq : changedSeqs) {
+            messageArchiveService.find(new MessageKey(conversationId, seq))
+                    .ifPresent(m -> updates.add(messageMapper.toResponse(m)));
+        }
+
+        // 4. Watermark đọc thay đổi sau mốc của token
+        List<ReadWatermarkResponse> watermarks = memberRepository
+                .findReadWatermarksSince(conversationId, from.at().minusMillis(clockSkewMs)).stream()
+                .map(w -> new ReadWatermarkResponse(w.getUserId(), w.getLastReadSeq()))
+                .toList();
+
+        return MessageSyncResponse.builder()
+                .conversationId(conversationId)
+                .messages(fresh.stream().map(messageMapper::toResponse).toList())
+                .updates(updates)
+                .readWatermarks(watermarks)
+                .nextToken(new SyncToken(nextSeq, nextVersion, now).format())
+                .hasMore(moreChanges || moreMessages)
+                .build();
+    }
+
+    /**
+     * Các hội thoại của user thay đổi sau mốc since (epoch millis, null = tất cả), phân trang theo id.
+     */
+    @Transactional(readOnly = true)
+    public ConversationChangesResponse changedConversations(Long userId, String since, Long after, int limit) {
+        Instant now = Instant.now();
+        Instant sinceAt = Instant.EPOCH;
+        if (since != null && !since.isBlank()) {
+            try {
+                sinceAt = Instant.ofEpochMilli(Long.parseLong(since)).minusMillis(clockSkewMs);
+            } catch (NumberFormatException e) {
+                // since không hợp lệ -> coi như sync toàn bộ
+            }
+        }
+
+        int batchSize = Math.max(1, Math.min(limit, MAX_BATCH_SIZE));
+        List<ConversationSyncProjection> rows = conversationRepository.findChangedSince(
+                userId, sinceAt, after != null ? after : 0L, batchSize + 1);
+        boolean hasMore = rows.size() > batchSize;
+        if (hasMore) rows = rows.subList(0, batchSize);
+
+        List<ConversationChangesResponse.ConversationState> conversations = rows.stream()
+                .map(r -> new ConversationChangesResponse.ConversationState(
+                        r.getConversationId(), r.getLastMessageSeq(), r.getChangeVersion()))
+                .toList();
+
+        return ConversationChangesResponse.builder()
+                .conversations(conversations)
+                .hasMore(hasMore)
+                .nextCursor(hasMore ? rows.get(rows.size() - 1).getConversationId() : null)
+                // Chỉ chuyển mốc khi đã đọc hết các trang của mốc cũ
+                .nextSince(hasMore ? since : String.valueOf(now.toEpochMilli()))
+                .build();
+    }
+
+    @Transactional
+    public void deleteByConversation(Long conversationId) {
+        messageChangeRepository.deleteByConversationId(conversationId);
+    }
+
+    @Scheduled(fixedDelayString = "${chat.sync.prune-delay-ms:3600000}",
+            initialDelayString = "${chat.sync.prune-initial-delay-ms:120000}")
+    public void pruneChanges() {
+        Instant cutoff = Instant.now().minus(Duration.ofDays(retentionDays));
+        int total = 0;
+        Integer deleted;
+        do {
+            deleted = transactionTemplate.execute(status ->
+                    messageChangeRepository.deleteOlderThan(cutoff, pruneBatchSize));
+            total += deleted != null ? deleted : 0;
+        } while (deleted != null && deleted >= pruneBatchSize);
+
+        if (total > 0) {
+            log.info("🧹 Pruned {} message changes older than {} days.", total, retentionDays);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.kt.social.domain.message.service;
+
+import com.kt.social.domain.message.dto.MarkReadRequest;
+import com.kt.social.domain.message.event.ReadReceiptEvent;
+import com.kt.social.domain.message.model.MessageLocation;
+import com.kt.social.domain.message.repository.ConversationMemberRepository;
+import com.kt.social.domain.message.repository.MessageLocationRepository;
+import com.kt.social.infra.websocket.ChatBroadcaster;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Gộp các sự kiện /chat.read trong một cửa sổ ngắn (mặc định 250ms).
+ *
+ * Client bắn "đã đọc" cho mọi tin nhắn cuộn vào màn hình; thay vì mỗi sự kiện 1 transaction + 1 frame socket,
+ * mỗi lần flush chỉ:
+ *  - 1 query resolve messageId -> seq (message_locations),
+ *  - 1 UPDATE gộp cho tất cả watermark (chỉ giữ vị trí cao nhất của mỗi cặp user/hội thoại),
+ *  - 1 EVENT_READ cho mỗi hội thoại có watermark thay đổi.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReadReceiptCoalescer {
+
+    // Giới hạn số messageId giữ cho 1 cặp (user, hội thoại) trong 1 cửa sổ; bỏ bớt id cũ nhất khi đầy
+    private static final int MAX_IDS_PER_KEY = 64;
+
+    private final MessageLocationRepository messageLocationRepository;
+    private final ConversationMemberRepository memberRepository;
+    private final RecentMessageCache recentMessageCache;
+    private final ConversationMembershipCache membershipCache;
+    private final ChatBroadcaster chatBroadcaster;
+    private final PlatformTransactionManager transactionManager;
+
+    private final Map<ReadKey, Set<String>> pending = new ConcurrentHashMap<>();
+    private TransactionTemplate transactionTemplate;
+
+    private record ReadKey(Long conversationId, Long userId) {}
+
+    private record ReadPosition(Long seq, String messageId) {}
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public void submit(Long userId, MarkReadRequest request) {
+        if (userId == null || request == null || request.getConversationId() == null
+                || request.getMessageId() == null || request.getMessageId().isBlank()) {
+            return;
+        }
+        // Người ngoài không được giữ chỗ trong hàng đợi (UPDATE cũng chỉ khớp row member)
+        if (!membershipCache.isMember(request.getConversationId(), userId)) {
+            return;
+        }
+
+        pending.compute(new ReadKey(request.getConversationId(), userId), (key, ids) -> {
+            if (ids == null) ids = new LinkedHashSet<>();
+            if (ids.size() >= MAX_IDS_PER_KEY) {
+                Iterator<String> oldest = ids.iterator();
+                oldest.next();
+                oldest.remove();
+            }
+            ids.add(request.getMessageId());
+            return ids;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${chat.read-receipt.flush-ms:250}")
+    public void flush() {
+        if (pending.isEmpty()) return;
+
+        Map<ReadKey, Set<String>> batch = new HashMap<>();
+        for (ReadKey key : pending.keySet()) {
+            Set<String> ids = pending.remove(key);
+            if (ids != null) batch.put(key, ids);
+        }
+        if (batch.isEmpty()) return;
+
+        try {
+            flushBatch(batch);
+        } catch (Exception e) {
+            log.error("❌ Failed to flush {} read receipts: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    private void flushBatch(Map<ReadKey, Set<String>> batch) {
+        // 1. Resolve toàn bộ messageId trong 1 query
+        Set<String> allIds = batch.values().stream()
+                .flatMap(Set::stream)
+                .collect(Collectors.toSet());
+        Map<String, MessageLocation> locations = messageLocationRepository.findAllById(allIds).stream()
+                .collect(Collectors.toMap(MessageLocation::getMessageId, Function.identity()));
+
+        // 2. Chỉ giữ vị trí cao nhất của mỗi cặp (user, hội thoại)
+        Map<ReadKey, ReadPosition> highest = new HashMap<>();
+        batch.forEach((key, ids) -> {
+            for (String id : ids) {
+                MessageLocation loc = locations.get(id);
+                if (loc == null || !loc.getConversationId().equals(key.conversationId())) continue;
+                highest.merge(key, new ReadPosition(loc.getSeq(), id),
+                        (a, b) -> a.seq() >= b.seq() ? a : b);
+            }
+        });
+        if (highest.isEmpty()) return;
+
+        // 3. 1 UPDATE cho tất cả watermark
+        int n = highest.size();
+        Long[] conversationIds = new Long[n];
+        Long[] userIds = new Long[n];
+        Long[] seqs = new Long[n];
+        int i = 0;
+        for (Map.Entry<ReadKey, ReadPosition> e : highest.entrySet()) {
+            conversationIds[i] = e.getKey().conversationId();
+            userIds[i] = e.getKey().userId();
+            seqs[i] = e.getValue().seq();
+            i++;
+        }
+
+        Instant now = Instant.now();
+        List<Object[]> advanced = transactionTemplate.execute(status ->
+                memberRepository.advanceReadWatermarks(conversationIds, userIds, seqs, now));
+        if (advanced == null || advanced.isEmpty()) return;
+
+        // 4. 1 EVENT_READ cho mỗi hội thoại (chỉ những watermark thực sự tăng, non-member bị UPDATE bỏ qua)
+        Map<Long, List<ReadReceiptEvent.Reader>> readersByConversation = new HashMap<>();
+        for (Object[] row : advanced) {
+            Long conversationId = ((Number) row[0]).longValue();
+            Long userId = ((Number) row[1]).longValue();
+            recentMessageCache.onRead(conversationId, userId, ((Number) row[2]).longValue());
+            ReadPosition pos = highest.get(new ReadKey(conversationId, userId));
+
+            ReadReceiptEvent.Reader reader = new ReadReceiptEvent.Reader(
+                    userId, pos != null ? pos.messageId() : null, ((Number) row[2]).longValue());
+            readersByConversation.computeIfAbsent(conversationId, k -> new ArrayList<>()).add(reader);
+        }
+
+        readersByConversation.forEach((conversationId, readers) ->
+                chatBroadcaster.toConversation(conversationId,
+                        ReadReceiptEvent.of(conversationId, readers, now.toString())));
+    }
+}
@@ -0,0 +1,485 @@
+package com.kt.social.domain.message.service;
+
+import com.kt.social.domain.message.dto.ConversationSyncProjection;
+import com.kt.social.domain.message.dto.ReadWatermarkProjection;
+import com.kt.social.domain.message.model.Message;
+import com.kt.social.domain.message.model.MessageKey;
+import com.kt.social.domain.message.repository.ConversationMemberRepository;
+import com.kt.social.domain.message.repository.ConversationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache trong bộ nhớ các tin nhắn mới nhất của những hội thoại đang hoạt động.
+ *
+ *  - Mỗi hội thoại giữ 1 ring buffer (tối đa messages-per-conversation tin) là "đuôi liền mạch" của lịch sử:
+ *    chứa đủ mọi seq từ lowSeq tới highSeq = last_message_seq, nên trang đầu và các lần cuộn lên gần đây
+ *    được phục vụ hoàn toàn từ RAM (kể cả readBy, vì watermark của thành viên cũng được giữ kèm).
+ *  - Cập nhật tại chỗ: tin mới được append sau commit, tin bị gỡ được đánh dấu deleted, watermark đọc được nâng lên.
+ *    Nếu thấy lỗ hổng seq (node khác vừa ghi) thì bỏ ring, lần đọc sau nạp lại.
+ *  - Chạy nhiều node: tối đa 1 lần mỗi verify-interval-ms, ring được đối chiếu với last_message_seq + change_version
+ *    của conversations (1 lookup PK, không đọc nội dung tin; change_version tăng mỗi lần gỡ tin) và watermark đọc
+ *    được đọc lại. Lệch thì bỏ ring -> tin mới, tin bị gỡ và watermark ghi ở node khác trễ tối đa verify-interval-ms.
+ *  - Trang trả ra là bản sao: tin trong ring được sửa tại chỗ (gỡ tin) trong khi caller vẫn đang đọc trang cũ.
+ *  - Giới hạn bộ nhớ theo ước lượng byte; vượt ngân sách thì bỏ các ring lâu không được đọc nhất.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RecentMessageCache {
+
+    // Ước lượng phần cố định của 1 tin (object header, key, uuid, timestamps, ...)
+    private static final long MESSAGE_OVERHEAD_BYTES = 320;
+    private static final long MEDIA_ITEM_BYTES = 160;
+    private static final long WATERMARK_BYTES = 64;
+
+    private final ConversationRepository conversationRepository;
+    private final ConversationMemberRepository memberRepository;
+    private final MessageArchiveService messageArchiveService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${chat.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chat.cache.messages-per-conversation:200}")
+    private int capacity;
+
+    @Value("${chat.cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${chat.cache.verify-interval-ms:1000}")
+    private long verifyIntervalMs;
+
+    private final Map<Long, Ring> rings = new ConcurrentHashMap<>();
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private Counter hits;
+    private Counter misses;
+    private Counter evictions;
+
+    /**
+     * 1 trang đọc từ cache: tin nhắn (mới -> cũ hoặc cũ -> mới tùy hàm) + watermark (userId -> lastReadSeq).
+     */
+    public record CachedPage(List<Message> messages, Map<Long, Long> watermarks) {
+    }
+
+    @PostConstruct
+    void init() {
+        hits = Counter.builder("chat.message.cache.hits").register(meterRegistry);
+        misses = Counter.builder("chat.message.cache.misses").register(meterRegistry);
+        evictions = Counter.builder("chat.message.cache.evictions").register(meterRegistry);
+        Gauge.builder("chat.message.cache.bytes", usedBytes, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("chat.message.cache.conversations", rings, Map::size).register(meterRegistry);
+    }
+
+    // ------------------- Đọc -------------------
+
+    /**
+     * Tối đa {@code limit} tin có seq < beforeSeq (null = mới nhất), mới -> cũ.
+     * Trả về null khi cache không chắc chắn có đủ dữ liệu (caller đọc DB).
+     */
+    public CachedPage pageBefore(Long conversationId, Long beforeSeq, int limit) {
+        Ring ring = acquire(conversationId, true);
+        if (ring == null) return miss();
+
+        ring.lock.lock();
+        try {
+            long upper = beforeSeq != null ? Math.min(beforeSeq - 1, ring.highSeq) : ring.highSeq;
+            long lower = Math.max(upper - limit + 1, 1);
+            if (lower < ring.lowSeq) return miss(); // phần cần đọc đã trôi khỏi ring
+            List<Message> out = new ArrayList<>((int) Math.max(0, upper - lower + 1));
+            for (long s = upper; s >= lower; s--) {
+                out.add(copyOf(ring.get(s)));
+            }
+            return hit(ring, out);
+        } finally {
+            ring.lock.unlock();
+        }
+    }
+
+    /**
+     * Tối đa {@code limit} tin có seq > afterSeq, cũ -> mới.
+     */
+    public CachedPage pageAfter(Long conversationId, long afterSeq, int limit) {
+        Ring ring = acquire(conversationId, false);
+        if (ring == null) return miss();
+
+        ring.lock.lock();
+        try {
+            long lower = afterSeq + 1;
+            if (lower < ring.lowSeq) return miss();
+            long upper = Math.min(ring.highSeq, afterSeq + limit);
+            List<Message> out = new ArrayList<>((int) Math.max(0, upper - lower + 1));
+            for (long s = lower; s <= upper; s++) {
+                out.add(copyOf(ring.get(s)));
+            }
+            return hit(ring, out);
+        } finally {
+            ring.lock.unlock();
+        }
+    }
+
+    /**
+     * Tìm seq của messageId trong ring (cursor của client gần như luôn là tin vừa tải), không query DB.
+     */
+    public Optional<Long> findSeq(Long conversationId, String messageId) {
+        Ring ring = enabled ? rings.get(conversationId) : null;
+        if (ring == null || messageId == null) return Optional.empty();
+
+        ring.lock.lock();
+        try {
+            for (long s = ring.highSeq; s >= ring.lowSeq; s--) {
+                Message m = ring.get(s);
+                if (m != null && messageId.equals(m.getMessageId())) return Optional.of(s);
+            }
+            return Optional.empty();
+        } finally {
+            ring.lock.unlock();
+        }
+    }
+
+    public boolean contains(Long conversationId) {
+        return enabled && rings.containsKey(conversationId);
+    }
+
+    // ------------------- Cập nhật tại chỗ -------------------
+
+    /**
+     * Tin mới đã ghi (theo thứ tự seq). Trong transaction thì chờ tới sau commit.
+     */
+    public void onMessagesSaved(Long conversationId, List<Message> messages) {
+        if (!enabled || messages.isEmpty()) return;
+        afterCommit(() -> {
+            Ring ring = rings.get(conversationId);
+            if (ring == null) return;
+
+            boolean contiguous = true;
+            ring.lock.lock();
+            try {
+                if (ring.removed) return;
+                long before = ring.bytes;
+                for (Message m : messages) {
+                    if (!ring.append(m)) {
+                        contiguous = false;
+                        break;
+                    }
+                }
+                usedBytes.addAndGet(ring.bytes - before);
+            } finally {
+                ring.lock.unlock();
+            }
+
+            if (!contiguous) {
+                remove(conversationId, ring); // có lỗ hổng seq -> nạp lại ở lần đọc sau
+            } else {
+                enforceBudget();
+            }
+        });
+    }
+
+    /**
+     * Tin bị gỡ. {@code changeVersion} = version vừa cấp cho thay đổi này (null nếu không có): khớp với version
+     * kế tiếp của ring thì ring vẫn đúng, không thì lần đối chiếu sau sẽ bỏ ring.
+     */
+    public void onMessageDeleted(MessageKey key, Instant deletedAt, Long changeVersion) {
+        if (!enabled) return;
+        afterCommit(() -> {
+            Ring ring = rings.get(key.getConversationId());
+            if (ring == null) return;
+
+            ring.lock.lock();
+            try {
+                Message m = ring.contains(key.getSeq()) ? ring.get(key.getSeq()) : null;
+                if (m != null) {
+                    m.setDeleted(true);
+                    m.setDeletedAt(deletedAt);
+                    m.setSystemBan(true);
+                    m.setUpdatedAt(deletedAt);
+                }
+                if (changeVersion != null && changeVersion == ring.changeVersion + 1) {
+                    ring.changeVersion = changeVersion;
+                }
+            } finally {
+                ring.lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Watermark đọc của 1 thành viên tăng lên (chỉ tăng, giống UPDATE dưới DB).
+     */
+    public void onRead(Long conversationId, Long userId, long lastReadSeq) {
+        if (!enabled) return;
+        afterCommit(() -> {
+            Ring ring = rings.get(conversationId);
+            if (ring == null) return;
+
+            ring.lock.lock();
+            try {
+                ring.watermarks.merge(userId, lastReadSeq, Math::max);
+            } finally {
+                ring.lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Thành viên thay đổi hoặc hội thoại bị xóa.
+     */
+    public void invalidate(Long conversationId) {
+        if (!enabled) return;
+        afterCommit(() -> {
+            Ring ring = rings.get(conversationId);
+            if (ring != null) remove(conversationId, ring);
+        });
+    }
+
+    // ------------------- Nội bộ -------------------
+
+    /**
+     * Lấy ring (đã đối chiếu với DB nếu quá hạn). {@code load} = nạp ring khi chưa có
+     * (chỉ đáng làm cho trang đầu / cuộn lên, không cho đọc tiến).
+     */
+    private Ring acquire(Long conversationId, boolean load) {
+        if (!enabled) return null;
+
+        Ring ring = rings.get(conversationId);
+        long now = System.currentTimeMillis();
+        if (ring != null && now - ring.verifiedAt > verifyIntervalMs) {
+            ConversationSyncProjection state = conversationRepository.findSyncState(conversationId).orElse(null);
+            Map<Long, Long> watermarks = state != null ? readWatermarks(conversationId) : Map.of();
+            boolean current;
+            ring.lock.lock();
+            try {
+                current = state != null
+                        && ring.highSeq == state.getLastMessageSeq()
+                        && ring.changeVersion == state.getChangeVersion();
+                if (current) {
+                    long before = ring.bytes;
+                    ring.mergeWatermarks(watermarks);
+                    if (!ring.removed) usedBytes.addAndGet(ring.bytes - before);
+                }
+            } finally {
+                ring.lock.unlock();
+            }
+            if (current) {
+                ring.verifiedAt = now;
+            } else {
+                remove(conversationId, ring);
+                ring = null;
+            }
+        }
+        if (ring == null && load) {
+            ring = load(conversationId);
+        }
+        if (ring != null) ring.lastAccess = now;
+        return ring;
+    }
+
+    private Ring load(Long conversationId) {
+        long startedAt = System.currentTimeMillis();
+        ConversationSyncProjection state = conversationRepository.findSyncState(conversationId).orElse(null);
+        if (state == null) return null; // hội thoại không tồn tại
+
+        List<Message> newestFirst = messageArchiveService.pageBefore(conversationId, null, capacity);
+        long highSeq = newestFirst.isEmpty() ? 0L : newestFirst.get(0).getId().getSeq();
+        if (highSeq != state.getLastMessageSeq()) {
+            return null; // vừa có tin mới chen vào giữa 2 câu query -> để lần sau
+        }
+
+        // Tin bị gỡ sau khi đọc state: version của ring cũ hơn DB -> lần đối chiếu sau bỏ ring, không sai
+        Ring ring = new Ring(capacity, highSeq, state.getChangeVersion(), readWatermarks(conversationId));
+        for (int i = newestFirst.size() - 1; i >= 0; i--) {
+            ring.append(newestFirst.get(i));
+        }
+        if (ring.broken) return null;
+        // Chỉ chắc chắn đúng tại thời điểm đọc last_message_seq
+        ring.verifiedAt = startedAt;
+
+        long initialBytes = ring.bytes;
+        Ring existing = rings.putIfAbsent(conversationId, ring);
+        if (existing != null) return existing;
+        usedBytes.addAndGet(initialBytes);
+        enforceBudget();
+        return ring;
+    }
+
+    private void remove(Long conversationId, Ring ring) {
+        if (rings.remove(conversationId, ring)) {
+            ring.lock.lock();
+            try {
+                ring.removed = true;
+                usedBytes.addAndGet(-ring.bytes);
+            } finally {
+                ring.lock.unlock();
+            }
+        }
+    }
+
+    // Bỏ các ring lâu không đọc nhất cho tới khi còn ~90% ngân sách
+    private void enforceBudget() {
+        if (usedBytes.get() <= maxBytes || !evictionLock.tryLock()) return;
+        try {
+            long target = maxBytes - maxBytes / 10;
+            List<Map.Entry<Long, Ring>> byAge = new ArrayList<>(rings.entrySet());
+            byAge.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+            for (Map.Entry<Long, Ring> e : byAge) {
+                if (usedBytes.get() <= target) break;
+                remove(e.getKey(), e.getValue());
+                evictions.increment();
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private Map<Long, Long> readWatermarks(Long conversationId) {
+        Map<Long, Long> watermarks = new HashMap<>();
+        for (ReadWatermarkProjection w : memberRepository.findReadWatermarks(conversationId)) {
+            if (w.getLastReadSeq() != null) watermarks.put(w.getUserId(), w.getLastReadSeq());
+        }
+        return watermarks;
+    }
+
+    // Bản sao nông: media / reactions dùng chung nhưng ring không bao giờ sửa 2 list này
+    private static Message copyOf(Message m) {
+        return Message.builder()
+                .id(m.getId())
+                .messageId(m.getMessageId())
+                .senderId(m.getSenderId())
+                .senderName(m.getSenderName())
+                .senderAvatar(m.getSenderAvatar())
+                .replyToId(m.getReplyToId())
+                .type(m.getType())
+                .content(m.getContent())
+                .media(m.getMedia())
+                .reactions(m.getReactions())
+                .createdAt(m.getCreatedAt())
+                .updatedAt(m.getUpdatedAt())
+                .deletedAt(m.getDeletedAt())
+                .isDeleted(m.isDeleted())
+                .isSystemBan(m.isSystemBan())
+                .build();
+    }
+
+    private CachedPage hit(Ring ring, List<Message> messages) {
+        hits.increment();
+        return new CachedPage(messages, new HashMap<>(ring.watermarks));
+    }
+
+    private CachedPage miss() {
+        misses.increment();
+        return null;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    static long estimateSize(Message m) {
+        long size = MESSAGE_OVERHEAD_BYTES;
+        if (m.getContent() != null) size += 2L * m.getContent().length();
+        if (m.getSenderName() != null) size += 2L * m.getSenderName().length();
+        if (m.getSenderAvatar() != null) size += 2L * m.getSenderAvatar().length();
+        if (m.getMedia() != null) size += MEDIA_ITEM_BYTES * m.getMedia().size();
+        if (m.getReactions() != null) size += MEDIA_ITEM_BYTES * m.getReactions().size();
+        return size;
+    }
+
+    /**
+     * Ring buffer theo seq: slot của seq s là s % capacity. Luôn liền mạch lowSeq..highSeq.
+     * Mọi truy cập đều giữ {@link #lock} (ReentrantLock, không pin virtual thread).
+     */
+    private static final class Ring {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Message[] slots;
+        private final long[] sizes;
+        private final Map<Long, Long> watermarks;
+        private long lowSeq;
+        private long highSeq;
+        // conversations.change_version mà nội dung ring đang phản ánh
+        private long changeVersion;
+        private long bytes;
+        private boolean broken;
+        private boolean removed;
+        private volatile long lastAccess;
+        private volatile long verifiedAt;
+
+        private Ring(int capacity, long highSeq, long changeVersion, Map<Long, Long> watermarks) {
+            this.slots = new Message[capacity];
+            this.sizes = new long[capacity];
+            this.watermarks = watermarks;
+            // Ring rỗng: chưa có tin nào được giữ, tin kế tiếp phải là highSeq + 1
+            this.lowSeq = highSeq + 1;
+            this.highSeq = highSeq;
+            this.changeVersion = changeVersion;
+            this.bytes = watermarks.size() * WATERMARK_BYTES;
+            this.lastAccess = System.currentTimeMillis();
+        }
+
+        private boolean contains(long seq) {
+            return seq >= lowSeq && seq <= highSeq;
+        }
+
+        // Watermark chỉ tăng: giữ giá trị lớn hơn giữa ring và DB
+        private void mergeWatermarks(Map<Long, Long> fromDb) {
+            for (Map.Entry<Long, Long> e : fromDb.entrySet()) {
+                Long current = watermarks.get(e.getKey());
+                if (current == null) bytes += WATERMARK_BYTES;
+                if (current == null || current < e.getValue()) watermarks.put(e.getKey(), e.getValue());
+            }
+        }
+
+        private Message get(long seq) {
+            return slots[(int) (seq % slots.length)];
+        }
+
+        private boolean append(Message m) {
+            long seq = m.getId().getSeq();
+            if (seq <= highSeq && lowSeq <= highSeq) {
+                return true; // đã có (ví dụ: nạp ring xong rồi mới nhận sự kiện append)
+            }
+            if (seq != highSeq + 1 && lowSeq <= highSeq) {
+                broken = true;
+                return false;
+            }
+            if (lowSeq > highSeq) lowSeq = seq; // ring rỗng
+
+            int slot = (int) (seq % slots.length);
+            if (seq - lowSeq >= slots.length) {
+                // Ghi đè tin cũ nhất
+                bytes -= sizes[slot];
+                lowSeq++;
+            }
+            slots[slot] = m;
+            sizes[slot] = estimateSize(m);
+            bytes += sizes[slot];
+            highSeq = seq;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.kt.social.domain.message.service;
+
+import com.kt.social.domain.message.dto.TypingRequest;
+import com.kt.social.domain.message.event.TypingEvent;
+import com.kt.social.infra.websocket.ChatBroadcaster;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Typing indicator: hoàn toàn trong bộ nhớ, không transaction, không ghi DB.
+ *
+ *  - Throttle theo (user, hội thoại): "đang gõ" phát tối đa 1 lần mỗi min-interval-ms,
+ *    client có gửi dày hơn thì server vẫn chỉ broadcast theo nhịp đó.
+ *  - "Dừng gõ" chỉ phát nếu trước đó đã phát "đang gõ".
+ *  - Quyền gửi kiểm tra qua ConversationMembershipCache, chỉ gửi tới topic của hội thoại.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TypingIndicatorService {
+
+    private final ConversationMembershipCache membershipCache;
+    private final ChatBroadcaster chatBroadcaster;
+
+    @Value("${chat.typing.min-interval-ms:2000}")
+    private long minIntervalMs;
+
+    // Không nhận thêm tín hiệu sau khoảng này thì coi như đã dừng gõ (dọn map)
+    @Value("${chat.typing.expire-ms:10000}")
+    private long expireMs;
+
+    private record TypingKey(long conversationId, long userId) {
+    }
+
+    // (hội thoại, user) -> lần cuối broadcast "đang gõ"
+    private final Map<TypingKey, Long> lastTyping = new ConcurrentHashMap<>();
+
+    public void onTyping(Long userId, TypingRequest request) {
+        if (userId == null || request == null || request.getConversationId() == null) return;
+        Long conversationId = request.getConversationId();
+        TypingKey key = new TypingKey(conversationId, userId);
+        long now = System.currentTimeMillis();
+
+        if (Boolean.FALSE.equals(request.getTyping())) {
+            // Chưa từng báo "đang gõ" (hoặc đã hết hạn) thì không cần báo dừng
+            if (lastTyping.remove(key) != null) {
+                broadcast(conversationId, userId, false);
+            }
+            return;
+        }
+
+        Long last = lastTyping.get(key);
+        if (last != null && now - last < minIntervalMs) return;
+
+        if (!membershipCache.isMember(conversationId, userId)) {
+            log.debug("Ignored typing signal of non-member {} in conversation {}", userId, conversationId);
+            return;
+        }
+
+        // Nhiều session của cùng user gửi cùng lúc: chỉ 1 bên thắng
+        boolean won = last == null
+                ? lastTyping.putIfAbsent(key, now) == null
+                : lastTyping.replace(key, last, now);
+        if (won) {
+            broadcast(conversationId, userId, true);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${chat.typing.sweep-ms:30000}")
+    public void sweepExpired() {
+        long cutoff = System.currentTimeMillis() - expireMs;
+        lastTyping.values().removeIf(t -> t < cutoff);
+    }
+
+    private void broadcast(Long conversationId, Long userId, boolean typing) {
+        chatBroadcaster.toConversation(conversationId,
+                new TypingEvent(conversationId, userId, typing, Instant.now().toString()));
+    }
+}
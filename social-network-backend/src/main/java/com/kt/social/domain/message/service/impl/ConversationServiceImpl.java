@@ -3,22 +3,36 @@ package com.kt.social.domain.message.service.impl;
 import com.kt.social.common.exception.AccessDeniedException;
 import com.kt.social.common.exception.BadRequestException;
 import com.kt.social.common.exception.ResourceNotFoundException;
+import com.kt.social.common.vo.CursorPage;
 import com.kt.social.domain.message.dto.*;
 import com.kt.social.domain.message.enums.ConversationRole;
-import com.kt.social.domain.message.enums.MessageType;
 import com.kt.social.domain.message.model.Conversation;
 import com.kt.social.domain.message.model.ConversationMember;
 import com.kt.social.domain.message.model.ConversationMemberId;
+import com.kt.social.domain.message.model.ConversationSummary;
 import com.kt.social.domain.message.repository.ConversationMemberRepository;
 import com.kt.social.domain.message.repository.ConversationRepository;
+import com.kt.social.domain.message.repository.ConversationSummaryRepository;
+import com.kt.social.domain.message.repository.MessageRepository;
+import com.kt.social.domain.message.service.ConversationMembershipCache;
 import com.kt.social.domain.message.service.ConversationService;
+import com.kt.social.domain.message.service.ConversationSummaryService;
+import com.kt.social.domain.message.service.DirectConversationService;
+import com.kt.social.domain.message.service.MessageArchiveService;
+import com.kt.social.domain.message.service.MessageLocationService;
+import com.kt.social.domain.message.service.MessageSearchService;
+import com.kt.social.domain.message.service.MessageService;
+import com.kt.social.domain.message.service.MessageSyncService;
+import com.kt.social.domain.message.service.RecentMessageCache;
 import com.kt.social.domain.user.model.User;
 import com.kt.social.domain.user.repository.UserRepository;
 import com.kt.social.domain.user.service.UserService;
+import com.kt.social.domain.message.event.ConversationDeletedEvent;
+import com.kt.social.domain.message.event.ReadReceiptEvent;
 import com.kt.social.infra.storage.StorageService;
+import com.kt.social.infra.websocket.ChatBroadcaster;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -36,23 +50,27 @@ public class ConversationServiceImpl implements ConversationService {
     private final UserRepository userRepository;
     private final StorageService storageService;
     private final UserService userService;
-    private final SimpMessagingTemplate messagingTemplate;
-
-    // Constants cho JSON Keys
-    private static final String KEY_ID = "id";
-    private static final String KEY_SENDER_ID = "senderId";
-    private static final String KEY_SENDER_NAME = "senderName";
-    private static final String KEY_CONTENT = "content";
-    private static final String KEY_TYPE = "type";
-    private static final String KEY_CREATED_AT = "createdAt";
-    private static final String KEY_READ_BY = "readBy";
+    private final ChatBroadcaster chatBroadcaster;
+    private final MessageRepository messageRepository;
+    private final MessageService messageService;
+    private final ConversationSummaryRepository summaryRepository;
+    private final ConversationSummaryService conversationSummaryService;
+    private final MessageArchiveService messageArchiveService;
+    private final MessageLocationService messageLocationService;
+    private final RecentMessageCache recentMessageCache;
+    private final ConversationMembershipCache membershipCache;
+    private final DirectConversationService directConversationService;
+    private final MessageSyncService messageSyncService;
+    private final MessageSearchService messageSearchService;
+
+    private static final int MAX_INBOX_PAGE_SIZE = 50;
 
     @Override
     @Transactional
     public ConversationResponse createConversation(ConversationCreateRequest req) {
         User creator = userService.getCurrentUser();
 
-        // 1. CHAT 1-1: KIỂM TRA TRÙNG LẶP
+        // 1. CHAT 1-1: TÌM HOẶC TẠO THEO KHÓA CHUẨN
         if (Boolean.FALSE.equals(req.getIsGroup())) {
             if (req.getMemberIds() == null || req.getMemberIds().isEmpty()) {
                 throw new BadRequestException("Private conversation must have a recipient.");
@@ -65,16 +83,22 @@ public class ConversationServiceImpl implements ConversationService {
                 throw new BadRequestException("Cannot create conversation with yourself.");
             }
 
-            // Gọi Repo kiểm tra xem đã có conversation giữa 2 người này chưa
-            Optional<Conversation> existing = conversationRepository
-                    .findExistingPrivateConversation(creator.getId(), recipientId);
+            User recipient = userRepository.findById(recipientId)
+                    .orElseThrow(() -> new ResourceNotFoundException("User not found: " + recipientId));
+
+            // Tìm hoặc tạo theo khóa chuẩn của cặp user (không tạo trùng khi 2 request chạy song song)
+            DirectConversationService.DirectConversation direct =
+                    directConversationService.findOrCreate(creator.getId(), recipientId);
+            Conversation conversation = conversationRepository.findById(direct.conversationId())
+                    .orElseThrow(() -> new ResourceNotFoundException("Conversation not found"));
 
-            if (existing.isPresent()) {
-                return mapToResponse(existing.get());
+            if (direct.created()) {
+                addDirectMembers(conversation, creator, ConversationRole.OWNER, recipient);
             }
+            return mapToResponse(conversation);
         }
 
-        // 2. TẠO MỚI (GROUP HOẶC 1-1 CHƯA TỒN TẠI)
+        // 2. TẠO GROUP MỚI
         String mediaUrl = null;
         if (req.getMedia() != null && !req.getMedia().isEmpty()) {
             mediaUrl = storageService.saveFile(req.getMedia(), "conversations/" + UUID.randomUUID());
@@ -84,12 +108,12 @@ public class ConversationServiceImpl implements ConversationService {
                 .isGroup(Boolean.TRUE.equals(req.getIsGroup()))
                 .title(req.getTitle()) // Với 1-1 title thường null
                 .mediaUrl(mediaUrl)
-                .messages(new ArrayList<>())
                 .createdAt(Instant.now())
                 .updatedAt(Instant.now())
                 .build();
 
         Conversation saved = conversationRepository.save(convo);
+        conversationSummaryService.recordCreated(saved.getId(), saved.getCreatedAt());
 
         // Tạo danh sách thành viên cần lưu
         List<ConversationMember> membersToSave = new ArrayList<>();
@@ -199,9 +223,13 @@ public class ConversationServiceImpl implements ConversationService {
                         .user(user)
                         .role(ConversationRole.MEMBER)
                         .joinedAt(Instant.now())
+                        // Thành viên mới không tính lịch sử trước khi vào nhóm là "chưa đọc"
+                        .lastReadSequence(conversation.getLastMessageSeq() != null ? conversation.getLastMessageSeq() : 0L)
                         .build())
                 .toList();
         memberRepository.saveAll(newMembers);
+        recentMessageCache.invalidate(conversation.getId());
+        membershipCache.invalidate(conversation.getId());
 
         conversation.setUpdatedAt(Instant.now());
         conversationRepository.save(conversation);
@@ -230,6 +258,8 @@ public class ConversationServiceImpl implements ConversationService {
 
         String removedUserName = targetMember.getUser().getDisplayName();
         memberRepository.delete(targetMember);
+        recentMessageCache.invalidate(conversationId);
+        membershipCache.invalidate(conversationId);
 
         Conversation conversation = currentUserMember.getConversation();
         conversation.setUpdatedAt(Instant.now());
@@ -253,18 +283,24 @@ public class ConversationServiceImpl implements ConversationService {
                 throw new BadRequestException("Owner must transfer ownership before leaving.");
             } else {
                 // Nhóm chỉ còn 1 người -> Xóa luôn nhóm
+                messageLocationService.deleteByConversation(conversationId);
+                conversationSummaryService.delete(conversationId);
+                messageRepository.deleteByConversationId(conversationId);
+                messageArchiveService.deleteByConversation(conversationId);
+                messageSyncService.deleteByConversation(conversationId);
+                messageSearchService.deleteByConversation(conversationId);
                 conversationRepository.delete(conversation);
+                recentMessageCache.invalidate(conversationId);
+                membershipCache.invalidate(conversationId);
                 // Notify socket xóa nhóm
-                Map<String, Object> payload = Map.of(
-                        "type", "EVENT_CONVERSATION_DELETED",
-                        "conversationId", conversationId
-                );
-                messagingTemplate.convertAndSend("/queue/conversation/" + conversationId, payload);
+                chatBroadcaster.toConversation(conversationId, new ConversationDeletedEvent(conversationId));
                 return;
             }
         }
 
         memberRepository.delete(member);
+        recentMessageCache.invalidate(conversationId);
+        membershipCache.invalidate(conversationId);
 
         // Nếu là group thì báo tin nhắn hệ thống
         if (Boolean.TRUE.equals(conversation.getIsGroup())) {
@@ -297,6 +333,7 @@ public class ConversationServiceImpl implements ConversationService {
 
         targetMember.setRole(request.getNewRole());
         memberRepository.save(targetMember);
+        membershipCache.invalidate(request.getConversationId());
 
         Conversation conversation = currentUserMember.getConversation();
         conversation.setUpdatedAt(Instant.now());
@@ -312,17 +349,43 @@ public class ConversationServiceImpl implements ConversationService {
     @Override
     @Transactional(readOnly = true)
     public List<ConversationSummaryResponse> getUserConversations(Long userId) {
-        List<ConversationMember> members = memberRepository.findConversationsByUserId(userId);
+        // Giữ endpoint cũ (trả toàn bộ), nhưng đọc từ conversation_summary thay vì hydrate tin nhắn
+        return toInboxResponses(summaryRepository.findInbox(userId, Integer.MAX_VALUE), userId);
+    }
 
-        return members.stream()
-                .map(ConversationMember::getConversation)
-                .distinct()
-                .sorted(Comparator.comparing(
-                        (Conversation c) -> c.getUpdatedAt() != null ? c.getUpdatedAt() : c.getCreatedAt(),
-                        Comparator.nullsLast(Comparator.naturalOrder())
-                ).reversed())
-                .map(c -> toConversationSummaryDto(c, userId))
-                .collect(Collectors.toList());
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<ConversationSummaryResponse> getUserConversationsCursor(Long userId, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_INBOX_PAGE_SIZE));
+
+        List<ConversationSummary> rows;
+        if (cursor != null && !cursor.isBlank()) {
+            int sep = cursor.lastIndexOf('_');
+            if (sep <= 0) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            Instant cursorAt;
+            Long cursorId;
+            try {
+                cursorAt = Instant.parse(cursor.substring(0, sep));
+                cursorId = Long.valueOf(cursor.substring(sep + 1));
+            } catch (Exception e) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            rows = summaryRepository.findInboxAfter(userId, cursorAt, cursorId, pageSize + 1);
+        } else {
+            rows = summaryRepository.findInbox(userId, pageSize + 1);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<ConversationSummary> pageSlice = hasMore ? rows.subList(0, pageSize) : rows;
+
+        String nextCursor = null;
+        if (hasMore) {
+            ConversationSummary last = pageSlice.get(pageSlice.size() - 1);
+            nextCursor = last.getUpdatedAt() + "_" + last.getConversationId();
+        }
+        return new CursorPage<>(toInboxResponses(pageSlice, userId), nextCursor);
     }
 
     @Override
@@ -331,10 +394,7 @@ public class ConversationServiceImpl implements ConversationService {
         Conversation conversation = conversationRepository.findById(conversationId)
                 .orElseThrow(() -> new ResourceNotFoundException("Conversation not found"));
 
-        boolean isMember = memberRepository.existsByConversationIdAndUserId(conversationId, currentUserId);
-        if (!isMember) {
-            throw new AccessDeniedException("Not a member.");
-        }
+        membershipCache.requireMember(conversationId, currentUserId);
 
         return toConversationSummaryDto(conversation, currentUserId);
     }
@@ -347,9 +407,8 @@ public class ConversationServiceImpl implements ConversationService {
             return;
         }
 
-        Optional<Conversation> existing = conversationRepository.findExistingPrivateConversation(userAId, userBId);
-
-        if (existing.isPresent()) {
+        // Đã có thì chỉ tốn 1 lần tra cache / unique index
+        if (directConversationService.find(userAId, userBId).isPresent()) {
             return;
         }
 
@@ -358,34 +417,14 @@ public class ConversationServiceImpl implements ConversationService {
         User userB = userRepository.findById(userBId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found: " + userBId));
 
-        Conversation conversation = Conversation.builder()
-                .isGroup(false)
-                .title(null)
-                .mediaUrl(null)
-                .createdAt(Instant.now())
-                .updatedAt(Instant.now())
-                .messages(new ArrayList<>())
-                .build();
-
-        Conversation savedConversation = conversationRepository.save(conversation);
-
-        ConversationMember memberA = ConversationMember.builder()
-                .id(new ConversationMemberId(savedConversation.getId(), userA.getId()))
-                .conversation(savedConversation)
-                .user(userA)
-                .role(ConversationRole.MEMBER)
-                .joinedAt(Instant.now())
-                .build();
-
-        ConversationMember memberB = ConversationMember.builder()
-                .id(new ConversationMemberId(savedConversation.getId(), userB.getId()))
-                .conversation(savedConversation)
-                .user(userB)
-                .role(ConversationRole.MEMBER)
-                .joinedAt(Instant.now())
-                .build();
+        DirectConversationService.DirectConversation direct = directConversationService.findOrCreate(userAId, userBId);
+        if (!direct.created()) {
+            return; // request khác vừa tạo xong
+        }
 
-        memberRepository.saveAll(List.of(memberA, memberB));
+        Conversation conversation = conversationRepository.findById(direct.conversationId())
+                .orElseThrow(() -> new ResourceNotFoundException("Conversation not found"));
+        addDirectMembers(conversation, userA, ConversationRole.MEMBER, userB);
 
         // (Tùy chọn) Có thể gửi socket event "NEW_CONVERSATION" tới 2 user này
         // để danh sách chat của họ tự động cập nhật mà không cần F5.
@@ -394,74 +433,81 @@ public class ConversationServiceImpl implements ConversationService {
     @Override
     @Transactional
     public void markMessageAsRead(Long userId, MarkReadRequest request) {
-        Conversation conversation = conversationRepository.findById(request.getConversationId())
-                .orElseThrow(() -> new ResourceNotFoundException("Conversation not found"));
+        Long conversationId = request.getConversationId();
+        membershipCache.requireMember(conversationId, userId);
 
-        if (!memberRepository.existsByConversationIdAndUserId(conversation.getId(), userId)) {
-            throw new AccessDeniedException("Not a member.");
+        // messageId -> seq qua chỉ mục PK, không cần đọc row tin nhắn
+        Long seq = messageLocationService.findSeq(conversationId, request.getMessageId()).orElse(null);
+        if (seq == null) {
+            return; // tin không thuộc hội thoại này
         }
 
-        List<Map<String, Object>> messages = conversation.getMessages();
-        if (messages == null || messages.isEmpty()) return;
-
-        boolean isUpdated = false;
-
-        // 🔥 OPTIMIZATION: Duyệt ngược từ cuối lên (tin mới nhất)
-        // Vì người dùng thường đọc tin mới nhất.
-        // Giới hạn tìm kiếm trong 50 tin gần nhất để tránh treo nếu list quá dài
-        int limit = 50;
-        int count = 0;
-
-        for (int i = messages.size() - 1; i >= 0 && count < limit; i--) {
-            Map<String, Object> msg = messages.get(i);
-            String msgId = (String) msg.get(KEY_ID);
-
-            if (msgId != null && msgId.equals(request.getMessageId())) {
-                List<String> readBy = (List<String>) msg.get(KEY_READ_BY); // Dùng String ID cho an toàn với JSON
-                if (readBy == null) {
-                    readBy = new ArrayList<>();
-                    msg.put(KEY_READ_BY, readBy);
-                }
-
-                String userIdStr = String.valueOf(userId);
-                if (!readBy.contains(userIdStr)) {
-                    readBy.add(userIdStr);
-                    isUpdated = true;
-
-                    // Gửi Socket Event
-                    Map<String, Object> payload = new HashMap<>();
-                    payload.put(KEY_TYPE, "EVENT_READ");
-                    payload.put("conversationId", conversation.getId());
-                    payload.put("messageId", msgId);
-                    payload.put("readerId", userId);
-                    payload.put("timestamp", Instant.now().toString());
-                    messagingTemplate.convertAndSend("/queue/conversation/" + conversation.getId(), payload);
-                }
-                break; // Tìm thấy thì dừng ngay
-            }
-            count++;
+        // Chỉ tăng watermark của member: 1 UPDATE nhỏ, bất kể hội thoại dài bao nhiêu
+        Instant now = Instant.now();
+        int advanced = memberRepository.advanceReadWatermark(conversationId, userId, seq, now);
+        if (advanced == 0) {
+            return; // Đã đọc tới tin này (hoặc mới hơn) rồi
         }
+        recentMessageCache.onRead(conversationId, userId, seq);
 
-        if (isUpdated) {
-            conversationRepository.save(conversation);
-        }
+        // Gửi Socket Event
+        chatBroadcaster.toConversation(conversationId, ReadReceiptEvent.of(conversationId,
+                List.of(new ReadReceiptEvent.Reader(userId, request.getMessageId(), seq)), now.toString()));
     }
 
     // ------------------------- HELPER METHODS -------------------------
     private ConversationSummaryResponse toConversationSummaryDto(Conversation c, Long viewerId) {
-        // 1. XỬ LÝ LAST MESSAGE
-        Map<String, Object> processedLastMessage = null;
-
-        if (c.getMessages() != null && !c.getMessages().isEmpty()) {
-            Map<String, Object> rawMsg = c.getMessages().get(c.getMessages().size() - 1);
+        ConversationSummary summary = summaryRepository.findById(c.getId()).orElse(null);
+        return toConversationSummaryDto(c, viewerId, summary, c.getMembers());
+    }
 
-            processedLastMessage = new HashMap<>(rawMsg);
+    // Dựng response cho 1 trang inbox: 1 query conversations + 1 query members (kèm user), không đọc bảng messages
+    private List<ConversationSummaryResponse> toInboxResponses(List<ConversationSummary> summaries, Long viewerId) {
+        if (summaries.isEmpty()) return List.of();
 
-            boolean isDeleted = rawMsg.get("deletedAt") != null
-                    || Boolean.TRUE.equals(rawMsg.get("isDeleted"))
-                    || Boolean.TRUE.equals(rawMsg.get("isSystemBan"));
+        List<Long> ids = summaries.stream().map(ConversationSummary::getConversationId).toList();
+        Map<Long, Conversation> conversations = conversationRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Conversation::getId, c -> c));
+        Map<Long, List<ConversationMember>> membersByConversation = memberRepository.findWithUsersByConversationIds(ids)
+                .stream()
+                .collect(Collectors.groupingBy(m -> m.getId().getConversationId()));
+
+        return summaries.stream()
+                .filter(s -> conversations.containsKey(s.getConversationId()))
+                .map(s -> toConversationSummaryDto(
+                        conversations.get(s.getConversationId()),
+                        viewerId,
+                        s,
+                        membersByConversation.getOrDefault(s.getConversationId(), List.of())))
+                .collect(Collectors.toList());
+    }
 
-            if (isDeleted) {
+    private ConversationSummaryResponse toConversationSummaryDto(Conversation c, Long viewerId,
+                                                                 ConversationSummary summary,
+                                                                 Collection<ConversationMember> members) {
+        // 1. XỬ LÝ LAST MESSAGE (từ snippet trong conversation_summary)
+        Map<String, Object> processedLastMessage = null;
+        long lastMessageSeq = summary != null && summary.getLastMessageSeq() != null ? summary.getLastMessageSeq() : 0L;
+
+        if (summary != null && summary.getLastMessageId() != null) {
+            processedLastMessage = new LinkedHashMap<>();
+            processedLastMessage.put("id", summary.getLastMessageId());
+            processedLastMessage.put("conversationId", c.getId());
+            processedLastMessage.put("seq", lastMessageSeq);
+            processedLastMessage.put("senderId", summary.getLastSenderId());
+            processedLastMessage.put("senderName", summary.getLastSenderName());
+            processedLastMessage.put("type", summary.getLastMessageType() != null ? summary.getLastMessageType().name() : null);
+            processedLastMessage.put("content", summary.getLastSnippet());
+            processedLastMessage.put("createdAt", summary.getLastMessageAt() != null ? summary.getLastMessageAt().toString() : null);
+            processedLastMessage.put("isDeleted", summary.isLastMessageDeleted());
+
+            // "Đã xem bởi" suy ra từ watermark của các thành viên
+            processedLastMessage.put("readBy", members.stream()
+                    .filter(m -> readSeq(m) >= lastMessageSeq)
+                    .map(m -> m.getUser().getId())
+                    .toList());
+
+            if (summary.isLastMessageDeleted()) {
                 processedLastMessage.put("content", "Tin nhắn đã bị gỡ bỏ");
 
                 processedLastMessage.put("media", null);
@@ -470,15 +516,23 @@ public class ConversationServiceImpl implements ConversationService {
         }
 
         // 2. Xử lý Participants
-        List<ParticipantDto> participants = c.getMembers().stream()
+        List<ParticipantDto> participants = members.stream()
                 .map(m -> ParticipantDto.builder()
                         .id(m.getUser().getId())
                         .displayName(m.getUser().getDisplayName())
                         .avatarUrl(m.getUser().getAvatarUrl())
                         .role(m.getRole().name())
+                        .lastReadSeq(readSeq(m))
                         .build())
                 .toList();
 
+        // Số tin chưa đọc = seq cuối của hội thoại - watermark của người xem
+        long unreadCount = members.stream()
+                .filter(m -> m.getUser().getId().equals(viewerId))
+                .findFirst()
+                .map(m -> Math.max(0L, lastMessageSeq - readSeq(m)))
+                .orElse(0L);
+
         // 3. Xử lý Title và Avatar hội thoại
         String finalTitle = c.getTitle();
         String finalMediaUrl = c.getMediaUrl();
@@ -504,11 +558,44 @@ public class ConversationServiceImpl implements ConversationService {
                 .isGroup(Boolean.TRUE.equals(c.getIsGroup()))
                 .lastMessage(processedLastMessage) // Truyền map đã xử lý vào
                 .participants(participants)
-                .updatedAt(c.getUpdatedAt() != null ? c.getUpdatedAt() : c.getCreatedAt())
+                .unreadCount(unreadCount)
+                .updatedAt(summary != null && summary.getUpdatedAt() != null
+                        ? summary.getUpdatedAt()
+                        : (c.getUpdatedAt() != null ? c.getUpdatedAt() : c.getCreatedAt()))
                 .build();
     }
 
+    private long readSeq(ConversationMember member) {
+        return member.getLastReadSequence() != null ? member.getLastReadSequence() : 0L;
+    }
+
+    // Thành viên của hội thoại 1-1 vừa tạo (cùng transaction với INSERT hội thoại)
+    private void addDirectMembers(Conversation conversation, User userA, ConversationRole roleA, User userB) {
+        Instant now = Instant.now();
+        conversationSummaryService.recordCreated(conversation.getId(), conversation.getCreatedAt());
+        memberRepository.saveAll(List.of(
+                ConversationMember.builder()
+                        .id(new ConversationMemberId(conversation.getId(), userA.getId()))
+                        .conversation(conversation)
+                        .user(userA)
+                        .role(roleA)
+                        .joinedAt(now)
+                        .build(),
+                ConversationMember.builder()
+                        .id(new ConversationMemberId(conversation.getId(), userB.getId()))
+                        .conversation(conversation)
+                        .user(userB)
+                        .role(ConversationRole.MEMBER)
+                        .joinedAt(now)
+                        .build()));
+    }
+
     private ConversationMember checkGroupAndGetMember(Long conversationId, Long userId) {
+        // Người ngoài bị chặn ngay từ cache, không cần query
+        if (!membershipCache.isMember(conversationId, userId)) {
+            throw new AccessDeniedException("Not a member of conversation " + conversationId);
+        }
+
         ConversationMember member = memberRepository.findByConversationIdAndUserId(conversationId, userId)
                 .orElseThrow(() -> new AccessDeniedException("Not a member of conversation " + conversationId));
 
@@ -531,27 +618,8 @@ public class ConversationServiceImpl implements ConversationService {
     }
 
     private void saveAndSendSystemMessage(Conversation conversation, User sender, String content) {
-        Map<String, Object> messageMap = new HashMap<>();
-        messageMap.put(KEY_ID, UUID.randomUUID().toString());
-        messageMap.put(KEY_SENDER_ID, sender.getId());
-        messageMap.put(KEY_SENDER_NAME, sender.getDisplayName());
-        messageMap.put(KEY_CONTENT, content);
-        messageMap.put(KEY_TYPE, MessageType.SYSTEM.name());
-        messageMap.put(KEY_CREATED_AT, Instant.now().toString());
-        messageMap.put(KEY_READ_BY, new ArrayList<String>()); // Init empty read list
-
-        if (conversation.getMessages() == null) {
-            conversation.setMessages(new ArrayList<>());
-        }
-        conversation.getMessages().add(messageMap); // Add vào cuối danh sách
-
-        conversationRepository.save(conversation);
-
-        // Send Socket
-        Map<String, Object> socketPayload = new HashMap<>(messageMap);
-        socketPayload.put("conversationId", conversation.getId());
-        socketPayload.put("avatarUrl", sender.getAvatarUrl());
-        messagingTemplate.convertAndSend("/queue/conversation/" + conversation.getId(), socketPayload);
+        // Append 1 row vào bảng messages + broadcast (dùng chung luồng với tin nhắn thường)
+        messageService.sendSystemMessage(conversation.getId(), sender, content);
     }
 
     private ConversationResponse mapToResponse(Conversation convo) {
@@ -1,140 +1,164 @@
 // MessageServiceImpl.java
 package com.kt.social.domain.message.service.impl;
 
+import com.kt.social.auth.enums.AccountStatus;
 import com.kt.social.common.constants.WebSocketConstants;
+import com.kt.social.common.exception.BadRequestException;
 import com.kt.social.common.exception.ResourceNotFoundException;
 import com.kt.social.common.vo.CursorPage;
 import com.kt.social.domain.message.dto.MessageRequest;
 import com.kt.social.domain.message.dto.MessageResponse;
-import com.kt.social.domain.message.model.Conversation;
+import com.kt.social.domain.message.dto.MessageWindowResponse;
+import com.kt.social.domain.message.enums.MessageChangeType;
+import com.kt.social.domain.message.enums.MessageType;
+import com.kt.social.domain.message.event.ChatAckEvent;
+import com.kt.social.domain.message.event.ChatMessageEvent;
+import com.kt.social.domain.message.dto.ReadWatermarkProjection;
+import com.kt.social.domain.message.mapper.MessageMapper;
+import com.kt.social.domain.message.model.Message;
+import com.kt.social.domain.message.model.MessageKey;
+import com.kt.social.domain.message.model.MessageLocation;
+import com.kt.social.domain.message.repository.ConversationMemberRepository;
 import com.kt.social.domain.message.repository.ConversationRepository;
-import com.kt.social.domain.moderation.event.MessageSentEvent;
+import com.kt.social.domain.message.repository.MessageRepository;
+import com.kt.social.domain.message.service.ConversationMembershipCache;
+import com.kt.social.domain.message.service.ConversationSummaryService;
+import com.kt.social.domain.message.service.MessageArchiveService;
+import com.kt.social.domain.message.service.LegacyMessageMigrationService;
+import com.kt.social.domain.message.service.MessageIngestionService;
+import com.kt.social.domain.message.service.MessageLocationService;
+import com.kt.social.domain.message.service.MessageSearchService;
+import com.kt.social.domain.message.service.MessageSyncService;
+import com.kt.social.domain.message.service.RecentMessageCache;
 import com.kt.social.domain.user.model.User;
-import com.kt.social.domain.user.repository.UserRepository;
+import com.kt.social.domain.user.dto.UserProfileSnapshot;
 import com.kt.social.domain.message.service.MessageService;
+import com.kt.social.domain.user.service.UserProfileCache;
 import com.kt.social.domain.user.service.UserService;
 import com.kt.social.infra.storage.StorageService;
+import com.kt.social.infra.websocket.ChatBroadcaster;
 import lombok.RequiredArgsConstructor;
-import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class MessageServiceImpl implements MessageService {
 
-    private final ApplicationEventPublisher eventPublisher;
     private final ConversationRepository conversationRepository;
+    private final ConversationMemberRepository memberRepository;
     private final StorageService storageService;
-    private final UserRepository userRepository;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final ChatBroadcaster chatBroadcaster;
+    private final MessageRepository messageRepository;
+    private final MessageMapper messageMapper;
+    private final LegacyMessageMigrationService legacyMessageMigrationService;
+    private final MessageLocationService messageLocationService;
+    private final ConversationSummaryService conversationSummaryService;
+
+    private static final int MAX_PAGE_SIZE = 100;
 
-    // lightweight lock per conversation to avoid concurrent list corruption
-    private final Map<Long, Object> convoLocks = new ConcurrentHashMap<>();
     private final UserService userService;
+    private final MessageIngestionService messageIngestionService;
+    private final MessageArchiveService messageArchiveService;
+    private final RecentMessageCache recentMessageCache;
+    private final ConversationMembershipCache membershipCache;
+    private final MessageSyncService messageSyncService;
+    private final MessageSearchService messageSearchService;
+    private final UserProfileCache userProfileCache;
 
-    private Object getLock(Long convoId) {
-        return convoLocks.computeIfAbsent(convoId, id -> new Object());
-    }
+    @Value("${chat.ingest.ack-timeout-ms:10000}")
+    private long ackTimeoutMs;
 
     @Override
-    @Transactional
-    public Map<String, Object> sendMessage(MessageRequest req) {
+    public ChatMessageEvent sendMessage(MessageRequest req) {
         User sender = userService.getCurrentUser();
-        return createAndSaveMessage(sender.getId(), sender.getDisplayName(), sender.getAvatarUrl(),
-                req.getConversationId(), req.getContent(), req.getReplyToId(), req.getMediaFiles());
+        // Kiểm tra membership qua cache, trước khi upload media
+        membershipCache.requireMember(req.getConversationId(), sender.getId());
+        MessageIngestionService.MessageDraft draft = toDraft(sender, req, uploadMedia(req.getMediaFiles()));
+
+        // Chờ writer của hội thoại commit xong -> event trả về đã có messageId + seq
+        try {
+            return messageIngestionService.submit(draft).get(ackTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException("Failed to send message", e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Timed out while sending message");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while sending message");
+        }
     }
 
     @Override
-    @Transactional
     public void sendMessageAs(Long senderId, MessageRequest req) {
-        User sender = userRepository.findById(senderId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        Map<String,Object> m = createAndSaveMessage(sender.getId(), sender.getDisplayName(), sender.getAvatarUrl(),
-                req.getConversationId(), req.getContent(), req.getReplyToId(), req.getMediaFiles());
+        if (!membershipCache.isMember(req.getConversationId(), senderId)) {
+            chatBroadcaster.toUser(senderId, WebSocketConstants.CHAT_ACK_QUEUE,
+                    ChatAckEvent.failed(req.getConversationId(), req.getClientMessageId(), "Not a member."));
+            return;
+        }
+
+        // Tên + avatar người gửi từ cache, không load User cho mỗi tin
+        UserProfileSnapshot sender = userProfileCache.get(senderId);
+        if (sender == null || sender.status() == AccountStatus.BLOCKED) {
+            chatBroadcaster.toUser(senderId, WebSocketConstants.CHAT_ACK_QUEUE,
+                    ChatAckEvent.failed(req.getConversationId(), req.getClientMessageId(),
+                            sender == null ? "User not found" : "Account is blocked."));
+            return;
+        }
+        MessageIngestionService.MessageDraft draft = new MessageIngestionService.MessageDraft(
+                req.getConversationId(), sender.id(), sender.displayName(), sender.avatarUrl(),
+                req.getReplyToId(), MessageType.TEXT, req.getContent(), uploadMedia(req.getMediaFiles()),
+                req.getClientMessageId());
+
+        // WS: không giữ luồng inbound, ack (messageId + seq hoặc lỗi) gửi về /user/queue/chat.ack
+        messageIngestionService.submit(draft).whenComplete((payload, error) -> {
+            ChatAckEvent ack;
+            if (error != null) {
+                Throwable cause = error.getCause() != null ? error.getCause() : error;
+                ack = ChatAckEvent.failed(req.getConversationId(), req.getClientMessageId(), cause.getMessage());
+            } else {
+                ack = ChatAckEvent.sent(req.getConversationId(), req.getClientMessageId(), payload.id(), payload.seq());
+            }
+            chatBroadcaster.toUser(senderId, WebSocketConstants.CHAT_ACK_QUEUE, ack);
+        });
     }
 
-    private Map<String,Object> createAndSaveMessage(Long senderId, String senderName, String senderAvatar,
-                                                    Long conversationId, String content, Long replyToId,
-                                                    List<MultipartFile> mediaFiles) {
-        Conversation convo = conversationRepository.findById(conversationId)
-                .orElseThrow(() -> new RuntimeException("Conversation not found"));
+    @Override
+    @Transactional
+    public ChatMessageEvent sendSystemMessage(Long conversationId, User sender, String content) {
+        // Ghi trong transaction của caller (thao tác nhóm), không đi qua hàng đợi
+        return messageIngestionService.writeInline(new MessageIngestionService.MessageDraft(
+                conversationId, sender.getId(), sender.getDisplayName(), sender.getAvatarUrl(),
+                null, MessageType.SYSTEM, content, new ArrayList<>(), null));
+    }
+
+    private MessageIngestionService.MessageDraft toDraft(User sender, MessageRequest req, List<Map<String, Object>> media) {
+        return new MessageIngestionService.MessageDraft(
+                req.getConversationId(), sender.getId(), sender.getDisplayName(), sender.getAvatarUrl(),
+                req.getReplyToId(), MessageType.TEXT, req.getContent(), media, req.getClientMessageId());
+    }
 
-        // build media list
+    // Upload trước khi vào hàng đợi để writer chỉ làm việc với DB
+    private List<Map<String, Object>> uploadMedia(List<MultipartFile> mediaFiles) {
         List<Map<String,Object>> media = new ArrayList<>();
         if (mediaFiles != null && !mediaFiles.isEmpty()) {
             for (var f : mediaFiles) {
                 String url = storageService.saveFile(f, "messages");
-                String type = guessMediaTypeFromFilename(f.getOriginalFilename()); // implement helper
-                media.add(Map.of("url", url, "type", type));
+                String mediaType = guessMediaTypeFromFilename(f.getOriginalFilename()); // implement helper
+                media.add(Map.of("url", url, "type", mediaType));
             }
         }
-
-        Map<String,Object> message = new LinkedHashMap<>();
-        String msgId = UUID.randomUUID().toString();
-        message.put("id", msgId);
-        message.put("senderId", senderId);
-        message.put("senderName", senderName);
-        message.put("senderAvatar", senderAvatar);
-        message.put("replyToId", replyToId);
-        message.put("content", content);
-        message.put("media", media);
-        message.put("createdAt", Instant.now().toString());
-        message.put("reactions", new ArrayList<>()); // initially empty
-        message.put("isDeleted", false);
-        List<Long> readBy = new ArrayList<>();
-        readBy.add(senderId); // Người gửi coi như đã đọc tin của chính mình (tùy chọn)
-        message.put("readBy", readBy);
-
-        synchronized (getLock(conversationId)) {
-            List<Map<String,Object>> messages = convo.getMessages() != null
-                    ? new ArrayList<>(convo.getMessages())
-                    : new ArrayList<>();
-
-            // add at head -> newest first
-            messages.addFirst(message);
-            convo.setMessages(messages);
-            convo.setUpdatedAt(Instant.now());
-            conversationRepository.save(convo);
-        }
-
-        // broadcast via STOMP
-        broadcastToConversationMembers(conversationId, message);
-
-        // publish event for moderation logging
-        if (content != null && !content.isBlank()) {
-            eventPublisher.publishEvent(new MessageSentEvent(
-                    this,
-                    msgId,
-                    conversationId,
-                    content,
-                    senderId,
-                    media
-            ));
-        }
-
-        return message;
-    }
-
-    private void broadcastToConversationMembers(Long conversationId, Map<String,Object> message) {
-        // destination for conversation (topic) - clients can subscribe
-        String topicDest = WebSocketConstants.CHAT_CONVERSATION_QUEUE + "/" + conversationId;
-        messagingTemplate.convertAndSend(topicDest, message);
-
-//        // per-user queue (if you want per-user delivery)
-//        // get members:
-//        List<Long> memberIds = memberRepository.findByConversationId(conversationId)
-//                .stream().map(cm -> cm.getUser().getId()).toList();
-//        for (Long uid : memberIds) {
-//            messagingTemplate.convertAndSendToUser(uid.toString(), "/queue/messages", message);
-//        }
+        return media;
     }
 
     // Helper to guess media type (image/video) – keep simple
@@ -152,126 +176,233 @@ public class MessageServiceImpl implements MessageService {
     @Override
     @Transactional(readOnly = true)
     public CursorPage<MessageResponse> getMessagesCursor(Long conversationId, String beforeMessageId, int limit) {
-        Conversation convo = conversationRepository.findById(conversationId)
-                .orElseThrow(() -> new RuntimeException("Conversation not found"));
+        ensureReadable(conversationId);
 
-        List<Map<String,Object>> messages = convo.getMessages() != null ? convo.getMessages() : List.of();
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        // Lấy dư 1 phần tử để biết còn trang sau hay không (không cần COUNT)
 
-        // messages stored newest first (index 0). We return a slice also newest-first.
-        int startIndex = 0; // default newest page
+        Long beforeSeq = null;
         if (beforeMessageId != null && !beforeMessageId.isBlank()) {
-            // find index of message with id == beforeMessageId
-            int idx = -1;
-            for (int i = 0; i < messages.size(); i++) {
-                Object idObj = messages.get(i).get("id");
-                if (beforeMessageId.equals(String.valueOf(idObj))) {
-                    idx = i;
-                    break;
-                }
-            }
-            if (idx == -1) {
+            // Cursor thường là tin vừa tải -> tìm trong cache trước, không có mới tra message_locations
+            Optional<Long> cursorSeq = recentMessageCache.findSeq(conversationId, beforeMessageId)
+                    .or(() -> messageLocationService.findSeq(conversationId, beforeMessageId));
+            if (cursorSeq.isEmpty()) {
                 // if cursor not found, return empty page
                 return new CursorPage<>(List.of(), null);
             }
-            // We want messages *after* that index (older messages): because idx points to last message of previous page,
-            // older ones are at indices > idx
-            startIndex = idx + 1;
+            beforeSeq = cursorSeq.get();
         }
 
-        if (startIndex >= messages.size()) {
-            return new CursorPage<>(List.of(), null);
-        }
+        // Các tin cũ hơn cursor (seq nhỏ hơn), mới -> cũ
+        RecentMessageCache.CachedPage cached = recentMessageCache.pageBefore(conversationId, beforeSeq, pageSize + 1);
+        List<Message> rows = cached != null
+                ? cached.messages()
+                : messageArchiveService.pageBefore(conversationId, beforeSeq, pageSize + 1);
 
-        int endIndexExclusive = Math.min(startIndex + limit, messages.size());
-        List<Map<String,Object>> pageSlice = messages.subList(startIndex, endIndexExclusive);
+        boolean hasMore = rows.size() > pageSize;
+        List<Message> pageSlice = hasMore ? rows.subList(0, pageSize) : rows;
 
-        // map to MessageResponse
-        List<MessageResponse> content = pageSlice.stream().map(m -> mapToDto(conversationId, m)).collect(Collectors.toList());
+        List<MessageResponse> content = toResponses(conversationId, pageSlice,
+                cached != null ? cached.watermarks() : null);
 
-        String nextCursor = (endIndexExclusive < messages.size())
-                ? String.valueOf(messages.get(endIndexExclusive - 1).get("id"))
+        String nextCursor = hasMore
+                ? pageSlice.get(pageSlice.size() - 1).getMessageId()
                 : null;
 
         return new CursorPage<>(content, nextCursor);
     }
 
-    private MessageResponse mapToDto(Long conversationId, Map<String,Object> m) {
-        MessageResponse r = new MessageResponse();
-        r.setId(String.valueOf(m.get("id")));
-        r.setConversationId(conversationId);
-        r.setSenderId(m.get("senderId") == null ? null : Long.valueOf(String.valueOf(m.get("senderId"))));
-        r.setSenderName((String) m.get("senderName"));
-        r.setSenderAvatar((String) m.get("senderAvatar"));
-        r.setReplyToId(m.get("replyToId")==null?null:Long.valueOf(String.valueOf(m.get("replyToId"))));
-        r.setContent((String) m.get("content"));
-        // media stored as List<Map<String,Object>>
-        r.setMedia((List<Map<String, Object>>) m.getOrDefault("media", List.of()));
-        r.setCreatedAt(m.get("createdAt") == null ? null : Instant.parse((String)m.get("createdAt")));
-        r.setIsRead(Boolean.TRUE.equals(m.get("isRead")));
-        r.setReactions((List<Map<String,Object>>) m.getOrDefault("reactions", List.of()));
-
-        Object deletedAtObj = m.get("deletedAt");
-        if (deletedAtObj != null) {
-            r.setDeletedAt(Instant.parse(String.valueOf(deletedAtObj)));
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<MessageResponse> getMessagesBySeq(Long conversationId, Long beforeSeq, Long afterSeq, int limit) {
+        if (beforeSeq != null && afterSeq != null) {
+            throw new BadRequestException("Only one of beforeSeq / afterSeq is allowed");
+        }
+        ensureReadable(conversationId);
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        // Đọc từ cache nếu dải seq nằm trọn trong ring, không thì seek thẳng trên PK (conversation_id, seq)
+        // và tự đọc tiếp sang tầng lưu trữ khi cần
+        RecentMessageCache.CachedPage cached = afterSeq != null
+                ? recentMessageCache.pageAfter(conversationId, afterSeq, pageSize + 1)
+                : recentMessageCache.pageBefore(conversationId, beforeSeq, pageSize + 1);
+        List<Message> rows;
+        if (cached != null) {
+            rows = cached.messages();
         } else {
-            r.setDeletedAt(null);
+            rows = afterSeq != null
+                    ? messageArchiveService.pageAfter(conversationId, afterSeq, pageSize + 1)
+                    : messageArchiveService.pageBefore(conversationId, beforeSeq, pageSize + 1);
         }
 
-        return r;
+        boolean hasMore = rows.size() > pageSize;
+        List<Message> pageSlice = hasMore ? rows.subList(0, pageSize) : rows;
+
+        String nextCursor = hasMore
+                ? String.valueOf(pageSlice.get(pageSlice.size() - 1).getId().getSeq())
+                : null;
+
+        return new CursorPage<>(toResponses(conversationId, pageSlice,
+                cached != null ? cached.watermarks() : null), nextCursor);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<Map<String, Object>> getMessages(Long conversationId) {
-        Conversation convo = conversationRepository.findById(conversationId)
-                .orElseThrow(() -> new RuntimeException("Conversation not found"));
-        return convo.getMessages() != null ? convo.getMessages() : List.of();
+    public CursorPage<MessageResponse> searchMessages(Long conversationId, String query, Long beforeSeq, int limit) {
+        Long currentUserId = userService.getCurrentUser().getId();
+        membershipCache.requireMember(conversationId, currentUserId);
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<Long> seqs = messageSearchService.searchSeqs(conversationId, query, beforeSeq, pageSize + 1);
+
+        boolean hasMore = seqs.size() > pageSize;
+        List<Long> pageSeqs = hasMore ? seqs.subList(0, pageSize) : seqs;
+
+        // Tin khớp có thể nằm ở cả 2 tầng; tin đã gỡ sau khi index thì bỏ qua
+        Map<Long, Message> found = messageArchiveService.findAll(conversationId, pageSeqs);
+        List<Message> hits = pageSeqs.stream()
+                .map(found::get)
+                .filter(m -> m != null && !m.isDeleted())
+                .toList();
+
+        String nextCursor = hasMore ? String.valueOf(pageSeqs.get(pageSeqs.size() - 1)) : null;
+        return new CursorPage<>(toResponses(conversationId, hits, null), nextCursor);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<Map<String, Object>> getUserConversations(Long userId) {
-        throw new UnsupportedOperationException("Use ConversationService.getUserConversations");
+    public MessageWindowResponse getMessagesAround(Long conversationId, String messageId, Long seq, int limit) {
+        if (seq == null && (messageId == null || messageId.isBlank())) {
+            throw new BadRequestException("messageId or seq is required");
+        }
+        ensureReadable(conversationId);
+
+        Long anchorSeq = seq;
+        if (anchorSeq == null) {
+            anchorSeq = recentMessageCache.findSeq(conversationId, messageId)
+                    .or(() -> messageLocationService.findSeq(conversationId, messageId))
+                    .orElseThrow(() -> new ResourceNotFoundException("Message not found"));
+        }
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        int newerSize = pageSize / 2;
+        int olderSize = pageSize - newerSize; // gồm cả tin anchor
+
+        // 2 lần seek trên PK: [.. anchor] mới -> cũ và (anchor ..] cũ -> mới (ưu tiên cache)
+        RecentMessageCache.CachedPage cachedOlder = recentMessageCache.pageBefore(conversationId, anchorSeq + 1, olderSize + 1);
+        RecentMessageCache.CachedPage cachedNewer = recentMessageCache.pageAfter(conversationId, anchorSeq, newerSize + 1);
+        List<Message> older = cachedOlder != null
+                ? cachedOlder.messages()
+                : messageArchiveService.pageBefore(conversationId, anchorSeq + 1, olderSize + 1);
+        List<Message> newer = cachedNewer != null
+                ? cachedNewer.messages()
+                : messageArchiveService.pageAfter(conversationId, anchorSeq, newerSize + 1);
+
+        boolean hasOlder = older.size() > olderSize;
+        boolean hasNewer = newer.size() > newerSize;
+        if (hasOlder) older = older.subList(0, olderSize);
+        if (hasNewer) newer = newer.subList(0, newerSize);
+
+        List<Message> window = new ArrayList<>(older.size() + newer.size());
+        for (int i = newer.size() - 1; i >= 0; i--) {
+            window.add(newer.get(i));
+        }
+        window.addAll(older);
+
+        Map<Long, Long> watermarks = cachedNewer != null ? cachedNewer.watermarks()
+                : cachedOlder != null ? cachedOlder.watermarks() : null;
+
+        return MessageWindowResponse.builder()
+                .content(toResponses(conversationId, window, watermarks))
+                .anchorSeq(anchorSeq)
+                .olderCursor(hasOlder ? older.get(older.size() - 1).getId().getSeq() : null)
+                .newerCursor(hasNewer ? newer.get(newer.size() - 1).getId().getSeq() : null)
+                .build();
     }
 
-    @Override
-    @Transactional
-    public void softDeleteMessage(String messageId) {
-        // 1. Tìm Conversation
-        Conversation convo = conversationRepository.findByMessageIdInJson(messageId)
-                .orElseThrow(() -> new ResourceNotFoundException("Message not found or already deleted"));
+    // Chỉ thành viên được đọc lịch sử (kiểm tra qua cache, trước mọi đường tắt).
+    // Hội thoại đang nằm trong cache thì chắc chắn đã migrate và còn tồn tại -> bỏ qua 2 query kiểm tra
+    private void ensureReadable(Long conversationId) {
+        membershipCache.requireMember(conversationId, userService.getCurrentUser().getId());
+        if (recentMessageCache.contains(conversationId)) return;
 
-        Long convoId = convo.getId();
+        legacyMessageMigrationService.ensureMigrated(conversationId);
+        if (!conversationRepository.existsById(conversationId)) {
+            throw new ResourceNotFoundException("Conversation not found");
+        }
+    }
 
-        // 2. Lock theo ID cuộc hội thoại để tránh race condition (khi sửa JSON List)
-        synchronized (getLock(convoId)) {
-            // Query lại data mới nhất trong lock (nếu transaction isolation level cho phép)
+    private List<MessageResponse> toResponses(Long conversationId, List<Message> messages, Map<Long, Long> watermarks) {
+        if (messages.isEmpty()) return List.of();
+        Map<Long, Long> readWatermarks = watermarks != null ? watermarks : loadWatermarks(conversationId);
+        return messages.stream()
+                .map(m -> {
+                    MessageResponse res = messageMapper.toResponse(m);
+                    res.setReadBy(readersOf(readWatermarks, m.getId().getSeq()));
+                    return res;
+                })
+                .collect(Collectors.toList());
+    }
 
-            List<Map<String, Object>> messages = convo.getMessages();
-            boolean found = false;
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getMessages(Long conversationId) {
+        ensureReadable(conversationId);
+
+        Map<Long, Long> watermarks = loadWatermarks(conversationId);
+        return messageArchiveService.findAllNewestFirst(conversationId).stream()
+                .map(m -> {
+                    Map<String, Object> map = messageMapper.toMap(m);
+                    map.put("readBy", readersOf(watermarks, m.getId().getSeq()));
+                    return map;
+                })
+                .collect(Collectors.toList());
+    }
 
-            // Duyệt ngược từ cuối lên (thường tin nhắn cần block là tin mới nhất) để nhanh hơn
-            for (int i = messages.size() - 1; i >= 0; i--) {
-                Map<String, Object> msg = messages.get(i);
-                // So sánh chuỗi an toàn
-                if (messageId.equals(String.valueOf(msg.get("id")))) {
+    // "Đã xem bởi" = các thành viên có watermark >= seq của tin nhắn
+    private List<Long> readersOf(Map<Long, Long> watermarks, Long seq) {
+        return watermarks.entrySet().stream()
+                .filter(w -> w.getValue() >= seq)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
 
-                    // Cập nhật trạng thái
-                    msg.put("isDeleted", true);
-                    msg.put("deletedAt", Instant.now().toString());
-                    msg.put("isSystemBan", true);
+    private Map<Long, Long> loadWatermarks(Long conversationId) {
+        Map<Long, Long> watermarks = new HashMap<>();
+        for (ReadWatermarkProjection w : memberRepository.findReadWatermarks(conversationId)) {
+            if (w.getLastReadSeq() != null) watermarks.put(w.getUserId(), w.getLastReadSeq());
+        }
+        return watermarks;
+    }
 
-                    found = true;
-                    break;
-                }
-            }
+    @Override
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getUserConversations(Long userId) {
+        throw new UnsupportedOperationException("Use ConversationService.getUserConversations");
+    }
 
-            if (found) {
-                convo.setMessages(messages); // Gán lại list đã sửa
-                convo.setUpdatedAt(Instant.now());
-                conversationRepository.save(convo);
+    @Override
+    @Transactional
+    public void softDeleteMessage(String messageId) {
+        // Chỉ cập nhật đúng 1 row của tin nhắn, không cần lock cả hội thoại
+        MessageLocation location = messageLocationService.locate(messageId)
+                .orElseThrow(() -> new ResourceNotFoundException("Message not found or already deleted"));
+        MessageKey key = new MessageKey(location.getConversationId(), location.getSeq());
+
+        Instant now = Instant.now();
+        // UPDATE có điều kiện thay cho đọc rồi save: compaction có thể chuyển row vào segment giữa 2 bước
+        int updated = messageRepository.markDeleted(key.getConversationId(), key.getSeq(), now);
+        if (updated == 0 && !messageArchiveService.markDeleted(key, now)) {
+            // 0 row ở tầng nóng -> tin đã nằm trong tầng lưu trữ, ghi lại segment chứa nó
+            throw new ResourceNotFoundException("Message not found or already deleted");
+        }
+        conversationSummaryService.recordDeleted(key.getConversationId(), key.getSeq());
+        messageSearchService.remove(key);
+        Long changeVersion = messageSyncService.recordChange(key, messageId, MessageChangeType.DELETED);
+        recentMessageCache.onMessageDeleted(key, now, changeVersion);
 
-                // 3. Gửi Socket
+        // 3. Gửi Socket
 //                Map<String, Object> updatePayload = Map.of(
 //                        "id", messageId,
 //                        "conversationId", convoId,
@@ -281,11 +412,5 @@ public class MessageServiceImpl implements MessageService {
 //                );
 //                String topicDest = WebSocketConstants.CHAT_CONVERSATION_QUEUE + "/" + convoId;
 //                messagingTemplate.convertAndSend(topicDest, updatePayload);
-
-                convoLocks.remove(convoId);
-            } else {
-                throw new ResourceNotFoundException("Message ID found in DB query but missing in JSON parsing.");
-            }
-        }
     }
-}
\ No newline at end of file
+}
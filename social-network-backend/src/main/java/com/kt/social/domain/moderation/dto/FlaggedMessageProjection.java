@@ -11,7 +11,7 @@ public interface FlaggedMessageProjection {
     String getSenderName();
     String getSenderAvatar();
     String getContent();
-    String getSentAt(); // Hoặc Instant tùy bạn cấu hình
+    Instant getSentAt();
     Instant getDeletedAt();
 
     String getMedia();
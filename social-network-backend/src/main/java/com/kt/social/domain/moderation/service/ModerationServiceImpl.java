@@ -18,7 +18,10 @@ import com.kt.social.domain.comment.mapper.CommentMapper;
 import com.kt.social.domain.comment.model.Comment;
 import com.kt.social.domain.comment.repository.CommentRepository;
 import com.kt.social.domain.message.model.Conversation;
+import com.kt.social.domain.message.model.Message;
 import com.kt.social.domain.message.repository.ConversationRepository;
+import com.kt.social.domain.message.repository.MessageRepository;
+import com.kt.social.domain.message.service.MessageLocationService;
 import com.kt.social.domain.message.service.MessageService;
 import com.kt.social.domain.moderation.model.ModerationLog;
 import com.kt.social.domain.moderation.repository.ModerationLogRepository;
@@ -35,6 +38,7 @@ import com.kt.social.domain.report.repository.ComplaintRepository;
 import com.kt.social.domain.report.repository.ReportRepository;
 import com.kt.social.domain.user.model.User;
 import com.kt.social.domain.user.repository.UserRepository;
+import com.kt.social.domain.user.service.UserProfileCache;
 import com.kt.social.domain.user.service.UserService;
 import com.kt.social.infra.ai.AiServiceClient;
 import io.github.perplexhub.rsql.RSQLJPASupport;
@@ -54,12 +58,10 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
 import java.time.Instant;
-import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -71,10 +73,13 @@ public class ModerationServiceImpl implements ModerationService {
 
     private final UserService userService;
     private final UserRepository userRepository;
+    private final UserProfileCache userProfileCache;
     private final UserCredentialRepository userCredentialRepository;
     private final ActivityLogService activityLogService;
     private final MessageService messageService;
     private final ConversationRepository conversationRepository;
+    private final MessageRepository messageRepository;
+    private final MessageLocationService messageLocationService;
     private final ReportRepository reportRepository;
     private final ComplaintRepository complaintRepository;
     private final ReportMapper reportMapper;
@@ -135,56 +140,33 @@ public class ModerationServiceImpl implements ModerationService {
     @Override
     @Transactional(readOnly = true)
     public ModerationMessageResponse getMessageDetailForAdmin(String messageId) {
-        // 1. Tìm Conversation chứa message này (Query JSONB)
-        Conversation conversation = conversationRepository.findByMessageIdInJson(messageId)
+        // 1. Tìm message theo UUID (qua chỉ mục message_locations)
+        Message message = messageLocationService.findMessage(messageId)
                 .orElseThrow(() -> new ResourceNotFoundException("Message not found in any conversation"));
 
-        // 2. Lọc trong List<Map> JSON để lấy đúng message object
-        Map<String, Object> messageData = conversation.getMessages().stream()
-                .filter(msg -> Objects.equals(String.valueOf(msg.get("id")), messageId))
-                .findFirst()
-                .orElseThrow(() -> new ResourceNotFoundException("Message data is missing"));
-
         // 3. Lấy thông tin Sender
-        // Ưu tiên lấy từ DB để có info mới nhất, nếu user bị xóa thì fallback về data trong JSON
-        Long senderId = parseLongSafely(messageData.get("senderId"));
-        User sender = userRepository.findById(senderId)
-                .orElse(null);
+        // Ưu tiên lấy từ DB để có info mới nhất, nếu user bị xóa thì fallback về snapshot lưu trong message
+        Long senderId = message.getSenderId();
+        User sender = senderId != null ? userRepository.findById(senderId).orElse(null) : null;
 
-        String senderName = sender != null ? sender.getDisplayName() : (String) messageData.get("senderName");
-        String senderAvatar = sender != null ? sender.getAvatarUrl() : (String) messageData.get("senderAvatar");
+        String senderName = sender != null ? sender.getDisplayName() : message.getSenderName();
+        String senderAvatar = sender != null ? sender.getAvatarUrl() : message.getSenderAvatar();
 
         // 4. Xử lý Media (Giữ nguyên cấu trúc Map để có cả URL và Type)
         List<Map<String, Object>> mediaList = new ArrayList<>();
-        Object mediaObj = messageData.get("media");
-
-        if (mediaObj instanceof List<?> list) {
-            for (Object item : list) {
-                if (item instanceof Map<?, ?> rawMap) {
-                    try {
-                        Map<String, Object> safeMap = new HashMap<>();
-                        safeMap.put("url", String.valueOf(rawMap.get("url")));
-                        Object typeObj = rawMap.get("type");
-                        safeMap.put("type", typeObj != null ? String.valueOf(typeObj) : "file");
-                        mediaList.add(safeMap);
-                    } catch (Exception e) {
-                        log.info(e.getMessage());
-                    }
-                }
+        if (message.getMedia() != null) {
+            for (Map<String, Object> rawMap : message.getMedia()) {
+                Map<String, Object> safeMap = new HashMap<>();
+                safeMap.put("url", String.valueOf(rawMap.get("url")));
+                Object typeObj = rawMap.get("type");
+                safeMap.put("type", typeObj != null ? String.valueOf(typeObj) : "file");
+                mediaList.add(safeMap);
             }
         }
 
         // 5. Xử lý thời gian (createdAt & deletedAt)
-        // Lưu ý: Key trong JSON là "createdAt", không phải "timestamp"
-        String sentAtStr = String.valueOf(messageData.get("createdAt"));
-
-        Instant deletedAt = null;
-        Object deletedAtObj = messageData.get("deletedAt");
-        if (deletedAtObj != null) {
-            try {
-                deletedAt = Instant.parse(String.valueOf(deletedAtObj));
-            } catch (Exception ignored) {}
-        }
+        String sentAtStr = String.valueOf(message.getCreatedAt());
+        Instant deletedAt = message.getDeletedAt();
 
         // 6. Lấy số lượng Report & Complaint
         // Lưu ý: Nếu ID là UUID String và DB Report dùng Long, đoạn này cần xử lý riêng.
@@ -202,11 +184,11 @@ public class ModerationServiceImpl implements ModerationService {
         // 7. Map sang DTO
         return ModerationMessageResponse.builder()
                 .id(messageId)
-                .conversationId(conversation.getId())
+                .conversationId(message.getId().getConversationId())
                 .senderId(senderId)
                 .senderName(senderName)
                 .senderAvatar(senderAvatar)
-                .content((String) messageData.get("content"))
+                .content(message.getContent())
                 .sentAt(sentAtStr)
                 .media(mediaList)
                 .deletedAt(deletedAt) // 🔥 Map thêm deletedAt
@@ -299,18 +281,7 @@ public class ModerationServiceImpl implements ModerationService {
                         }
                     }
 
-                    // 2. Parse Date (String -> Instant)
-                    // Postgres JSON trả về String dạng ISO-8601 (ví dụ: "2023-10-25T10:00:00Z")
-                    Instant sentAtInstant = null;
-                    if (p.getSentAt() != null) {
-                        try {
-                            // Thường chuỗi trong JSONB sẽ có quote bao quanh (VD: "2023..."), cần check kỹ
-                            String rawDate = p.getSentAt().replace("\"", "");
-                            sentAtInstant = Instant.parse(rawDate);
-                        } catch (DateTimeParseException e) {
-                            log.warn("Cannot parse sentAt: {}", p.getSentAt());
-                        }
-                    }
+                    Instant sentAtInstant = p.getSentAt();
 
                     return ModerationMessageResponse.builder()
                             .id(p.getId())
@@ -345,27 +316,16 @@ public class ModerationServiceImpl implements ModerationService {
         // 1. Lấy danh sách Conversation có vấn đề (Query trong Repo đã check: Deleted OR Exists in Report)
         Page<Conversation> page = conversationRepository.findConversationsWithFlaggedMessages(pageable);
 
-        // 2. Gom tất cả Message ID trong trang hiện tại để query bảng Report 1 lần (Batch Query - Tránh N+1)
-        List<String> allMessageIds = page.getContent().stream()
-                .flatMap(c -> {
-                    if (c.getMessages() == null) return Stream.empty();
-                    return c.getMessages().stream()
-                            .map(m -> (String) m.get("id"))
-                            .filter(Objects::nonNull);
-                })
-                .toList();
+        // 2. Lấy tất cả tin nhắn vi phạm (đã xóa HOẶC bị report) của các hội thoại trong trang này bằng 1 query
+        List<Long> conversationIds = page.getContent().stream().map(Conversation::getId).toList();
+        Map<Long, List<Message>> flaggedByConversation = conversationIds.isEmpty()
+                ? Map.of()
+                : messageRepository.findFlaggedInConversations(conversationIds).stream()
+                        .collect(Collectors.groupingBy(m -> m.getId().getConversationId()));
 
-        // 3. Tìm những ID nào thực sự đang bị Report (để dùng cho logic filter bên dưới)
-        Set<String> reportedMessageIds;
-        if (allMessageIds.isEmpty()) {
-            reportedMessageIds = Collections.emptySet();
-        } else {
-            reportedMessageIds = reportRepository.findReportedTargetIds(TargetType.MESSAGE, allMessageIds);
-        }
-
-        // 4. Map và Filter (Logic chính nằm ở mapToGroupedResponse)
+        // 3. Map và Filter
         List<GroupedFlaggedMessageResponse> content = page.getContent().stream()
-                .map(c -> mapToGroupedResponse(c, reportedMessageIds))
+                .map(c -> mapToGroupedResponse(c, flaggedByConversation.getOrDefault(c.getId(), List.of())))
                 // (Tùy chọn) Chỉ lấy những conversation còn tin nhắn sau khi filter
                 .filter(g -> !g.getFlaggedMessages().isEmpty())
                 .collect(Collectors.toList());
@@ -456,6 +416,7 @@ public class ModerationServiceImpl implements ModerationService {
         credential.setStatus(newStatus);
 
         userCredentialRepository.save(credential);
+        userProfileCache.invalidate(targetUserId);
         // userRepository.save(targetUser); // Nếu có thay đổi ở bảng User
 
         // 5. Ghi Log hành động
@@ -697,52 +658,6 @@ public class ModerationServiceImpl implements ModerationService {
                 .build();
     }
 
-    // Helper method để map và filter
-    private GroupedFlaggedMessageResponse mapToGroupedResponse(Conversation convo) {
-        // Lọc trong JSON list: chỉ lấy tin nhắn đã xóa
-        List<ModerationMessageResponse> flaggedMsgs = convo.getMessages().stream()
-                .filter(msg -> msg.get("deletedAt") != null || Boolean.TRUE.equals(msg.get("isDeleted")))
-                .map(msg -> ModerationMessageResponse.builder()
-                        .id(String.valueOf(msg.get("id")))
-                        .senderId(parseLongSafely(msg.get("senderId")))
-                        .senderName((String) msg.get("senderName"))
-                        .content((String) msg.get("content"))
-                        .sentAt(String.valueOf(msg.get("createdAt")))
-                        .deletedAt(parseInstantSafely(msg.get("deletedAt")))
-                        .isSystemBan(Boolean.TRUE.equals(msg.get("isSystemBan")))
-                        .build())
-                // Sort tin nhắn vi phạm mới nhất lên đầu (hoặc cũ nhất tùy bạn)
-                .sorted(Comparator.comparing(ModerationMessageResponse::getSentAt).reversed())
-                .toList();
-
-        return GroupedFlaggedMessageResponse.builder()
-                .conversationId(convo.getId())
-                .conversationTitle(convo.getTitle() != null ? convo.getTitle() : "Cuộc trò chuyện") // Có thể xử lý tên nếu là chat 1-1
-                .isGroup(Boolean.TRUE.equals(convo.getIsGroup()))
-                .lastUpdatedAt(convo.getUpdatedAt())
-                .flaggedMessages(flaggedMsgs)
-                .build();
-    }
-
-    private Instant parseInstantSafely(Object obj) {
-        if (obj == null) return null;
-        try {
-            return Instant.parse(String.valueOf(obj));
-        } catch (Exception e) {
-            return null;
-        }
-    }
-
-    // Helper parse Long an toàn
-    private Long parseLongSafely(Object obj) {
-        if (obj == null) return null;
-        try {
-            return Long.valueOf(String.valueOf(obj));
-        } catch (NumberFormatException e) {
-            return null;
-        }
-    }
-
     // Hàm helper nhỏ để xử lý chuỗi filter (giữ lại từ code cũ nếu cần)
     private String extractKeyword(String filter) {
         if (filter != null && filter.contains("content=='")) {
@@ -760,7 +675,7 @@ public class ModerationServiceImpl implements ModerationService {
         if (pageable.getSort().isUnsorted()) {
             String defaultSortSql;
             if ("MESSAGE".equals(type)) {
-                defaultSortSql = "CAST(msg ->> 'createdAt' AS TIMESTAMP)";
+                defaultSortSql = "m.created_at";
             } else {
                 defaultSortSql = "created_at";
             }
@@ -779,7 +694,7 @@ public class ModerationServiceImpl implements ModerationService {
 
             if ("createdAt".equals(property)) {
                 if ("MESSAGE".equals(type)) {
-                    sqlExpression = "CAST(msg ->> 'createdAt' AS TIMESTAMP)";
+                    sqlExpression = "m.created_at";
                 } else {
                     sqlExpression = "created_at";
                 }
@@ -787,7 +702,7 @@ public class ModerationServiceImpl implements ModerationService {
             // Xử lý field 'updatedAt'
             else if ("updatedAt".equals(property)) {
                 if ("MESSAGE".equals(type)) {
-                    sqlExpression = "updated_at";
+                    sqlExpression = "m.updated_at";
                 } else {
                     sqlExpression = "updated_at";
                 }
@@ -809,28 +724,11 @@ public class ModerationServiceImpl implements ModerationService {
         return PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), finalSort);
     }
 
-    private GroupedFlaggedMessageResponse mapToGroupedResponse(Conversation c, Set<String> reportedIds) {
-        List<ModerationMessageResponse> flaggedMsgs = new ArrayList<>();
-
-        if (c.getMessages() != null) {
-            for (Map<String, Object> msgMap : c.getMessages()) {
-                String msgId = (String) msgMap.get("id");
-
-                // Check 1: Đã bị xóa (System ban hoặc delete)
-                // Lưu ý: JSONB trả về có thể là String "true" hoặc Boolean true tùy driver
-                boolean isDeleted = msgMap.get("deletedAt") != null
-                        || Boolean.TRUE.equals(msgMap.get("isDeleted"))
-                        || "true".equalsIgnoreCase(String.valueOf(msgMap.get("isDeleted")));
-
-                // Check 2: Có nằm trong danh sách bị report không
-                boolean isReported = reportedIds.contains(msgId);
-
-                // LOGIC QUAN TRỌNG: Chỉ lấy nếu (Đã xóa) HOẶC (Bị report)
-                if (isDeleted || isReported) {
-                    flaggedMsgs.add(mapJsonToDto(msgMap, c.getId()));
-                }
-            }
-        }
+    private GroupedFlaggedMessageResponse mapToGroupedResponse(Conversation c, List<Message> flaggedRows) {
+        // Query đã lọc sẵn: chỉ gồm tin (Đã xóa) HOẶC (Bị report)
+        List<ModerationMessageResponse> flaggedMsgs = flaggedRows.stream()
+                .map(this::mapMessageToDto)
+                .collect(Collectors.toCollection(ArrayList::new));
 
         // Enrich: Điền số lượng report/complaint cho từng tin nhắn trong list này
         if (!flaggedMsgs.isEmpty()) {
@@ -854,59 +752,20 @@ public class ModerationServiceImpl implements ModerationService {
     }
 
     /**
-     * Helper 2: Convert từ Map (JSONB) sang DTO
+     * Helper 2: Convert từ row messages sang DTO
      */
-    private ModerationMessageResponse mapJsonToDto(Map<String, Object> msgMap, Long conversationId) {
-        // 1. Parse ID & Basic fields
-        String id = (String) msgMap.get("id");
-        Long senderId = msgMap.get("senderId") != null ? ((Number) msgMap.get("senderId")).longValue() : null;
-        String senderName = (String) msgMap.get("senderName");
-        String senderAvatar = (String) msgMap.get("senderAvatar");
-        String content = (String) msgMap.get("content");
-
-        // 2. Parse Date (SentAt)
-        String sentAtStr = (String) msgMap.get("createdAt");
-        String sentAt = null;
-        if (sentAtStr != null) {
-            sentAt = sentAtStr; // Giữ nguyên String ISO hoặc parse sang Instant.toString() nếu cần chuẩn hóa
-        }
-
-        // 3. Parse Date (DeletedAt)
-        Object deletedAtObj = msgMap.get("deletedAt");
-        Instant deletedAt = null;
-        if (deletedAtObj != null) {
-            try {
-                deletedAt = Instant.parse(deletedAtObj.toString());
-            } catch (Exception e) {
-                log.warn("Cannot parse deletedAt for msg {}: {}", id, deletedAtObj);
-            }
-        }
-
-        // 4. Parse Media
-        // Trong Conversation Entity, messages thường là List<Map>, nên media bên trong cũng là List<Map> hoặc List<Object>
-        List<Map<String, Object>> mediaList = new ArrayList<>();
-        Object mediaObj = msgMap.get("media");
-        if (mediaObj instanceof List) {
-            mediaList = (List<Map<String, Object>>) mediaObj;
-        } else if (mediaObj instanceof String && !((String) mediaObj).isEmpty()) {
-            // Trường hợp hy hữu nó lưu dạng String JSON
-            try {
-                mediaList = objectMapper.readValue((String) mediaObj, new TypeReference<>() {});
-            } catch (Exception e) {
-                log.error("Error parsing media string for msg {}", id);
-            }
-        }
-
+    private ModerationMessageResponse mapMessageToDto(Message m) {
         return ModerationMessageResponse.builder()
-                .id(id)
-                .conversationId(conversationId)
-                .senderId(senderId)
-                .senderName(senderName)
-                .senderAvatar(senderAvatar)
-                .content(content)
-                .sentAt(sentAt)
-                .deletedAt(deletedAt)
-                .media(mediaList)
+                .id(m.getMessageId())
+                .conversationId(m.getId().getConversationId())
+                .senderId(m.getSenderId())
+                .senderName(m.getSenderName())
+                .senderAvatar(m.getSenderAvatar())
+                .content(m.getContent())
+                .sentAt(m.getCreatedAt() != null ? m.getCreatedAt().toString() : null)
+                .deletedAt(m.getDeletedAt())
+                .isSystemBan(m.isSystemBan())
+                .media(m.getMedia() != null ? m.getMedia() : new ArrayList<>())
                 .reportCount(0L)
                 .complaintCount(0L)
                 .build();
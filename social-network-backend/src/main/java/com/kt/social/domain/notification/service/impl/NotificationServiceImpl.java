@@ -10,7 +10,9 @@ import com.kt.social.domain.notification.enums.NotificationType;
 import com.kt.social.domain.notification.model.Notification;
 import com.kt.social.domain.notification.repository.NotificationRepository;
 import com.kt.social.domain.notification.service.NotificationService;
+import com.kt.social.domain.user.dto.UserProfileSnapshot;
 import com.kt.social.domain.user.model.User;
+import com.kt.social.domain.user.service.UserProfileCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -25,6 +27,7 @@ import java.util.List;
 public class NotificationServiceImpl implements NotificationService {
     private final NotificationRepository notificationRepository;
     private final SimpMessagingTemplate messagingTemplate; // <-- Để đẩy WebSocket
+    private final UserProfileCache userProfileCache;
 
     @Override
     @Transactional
@@ -97,12 +100,17 @@ public class NotificationServiceImpl implements NotificationService {
         Page<Notification> notificationPage = notificationRepository
                 .findByReceiverOrderByCreatedAtDesc(user, pageable);
 
-        // 2. Chuyển đổi (map) Page<Entity> sang List<DTO>
+        // 2. Nạp hồ sơ mọi actor của trang trong 1 query (toDto đọc từ cache)
+        userProfileCache.getAll(notificationPage.getContent().stream()
+                .map(n -> n.getActor().getId())
+                .toList());
+
+        // 3. Chuyển đổi (map) Page<Entity> sang List<DTO>
         List<NotificationDto> content = notificationPage.getContent().stream()
                 .map(this::toDto) // Tái sử dụng helper 'toDto'
                 .toList();
 
-        // 3. Xây dựng và trả về PageVO
+        // 4. Xây dựng và trả về PageVO
         return PageVO.<NotificationDto>builder()
                 .page(notificationPage.getNumber())
                 .size(notificationPage.getSize())
@@ -158,12 +166,15 @@ public class NotificationServiceImpl implements NotificationService {
      * Helper để convert Entity -> DTO
      */
     private NotificationDto toDto(Notification n) {
+        // Chỉ đọc id của actor (không khởi tạo proxy lazy), tên + avatar lấy từ cache
+        Long actorId = n.getActor().getId();
+        UserProfileSnapshot actor = userProfileCache.get(actorId);
         return NotificationDto.builder()
                 .id(n.getId())
                 .actor(ActorDto.builder()
-                        .id(n.getActor().getId())
-                        .displayName(n.getActor().getDisplayName())
-                        .avatarUrl(n.getActor().getAvatarUrl())
+                        .id(actorId)
+                        .displayName(actor != null ? actor.displayName() : null)
+                        .avatarUrl(actor != null ? actor.avatarUrl() : null)
                         .build())
                 .content(n.getContent())
                 .link(n.getLink())
@@ -1,6 +1,7 @@
 package com.kt.social.domain.post.controller;
 
 import com.kt.social.common.constants.ApiConstants;
+import com.kt.social.common.vo.CursorPage;
 import com.kt.social.common.vo.PageVO;
 import com.kt.social.domain.post.dto.PostResponse;
 import com.kt.social.domain.post.dto.UpdatePostRequest;
@@ -33,9 +34,20 @@ public class PostController {
             @ParameterObject Pageable pageable,
             @RequestParam(required = false) String filter
     ) {
+        postService.prepareFeed();
         return ResponseEntity.ok(postService.getFeed(pageable, filter));
     }
 
+    // Cursor paging: trang đầu GET /feed/cursor?limit=10, trang sau thêm ?cursor=<nextCursor>
+    @GetMapping("/feed/cursor")
+    public ResponseEntity<CursorPage<PostResponse>> getFeedCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        postService.prepareFeed();
+        return ResponseEntity.ok(postService.getFeedCursor(cursor, limit));
+    }
+
     @GetMapping("/explore")
     public ResponseEntity<PageVO<PostResponse>> getExploreFeed(
             @RequestParam(defaultValue = "0") int page,
@@ -89,6 +101,15 @@ public class PostController {
         return ResponseEntity.ok(postService.getUserPosts(userId, pageable));
     }
 
+    @GetMapping("/user/{userId}/cursor")
+    public ResponseEntity<CursorPage<PostResponse>> getUserPostsCursor(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int limit
+    ) {
+        return ResponseEntity.ok(postService.getUserPostsCursor(userId, cursor, limit));
+    }
+
     @DeleteMapping("/{postId}")
     public ResponseEntity<Void> delete(@PathVariable Long postId) {
         postService.deletePost(postId);
@@ -0,0 +1,35 @@
+package com.kt.social.domain.post.dto;
+
+import com.kt.social.common.exception.BadRequestException;
+
+import java.time.Instant;
+
+/**
+ * Cursor keyset (created_at, id) của danh sách bài viết: "micros.id" với micros = created_at tính theo micro giây
+ * (đúng độ chính xác timestamp của Postgres, không mất bài khi nhiều bài cùng mili giây).
+ * Trang sau = các bài có (created_at, id) nhỏ hơn cursor.
+ */
+public record PostCursor(Instant createdAt, long id) {
+
+    // Trang đầu: lớn hơn mọi bài viết
+    public static final PostCursor FIRST = new PostCursor(Instant.parse("9999-12-31T23:59:59Z"), Long.MAX_VALUE);
+
+    public static PostCursor parse(String cursor) {
+        if (cursor == null || cursor.isBlank()) return FIRST;
+        String[] parts = cursor.split("\\.");
+        if (parts.length != 2) throw new BadRequestException("Invalid cursor");
+        try {
+            long micros = Long.parseLong(parts[0]);
+            Instant createdAt = Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                    Math.floorMod(micros, 1_000_000L) * 1_000L);
+            return new PostCursor(createdAt, Long.parseLong(parts[1]));
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+
+    public static String format(Instant createdAt, Long id) {
+        long micros = createdAt.getEpochSecond() * 1_000_000L + createdAt.getNano() / 1_000L;
+        return micros + "." + id;
+    }
+}
@@ -0,0 +1,11 @@
+package com.kt.social.domain.post.enums;
+
+/**
+ * Các bộ đếm tương tác được cộng dồn trong bộ nhớ rồi flush theo lô (xem EngagementCounterService).
+ */
+public enum EngagementCounter {
+    POST_REACTS,
+    POST_COMMENTS,
+    POST_SHARES,
+    COMMENT_REACTS
+}
@@ -2,14 +2,15 @@ package com.kt.social.domain.post.mapper;
 
 import com.kt.social.domain.post.dto.PostResponse;
 import com.kt.social.domain.post.model.Post;
+import com.kt.social.domain.user.mapper.AuthorProfileMapper;
 import org.mapstruct.*;
 
-@Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.IGNORE)
+@Mapper(componentModel = "spring", uses = AuthorProfileMapper.class, unmappedTargetPolicy = ReportingPolicy.IGNORE)
 public interface PostMapper {
 
     @Mapping(source = "author.id", target = "authorId")
-    @Mapping(source = "author.displayName", target = "authorName")
-    @Mapping(source = "author.avatarUrl", target = "authorAvatar")
+    @Mapping(source = "author", target = "authorName", qualifiedByName = "authorName")
+    @Mapping(source = "author", target = "authorAvatar", qualifiedByName = "authorAvatar")
     @Mapping(source = "sharedPost", target = "sharedPost", qualifiedByName = "sharedPostToDto")
     @Mapping(source = "sharedPost.id", target = "sharedPostId")
     @Mapping(source = "systemBan", target = "isSystemBan")
@@ -24,8 +25,8 @@ public interface PostMapper {
      */
     @Named("sharedPostToDto")
     @Mapping(source = "author.id", target = "authorId")
-    @Mapping(source = "author.displayName", target = "authorName")
-    @Mapping(source = "author.avatarUrl", target = "authorAvatar")
+    @Mapping(source = "author", target = "authorName", qualifiedByName = "authorName")
+    @Mapping(source = "author", target = "authorAvatar", qualifiedByName = "authorAvatar")
     @Mapping(target = "sharedPost", ignore = true)
     @Mapping(target = "reactSummary", ignore = true)
     @Mapping(target = "shareCount", ignore = true)
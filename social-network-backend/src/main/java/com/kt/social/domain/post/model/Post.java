@@ -17,7 +17,10 @@ import java.util.Map;
 
 @EqualsAndHashCode(callSuper = true)
 @Entity
-@Table(name = "posts")
+@Table(name = "posts", indexes = {
+        // Bài của 1 tác giả theo thời gian (trang cá nhân, gộp bài tác giả nhiều follower vào feed)
+        @Index(name = "idx_posts_author_created", columnList = "author_id, created_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -34,10 +37,14 @@ public class Post extends BaseEntity {
 
     private AccessScope accessModifier;
 
+    // Chỉ thay đổi qua EngagementCounterService (UPDATE ... + delta), save entity không ghi đè
+    @Column(updatable = false)
     private int reactCount;
 
+    @Column(updatable = false)
     private int commentCount;
 
+    @Column(updatable = false)
     private int shareCount;
 
     @OneToOne(fetch = FetchType.LAZY)
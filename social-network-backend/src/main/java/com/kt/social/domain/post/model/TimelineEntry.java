@@ -0,0 +1,34 @@
+package com.kt.social.domain.post.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Home timeline đã dựng sẵn (fan-out-on-write): mỗi row = 1 bài viết nằm trong feed của 1 user.
+ * Đọc feed = 1 lần quét index (user_id, created_at, post_id), không phải dựng lại danh sách tác giả mỗi request.
+ *
+ * Bài của tác giả có nhiều follower (TimelinePullAuthor) không được ghi cho follower, mà được gộp vào lúc đọc.
+ */
+@Entity
+@Table(name = "timeline_entries", indexes = {
+        @Index(name = "idx_timeline_entries_user_created", columnList = "user_id, created_at, post_id"),
+        @Index(name = "idx_timeline_entries_post", columnList = "post_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TimelineEntry {
+
+    @EmbeddedId
+    private TimelineEntryId id;
+
+    @Column(name = "author_id", nullable = false)
+    private Long authorId;
+
+    // created_at của bài viết (không phải thời điểm ghi row) -> thứ tự feed
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+}
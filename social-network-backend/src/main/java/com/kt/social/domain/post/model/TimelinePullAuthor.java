@@ -0,0 +1,26 @@
+package com.kt.social.domain.post.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Tác giả có từ pull-threshold follower trở lên: bài PUBLIC không fan-out tới follower
+ * (tránh ghi hàng chục nghìn row mỗi bài), follower đọc trực tiếp từ posts lúc lấy feed.
+ * Đã đánh dấu thì giữ nguyên (bài cũ của tác giả không nằm trong timeline của follower).
+ */
+@Entity
+@Table(name = "timeline_pull_authors")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TimelinePullAuthor {
+
+    @Id
+    @Column(name = "author_id")
+    private Long authorId;
+
+    private Instant markedAt;
+}
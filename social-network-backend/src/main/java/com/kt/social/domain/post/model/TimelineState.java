@@ -0,0 +1,24 @@
+package com.kt.social.domain.post.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Đánh dấu timeline của user đã được dựng lần đầu từ posts (user có từ trước khi có timeline_entries).
+ */
+@Entity
+@Table(name = "timeline_states")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TimelineState {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    private Instant builtAt;
+}
@@ -1,5 +1,6 @@
 package com.kt.social.domain.post.repository;
 
+import com.kt.social.domain.post.enums.AccessScope;
 import com.kt.social.domain.post.model.Post;
 import com.kt.social.domain.user.model.User;
 import org.springframework.data.domain.Page;
@@ -12,43 +13,71 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Repository
 public interface PostRepository extends JpaRepository<Post, Long>, JpaSpecificationExecutor<Post> {
     Page<Post> findByAuthor(User author, Pageable pageable);
     List<Post> findBySharedPost(Post sharedPost);
 
-    @Query("SELECT COUNT(p) FROM Post p WHERE p.sharedPost.id = :postId")
-    int countSharesByPostId(@Param("postId") Long postId);
+    @Query("SELECT p.reactCount FROM Post p WHERE p.id = :postId")
+    Optional<Integer> findReactCount(@Param("postId") Long postId);
 
+    // Cộng delta cho nhiều bài trong 1 câu (EngagementCounterService flush), ids / deltas cùng thứ tự
     @Modifying
-    @Transactional
-    @Query("UPDATE Post p SET p.commentCount = p.commentCount + :delta WHERE p.id = :postId")
-    void updateCommentCount(@Param("postId") Long postId, @Param("delta") int delta);
+    @Query(value = """
+        UPDATE posts p SET react_count = p.react_count + d.delta
+        FROM unnest(CAST(:ids AS bigint[]), CAST(:deltas AS bigint[])) AS d(id, delta)
+        WHERE p.id = d.id
+        """, nativeQuery = true)
+    int addReactCounts(@Param("ids") Long[] ids, @Param("deltas") Long[] deltas);
 
-    @Query("""
-    SELECT p.sharedPost.id, COUNT(p.id)
-    FROM Post p
-    WHERE p.sharedPost.id IN :postIds
-    GROUP BY p.sharedPost.id
-""")
-    List<Object[]> findShareCountsRaw(@Param("postIds") List<Long> postIds);
+    @Modifying
+    @Query(value = """
+        UPDATE posts p SET comment_count = p.comment_count + d.delta
+        FROM unnest(CAST(:ids AS bigint[]), CAST(:deltas AS bigint[])) AS d(id, delta)
+        WHERE p.id = d.id
+        """, nativeQuery = true)
+    int addCommentCounts(@Param("ids") Long[] ids, @Param("deltas") Long[] deltas);
 
-    // Hàm default để chuyển List<Object[]> thành Map
-    default Map<Long, Integer> findShareCounts(List<Long> postIds) {
-        if (postIds == null || postIds.isEmpty()) {
-            return Map.of();
-        }
-        return findShareCountsRaw(postIds).stream()
-                .collect(Collectors.toMap(
-                        row -> (Long) row[0],
-                        row -> ((Number) row[1]).intValue()
-                ));
-    }
+    @Modifying
+    @Query(value = """
+        UPDATE posts p SET share_count = p.share_count + d.delta
+        FROM unnest(CAST(:ids AS bigint[]), CAST(:deltas AS bigint[])) AS d(id, delta)
+        WHERE p.id = d.id
+        """, nativeQuery = true)
+    int addShareCounts(@Param("ids") Long[] ids, @Param("deltas") Long[] deltas);
+
+    // LEFT JOIN: bài không còn bài share nào cũng về 0
+    @Modifying
+    @Query(value = """
+        UPDATE posts p SET share_count = s.cnt
+        FROM (
+            SELECT p2.id, COUNT(sp.id) AS cnt
+            FROM posts p2
+            LEFT JOIN posts sp ON sp.share_post_id = p2.id
+            GROUP BY p2.id
+        ) s
+        WHERE p.id = s.id AND p.share_count IS DISTINCT FROM s.cnt
+        """, nativeQuery = true)
+    int reconcileShareCounts();
+
+    // Bài của 1 tác giả theo keyset (created_at, id), mới -> cũ, không OFFSET / COUNT
+    @Query("""
+        SELECT p FROM Post p
+        WHERE p.author.id = :authorId
+          AND p.accessModifier IN :scopes
+          AND (p.createdAt < :beforeAt OR (p.createdAt = :beforeAt AND p.id < :beforeId))
+        ORDER BY p.createdAt DESC, p.id DESC
+    """)
+    List<Post> findByAuthorBefore(@Param("authorId") Long authorId,
+                                  @Param("scopes") Collection<AccessScope> scopes,
+                                  @Param("beforeAt") Instant beforeAt,
+                                  @Param("beforeId") Long beforeId,
+                                  Pageable pageable);
 
     @Query(value = "SELECT * FROM posts WHERE id = :id", nativeQuery = true)
     Optional<Post> findByIdIncludingDeleted(@Param("id") Long id);
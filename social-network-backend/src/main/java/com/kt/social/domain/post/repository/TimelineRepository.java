@@ -0,0 +1,261 @@
+package com.kt.social.domain.post.repository;
+
+import com.kt.social.domain.post.model.TimelineEntry;
+import com.kt.social.domain.post.model.TimelineEntryId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * accessModifier của posts lưu theo ordinal -> các query nhận :publicScope / :friendsScope là ordinal tương ứng.
+ */
+@Repository
+public interface TimelineRepository extends JpaRepository<TimelineEntry, TimelineEntryId> {
+
+    // ------------------------- GHI (FAN-OUT) -------------------------
+
+    @Modifying
+    @Query(value = """
+        INSERT INTO timeline_entries (user_id, post_id, author_id, created_at)
+        VALUES (:userId, :postId, :authorId, :createdAt)
+        ON CONFLICT (user_id, post_id) DO NOTHING
+    """, nativeQuery = true)
+    int insertEntry(@Param("userId") Long userId,
+                    @Param("postId") Long postId,
+                    @Param("authorId") Long authorId,
+                    @Param("createdAt") Instant createdAt);
+
+    // Ghi bài vào timeline của mọi bạn bè của tác giả trong 1 câu lệnh
+    @Modifying
+    @Query(value = """
+        INSERT INTO timeline_entries (user_id, post_id, author_id, created_at)
+        SELECT CASE WHEN f.user_id = :authorId THEN f.friend_id ELSE f.user_id END, :postId, :authorId, :createdAt
+        FROM friendship f
+        WHERE (f.user_id = :authorId OR f.friend_id = :authorId) AND f.status = 'FRIEND'
+        ON CONFLICT (user_id, post_id) DO NOTHING
+    """, nativeQuery = true)
+    int fanOutToFriends(@Param("postId") Long postId,
+                        @Param("authorId") Long authorId,
+                        @Param("createdAt") Instant createdAt);
+
+    @Modifying
+    @Query(value = """
+        INSERT INTO timeline_entries (user_id, post_id, author_id, created_at)
+        SELECT r.follower, :postId, :authorId, :createdAt
+        FROM user_rela r
+        WHERE r.following = :authorId
+        ON CONFLICT (user_id, post_id) DO NOTHING
+    """, nativeQuery = true)
+    int fanOutToFollowers(@Param("postId") Long postId,
+                          @Param("authorId") Long authorId,
+                          @Param("createdAt") Instant createdAt);
+
+    @Modifying
+    @Query(value = "DELETE FROM timeline_entries WHERE post_id = :postId", nativeQuery = true)
+    int deleteByPostId(@Param("postId") Long postId);
+
+    // Đổi quyền xem: bỏ bài khỏi timeline của mọi người trừ tác giả rồi fan-out lại
+    @Modifying
+    @Query(value = "DELETE FROM timeline_entries WHERE post_id = :postId AND user_id <> :authorId",
+            nativeQuery = true)
+    int deleteByPostIdExceptAuthor(@Param("postId") Long postId, @Param("authorId") Long authorId);
+
+    // ------------------------- TÁC GIẢ NHIỀU FOLLOWER -------------------------
+
+    // Đếm follower tối đa tới cap (không quét hết khi tác giả có hàng triệu follower)
+    @Query(value = """
+        SELECT COUNT(*) FROM (SELECT 1 FROM user_rela r WHERE r.following = :authorId LIMIT :cap) x
+    """, nativeQuery = true)
+    long countFollowersCapped(@Param("authorId") Long authorId, @Param("cap") int cap);
+
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM timeline_pull_authors WHERE author_id = :authorId)",
+            nativeQuery = true)
+    boolean isPullAuthor(@Param("authorId") Long authorId);
+
+    @Modifying
+    @Query(value = """
+        INSERT INTO timeline_pull_authors (author_id, marked_at) VALUES (:authorId, :now)
+        ON CONFLICT (author_id) DO NOTHING
+    """, nativeQuery = true)
+    int markPullAuthor(@Param("authorId") Long authorId, @Param("now") Instant now);
+
+    // Các tác giả "pull" mà user đang theo dõi (gộp vào feed lúc đọc)
+    @Query(value = """
+        SELECT r.following FROM user_rela r
+        JOIN timeline_pull_authors a ON a.author_id = r.following
+        WHERE r.follower = :userId
+    """, nativeQuery = true)
+    List<Long> findPullAuthorsFollowedBy(@Param("userId") Long userId);
+
+    // ------------------------- ĐỌC FEED -------------------------
+
+    /**
+     * 1 trang id bài viết của feed, mới -> cũ: timeline đã dựng + bài PUBLIC của các tác giả pull
+     * (bài đã nằm trong timeline, vd. vì là bạn bè, thì không lấy lại). Bài đã bị gỡ bị loại.
+     */
+    @Query(value = """
+        SELECT x.post_id FROM (
+            SELECT t.post_id, t.created_at FROM timeline_entries t
+            WHERE t.user_id = :userId
+            UNION ALL
+            SELECT p.id, p.created_at FROM posts p
+            WHERE p.author_id = ANY(CAST(:pullAuthorIds AS bigint[]))
+              AND p.access_modifier = :publicScope
+              AND NOT EXISTS (SELECT 1 FROM timeline_entries t2 WHERE t2.user_id = :userId AND t2.post_id = p.id)
+        ) x
+        JOIN posts p ON p.id = x.post_id AND p.deleted_at IS NULL
+        ORDER BY x.created_at DESC, x.post_id DESC
+        LIMIT :limit OFFSET :offset
+    """, nativeQuery = true)
+    List<Long> findFeedPostIds(@Param("userId") Long userId,
+                               @Param("pullAuthorIds") Long[] pullAuthorIds,
+                               @Param("publicScope") int publicScope,
+                               @Param("limit") int limit,
+                               @Param("offset") long offset);
+
+    /**
+     * Như findFeedPostIds nhưng keyset: các bài có (created_at, post_id) < (:beforeAt, :beforeId), không OFFSET.
+     * Trả về (post_id, created_at) để dựng cursor trang sau.
+     */
+    @Query(value = """
+        SELECT x.post_id, x.created_at FROM (
+            SELECT t.post_id, t.created_at FROM timeline_entries t
+            WHERE t.user_id = :userId AND (t.created_at, t.post_id) < (:beforeAt, :beforeId)
+            UNION ALL
+            SELECT p.id, p.created_at FROM posts p
+            WHERE p.author_id = ANY(CAST(:pullAuthorIds AS bigint[]))
+              AND p.access_modifier = :publicScope
+              AND (p.created_at, p.id) < (:beforeAt, :beforeId)
+              AND NOT EXISTS (SELECT 1 FROM timeline_entries t2 WHERE t2.user_id = :userId AND t2.post_id = p.id)
+        ) x
+        JOIN posts p ON p.id = x.post_id AND p.deleted_at IS NULL
+        ORDER BY x.created_at DESC, x.post_id DESC
+        LIMIT :limit
+    """, nativeQuery = true)
+    List<Object[]> findFeedPostsBefore(@Param("userId") Long userId,
+                                       @Param("pullAuthorIds") Long[] pullAuthorIds,
+                                       @Param("publicScope") int publicScope,
+                                       @Param("beforeAt") Instant beforeAt,
+                                       @Param("beforeId") Long beforeId,
+                                       @Param("limit") int limit);
+
+    // Số bài của feed, đếm tối đa tới cap (feed cuộn vô hạn, không cần COUNT toàn bộ)
+    @Query(value = """
+        SELECT COUNT(*) FROM (
+            SELECT x.post_id FROM (
+                SELECT t.post_id FROM timeline_entries t
+                WHERE t.user_id = :userId
+                UNION ALL
+                SELECT p.id FROM posts p
+                WHERE p.author_id = ANY(CAST(:pullAuthorIds AS bigint[]))
+                  AND p.access_modifier = :publicScope
+                  AND NOT EXISTS (SELECT 1 FROM timeline_entries t2 WHERE t2.user_id = :userId AND t2.post_id = p.id)
+            ) x
+            JOIN posts p ON p.id = x.post_id AND p.deleted_at IS NULL
+            LIMIT :cap
+        ) c
+    """, nativeQuery = true)
+    long countFeedCapped(@Param("userId") Long userId,
+                         @Param("pullAuthorIds") Long[] pullAuthorIds,
+                         @Param("publicScope") int publicScope,
+                         @Param("cap") long cap);
+
+    // ------------------------- ĐỒNG BỘ THEO QUAN HỆ -------------------------
+
+    // Bỏ bài của author khỏi timeline của viewer nếu viewer không còn quyền thấy trong feed (hủy follow / kết bạn, chặn)
+    @Modifying
+    @Query(value = """
+        DELETE FROM timeline_entries t
+        USING posts p
+        WHERE t.user_id = :viewerId AND t.author_id = :authorId AND p.id = t.post_id
+          AND NOT (
+              p.author_id = :viewerId
+              OR (p.access_modifier IN (:publicScope, :friendsScope) AND EXISTS (
+                  SELECT 1 FROM friendship f
+                  WHERE f.status = 'FRIEND'
+                    AND ((f.user_id = :viewerId AND f.friend_id = :authorId)
+                      OR (f.user_id = :authorId AND f.friend_id = :viewerId))))
+              OR (p.access_modifier = :publicScope
+                  AND EXISTS (SELECT 1 FROM user_rela r WHERE r.follower = :viewerId AND r.following = :authorId)
+                  AND NOT EXISTS (SELECT 1 FROM timeline_pull_authors a WHERE a.author_id = :authorId))
+          )
+    """, nativeQuery = true)
+    int pruneAuthor(@Param("viewerId") Long viewerId,
+                    @Param("authorId") Long authorId,
+                    @Param("publicScope") int publicScope,
+                    @Param("friendsScope") int friendsScope);
+
+    // Đưa các bài gần nhất của author mà viewer được thấy vào timeline (vừa follow / kết bạn)
+    @Modifying
+    @Query(value = """
+        INSERT INTO timeline_entries (user_id, post_id, author_id, created_at)
+        SELECT :viewerId, p.id, p.author_id, p.created_at
+        FROM posts p
+        WHERE p.author_id = :authorId AND p.deleted_at IS NULL
+          AND (
+              (p.access_modifier IN (:publicScope, :friendsScope) AND EXISTS (
+                  SELECT 1 FROM friendship f
+                  WHERE f.status = 'FRIEND'
+                    AND ((f.user_id = :viewerId AND f.friend_id = :authorId)
+                      OR (f.user_id = :authorId AND f.friend_id = :viewerId))))
+              OR (p.access_modifier = :publicScope
+                  AND EXISTS (SELECT 1 FROM user_rela r WHERE r.follower = :viewerId AND r.following = :authorId)
+                  AND NOT EXISTS (SELECT 1 FROM timeline_pull_authors a WHERE a.author_id = :authorId))
+          )
+        ORDER BY p.created_at DESC
+        LIMIT :limit
+        ON CONFLICT (user_id, post_id) DO NOTHING
+    """, nativeQuery = true)
+    int backfillAuthor(@Param("viewerId") Long viewerId,
+                       @Param("authorId") Long authorId,
+                       @Param("publicScope") int publicScope,
+                       @Param("friendsScope") int friendsScope,
+                       @Param("limit") int limit);
+
+    // ------------------------- DỰNG LẦN ĐẦU -------------------------
+
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM timeline_states WHERE user_id = :userId)", nativeQuery = true)
+    boolean isBuilt(@Param("userId") Long userId);
+
+    /**
+     * Dựng timeline cho user chưa có (tối đa limit bài gần nhất): bài của chính mình, của bạn bè (PUBLIC / FRIENDS)
+     * và của người đang theo dõi không phải tác giả pull (PUBLIC).
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO timeline_entries (user_id, post_id, author_id, created_at)
+        SELECT :userId, p.id, p.author_id, p.created_at
+        FROM posts p
+        WHERE p.deleted_at IS NULL
+          AND (
+              p.author_id = :userId
+              OR (p.access_modifier IN (:publicScope, :friendsScope) AND p.author_id IN (
+                  SELECT CASE WHEN f.user_id = :userId THEN f.friend_id ELSE f.user_id END
+                  FROM friendship f
+                  WHERE (f.user_id = :userId OR f.friend_id = :userId) AND f.status = 'FRIEND'))
+              OR (p.access_modifier = :publicScope AND p.author_id IN (
+                  SELECT r.following FROM user_rela r
+                  WHERE r.follower = :userId
+                    AND NOT EXISTS (SELECT 1 FROM timeline_pull_authors a WHERE a.author_id = r.following)))
+          )
+        ORDER BY p.created_at DESC
+        LIMIT :limit
+        ON CONFLICT (user_id, post_id) DO NOTHING
+    """, nativeQuery = true)
+    int build(@Param("userId") Long userId,
+              @Param("publicScope") int publicScope,
+              @Param("friendsScope") int friendsScope,
+              @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = """
+        INSERT INTO timeline_states (user_id, built_at) VALUES (:userId, :now)
+        ON CONFLICT (user_id) DO NOTHING
+    """, nativeQuery = true)
+    int markBuilt(@Param("userId") Long userId, @Param("now") Instant now);
+}
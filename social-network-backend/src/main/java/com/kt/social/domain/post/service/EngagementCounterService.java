@@ -0,0 +1,187 @@
+package com.kt.social.domain.post.service;
+
+import com.kt.social.common.repository.MaintenanceMarkerRepository;
+import com.kt.social.domain.comment.repository.CommentRepository;
+import com.kt.social.domain.post.enums.EngagementCounter;
+import com.kt.social.domain.post.repository.PostRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bộ đếm react / comment / share không tranh chấp row của bài viết.
+ *
+ *  - Ghi: cộng delta vào 1 LongAdder theo (loại đếm, id) sau khi transaction nghiệp vụ commit.
+ *    LongAdder tự chia stripe theo luồng nên bài viral cũng không dồn vào 1 biến / 1 row.
+ *  - Flush mỗi flush-ms: rút delta ròng của mọi ô, mỗi loại đếm 1 câu UPDATE ... SET x = x + delta
+ *    (id tăng dần để các node không deadlock). Flush lỗi thì trả delta về ô, lượt sau thử lại.
+ *  - Đọc: giá trị đã lưu + delta chưa flush (cả phần đang flush dở).
+ *
+ * Các cột đếm trên Post / Comment là updatable = false: save entity không ghi đè giá trị đã flush.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EngagementCounterService {
+
+    private static final String SHARE_RECONCILE_MARKER = "reconcile-share-count";
+
+    private final PostRepository postRepository;
+    private final CommentRepository commentRepository;
+    private final MaintenanceMarkerRepository maintenanceMarkerRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${counters.share.reconcile-on-startup:true}")
+    private boolean reconcileSharesOnStartup;
+
+    private record Key(EngagementCounter counter, long id) {
+    }
+
+    private final Map<Key, LongAdder> cells = new ConcurrentHashMap<>();
+
+    // Delta đã rút khỏi cells nhưng transaction flush chưa xong
+    private final Map<Key, Long> inFlight = new ConcurrentHashMap<>();
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * share_count trước đây không được lưu (đếm lúc đọc): đồng bộ đúng 1 lần theo số bài share thực tế.
+     * Node đầu tiên ghi được marker reconcile-share-count chạy (cùng transaction với marker), các lần
+     * khởi động / node sau bỏ qua - không quét lại cả bảng và không ghi đè số đã cộng qua flush.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileShareCounts() {
+        if (!reconcileSharesOnStartup) return;
+        try {
+            Integer rows = transactionTemplate.execute(status ->
+                    maintenanceMarkerRepository.claim(SHARE_RECONCILE_MARKER, Instant.now()) != null
+                            ? postRepository.reconcileShareCounts()
+                            : null);
+            if (rows != null) {
+                log.info("🔁 Reconciled share_count of {} posts (one-off).", rows);
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ Cannot reconcile share counts, will retry on next startup: {}", e.getMessage());
+        }
+    }
+
+    // ------------------------- GHI -------------------------
+
+    /**
+     * Cộng delta cho bộ đếm; trong transaction thì chỉ áp dụng sau khi commit (rollback không làm lệch số).
+     */
+    public void increment(EngagementCounter counter, Long id, long delta) {
+        if (id == null || delta == 0) return;
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            add(new Key(counter, id), delta);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                add(new Key(counter, id), delta);
+            }
+        });
+    }
+
+    private void add(Key key, long delta) {
+        LongAdder cell = cells.computeIfAbsent(key, k -> new LongAdder());
+        cell.add(delta);
+        if (cells.get(key) != cell) {
+            // Ô vừa bị flush gỡ vì rảnh -> chuyển phần còn sót sang ô mới (sumThenReset: mỗi đơn vị chỉ chuyển 1 lần)
+            long moved = cell.sumThenReset();
+            if (moved != 0) add(key, moved);
+        }
+    }
+
+    // ------------------------- ĐỌC -------------------------
+
+    /**
+     * Giá trị hiện tại = giá trị đã lưu (cột trên entity / DB) + delta chưa flush.
+     */
+    public long current(EngagementCounter counter, Long id, long persisted) {
+        if (id == null) return persisted;
+        Key key = new Key(counter, id);
+        LongAdder cell = cells.get(key);
+        long pending = (cell != null ? cell.sum() : 0L) + inFlight.getOrDefault(key, 0L);
+        return Math.max(0L, persisted + pending);
+    }
+
+    // ------------------------- FLUSH -------------------------
+
+    @Scheduled(initialDelayString = "${counters.flush-ms:1000}", fixedDelayString = "${counters.flush-ms:1000}")
+    public void flush() {
+        Map<EngagementCounter, TreeMap<Long, Long>> batches = drain();
+
+        for (Map.Entry<EngagementCounter, TreeMap<Long, Long>> batch : batches.entrySet()) {
+            EngagementCounter counter = batch.getKey();
+            TreeMap<Long, Long> deltas = batch.getValue();
+            try {
+                transactionTemplate.executeWithoutResult(status -> apply(counter,
+                        deltas.keySet().toArray(Long[]::new), deltas.values().toArray(Long[]::new)));
+            } catch (Exception e) {
+                log.error("❌ Failed to flush {} {} counters, will retry: {}", deltas.size(), counter, e.getMessage());
+                deltas.forEach((id, delta) -> add(new Key(counter, id), delta));
+            } finally {
+                deltas.forEach((id, delta) -> inFlight.computeIfPresent(new Key(counter, id),
+                        (k, v) -> v - delta == 0 ? null : v - delta));
+            }
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    private Map<EngagementCounter, TreeMap<Long, Long>> drain() {
+        Map<EngagementCounter, TreeMap<Long, Long>> batches = new EnumMap<>(EngagementCounter.class);
+        for (Map.Entry<Key, LongAdder> entry : cells.entrySet()) {
+            Key key = entry.getKey();
+            LongAdder cell = entry.getValue();
+
+            long delta = cell.sumThenReset();
+            if (delta == 0 && cells.remove(key, cell)) {
+                // Rảnh cả 1 chu kỳ -> gỡ ô; phần cộng trễ (nếu có) đi luôn vào lượt này
+                delta = cell.sumThenReset();
+            }
+            if (delta == 0) continue;
+
+            inFlight.merge(key, delta, Long::sum);
+            batches.computeIfAbsent(key.counter(), c -> new TreeMap<>()).merge(key.id(), delta, Long::sum);
+        }
+        return batches;
+    }
+
+    private void apply(EngagementCounter counter, Long[] ids, Long[] deltas) {
+        switch (counter) {
+            case POST_REACTS -> postRepository.addReactCounts(ids, deltas);
+            case POST_COMMENTS -> postRepository.addCommentCounts(ids, deltas);
+            case POST_SHARES -> postRepository.addShareCounts(ids, deltas);
+            case COMMENT_REACTS -> commentRepository.addReactCounts(ids, deltas);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.kt.social.domain.post.service;
+
+import com.kt.social.domain.friendship.repository.FriendshipRepository;
+import com.kt.social.domain.post.dto.PostResponse;
+import com.kt.social.domain.post.enums.AccessScope;
+import com.kt.social.domain.post.enums.EngagementCounter;
+import com.kt.social.domain.post.mapper.PostMapper;
+import com.kt.social.domain.post.model.Post;
+import com.kt.social.domain.post.repository.PostRepository;
+import com.kt.social.domain.react.dto.ReactSummaryDto;
+import com.kt.social.domain.react.enums.TargetType;
+import com.kt.social.domain.react.service.ReactService;
+import com.kt.social.domain.user.model.User;
+import com.kt.social.domain.user.service.UserProfileCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Dựng DTO cho 1 trang bài viết với số query cố định, không phụ thuộc số bài / số bài được share:
+ *
+ *  1. Gom mọi bài trong trang + các bài được share (lồng tối đa MAX_SHARE_DEPTH cấp), mỗi cấp 1 findAllById.
+ *  2. Chạy song song trên virtual thread: react summary, bạn bè trong số tác giả bài FRIENDS (quyền xem
+ *     bài được share, 1 query đọc thẳng DB - không qua cache ViewerContext),
+ *     hồ sơ tác giả (nạp vào UserProfileCache cho mapper). Các lookup này chỉ trả về DTO / scalar
+ *     nên không dùng chung persistence context của request.
+ *  3. Map trong bộ nhớ; react / comment / share count = cột đã lưu + delta chưa flush (EngagementCounterService).
+ *
+ * Thời gian từng giai đoạn được ghi vào timer feed.assemble.stage (tag stage) và log debug.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PostFeedAssembler {
+
+    private static final int MAX_SHARE_DEPTH = 3;
+
+    private final PostRepository postRepository;
+    private final ReactService reactService;
+    private final FriendshipRepository friendshipRepository;
+    private final EngagementCounterService engagementCounterService;
+    private final UserProfileCache userProfileCache;
+    private final PostMapper postMapper;
+    private final MeterRegistry meterRegistry;
+
+    private ExecutorService lookupExecutor;
+
+    @PostConstruct
+    void init() {
+        lookupExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        lookupExecutor.shutdown();
+    }
+
+    /**
+     * DTO theo đúng thứ tự posts; bài được share mà viewer không xem được thì sharedPost = null.
+     */
+    @Transactional(readOnly = true)
+    public List<PostResponse> assemble(User viewer, List<Post> posts) {
+        if (posts.isEmpty()) return List.of();
+        long started = System.nanoTime();
+        Long viewerId = viewer.getId();
+
+        // 1. Bài trong trang + bài được share (id lấy từ proxy, không kích hoạt lazy load từng bài)
+        long t0 = System.nanoTime();
+        Map<Long, Post> all = new LinkedHashMap<>();
+        posts.forEach(p -> all.put(p.getId(), p));
+        List<Post> level = posts;
+        for (int depth = 0; depth < MAX_SHARE_DEPTH && !level.isEmpty(); depth++) {
+            Set<Long> missing = new LinkedHashSet<>();
+            for (Post p : level) {
+                if (p.getSharedPost() != null && !all.containsKey(p.getSharedPost().getId())) {
+                    missing.add(p.getSharedPost().getId());
+                }
+            }
+            if (missing.isEmpty()) break;
+            level = postRepository.findAllById(missing);
+            level.forEach(p -> all.put(p.getId(), p));
+        }
+        long sharedNanos = record("shared-posts", t0);
+
+        List<Long> postIds = List.copyOf(all.keySet());
+        Set<Long> authorIds = new HashSet<>();
+        Set<Long> friendCandidates = new HashSet<>();
+        for (Post p : all.values()) {
+            Long authorId = p.getAuthor().getId();
+            authorIds.add(authorId);
+            if (p.getAccessModifier() == AccessScope.FRIENDS && !authorId.equals(viewerId)) {
+                friendCandidates.add(authorId);
+            }
+        }
+
+        // 2. Các lookup độc lập chạy song song
+        CompletableFuture<Map<Long, ReactSummaryDto>> reacts = lookup("reacts",
+                () -> reactService.getReactSummaries(postIds, viewerId, TargetType.POST));
+        CompletableFuture<Set<Long>> friends = lookup("visibility",
+                () -> friendCandidates.isEmpty()
+                        ? Set.<Long>of()
+                        : new HashSet<>(friendshipRepository.findFriendIdsAmong(viewerId, friendCandidates)));
+        CompletableFuture<?> authors = lookup("authors", () -> userProfileCache.getAll(authorIds));
+
+        Map<Long, ReactSummaryDto> reactMap;
+        Set<Long> friendIds;
+        try {
+            CompletableFuture.allOf(reacts, friends, authors).join();
+            reactMap = reacts.join();
+            friendIds = friends.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException re ? re : e;
+        }
+
+        // 3. Map trong bộ nhớ
+        long t2 = System.nanoTime();
+        Map<Long, PostResponse> dtos = new HashMap<>();
+        for (Post p : all.values()) {
+            PostResponse dto = postMapper.toDto(p);
+            dto.setReactSummary(reactMap.getOrDefault(p.getId(), ReactSummaryDto.builder()
+                    .counts(Collections.emptyMap())
+                    .total(0L)
+                    .currentUserReact(null)
+                    .build()));
+            dto.setReactCount(count(EngagementCounter.POST_REACTS, p.getId(), p.getReactCount()));
+            dto.setCommentCount(count(EngagementCounter.POST_COMMENTS, p.getId(), p.getCommentCount()));
+            dto.setShareCount(count(EngagementCounter.POST_SHARES, p.getId(), p.getShareCount()));
+            dtos.put(p.getId(), dto);
+        }
+
+        List<PostResponse> result = new ArrayList<>(posts.size());
+        for (Post p : posts) {
+            result.add(linkShared(p, dtos, all, viewerId, friendIds, 0));
+        }
+        long mapNanos = record("map", t2);
+        long totalNanos = record("total", started);
+
+        if (log.isDebugEnabled()) {
+            log.debug("Assembled {} posts (+{} shared) in {} ms [shared-posts={} ms, map={} ms]",
+                    posts.size(), all.size() - posts.size(), TimeUnit.NANOSECONDS.toMillis(totalNanos),
+                    TimeUnit.NANOSECONDS.toMillis(sharedNanos), TimeUnit.NANOSECONDS.toMillis(mapNanos));
+        }
+        return result;
+    }
+
+    private PostResponse linkShared(Post post, Map<Long, PostResponse> dtos, Map<Long, Post> all,
+                                    Long viewerId, Set<Long> friendIds, int depth) {
+        PostResponse dto = dtos.get(post.getId());
+        if (post.getSharedPost() == null) return dto;
+
+        Post shared = all.get(post.getSharedPost().getId());
+        if (shared != null && depth < MAX_SHARE_DEPTH && canView(shared, viewerId, friendIds)) {
+            dto.setSharedPost(linkShared(shared, dtos, all, viewerId, friendIds, depth + 1));
+        } else {
+            dto.setSharedPost(null); // Không có quyền xem
+        }
+        return dto;
+    }
+
+    private boolean canView(Post post, Long viewerId, Set<Long> friendIds) {
+        Long authorId = post.getAuthor().getId();
+        if (authorId.equals(viewerId)) return true; // Tác giả luôn xem được
+        if (post.getAccessModifier() == null) return true;
+
+        return switch (post.getAccessModifier()) {
+            case PUBLIC -> true;
+            case FRIENDS -> friendIds.contains(authorId);
+            case PRIVATE -> false;
+        };
+    }
+
+    private int count(EngagementCounter counter, Long postId, int persisted) {
+        return (int) engagementCounterService.current(counter, postId, persisted);
+    }
+
+    private <T> CompletableFuture<T> lookup(String stage, Supplier<T> task) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            try {
+                return task.get();
+            } finally {
+                long nanos = record(stage, start);
+                log.debug("Feed lookup {} took {} ms", stage, TimeUnit.NANOSECONDS.toMillis(nanos));
+            }
+        }, lookupExecutor);
+    }
+
+    private long record(String stage, long startNanos) {
+        long nanos = System.nanoTime() - startNanos;
+        Timer.builder("feed.assemble.stage")
+                .tag("stage", stage)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        return nanos;
+    }
+}
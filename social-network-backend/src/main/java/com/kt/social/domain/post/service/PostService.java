@@ -1,5 +1,6 @@
 package com.kt.social.domain.post.service;
 
+import com.kt.social.common.vo.CursorPage;
 import com.kt.social.common.vo.PageVO;
 import com.kt.social.domain.post.dto.PostRequest;
 import com.kt.social.domain.post.dto.PostResponse;
@@ -18,8 +19,14 @@ public interface PostService {
     PageVO<PostResponse> getMyPosts(Pageable pageable);
     PageVO<PostResponse> getUserPosts(Long userId, Pageable pageable);
     PostResponse sharePost(Long originalPostId, String caption, AccessScope accessScope);
+    // Dựng timeline của user hiện tại nếu chưa có, gọi ngoài transaction trước getFeed / getFeedCursor
+    void prepareFeed();
     PageVO<PostResponse> getFeed(Pageable pageable, String filter);
 
+    // Keyset theo (created_at, id): không OFFSET / COUNT, trang sau truyền cursor = nextCursor
+    CursorPage<PostResponse> getFeedCursor(String cursor, int limit);
+    CursorPage<PostResponse> getUserPostsCursor(Long userId, String cursor, int limit);
+
     @Transactional
     void deletePost(Long postId);
 
@@ -0,0 +1,250 @@
+package com.kt.social.domain.post.service;
+
+import com.kt.social.domain.friendship.event.FriendshipAcceptedEvent;
+import com.kt.social.domain.friendship.event.FriendshipDeletedEvent;
+import com.kt.social.domain.post.dto.PostCursor;
+import com.kt.social.domain.post.enums.AccessScope;
+import com.kt.social.domain.post.model.Post;
+import com.kt.social.domain.post.repository.TimelineRepository;
+import com.kt.social.infra.cache.BoundedCache;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * Home timeline theo mô hình fan-out-on-write + pull lai cho tác giả nhiều follower.
+ *
+ *  - Đăng / share bài: ghi ngay vào timeline của tác giả (cùng transaction), sau commit fan-out nền
+ *    tới bạn bè (PUBLIC / FRIENDS) và follower (PUBLIC) bằng INSERT ... SELECT.
+ *  - Tác giả từ pull-threshold follower trở lên: không fan-out tới follower, bài PUBLIC được gộp lúc đọc.
+ *  - Đổi quyền xem -> fan-out lại, xóa bài -> bỏ khỏi mọi timeline, follow / kết bạn / hủy / chặn -> đồng bộ
+ *    lại bài của đúng cặp (viewer, author).
+ *  - Đọc feed: 1 câu query trên index (user_id, created_at, post_id); user cũ được dựng timeline ở lần đọc đầu.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TimelineService {
+
+    private static final int PUBLIC = AccessScope.PUBLIC.ordinal();
+    private static final int FRIENDS = AccessScope.FRIENDS.ordinal();
+
+    private final TimelineRepository timelineRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("asyncTaskExecutor")
+    private TaskExecutor asyncTaskExecutor;
+
+    @Value("${feed.timeline.pull-threshold:5000}")
+    private int pullThreshold;
+
+    // Số bài gần nhất đưa vào timeline khi dựng lần đầu / khi vừa follow hoặc kết bạn
+    @Value("${feed.timeline.build-size:500}")
+    private int buildSize;
+
+    @Value("${feed.timeline.follow-backfill-size:20}")
+    private int followBackfillSize;
+
+    // Trần của totalElements (feed cuộn vô hạn, không đếm hết timeline)
+    @Value("${feed.timeline.count-cap:1000}")
+    private int countCap;
+
+    // Số user tối đa được nhớ là đã có timeline (bỏ qua 1 lần dò PK mỗi request)
+    @Value("${feed.timeline.built-cache-size:100000}")
+    private int builtCacheSize;
+
+    private BoundedCache<Long, Boolean> builtUsers;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void init() {
+        builtUsers = new BoundedCache<>(builtCacheSize);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // ------------------------- GHI -------------------------
+
+    /**
+     * Gọi trong transaction tạo bài (đăng mới / share).
+     */
+    @Transactional
+    public void onPostCreated(Post post) {
+        Long authorId = post.getAuthor().getId();
+        timelineRepository.insertEntry(authorId, post.getId(), authorId, createdAtOf(post));
+        fanOutAfterCommit(post);
+    }
+
+    /**
+     * Quyền xem của bài thay đổi: bỏ khỏi timeline của người khác rồi fan-out lại theo quyền mới.
+     */
+    @Transactional
+    public void onAccessChanged(Post post) {
+        timelineRepository.deleteByPostIdExceptAuthor(post.getId(), post.getAuthor().getId());
+        fanOutAfterCommit(post);
+    }
+
+    @Transactional
+    public void onPostDeleted(Long postId) {
+        timelineRepository.deleteByPostId(postId);
+    }
+
+    /**
+     * Quan hệ viewer -> author vừa đổi (follow / unfollow / kết bạn / hủy / chặn):
+     * bỏ bài viewer không còn được thấy, thêm bài gần nhất viewer vừa được thấy.
+     */
+    @Transactional
+    public void resync(Long viewerId, Long authorId) {
+        if (viewerId == null || authorId == null || viewerId.equals(authorId)) return;
+        timelineRepository.pruneAuthor(viewerId, authorId, PUBLIC, FRIENDS);
+        timelineRepository.backfillAuthor(viewerId, authorId, PUBLIC, FRIENDS, followBackfillSize);
+    }
+
+    @EventListener
+    public void onFriendshipAccepted(FriendshipAcceptedEvent event) {
+        resync(event.senderId(), event.receiverId());
+        resync(event.receiverId(), event.senderId());
+    }
+
+    @EventListener
+    public void onFriendshipDeleted(FriendshipDeletedEvent event) {
+        resync(event.user1Id(), event.user2Id());
+        resync(event.user2Id(), event.user1Id());
+    }
+
+    private void fanOutAfterCommit(Post post) {
+        Long postId = post.getId();
+        Long authorId = post.getAuthor().getId();
+        AccessScope scope = post.getAccessModifier() != null ? post.getAccessModifier() : AccessScope.PUBLIC;
+        Instant createdAt = createdAtOf(post);
+        if (scope == AccessScope.PRIVATE) return;
+
+        Runnable task = () -> {
+            try {
+                transactionTemplate.executeWithoutResult(status -> fanOut(postId, authorId, scope, createdAt));
+            } catch (Exception e) {
+                log.error("❌ Timeline fan-out failed for post {}: {}", postId, e.getMessage());
+            }
+        };
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            task.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    asyncTaskExecutor.execute(task);
+                } catch (Exception e) {
+                    // Pool đầy: chạy luôn trên luồng hiện tại thay vì bỏ mất fan-out
+                    task.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * Yêu cầu đang ở trong transaction.
+     */
+    private void fanOut(Long postId, Long authorId, AccessScope scope, Instant createdAt) {
+        int rows = timelineRepository.fanOutToFriends(postId, authorId, createdAt);
+
+        if (scope == AccessScope.PUBLIC && !isPullAuthor(authorId)) {
+            rows += timelineRepository.fanOutToFollowers(postId, authorId, createdAt);
+        }
+        log.debug("Fanned out post {} to {} timelines", postId, rows);
+    }
+
+    private boolean isPullAuthor(Long authorId) {
+        if (timelineRepository.isPullAuthor(authorId)) return true;
+        if (timelineRepository.countFollowersCapped(authorId, pullThreshold) < pullThreshold) return false;
+
+        timelineRepository.markPullAuthor(authorId, Instant.now());
+        log.info("📣 Author {} reached {} followers, switched to pull-on-read timeline.", authorId, pullThreshold);
+        return true;
+    }
+
+    // ------------------------- ĐỌC -------------------------
+
+    /**
+     * 1 trang id bài viết trong feed của user (mới -> cũ). Sort của pageable bị bỏ qua: feed luôn theo thời gian.
+     */
+    public Page<Long> readFeed(Long userId, Pageable pageable) {
+        ensureBuilt(userId);
+
+        Long[] pullAuthorIds = timelineRepository.findPullAuthorsFollowedBy(userId).toArray(Long[]::new);
+        List<Long> ids = timelineRepository.findFeedPostIds(userId, pullAuthorIds, PUBLIC,
+                pageable.getPageSize(), pageable.getOffset());
+
+        // Chỉ đếm khi trang đầy, và đếm tối đa tới offset hiện tại + countCap
+        return PageableExecutionUtils.getPage(ids, pageable, () -> timelineRepository.countFeedCapped(
+                userId, pullAuthorIds, PUBLIC, pageable.getOffset() + countCap));
+    }
+
+    /**
+     * 1 trang của feed theo keyset (created_at, post_id) < cursor, không OFFSET / COUNT.
+     */
+    public List<TimelineItem> readFeedBefore(Long userId, PostCursor cursor, int limit) {
+        ensureBuilt(userId);
+
+        Long[] pullAuthorIds = timelineRepository.findPullAuthorsFollowedBy(userId).toArray(Long[]::new);
+        return timelineRepository.findFeedPostsBefore(userId, pullAuthorIds, PUBLIC,
+                        cursor.createdAt(), cursor.id(), limit).stream()
+                .map(row -> new TimelineItem(((Number) row[0]).longValue(), toInstant(row[1])))
+                .toList();
+    }
+
+    public record TimelineItem(Long postId, Instant createdAt) {
+    }
+
+    /**
+     * Dựng timeline cho user cũ nếu chưa có. Gọi trước khi mở transaction đọc feed (PostService.prepareFeed):
+     * gọi lồng trong transaction readOnly thì REQUIRES_NEW giữ 2 connection của pool cùng lúc.
+     */
+    public void ensureBuilt(Long userId) {
+        if (builtUsers.get(userId) != null) return;
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (timelineRepository.isBuilt(userId)) return;
+            int rows = timelineRepository.build(userId, PUBLIC, FRIENDS, buildSize);
+            timelineRepository.markBuilt(userId, Instant.now());
+            log.debug("Built timeline of user {} with {} posts", userId, rows);
+        });
+
+        builtUsers.put(userId, Boolean.TRUE);
+    }
+
+    private Instant toInstant(Object value) {
+        if (value instanceof Instant instant) return instant;
+        if (value instanceof Timestamp timestamp) return timestamp.toInstant();
+        if (value instanceof OffsetDateTime odt) return odt.toInstant();
+        throw new IllegalStateException("Unexpected timestamp type: " + value);
+    }
+
+    private Instant createdAtOf(Post post) {
+        return post.getCreatedAt() != null ? post.getCreatedAt() : Instant.now();
+    }
+}
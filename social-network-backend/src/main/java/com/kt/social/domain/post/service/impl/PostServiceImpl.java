@@ -4,26 +4,30 @@ import com.kt.social.auth.model.Role;
 import com.kt.social.common.exception.AccessDeniedException;
 import com.kt.social.common.exception.BadRequestException;
 import com.kt.social.common.exception.ResourceNotFoundException;
+import com.kt.social.common.vo.CursorPage;
 import com.kt.social.common.vo.PageVO;
 import com.kt.social.domain.audit.service.ActivityLogService;
-import com.kt.social.domain.friendship.repository.FriendshipRepository;
 import com.kt.social.domain.moderation.event.ContentCreatedEvent;
+import com.kt.social.domain.post.dto.PostCursor;
 import com.kt.social.domain.post.dto.PostResponse;
 import com.kt.social.domain.post.dto.UpdatePostRequest;
 import com.kt.social.domain.post.enums.AccessScope;
+import com.kt.social.domain.post.enums.EngagementCounter;
 import com.kt.social.domain.post.mapper.PostMapper;
 import com.kt.social.domain.post.model.Post;
 import com.kt.social.domain.post.repository.PostRepository;
+import com.kt.social.domain.post.service.EngagementCounterService;
+import com.kt.social.domain.post.service.PostFeedAssembler;
 import com.kt.social.domain.post.service.PostService;
 import com.kt.social.domain.post.service.PostSyncService;
+import com.kt.social.domain.post.service.TimelineService;
 import com.kt.social.domain.react.dto.ReactSummaryDto;
 import com.kt.social.domain.react.enums.TargetType;
-import com.kt.social.domain.react.service.ReactService;
+import com.kt.social.domain.user.dto.ViewerContext;
 import com.kt.social.domain.user.model.User;
-import com.kt.social.domain.user.model.UserRela;
-import com.kt.social.domain.user.repository.UserRelaRepository;
 import com.kt.social.domain.user.repository.UserRepository;
 import com.kt.social.domain.user.service.UserService;
+import com.kt.social.domain.user.service.ViewerContextService;
 import com.kt.social.infra.ai.AiServiceClient;
 import com.kt.social.infra.storage.StorageService;
 import io.github.perplexhub.rsql.RSQLJPASupport;
@@ -31,6 +35,8 @@ import jakarta.persistence.criteria.Predicate;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -50,16 +56,19 @@ public class PostServiceImpl implements PostService {
 
     private final ApplicationEventPublisher eventPublisher;
     private final ActivityLogService activityLogService;
-    private final UserRelaRepository userRelaRepository;
-    private final FriendshipRepository friendshipRepository;
+    private final ViewerContextService viewerContextService;
+    private final EngagementCounterService engagementCounterService;
     private final PostRepository postRepository;
     private final UserRepository userRepository;
     private final StorageService storageService;
     private final UserService userService;
-    private final ReactService reactService;
     private final PostMapper postMapper;
     private final PostSyncService postSyncService;
     private final AiServiceClient aiServiceClient;
+    private final TimelineService timelineService;
+    private final PostFeedAssembler postFeedAssembler;
+
+    private static final int MAX_CURSOR_PAGE_SIZE = 50;
 
     @Override
     @Transactional
@@ -88,6 +97,7 @@ public class PostServiceImpl implements PostService {
                 .build();
 
         Post saved = postRepository.save(post);
+        timelineService.onPostCreated(saved);
 
 //        activityLogService.logActivity(
 //                author,
@@ -129,6 +139,7 @@ public class PostServiceImpl implements PostService {
             throw new AccessDeniedException("You are not authorized to update this post.");
         }
 
+        AccessScope previousScope = post.getAccessModifier();
         post.setContent(request.getContent());
         if (request.getAccessModifier() != null) {
             post.setAccessModifier(AccessScope.valueOf(request.getAccessModifier()));
@@ -163,6 +174,9 @@ public class PostServiceImpl implements PostService {
         post.setMedia(mediaList);
         post.setUpdatedAt(Instant.now());
         Post saved = postRepository.save(post);
+        if (saved.getAccessModifier() != previousScope) {
+            timelineService.onAccessChanged(saved);
+        }
 
         eventPublisher.publishEvent(new ContentCreatedEvent(
                 saved.getId(),
@@ -180,7 +194,7 @@ public class PostServiceImpl implements PostService {
 //                Map.of("newAccessScope", savedPost.getAccessModifier().toString())
 //        );
 
-        return toDtoWithReactsAndShares(saved, currentUser.getId());
+        return toDtoWithReactsAndShares(saved, currentUser);
     }
 
     @Override
@@ -192,7 +206,7 @@ public class PostServiceImpl implements PostService {
 
         checkViewPermission(viewer, post);
 
-        return toDtoWithReactsAndShares(post, viewer.getId());
+        return toDtoWithReactsAndShares(post, viewer);
     }
 
     @Override
@@ -209,7 +223,7 @@ public class PostServiceImpl implements PostService {
                 return authorMatch;
             }
 
-            boolean areFriends = friendshipRepository.existsActiveFriendship(viewer, targetUser);
+            boolean areFriends = viewerContextService.get(viewer.getId()).isFriend(targetUser.getId());
 
             Predicate publicPosts = cb.equal(root.get("accessModifier"), AccessScope.PUBLIC);
 
@@ -255,6 +269,8 @@ public class PostServiceImpl implements PostService {
                 .build();
 
         Post savedSharedPost = postRepository.save(shared);
+        engagementCounterService.increment(EngagementCounter.POST_SHARES, original.getId(), 1);
+        timelineService.onPostCreated(savedSharedPost);
 
 //        activityLogService.logActivity(
 //                currentUser,
@@ -264,31 +280,101 @@ public class PostServiceImpl implements PostService {
 //                Map.of("originalPostId", originalPostId)
 //        );
 
-        return toDtoWithReactsAndShares(savedSharedPost, currentUser.getId());
+        return toDtoWithReactsAndShares(savedSharedPost, currentUser);
+    }
+
+    @Override
+    public void prepareFeed() {
+        // Không có transaction bao ngoài: lần dựng timeline đầu tiên chỉ dùng 1 connection
+        timelineService.ensureBuilt(userService.getCurrentUser().getId());
     }
 
     @Override
     @Transactional(readOnly = true)
     public PageVO<PostResponse> getFeed(Pageable pageable, String filter) {
         User current = userService.getCurrentUser();
+        if (filter != null && !filter.isBlank()) {
+            // Filter RSQL tùy ý không áp được lên timeline -> dựng feed bằng query như cũ
+            return getFeedByQuery(current, pageable, filter);
+        }
 
-        // 1. Lấy danh sách bạn bè (bao gồm bản thân)
-        var friends = friendshipRepository.findAllAcceptedFriends(current);
-        List<Long> friendAndSelfIds = Stream.concat(friends.stream(), Stream.of(current))
-                .map(User::getId)
-                .distinct()
+        // 1 lần đọc timeline đã dựng sẵn (đã gộp bài của tác giả nhiều follower), rồi nạp bài theo id
+        Page<Long> ids = timelineService.readFeed(current.getId(), pageable);
+        Map<Long, Post> postsById = postRepository.findAllById(ids.getContent()).stream()
+                .collect(Collectors.toMap(Post::getId, Function.identity()));
+        List<Post> posts = ids.getContent().stream()
+                .map(postsById::get)
+                .filter(Objects::nonNull)
                 .toList();
 
-        // 2. Lấy danh sách đang theo dõi
-        var followings = userRelaRepository.findByFollower(current)
-                .stream()
-                .map(UserRela::getFollowing)
+        return getPostResponsePageVO(current, new PageImpl<>(posts, pageable, ids.getTotalElements()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<PostResponse> getFeedCursor(String cursor, int limit) {
+        User current = userService.getCurrentUser();
+        int pageSize = Math.max(1, Math.min(limit, MAX_CURSOR_PAGE_SIZE));
+
+        // Lấy dư 1 phần tử để biết còn trang sau hay không (không cần COUNT)
+        List<TimelineService.TimelineItem> items =
+                timelineService.readFeedBefore(current.getId(), PostCursor.parse(cursor), pageSize + 1);
+        boolean hasMore = items.size() > pageSize;
+        List<TimelineService.TimelineItem> pageItems = hasMore ? items.subList(0, pageSize) : items;
+
+        Map<Long, Post> postsById = postRepository.findAllById(
+                        pageItems.stream().map(TimelineService.TimelineItem::postId).toList()).stream()
+                .collect(Collectors.toMap(Post::getId, Function.identity()));
+        List<Post> posts = pageItems.stream()
+                .map(item -> postsById.get(item.postId()))
+                .filter(Objects::nonNull)
+                .toList();
+
+        TimelineService.TimelineItem last = pageItems.isEmpty() ? null : pageItems.get(pageItems.size() - 1);
+        String nextCursor = hasMore ? PostCursor.format(last.createdAt(), last.postId()) : null;
+        return new CursorPage<>(toResponses(current, posts), nextCursor);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<PostResponse> getUserPostsCursor(Long userId, String cursor, int limit) {
+        User viewer = userService.getCurrentUser();
+        User targetUser = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        int pageSize = Math.max(1, Math.min(limit, MAX_CURSOR_PAGE_SIZE));
+
+        // Cùng quy tắc quyền xem với getUserPosts
+        Set<AccessScope> scopes;
+        if (viewer.getId().equals(targetUser.getId())) {
+            scopes = EnumSet.allOf(AccessScope.class);
+        } else if (viewerContextService.get(viewer.getId()).isFriend(targetUser.getId())) {
+            scopes = EnumSet.of(AccessScope.PUBLIC, AccessScope.FRIENDS);
+        } else {
+            scopes = EnumSet.of(AccessScope.PUBLIC);
+        }
+
+        PostCursor before = PostCursor.parse(cursor);
+        List<Post> rows = postRepository.findByAuthorBefore(targetUser.getId(), scopes,
+                before.createdAt(), before.id(), PageRequest.of(0, pageSize + 1));
+        boolean hasMore = rows.size() > pageSize;
+        List<Post> posts = hasMore ? rows.subList(0, pageSize) : rows;
+
+        Post last = posts.isEmpty() ? null : posts.get(posts.size() - 1);
+        String nextCursor = hasMore ? PostCursor.format(last.getCreatedAt(), last.getId()) : null;
+        return new CursorPage<>(toResponses(viewer, posts), nextCursor);
+    }
+
+    private PageVO<PostResponse> getFeedByQuery(User current, Pageable pageable, String filter) {
+        // 1. Lấy danh sách bạn bè (bao gồm bản thân)
+        ViewerContext context = viewerContextService.get(current.getId());
+        List<Long> friendAndSelfIds = Stream.concat(context.friendIds().stream(), Stream.of(current.getId()))
+                .distinct()
                 .toList();
 
-        // 3. Tổng hợp danh sách tác giả được phép xem (Bạn bè + Bản thân + Đang theo dõi)
+        // 2 + 3. Tổng hợp danh sách tác giả được phép xem (Bạn bè + Bản thân + Đang theo dõi)
         List<Long> authorIds = Stream.concat(
                         friendAndSelfIds.stream(),
-                        followings.stream().map(User::getId)
+                        context.followingIds().stream()
                 )
                 .distinct()
                 .toList();
@@ -371,7 +457,11 @@ public class PostServiceImpl implements PostService {
         shares.forEach(shared -> shared.setSharedPost(null));
         postRepository.saveAll(shares);
 
+        if (post.getSharedPost() != null) {
+            engagementCounterService.increment(EngagementCounter.POST_SHARES, post.getSharedPost().getId(), -1);
+        }
         postRepository.delete(post);
+        timelineService.onPostDeleted(postId);
 
 //        activityLogService.logActivity(
 //                currentUser,
@@ -401,58 +491,7 @@ public class PostServiceImpl implements PostService {
             return PageVO.emptyPage(page); // Trả về trang rỗng
         }
 
-        List<Long> postIds = posts.stream().map(Post::getId).toList();
-        Long viewerId = viewer.getId();
-
-        Map<Long, ReactSummaryDto> reactMap = reactService.getReactSummaries(postIds, viewerId, TargetType.POST);
-
-
-        Map<Long, Integer> shareCountMap = postRepository.findShareCounts(postIds);
-
-        List<Post> sharedPosts = posts.stream()
-                .map(Post::getSharedPost)
-                .filter(Objects::nonNull)
-                .toList();
-        Map<Long, Post> sharedPostMap = sharedPosts.stream()
-                .collect(Collectors.toMap(Post::getId, Function.identity(), (a, b) -> a)); // (Map<SharedPostId, SharedPost>)
-
-
-        Map<Long, PostResponse> visibleSharedPostDtoMap = sharedPosts.stream()
-                .filter(sp -> canViewPost(viewer, sp)) // Chỉ giữ lại post xem được
-                .map(sp -> toDtoWithReactsAndShares(sp, viewerId)) // Map post xem được
-                .collect(Collectors.toMap(PostResponse::getId, Function.identity()));
-
-        // --- KẾT THÚC BATCH FETCH ---
-
-        // 6. Ánh xạ (Map) trong bộ nhớ (cực nhanh)
-        List<PostResponse> visiblePosts = posts.stream()
-                .map(post -> {
-                    PostResponse dto = postMapper.toDto(post);
-
-                    // Gán React
-                    dto.setReactSummary(reactMap.getOrDefault(
-                            post.getId(),
-                            ReactSummaryDto.builder()
-                                    .counts(Collections.emptyMap())
-                                    .total(0L)
-                                    .currentUserReact(null)
-                                    .build()
-                            )
-                    );
-
-                    // Gán Share count
-                    dto.setShareCount(shareCountMap.getOrDefault(post.getId(), 0));
-
-                    // Gán Shared Post DTO (nếu xem được)
-                    if (post.getSharedPost() != null) {
-                        dto.setSharedPost(
-                                visibleSharedPostDtoMap.get(post.getSharedPost().getId()) // Trả về DTO hoặc null
-                        );
-                    }
-
-                    return dto;
-                })
-                .toList();
+        List<PostResponse> visiblePosts = toResponses(viewer, posts);
 
         // Trả về PageVO
         return PageVO.<PostResponse>builder()
@@ -465,28 +504,13 @@ public class PostServiceImpl implements PostService {
                 .build();
     }
 
-    @Transactional(readOnly = true)
-    protected PostResponse toDtoWithReactsAndShares(Post post, Long viewerId) {
-        PostResponse dto = postMapper.toDto(post);
-
-        // 1. Gán Reacts (Query 1)
-        dto.setReactSummary(reactService.getReactSummary(post.getId(), TargetType.POST, viewerId));
-
-        // 2. Gán Share Count (Query 2)
-        dto.setShareCount(postRepository.countSharesByPostId(post.getId()));
-
-        // 3. Gán Shared Post (Query 3 - nếu có)
-        if (post.getSharedPost() != null) {
-            Post sharedPost = post.getSharedPost();
-            if (canViewPost(userRepository.findById(viewerId).get(), sharedPost)) {
-                // Đệ quy: Lấy DTO của bài share (cũng có react/share)
-                dto.setSharedPost(toDtoWithReactsAndShares(sharedPost, viewerId));
-            } else {
-                dto.setSharedPost(null); // Không có quyền xem
-            }
-        }
+    // Map 1 trang bài viết sang DTO (react / share count / bài được share / tác giả nạp theo lô, song song)
+    private List<PostResponse> toResponses(User viewer, List<Post> posts) {
+        return postFeedAssembler.assemble(viewer, posts);
+    }
 
-        return dto;
+    private PostResponse toDtoWithReactsAndShares(Post post, User viewer) {
+        return postFeedAssembler.assemble(viewer, List.of(post)).get(0);
     }
 
     private void checkViewPermission(User viewer, Post post) {
@@ -504,7 +528,7 @@ public class PostServiceImpl implements PostService {
                 throw new AccessDeniedException("You don't have permission to view this private post");
 
             case FRIENDS:
-                if (!friendshipRepository.existsActiveFriendship(author, viewer)) {
+                if (!viewerContextService.get(viewer.getId()).isFriend(author.getId())) {
                     throw new AccessDeniedException("Only friends can view this post");
                 }
                 break; // Là bạn, được xem
@@ -514,18 +538,6 @@ public class PostServiceImpl implements PostService {
         }
     }
 
-    private boolean canViewPost(User viewer, Post post) {
-        if (post == null) return false;
-        User author = post.getAuthor();
-        if (viewer.getId().equals(author.getId())) return true; // Tác giả luôn xem được
-
-        return switch (post.getAccessModifier()) {
-            case PUBLIC -> true;
-            case FRIENDS -> friendshipRepository.existsActiveFriendship(author, viewer);
-            case PRIVATE -> false;
-        };
-    }
-
     private boolean isVideo(String ext) {
         return List.of("mp4", "webm", "ogg", "mov", "quicktime").contains(ext.toLowerCase());
     }
@@ -6,8 +6,10 @@ import com.kt.social.domain.comment.model.Comment;
 import com.kt.social.domain.comment.repository.CommentRepository;
 import com.kt.social.domain.notification.enums.NotificationType;
 import com.kt.social.domain.notification.service.NotificationService;
+import com.kt.social.domain.post.enums.EngagementCounter;
 import com.kt.social.domain.post.model.Post;
 import com.kt.social.domain.post.repository.PostRepository;
+import com.kt.social.domain.post.service.EngagementCounterService;
 import com.kt.social.domain.react.dto.*;
 import com.kt.social.domain.react.enums.TargetType;
 import com.kt.social.domain.react.model.*;
@@ -33,6 +35,7 @@ public class ReactServiceImpl implements ReactService {
     private final CommentRepository commentRepository;
     private final NotificationService notificationService;
     private final ActivityLogService activityLogService;
+    private final EngagementCounterService engagementCounterService;
 
     @Override
     @Transactional
@@ -40,22 +43,29 @@ public class ReactServiceImpl implements ReactService {
         TargetType tType = req.getTargetType();
         Long targetId = req.getTargetId();
 
-        // Kiểm tra nhanh sự tồn tại target (tránh N+1 query)
-        boolean exists = switch (tType) {
-            case POST -> postRepository.existsById(targetId);
-            case COMMENT -> commentRepository.existsById(targetId);
-            default -> true;
+        // Kiểm tra sự tồn tại target + lấy số react đã lưu trong 1 query
+        EngagementCounter counter = switch (tType) {
+            case POST -> EngagementCounter.POST_REACTS;
+            case COMMENT -> EngagementCounter.COMMENT_REACTS;
+            default -> null;
         };
-        if (!exists) throw new RuntimeException("Target not found");
+        Optional<Integer> persisted = switch (tType) {
+            case POST -> postRepository.findReactCount(targetId);
+            case COMMENT -> commentRepository.findReactCount(targetId);
+            default -> Optional.of(0);
+        };
+        if (persisted.isEmpty()) throw new RuntimeException("Target not found");
 
         // Kiểm tra react hiện tại
         var existing = reactRepository.findByUserAndTargetIdAndTargetType(user, targetId, tType).orElse(null);
         boolean isNewReact = false;
+        int delta = 0; // Thay đổi số react: hủy -1, đổi loại 0, thêm mới +1
 
         if (existing != null) {
             // Cùng loại → Hủy
             if (Objects.equals(existing.getReactType().getId(), req.getReactTypeId())) {
                 reactRepository.delete(existing);
+                delta = -1;
             } else {
                 // Khác loại → đổi loại
                 ReactType newType = reactTypeRepository.getReferenceById(req.getReactTypeId());
@@ -85,6 +95,7 @@ public class ReactServiceImpl implements ReactService {
                             .build()
             );
             isNewReact = true;
+            delta = 1;
 
 //            activityLogService.logActivity(
 //                    user,
@@ -95,9 +106,15 @@ public class ReactServiceImpl implements ReactService {
 //            );
         }
 
-        // Cập nhật đếm (sử dụng countBy để không cần fetch all)
-        long count = reactRepository.countByTargetIdAndTargetType(targetId, tType);
-        updateTargetReactCount(tType, targetId, count);
+        // Cập nhật đếm: cộng dồn trong bộ nhớ, flush theo lô (không findById + save bài / bình luận)
+        long count;
+        if (counter != null) {
+            engagementCounterService.increment(counter, targetId, delta);
+            // delta chỉ được cộng vào bộ đếm sau commit
+            count = Math.max(0L, engagementCounterService.current(counter, targetId, persisted.get()) + delta);
+        } else {
+            count = reactRepository.countByTargetIdAndTargetType(targetId, tType);
+        }
 
         // Gửi notification nếu là react mới và target là post/comment
         if (isNewReact) {
@@ -148,19 +165,6 @@ public class ReactServiceImpl implements ReactService {
                 .build();
     }
 
-    private void updateTargetReactCount(TargetType tType, Long targetId, long count) {
-        switch (tType) {
-            case POST -> postRepository.findById(targetId).ifPresent(p -> {
-                p.setReactCount((int) count);
-                postRepository.save(p);
-            });
-            case COMMENT -> commentRepository.findById(targetId).ifPresent(c -> {
-                c.setReactCount((int) count);
-                commentRepository.save(c);
-            });
-        }
-    }
-
     @Override
     public long countReacts(Long targetId, TargetType targetType) {
         return reactRepository.countByTargetIdAndTargetType(targetId, targetType);
@@ -5,8 +5,8 @@ import com.kt.social.common.exception.ResourceNotFoundException;
 import com.kt.social.common.vo.PageVO;
 import com.kt.social.domain.comment.model.Comment;
 import com.kt.social.domain.comment.repository.CommentRepository;
-import com.kt.social.domain.message.model.Conversation;
-import com.kt.social.domain.message.repository.ConversationRepository;
+import com.kt.social.domain.message.model.Message;
+import com.kt.social.domain.message.service.MessageLocationService;
 import com.kt.social.domain.post.model.Post;
 import com.kt.social.domain.post.repository.PostRepository;
 import com.kt.social.domain.react.enums.TargetType;
@@ -46,7 +46,7 @@ public class ReportServiceImpl implements ReportService {
     private final CommentRepository commentRepository;
     private final UserService userService;
     private final ReportMapper reportMapper;
-    private final ConversationRepository conversationRepository;
+    private final MessageLocationService messageLocationService;
 
     @Override
     @Transactional
@@ -71,16 +71,9 @@ public class ReportServiceImpl implements ReportService {
             targetOwnerId = comment.getAuthor().getId();
 
         } else if (request.getTargetType() == TargetType.MESSAGE) {
-            Optional<Conversation> convo = conversationRepository.findByMessageIdInJson(request.getTargetId());
-            if (convo.isEmpty()) {
-                throw new ResourceNotFoundException("Message not found");
-            }
-            targetOwnerId = convo.get().getMembers().stream()
-                    .filter(m -> !m.getUser().getId().equals(reporterId))
-                    .findFirst()
-                    .orElseThrow(() -> new ResourceNotFoundException("Message owner not found"))
-                    .getUser()
-                    .getId();
+            Message message = messageLocationService.findMessage(request.getTargetId())
+                    .orElseThrow(() -> new ResourceNotFoundException("Message not found"));
+            targetOwnerId = message.getSenderId();
         } else if (request.getTargetType() == TargetType.USER) {
             targetOwnerId = Long.valueOf(request.getTargetId());
         }
@@ -4,6 +4,7 @@ import com.kt.social.common.constants.ApiConstants;
 import com.kt.social.common.vo.PageVO;
 import com.kt.social.domain.user.dto.*;
 import com.kt.social.domain.user.model.User;
+import com.kt.social.domain.user.service.PresenceService;
 import com.kt.social.domain.user.service.UserService;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
@@ -17,6 +18,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.security.Principal;
+import java.util.List;
 
 @RestController
 @RequestMapping(ApiConstants.USERS)
@@ -24,6 +26,7 @@ import java.security.Principal;
 public class UserController {
 
     private final UserService userService;
+    private final PresenceService presenceService;
 
     @GetMapping("/search")
     public ResponseEntity<PageVO<UserRelationDto>> searchUsers(
@@ -33,6 +36,13 @@ public class UserController {
         return ResponseEntity.ok(userService.searchUsers(filter, pageable));
     }
 
+    // Bạn bè nào trong danh sách đang online: GET /presence?ids=1,2,3 (tối đa 500 id)
+    @GetMapping("/presence")
+    public ResponseEntity<PresenceResponse> getPresence(@RequestParam List<Long> ids) {
+        Long currentUserId = userService.getCurrentUser().getId();
+        return ResponseEntity.ok(new PresenceResponse(presenceService.onlineAmong(currentUserId, ids)));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<UserProfileDto> getUserProfile(@PathVariable Long id) {
         return ResponseEntity.ok(userService.getProfile(id));
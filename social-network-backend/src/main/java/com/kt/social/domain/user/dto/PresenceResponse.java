@@ -0,0 +1,13 @@
+package com.kt.social.domain.user.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PresenceResponse {
+    private List<Long> onlineUserIds; // các id (trong danh sách hỏi) đang online
+}
@@ -0,0 +1,10 @@
+package com.kt.social.domain.user.dto;
+
+import com.kt.social.auth.enums.AccountStatus;
+
+/**
+ * Bản chụp hồ sơ công khai của user (tên, avatar, trạng thái tài khoản) dùng khi dựng tin nhắn,
+ * thông báo, bài viết, bình luận. Xem UserProfileCache.
+ */
+public record UserProfileSnapshot(Long id, String displayName, String avatarUrl, AccountStatus status) {
+}
@@ -0,0 +1,120 @@
+package com.kt.social.domain.user.dto;
+
+import com.kt.social.domain.post.enums.AccessScope;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Quan hệ của 1 viewer: bạn bè, đang theo dõi, đã chặn, bị chặn bởi.
+ *
+ * Mỗi tập id lưu dưới dạng long[] đã sắp xếp (tra bằng binary search, không boxing), dựng 1 lần rồi
+ * dùng chung cho mọi kiểm tra quyền xem / quan hệ trong request. Xem ViewerContextService.
+ */
+public final class ViewerContext {
+
+    private final long viewerId;
+    private final long[] friendIds;
+    private final long[] followingIds;
+    private final long[] blockedIds;   // viewer chặn
+    private final long[] blockedByIds; // chặn viewer
+
+    private ViewerContext(long viewerId, long[] friendIds, long[] followingIds, long[] blockedIds, long[] blockedByIds) {
+        this.viewerId = viewerId;
+        this.friendIds = friendIds;
+        this.followingIds = followingIds;
+        this.blockedIds = blockedIds;
+        this.blockedByIds = blockedByIds;
+    }
+
+    public static ViewerContext of(Long viewerId, Collection<Long> friendIds, Collection<Long> followingIds,
+                                   Collection<Long> blockedIds, Collection<Long> blockedByIds) {
+        return new ViewerContext(viewerId, toSortedArray(friendIds), toSortedArray(followingIds),
+                toSortedArray(blockedIds), toSortedArray(blockedByIds));
+    }
+
+    public Long viewerId() {
+        return viewerId;
+    }
+
+    public boolean isSelf(Long userId) {
+        return userId != null && userId == viewerId;
+    }
+
+    public boolean isFriend(Long userId) {
+        return contains(friendIds, userId);
+    }
+
+    public boolean isFollowing(Long userId) {
+        return contains(followingIds, userId);
+    }
+
+    public boolean hasBlocked(Long userId) {
+        return contains(blockedIds, userId);
+    }
+
+    public boolean isBlockedBy(Long userId) {
+        return contains(blockedByIds, userId);
+    }
+
+    // Chặn theo 1 trong 2 chiều
+    public boolean isBlockedWith(Long userId) {
+        return hasBlocked(userId) || isBlockedBy(userId);
+    }
+
+    /**
+     * Quyền xem bài theo tác giả + phạm vi (chưa tính quyền READ_ANY của admin / mod).
+     */
+    public boolean canView(Long authorId, AccessScope scope) {
+        if (isSelf(authorId)) return true; // Tác giả luôn xem được
+        if (scope == null) return true;
+
+        return switch (scope) {
+            case PUBLIC -> true;
+            case FRIENDS -> isFriend(authorId);
+            case PRIVATE -> false;
+        };
+    }
+
+    public List<Long> friendIds() {
+        return toList(friendIds);
+    }
+
+    public List<Long> followingIds() {
+        return toList(followingIds);
+    }
+
+    public List<Long> blockedIds() {
+        return toList(blockedIds);
+    }
+
+    // Cả 2 chiều chặn, dùng cho điều kiện NOT IN khi lọc danh sách user
+    public Set<Long> blockedEitherWayIds() {
+        Set<Long> result = new HashSet<>(blockedIds.length + blockedByIds.length);
+        for (long id : blockedIds) result.add(id);
+        for (long id : blockedByIds) result.add(id);
+        return result;
+    }
+
+    private static boolean contains(long[] sorted, Long id) {
+        return id != null && Arrays.binarySearch(sorted, id) >= 0;
+    }
+
+    private static long[] toSortedArray(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) return new long[0];
+        return ids.stream()
+                .filter(Objects::nonNull)
+                .mapToLong(Long::longValue)
+                .sorted()
+                .distinct()
+                .toArray();
+    }
+
+    private static List<Long> toList(long[] ids) {
+        return Arrays.stream(ids).boxed().toList();
+    }
+}
@@ -0,0 +1,18 @@
+package com.kt.social.domain.user.event;
+
+import com.kt.social.domain.message.event.ChatEvent;
+
+/**
+ * USER_ONLINE / USER_OFFLINE gửi tới bạn bè qua /user/queue/presence.
+ */
+public record PresenceEvent(String type, Long userId, String timestamp) implements ChatEvent {
+
+    public static final String ONLINE = "USER_ONLINE";
+    public static final String OFFLINE = "USER_OFFLINE";
+
+    // Trạng thái mới nhất luôn được gửi lại ở lần đổi kế tiếp / query presence
+    @Override
+    public boolean droppable() {
+        return true;
+    }
+}
@@ -0,0 +1,35 @@
+package com.kt.social.domain.user.mapper;
+
+import com.kt.social.domain.user.dto.UserProfileSnapshot;
+import com.kt.social.domain.user.model.User;
+import com.kt.social.domain.user.service.UserProfileCache;
+import lombok.RequiredArgsConstructor;
+import org.mapstruct.Named;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tên / avatar tác giả cho PostMapper, CommentMapper lấy từ UserProfileCache.
+ * Chỉ đọc author.getId() (không khởi tạo proxy lazy) nên không phát sinh 1 query User cho mỗi dòng.
+ */
+@Component
+@RequiredArgsConstructor
+public class AuthorProfileMapper {
+
+    private final UserProfileCache userProfileCache;
+
+    @Named("authorName")
+    public String authorName(User author) {
+        UserProfileSnapshot profile = profileOf(author);
+        return profile != null ? profile.displayName() : null;
+    }
+
+    @Named("authorAvatar")
+    public String authorAvatar(User author) {
+        UserProfileSnapshot profile = profileOf(author);
+        return profile != null ? profile.avatarUrl() : null;
+    }
+
+    private UserProfileSnapshot profileOf(User author) {
+        return author != null ? userProfileCache.get(author.getId()) : null;
+    }
+}
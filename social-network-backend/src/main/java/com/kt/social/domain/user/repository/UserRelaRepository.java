@@ -27,6 +27,9 @@ public interface UserRelaRepository extends JpaRepository<UserRela, Long> {
 //    Page<UserRela> findByFollowing(User following, Pageable pageable);
 //    Page<UserRela> findByFollower(User follower, Pageable pageable);
 
+    @Query("SELECT ur.following.id FROM UserRela ur WHERE ur.follower.id = :followerId")
+    List<Long> findAllFollowingIds(@Param("followerId") Long followerId);
+
     @Query("SELECT ur.following.id FROM UserRela ur WHERE ur.follower.id = :viewerId AND ur.following.id IN :targetIds")
     Set<Long> findFollowingIds(@Param("viewerId") Long viewerId, @Param("targetIds") Set<Long> targetIds);
 
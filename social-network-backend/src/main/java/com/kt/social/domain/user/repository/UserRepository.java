@@ -2,15 +2,18 @@ package com.kt.social.domain.user.repository;
 
 import com.kt.social.auth.model.UserCredential;
 import com.kt.social.domain.moderation.dto.UserModerationResponse;
+import com.kt.social.domain.user.dto.UserProfileSnapshot;
 import com.kt.social.domain.user.model.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -43,6 +46,26 @@ public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificat
             Pageable pageable
     );
 
+    // Hồ sơ rút gọn của nhiều user trong 1 query (UserProfileCache)
+    @Query("SELECT new com.kt.social.domain.user.dto.UserProfileSnapshot(u.id, u.displayName, u.avatarUrl, c.status) " +
+            "FROM User u LEFT JOIN u.credential c " +
+            "WHERE u.id IN :ids")
+    List<UserProfileSnapshot> findProfileSnapshots(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Ghi lastActiveAt của nhiều user trong 1 câu UPDATE ... FROM (danh sách id / thời điểm dạng mảng).
+     * Chỉ tiến lên, không ghi đè mốc mới hơn (node khác có thể vừa ghi).
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE users u
+        SET last_active_at = to_timestamp(v.at_ms / 1000.0)
+        FROM unnest(CAST(:ids AS bigint[]), CAST(:atMillis AS bigint[])) AS v(id, at_ms)
+        WHERE u.id = v.id
+          AND (u.last_active_at IS NULL OR u.last_active_at < to_timestamp(v.at_ms / 1000.0))
+    """, nativeQuery = true)
+    int updateLastActiveAt(@Param("ids") Long[] ids, @Param("atMillis") Long[] atMillis);
+
     @Query(value = "SELECT COUNT(*) FROM users WHERE is_active = true", nativeQuery = true)
     long countActiveUsers();
 
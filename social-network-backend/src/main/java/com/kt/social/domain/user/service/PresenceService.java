@@ -0,0 +1,143 @@
+package com.kt.social.domain.user.service;
+
+import com.kt.social.common.constants.WebSocketConstants;
+import com.kt.social.domain.friendship.event.FriendshipAcceptedEvent;
+import com.kt.social.domain.friendship.event.FriendshipDeletedEvent;
+import com.kt.social.domain.friendship.repository.FriendshipRepository;
+import com.kt.social.domain.user.event.PresenceEvent;
+import com.kt.social.infra.websocket.ChatBroadcaster;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Presence trong bộ nhớ (không cần Redis / dịch vụ ngoài).
+ *
+ *  - Đếm số session WebSocket theo userId: nhiều tab / thiết bị chỉ tính là 1 lần online.
+ *  - Debounce: session cuối đóng thì chờ offline-debounce-ms mới báo OFFLINE; kết nối lại trong khoảng đó
+ *    (mạng di động chập chờn, reload trang) thì không phát gì cả.
+ *  - Chỉ gửi delta cho bạn bè đang online qua /user/queue/presence (thay cho broadcast /topic/public cho mọi người).
+ *  - Danh sách id bạn bè được cache cho user đang online, làm mới khi kết bạn / hủy kết bạn.
+ *
+ * Chạy nhiều node thì mỗi node chỉ biết session của chính nó.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PresenceService {
+
+    private static final int MAX_QUERY_IDS = 500;
+
+    private final FriendshipRepository friendshipRepository;
+    private final ChatBroadcaster chatBroadcaster;
+
+    @Value("${chat.presence.offline-debounce-ms:5000}")
+    private long offlineDebounceMs;
+
+    // userId -> số session đang mở
+    private final Map<Long, Integer> sessionCounts = new ConcurrentHashMap<>();
+    // userId -> thời điểm sẽ báo OFFLINE nếu chưa kết nối lại
+    private final Map<Long, Long> pendingOffline = new ConcurrentHashMap<>();
+    // userId -> id bạn bè (chỉ giữ cho user đang online)
+    private final Map<Long, long[]> friendIds = new ConcurrentHashMap<>();
+
+    public void connected(Long userId) {
+        int count = sessionCounts.merge(userId, 1, Integer::sum);
+        if (count != 1) return; // đã online từ tab / thiết bị khác
+
+        if (pendingOffline.remove(userId) != null) {
+            return; // vừa rớt mạng rồi vào lại trong thời gian debounce -> bạn bè không thấy gì
+        }
+        publish(userId, PresenceEvent.ONLINE);
+    }
+
+    public void disconnected(Long userId) {
+        Integer count = sessionCounts.computeIfPresent(userId, (id, c) -> c > 1 ? c - 1 : null);
+        if (count == null) {
+            pendingOffline.put(userId, System.currentTimeMillis() + offlineDebounceMs);
+        }
+    }
+
+    public boolean isOnline(Long userId) {
+        // Đang chờ debounce vẫn tính là online
+        return sessionCounts.containsKey(userId) || pendingOffline.containsKey(userId);
+    }
+
+    /**
+     * Những id nào trong danh sách đang online (giữ thứ tự hỏi).
+     * Chỉ trả về bạn bè của viewer: cùng quy tắc hiển thị với luồng đẩy qua /user/queue/presence.
+     */
+    public List<Long> onlineAmong(Long viewerId, Collection<Long> userIds) {
+        if (viewerId == null || userIds == null || userIds.isEmpty()) return List.of();
+        long[] friends = friendsOf(viewerId);
+        List<Long> online = new ArrayList<>();
+        int checked = 0;
+        for (Long id : new LinkedHashSet<>(userIds)) {
+            if (++checked > MAX_QUERY_IDS) break;
+            if (id != null && Arrays.binarySearch(friends, id) >= 0 && isOnline(id)) online.add(id);
+        }
+        return online;
+    }
+
+    @Scheduled(fixedDelayString = "${chat.presence.sweep-ms:1000}")
+    public void flushPendingOffline() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Long, Long> e : pendingOffline.entrySet()) {
+            if (e.getValue() > now) continue;
+            Long userId = e.getKey();
+            // remove(key, value): không đua với connected() vừa hủy / disconnected() vừa gia hạn
+            if (pendingOffline.remove(userId, e.getValue()) && !sessionCounts.containsKey(userId)) {
+                publish(userId, PresenceEvent.OFFLINE);
+                friendIds.remove(userId);
+            }
+        }
+    }
+
+    @EventListener
+    public void onFriendshipAccepted(FriendshipAcceptedEvent event) {
+        friendIds.remove(event.senderId());
+        friendIds.remove(event.receiverId());
+    }
+
+    @EventListener
+    public void onFriendshipDeleted(FriendshipDeletedEvent event) {
+        friendIds.remove(event.user1Id());
+        friendIds.remove(event.user2Id());
+    }
+
+    private void publish(Long userId, String type) {
+        List<Long> targets = new ArrayList<>();
+        for (long friendId : friendsOf(userId)) {
+            if (sessionCounts.containsKey(friendId)) targets.add(friendId);
+        }
+        if (targets.isEmpty()) return;
+
+        // Encode 1 lần cho mọi bạn bè
+        ChatBroadcaster.EncodedEvent frame = chatBroadcaster.encode(
+                new PresenceEvent(type, userId, Instant.now().toString()));
+        chatBroadcaster.toUsers(targets, WebSocketConstants.PRESENCE_QUEUE, frame);
+    }
+
+    private long[] friendsOf(Long userId) {
+        long[] cached = friendIds.get(userId);
+        if (cached != null) return cached;
+        // Query ngoài map (không giữ lock của ConcurrentHashMap trong lúc gọi DB)
+        try {
+            long[] loaded = friendshipRepository.findFriendIds(userId).stream()
+                    .mapToLong(Long::longValue).sorted().toArray(); // sắp xếp để tra bằng binary search
+            // Chỉ giữ cho user đang online (bị xóa khi offline); viewer chỉ gọi REST thì không cache
+            if (sessionCounts.containsKey(userId)) friendIds.putIfAbsent(userId, loaded);
+            return loaded;
+        } catch (Exception e) {
+            log.warn("⚠️ Cannot load friends of user {} for presence: {}", userId, e.getMessage());
+            return new long[0];
+        }
+    }
+}
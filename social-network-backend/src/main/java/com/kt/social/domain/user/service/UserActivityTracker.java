@@ -0,0 +1,132 @@
+package com.kt.social.domain.user.service;
+
+import com.kt.social.domain.user.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gom lastActiveAt trong bộ nhớ rồi ghi theo lô (write-behind).
+ *
+ * Mỗi lần disconnect WebSocket / request HTTP chỉ cập nhật 1 entry trong map (giữ mốc mới nhất của user),
+ * job định kỳ ghi tất cả bằng vài câu UPDATE theo lô thay vì findById + save từng user.
+ * Tắt app thì flush phần còn lại. Node chết đột ngột chỉ mất tối đa 1 chu kỳ flush.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserActivityTracker {
+
+    private final UserRepository userRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${user.activity.batch-size:1000}")
+    private int batchSize;
+
+    // Request HTTP liên tục của cùng 1 user: chỉ ghi nhận khi cách lần ghi nhận trước đủ xa
+    @Value("${user.activity.http-min-interval-ms:60000}")
+    private long httpMinIntervalMs;
+
+    // userId -> epoch millis hoạt động gần nhất chưa ghi xuống DB
+    private final Map<Long, Long> pending = new ConcurrentHashMap<>();
+    // userId -> lần cuối ghi nhận từ HTTP (chặn ghi nhận dày đặc, dọn khi flush)
+    private final Map<Long, Long> lastHttpTouch = new ConcurrentHashMap<>();
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public void touch(Long userId) {
+        touch(userId, Instant.now());
+    }
+
+    public void touch(Long userId, Instant at) {
+        if (userId == null || at == null) return;
+        pending.merge(userId, at.toEpochMilli(), Math::max);
+    }
+
+    /**
+     * Ghi nhận hoạt động từ request HTTP đã xác thực (gọi rất thường xuyên nên có throttle).
+     */
+    public void touchFromRequest(Long userId) {
+        if (userId == null) return;
+        long now = System.currentTimeMillis();
+        Long last = lastHttpTouch.get(userId);
+        if (last != null && now - last < httpMinIntervalMs) return;
+        lastHttpTouch.put(userId, now);
+        pending.merge(userId, now, Math::max);
+    }
+
+    @Scheduled(fixedDelayString = "${user.activity.flush-ms:10000}",
+            initialDelayString = "${user.activity.flush-ms:10000}")
+    public void flush() {
+        // Throttle HTTP chỉ cần nhớ trong khoảng http-min-interval-ms
+        long cutoff = System.currentTimeMillis() - httpMinIntervalMs;
+        lastHttpTouch.values().removeIf(t -> t < cutoff);
+
+        if (pending.isEmpty()) return;
+
+        List<Long> ids = new ArrayList<>(Math.min(pending.size(), batchSize));
+        List<Long> ats = new ArrayList<>(Math.min(pending.size(), batchSize));
+        Map<Long, Long> failed = new HashMap<>();
+        int written = 0;
+
+        for (Map.Entry<Long, Long> e : pending.entrySet()) {
+            // remove(key, value): touch() mới hơn chen vào giữa thì giữ lại cho lần flush sau
+            if (!pending.remove(e.getKey(), e.getValue())) continue;
+            ids.add(e.getKey());
+            ats.add(e.getValue());
+            if (ids.size() >= batchSize) {
+                written += writeBatch(ids, ats, failed);
+                ids.clear();
+                ats.clear();
+            }
+        }
+        if (!ids.isEmpty()) {
+            written += writeBatch(ids, ats, failed);
+        }
+        // Trả lại sau khi duyệt xong (không đè mốc mới hơn), lần flush sau thử lại
+        failed.forEach((id, at) -> pending.merge(id, at, Math::max));
+
+        log.debug("🕒 Flushed lastActiveAt for {} users.", written);
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.warn("⚠️ Failed to flush lastActiveAt on shutdown ({} users): {}", pending.size(), e.getMessage());
+        }
+    }
+
+    private int writeBatch(List<Long> ids, List<Long> ats, Map<Long, Long> failed) {
+        try {
+            Integer updated = transactionTemplate.execute(status ->
+                    userRepository.updateLastActiveAt(ids.toArray(Long[]::new), ats.toArray(Long[]::new)));
+            return updated != null ? updated : 0;
+        } catch (Exception e) {
+            for (int i = 0; i < ids.size(); i++) {
+                failed.put(ids.get(i), ats.get(i));
+            }
+            log.warn("⚠️ Failed to flush lastActiveAt for {} users: {}", ids.size(), e.getMessage());
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.kt.social.domain.user.service;
+
+import com.kt.social.domain.user.dto.UserProfileSnapshot;
+import com.kt.social.domain.user.repository.UserRepository;
+import com.kt.social.infra.cache.BoundedCache;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+
+/**
+ * Cache hồ sơ rút gọn (tên, avatar, trạng thái) theo userId.
+ *
+ * Dùng chung cho gửi tin nhắn, thông báo, mapping bài viết / bình luận: không phải load entity User
+ * (và UserInfo / credential) chỉ để lấy tên + avatar. Trang dữ liệu nên gọi getAll() trước khi map
+ * để nạp mọi user còn thiếu trong 1 query.
+ *
+ * Bị xóa khi user đổi hồ sơ / avatar (UserServiceImpl) hoặc bị đổi trạng thái (ModerationServiceImpl),
+ * ngoài ra hết hạn sau ttl-ms.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserProfileCache {
+
+    // Giới hạn số id trong 1 câu IN
+    private static final int LOAD_CHUNK_SIZE = 500;
+
+    private final UserRepository userRepository;
+
+    @Value("${user.profile-cache.ttl-ms:600000}")
+    private long ttlMs;
+
+    @Value("${user.profile-cache.max-size:100000}")
+    private int maxSize;
+
+    private BoundedCache<Long, UserProfileSnapshot> cache;
+
+    @PostConstruct
+    void init() {
+        cache = new BoundedCache<>(maxSize);
+    }
+
+    /**
+     * Hồ sơ của user, null nếu user không tồn tại.
+     */
+    public UserProfileSnapshot get(Long userId) {
+        if (userId == null) return null;
+        return getAll(List.of(userId)).get(userId);
+    }
+
+    /**
+     * Hồ sơ của nhiều user; user còn thiếu / hết hạn được nạp trong 1 query (theo lô LOAD_CHUNK_SIZE).
+     */
+    public Map<Long, UserProfileSnapshot> getAll(Collection<Long> userIds) {
+        if (userIds == null || userIds.isEmpty()) return Map.of();
+
+        long now = System.currentTimeMillis();
+        Map<Long, UserProfileSnapshot> result = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long id : new LinkedHashSet<>(userIds)) {
+            if (id == null) continue;
+            UserProfileSnapshot cached = cache.getIfFresh(id, ttlMs);
+            if (cached != null) {
+                result.put(id, cached);
+            } else {
+                missing.add(id);
+            }
+        }
+
+        for (int from = 0; from < missing.size(); from += LOAD_CHUNK_SIZE) {
+            List<Long> chunk = missing.subList(from, Math.min(missing.size(), from + LOAD_CHUNK_SIZE));
+            for (UserProfileSnapshot s : userRepository.findProfileSnapshots(chunk)) {
+                result.put(s.id(), s);
+                cache.put(s.id(), s, now);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Xóa cache của user ngay và thêm 1 lần sau khi transaction hiện tại commit
+     * (request khác có thể đã nạp lại bản cũ trong lúc transaction chưa xong).
+     */
+    public void invalidate(Long userId) {
+        if (userId == null) return;
+        cache.remove(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.remove(userId);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.kt.social.domain.user.service;
+
+import com.kt.social.domain.friendship.event.FriendshipAcceptedEvent;
+import com.kt.social.domain.friendship.event.FriendshipDeletedEvent;
+import com.kt.social.domain.friendship.repository.FriendshipRepository;
+import com.kt.social.domain.user.dto.ViewerContext;
+import com.kt.social.domain.user.repository.UserRelaRepository;
+import com.kt.social.infra.cache.BoundedCache;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Dựng + cache ngắn hạn ViewerContext (bạn bè / đang theo dõi / chặn) theo userId.
+ *
+ * Feed, bình luận, hồ sơ, tìm kiếm, danh sách follower đều hỏi quan hệ của viewer qua đây thay vì
+ * tự query từng lần: 1 request (và các request liền sau trong ttl-ms) chỉ tốn 4 query nhỏ.
+ *
+ * Bị xóa khi kết bạn / hủy kết bạn / chặn (FriendshipAccepted / FriendshipDeleted event), bỏ chặn
+ * (FriendshipServiceImpl) và follow / unfollow (UserServiceImpl).
+ *
+ * Độ trễ chấp nhận được: cache nằm riêng trên từng node nên thay đổi từ node khác chỉ thấy sau tối đa
+ * ttl-ms (mặc định 10s, giữ ngắn). Chỉ dùng để lọc danh sách / feed; kiểm tra chặn khi gửi / chấp nhận
+ * lời mời, xem hồ sơ (BlockUtils) và quyền xem bài được share (PostFeedAssembler) luôn đọc DB.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ViewerContextService {
+
+    private final FriendshipRepository friendshipRepository;
+    private final UserRelaRepository userRelaRepository;
+
+    @Value("${user.viewer-context.ttl-ms:10000}")
+    private long ttlMs;
+
+    @Value("${user.viewer-context.max-size:50000}")
+    private int maxSize;
+
+    private BoundedCache<Long, ViewerContext> cache;
+
+    @PostConstruct
+    void init() {
+        cache = new BoundedCache<>(maxSize);
+    }
+
+    @Transactional(readOnly = true)
+    public ViewerContext get(Long userId) {
+        long now = System.currentTimeMillis();
+        ViewerContext cached = cache.getIfFresh(userId, ttlMs);
+        if (cached != null) {
+            return cached;
+        }
+
+        ViewerContext context = ViewerContext.of(userId,
+                friendshipRepository.findFriendIds(userId),
+                userRelaRepository.findAllFollowingIds(userId),
+                friendshipRepository.findBlockedUserIds(userId),
+                friendshipRepository.findBlockedUserIdsByTarget(userId));
+        cache.put(userId, context, now);
+        return context;
+    }
+
+    /**
+     * Xóa cache của các user ngay và thêm 1 lần sau khi transaction hiện tại commit
+     * (request khác có thể đã nạp lại bản cũ trong lúc transaction chưa xong).
+     */
+    public void invalidate(Long... userIds) {
+        for (Long id : userIds) {
+            if (id != null) cache.remove(id);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    for (Long id : userIds) {
+                        if (id != null) cache.remove(id);
+                    }
+                }
+            });
+        }
+    }
+
+    @EventListener
+    public void onFriendshipAccepted(FriendshipAcceptedEvent event) {
+        invalidate(event.senderId(), event.receiverId());
+    }
+
+    @EventListener
+    public void onFriendshipDeleted(FriendshipDeletedEvent event) {
+        invalidate(event.user1Id(), event.user2Id());
+    }
+}
@@ -18,11 +18,14 @@ import com.kt.social.domain.friendship.dto.FriendshipResponse;
 import com.kt.social.domain.friendship.enums.FriendshipStatus;
 import com.kt.social.domain.friendship.model.Friendship;
 import com.kt.social.domain.friendship.repository.FriendshipRepository;
+import com.kt.social.domain.post.service.TimelineService;
 import com.kt.social.domain.user.dto.*;
 import com.kt.social.domain.user.mapper.UserMapper;
 import com.kt.social.domain.user.model.*;
 import com.kt.social.domain.user.repository.*;
+import com.kt.social.domain.user.service.UserProfileCache;
 import com.kt.social.domain.user.service.UserService;
+import com.kt.social.domain.user.service.ViewerContextService;
 import com.kt.social.infra.storage.StorageService;
 import io.github.perplexhub.rsql.RSQLJPASupport;
 import jakarta.persistence.criteria.Join;
@@ -48,12 +51,15 @@ public class UserServiceImpl extends BaseFilterService<User, UserRelationDto> im
     private final BlockUtils blockUtils;
     private final UserCredentialRepository userCredentialRepository;
     private final UserRepository userRepository;
+    private final UserProfileCache userProfileCache;
     private final RoleRepository roleRepository;
     private final UserRelaRepository userRelaRepository;
     private final FriendshipRepository friendshipRepository;
     private final UserMapper userMapper;
     private final StorageService storageService;
     private final ActivityLogService activityLogService;
+    private final TimelineService timelineService;
+    private final ViewerContextService viewerContextService;
 
     @Override
     public User getCurrentUser() {
@@ -75,7 +81,7 @@ public class UserServiceImpl extends BaseFilterService<User, UserRelationDto> im
     @Override
     public UserProfileDto getProfile(Long id) {
         User current = getCurrentUser();
-        if (blockUtils.isBlocked(current.getId(), id) || blockUtils.isBlocked(id, current.getId())) {
+        if (blockUtils.isBlockedEitherWay(current.getId(), id)) {
             throw new AccessDeniedException("You cannot view this profile");
         }
 
@@ -112,6 +118,7 @@ public class UserServiceImpl extends BaseFilterService<User, UserRelationDto> im
         }
 
         userRepository.save(user);
+        userProfileCache.invalidate(user.getId());
 
 //        activityLogService.logActivity(
 //                user,
@@ -146,6 +153,8 @@ public class UserServiceImpl extends BaseFilterService<User, UserRelationDto> im
                 .build();
 
         userRelaRepository.save(rela);
+        viewerContextService.invalidate(userId);
+        timelineService.resync(userId, targetId);
 
 //        activityLogService.logActivity(
 //                follower,
@@ -176,6 +185,8 @@ public class UserServiceImpl extends BaseFilterService<User, UserRelationDto> im
         }
 
         userRelaRepository.deleteByFollowerAndFollowing(follower, following);
+        viewerContextService.invalidate(userId);
+        timelineService.resync(userId, targetId);
 
 //        activityLogService.logActivity(
 //                follower,
@@ -199,6 +210,8 @@ public class UserServiceImpl extends BaseFilterService<User, UserRelationDto> im
             throw new BadRequestException("This user is not following you");
 
         userRelaRepository.deleteByFollowerAndFollowing(follower, current);
+        viewerContextService.invalidate(followerId);
+        timelineService.resync(followerId, current.getId());
 
 //        activityLogService.logActivity(
 //                current, // (Actor là 'current' - người thực hiện)
@@ -225,6 +238,7 @@ public class UserServiceImpl extends BaseFilterService<User, UserRelationDto> im
         String avatarUrl = storageService.saveFile(avatarFile, "avatars");
         user.setAvatarUrl(avatarUrl);
         userRepository.save(user);
+        userProfileCache.invalidate(user.getId());
 
 //        activityLogService.logActivity(
 //                user,
@@ -324,6 +338,7 @@ public class UserServiceImpl extends BaseFilterService<User, UserRelationDto> im
 
         User savedUser = userRepository.save(user);
         userCredentialRepository.save(credential);
+        userProfileCache.invalidate(savedUser.getId());
 
         activityLogService.logActivity(
                 getCurrentUser(),
@@ -342,10 +357,7 @@ public class UserServiceImpl extends BaseFilterService<User, UserRelationDto> im
     public PageVO<UserRelationDto> searchUsers(String filter, Pageable pageable) {
         var viewer = getCurrentUser();
 
-        var blockedByMe = blockUtils.getAllBlockedIds(viewer.getId());
-        var blockedMe = friendshipRepository.findBlockedUserIdsByTarget(viewer.getId());
-        var totalBlocked = new HashSet<>(blockedByMe);
-        totalBlocked.addAll(blockedMe);
+        var totalBlocked = viewerContextService.get(viewer.getId()).blockedEitherWayIds();
 
         Specification<User> combinedSpec = (root1, query1, cb1) -> cb1.and(
                 cb1.notEqual(root1.get("id"), viewer.getId()),
@@ -397,8 +409,7 @@ public class UserServiceImpl extends BaseFilterService<User, UserRelationDto> im
         User target = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
-        var blockedIds = blockUtils.getAllBlockedIds(viewer.getId());
-        blockedIds.addAll(friendshipRepository.findBlockedUserIdsByTarget(viewer.getId()));
+        var blockedIds = viewerContextService.get(viewer.getId()).blockedEitherWayIds();
 
         Specification<UserRela> spec = (root, query, cb) -> {
             // Lấy ai đang follow Target
@@ -444,8 +455,7 @@ public class UserServiceImpl extends BaseFilterService<User, UserRelationDto> im
         User target = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
 
-        var blockedIds = blockUtils.getAllBlockedIds(viewer.getId());
-        blockedIds.addAll(friendshipRepository.findBlockedUserIdsByTarget(viewer.getId()));
+        var blockedIds = viewerContextService.get(viewer.getId()).blockedEitherWayIds();
 
         Specification<UserRela> spec = (root, query, cb) -> {
             // Target đang follow ai
@@ -493,8 +503,8 @@ public class UserServiceImpl extends BaseFilterService<User, UserRelationDto> im
         Set<Long> targetIds = targets.stream().map(User::getId).collect(Collectors.toSet());
         Long viewerId = viewer.getId();
 
-        // Query 2 & 3: Giữ nguyên logic Following/Follower
-        Set<Long> followingIds = userRelaRepository.findFollowingIds(viewerId, targetIds);
+        // Following lấy từ ViewerContext, Follower vẫn query theo trang
+        ViewerContext context = viewerContextService.get(viewerId);
         Set<Long> followedByIds = userRelaRepository.findFollowerIds(viewerId, targetIds);
 
         // Query 4: SỬA LOGIC MAP
@@ -527,7 +537,7 @@ public class UserServiceImpl extends BaseFilterService<User, UserRelationDto> im
         return targets.stream().map(target -> {
             Long targetId = target.getId();
 
-            boolean isFollowing = followingIds.contains(targetId);
+            boolean isFollowing = context.isFollowing(targetId);
             boolean isFollowedBy = followedByIds.contains(targetId);
 
             // Lấy từ Map, nếu không có thì trả về trạng thái NONE
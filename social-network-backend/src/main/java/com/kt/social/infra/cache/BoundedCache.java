@@ -0,0 +1,84 @@
+package com.kt.social.infra.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache trong bộ nhớ có giới hạn số entry, dùng chung cho các cache cục bộ theo node
+ * (hội thoại 1-1, thành viên hội thoại, hồ sơ rút gọn, ViewerContext, user đã có timeline).
+ *
+ *  - get / getIfFresh ghi lại thời điểm entry được dùng gần nhất.
+ *  - Đầy thì bỏ khoảng 10% entry lâu không được dùng nhất (tính theo usedAt):
+ *    entry đang được đọc liên tục không bị đẩy ra.
+ *
+ * Key / value không được null.
+ */
+public final class BoundedCache<K, V> {
+
+    private static final class Entry<V> {
+        final V value;
+        final long loadedAt;
+        volatile long usedAt;
+
+        Entry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+            this.usedAt = loadedAt;
+        }
+    }
+
+    private final Map<K, Entry<V>> map = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    public BoundedCache(int maxSize) {
+        this.maxSize = Math.max(1, maxSize);
+    }
+
+    public V get(K key) {
+        return getIfFresh(key, Long.MAX_VALUE);
+    }
+
+    /**
+     * Giá trị nếu được nạp chưa quá ttlMs, ngược lại null.
+     */
+    public V getIfFresh(K key, long ttlMs) {
+        Entry<V> e = map.get(key);
+        if (e == null) return null;
+        long now = System.currentTimeMillis();
+        if (now - e.loadedAt >= ttlMs) return null;
+        e.usedAt = now;
+        return e.value;
+    }
+
+    public void put(K key, V value) {
+        put(key, value, System.currentTimeMillis());
+    }
+
+    /**
+     * @param loadedAt thời điểm bắt đầu đọc dữ liệu (tính TTL từ đây, không phải từ lúc put)
+     */
+    public void put(K key, V value, long loadedAt) {
+        if (map.size() >= maxSize && !map.containsKey(key)) evict();
+        map.put(key, new Entry<>(value, loadedAt));
+    }
+
+    public void remove(K key) {
+        map.remove(key);
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    // Đầy thì bỏ khoảng 10% entry lâu không được dùng nhất
+    private synchronized void evict() {
+        if (map.size() < maxSize) return; // luồng khác vừa dọn xong
+        long cutoff = map.values().stream()
+                .mapToLong(e -> e.usedAt)
+                .sorted()
+                .skip(Math.max(1, maxSize / 10) - 1L)
+                .findFirst()
+                .orElse(Long.MAX_VALUE);
+        map.values().removeIf(e -> e.usedAt <= cutoff);
+    }
+}
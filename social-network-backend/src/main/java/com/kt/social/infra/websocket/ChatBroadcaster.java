@@ -0,0 +1,87 @@
+package com.kt.social.infra.websocket;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kt.social.common.constants.WebSocketConstants;
+import com.kt.social.domain.message.event.ChatEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.Collection;
+
+/**
+ * Gửi event chat qua STOMP với payload được encode JSON đúng 1 lần.
+ *
+ * convertAndSend(Map) chạy Jackson ở mỗi lần gửi; ở đây event được encode thành 1 Message<byte[]> bất biến,
+ * sau đó SimpMessagingTemplate chỉ copy header (destination) và dùng chung mảng byte cho mọi destination,
+ * broker cũng dùng lại mảng đó cho mọi session đã subscribe.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ChatBroadcaster {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Frame đã encode, dùng lại được cho nhiều lần gửi.
+     */
+    public record EncodedEvent(Message<byte[]> message) {
+    }
+
+    public EncodedEvent encode(ChatEvent event) {
+        byte[] payload;
+        try {
+            payload = objectMapper.writeValueAsBytes(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot encode chat event " + event.getClass().getSimpleName(), e);
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        if (event.droppable()) {
+            accessor.setHeader(SlowConsumerGuard.DROPPABLE_HEADER, Boolean.TRUE);
+        }
+        // Khóa header trước khi tạo message: frame dùng chung cho nhiều lần gửi, lần gửi đầu không được sửa header.
+        // Template tạo message mới (chỉ header) cho mỗi destination, payload dùng chung
+        accessor.setImmutable();
+        return new EncodedEvent(MessageBuilder.createMessage(payload, accessor.getMessageHeaders()));
+    }
+
+    public void toConversation(Long conversationId, ChatEvent event) {
+        toConversation(conversationId, encode(event));
+    }
+
+    public void toConversation(Long conversationId, EncodedEvent event) {
+        send(WebSocketConstants.CHAT_CONVERSATION_QUEUE + "/" + conversationId, event);
+    }
+
+    public void toUser(Long userId, String destination, ChatEvent event) {
+        toUser(userId, destination, encode(event));
+    }
+
+    public void toUser(Long userId, String destination, EncodedEvent event) {
+        send(WebSocketConstants.USER_PREFIX + "/" + userId + destination, event);
+    }
+
+    public void toUsers(Collection<Long> userIds, String destination, EncodedEvent event) {
+        for (Long userId : userIds) {
+            toUser(userId, destination, event);
+        }
+    }
+
+    private void send(String destination, EncodedEvent event) {
+        try {
+            messagingTemplate.send(destination, event.message());
+        } catch (Exception e) {
+            log.warn("⚠️ Failed to send chat event to {}: {}", destination, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.kt.social.infra.websocket;
+
+import com.kt.social.domain.message.service.ConversationMembershipCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Chặn frame /queue/conversation/{id} gửi tới session mà user không còn là thành viên (bị xóa / rời nhóm
+ * sau khi đã SUBSCRIBE). Simple broker không có API bỏ subscription từ server nên lọc ở clientOutboundChannel,
+ * kiểm tra qua ConversationMembershipCache (binarySearch trên mảng đã cache, không query DB mỗi frame).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ConversationFrameFilter implements ChannelInterceptor {
+
+    private final ConversationSubscriptionGuard subscriptionGuard;
+    private final ConversationMembershipCache membershipCache;
+
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        if (SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE) {
+            return message;
+        }
+
+        Long conversationId = ConversationSubscriptionGuard.conversationIdOf(
+                SimpMessageHeaderAccessor.getDestination(headers));
+        if (conversationId == null) {
+            return message;
+        }
+
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        Long userId = subscriptionGuard.subscribedUser(sessionId);
+        if (userId == null || !membershipCache.isMember(conversationId, userId)) {
+            log.debug("Dropped conversation {} frame for session {} (user {} is not a member)",
+                    conversationId, sessionId, userId);
+            return null;
+        }
+        return message;
+    }
+}
@@ -0,0 +1,107 @@
+package com.kt.social.infra.websocket;
+
+import com.kt.social.common.constants.WebSocketConstants;
+import com.kt.social.common.exception.AccessDeniedException;
+import com.kt.social.domain.message.service.ConversationMembershipCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+
+import java.security.Principal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Chỉ thành viên mới được SUBSCRIBE /queue/conversation/{id} (luồng tin nhắn realtime của hội thoại),
+ * kiểm tra qua ConversationMembershipCache. Phải đứng sau StompPrincipalInterceptor (cần Principal).
+ *
+ * Simple broker nhận destination dạng pattern (/queue/**, /queue/conversation*) khi SUBSCRIBE
+ * -> mọi SUBSCRIBE có pattern đều bị từ chối, nếu không sẽ nghe lén được mọi hội thoại.
+ * Guard chỉ chạy lúc SUBSCRIBE; thành viên bị xóa / rời nhóm sau đó bị ConversationFrameFilter chặn ở chiều ra
+ * (dùng userId của session ghi lại ở đây).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ConversationSubscriptionGuard implements ChannelInterceptor {
+
+    private static final String CONVERSATION_PREFIX = WebSocketConstants.CHAT_CONVERSATION_QUEUE + "/";
+
+    private static final PathMatcher PATH_MATCHER = new AntPathMatcher();
+
+    private final ConversationMembershipCache membershipCache;
+
+    // sessionId -> userId của session đã SUBSCRIBE ít nhất 1 hội thoại, bỏ khi DISCONNECT
+    private final Map<String, Long> sessionUsers = new ConcurrentHashMap<>();
+
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null) {
+            return message;
+        }
+        if (accessor.getCommand() == StompCommand.DISCONNECT) {
+            if (accessor.getSessionId() != null) sessionUsers.remove(accessor.getSessionId());
+            return message;
+        }
+        if (accessor.getCommand() != StompCommand.SUBSCRIBE) {
+            return message;
+        }
+
+        String destination = accessor.getDestination();
+        if (destination != null && PATH_MATCHER.isPattern(destination)) {
+            log.warn("⛔ Rejected pattern SUBSCRIBE {} from user {}", destination, userIdOf(accessor.getUser()));
+            throw new AccessDeniedException("Pattern subscriptions are not allowed.");
+        }
+        if (destination == null || !destination.startsWith(CONVERSATION_PREFIX)) {
+            return message;
+        }
+
+        Long conversationId = conversationIdOf(destination);
+        Long userId = userIdOf(accessor.getUser());
+        if (conversationId == null || userId == null || !membershipCache.isMember(conversationId, userId)) {
+            log.warn("⛔ Rejected SUBSCRIBE {} from user {}", destination, userId);
+            throw new AccessDeniedException("Not a member.");
+        }
+        if (accessor.getSessionId() != null) {
+            sessionUsers.put(accessor.getSessionId(), userId);
+        }
+        return message;
+    }
+
+    /**
+     * userId của session đã được cho SUBSCRIBE hội thoại, null nếu session chưa từng SUBSCRIBE / đã ngắt.
+     */
+    Long subscribedUser(String sessionId) {
+        return sessionId != null ? sessionUsers.get(sessionId) : null;
+    }
+
+    /**
+     * conversationId từ destination /queue/conversation/{id}, null nếu không phải destination hội thoại.
+     */
+    static Long conversationIdOf(String destination) {
+        if (destination == null || !destination.startsWith(CONVERSATION_PREFIX)) return null;
+        return parseId(destination.substring(CONVERSATION_PREFIX.length()));
+    }
+
+    private Long userIdOf(Principal principal) {
+        return principal != null ? parseId(principal.getName()) : null;
+    }
+
+    private static Long parseId(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
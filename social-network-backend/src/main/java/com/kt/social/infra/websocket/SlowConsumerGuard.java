@@ -0,0 +1,184 @@
+package com.kt.social.infra.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Giới hạn hàng đợi gửi xuống từng session WebSocket.
+ *
+ * Spring đã buffer từng session (ConcurrentWebSocketSessionDecorator, giới hạn theo byte + thời gian gửi,
+ * vượt thì đóng session). Lớp này thêm chính sách theo loại frame:
+ *  - Đếm số frame MESSAGE đã nhận vào clientOutboundChannel nhưng chưa ghi xong xuống socket của mỗi session.
+ *  - Session đang nghẽn (quá soft-limit frame, hoặc 1 lần ghi kéo dài quá slow-write-ms): frame không quan trọng
+ *    (typing, presence, read receipt - đánh dấu bằng header {@link #DROPPABLE_HEADER}) bị bỏ ngay tại cửa.
+ *  - Vượt hard-limit frame: đóng session (SESSION_NOT_RELIABLE), client kết nối lại và dùng delta sync.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SlowConsumerGuard implements ChannelInterceptor, WebSocketHandlerDecoratorFactory {
+
+    /**
+     * Header nội bộ (không ghi ra frame STOMP) đánh dấu event có thể bỏ khi client chậm.
+     * Simple broker / user destination copy header này sang message gửi cho từng subscriber.
+     */
+    public static final String DROPPABLE_HEADER = "chatDroppable";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${chat.ws.outbound.soft-limit-frames:200}")
+    private int softLimitFrames;
+
+    @Value("${chat.ws.outbound.hard-limit-frames:2000}")
+    private int hardLimitFrames;
+
+    @Value("${chat.ws.outbound.slow-write-ms:2000}")
+    private long slowWriteMs;
+
+    private final Map<String, TrackedSession> sessions = new ConcurrentHashMap<>();
+
+    private Counter droppedFrames;
+    private Counter slowDisconnects;
+
+    @PostConstruct
+    void init() {
+        droppedFrames = Counter.builder("chat.ws.outbound.dropped").register(meterRegistry);
+        slowDisconnects = Counter.builder("chat.ws.outbound.slow.disconnects").register(meterRegistry);
+        Gauge.builder("chat.ws.outbound.pending", sessions,
+                s -> s.values().stream().mapToInt(t -> t.pending.get()).sum()).register(meterRegistry);
+        Gauge.builder("chat.ws.outbound.slow.sessions", sessions,
+                s -> s.values().stream().filter(TrackedSession::isSlow).count()).register(meterRegistry);
+        Gauge.builder("chat.ws.sessions", sessions, Map::size).register(meterRegistry);
+    }
+
+    // ------------------- clientOutboundChannel -------------------
+
+    @Override
+    public Message<?> preSend(@NonNull Message<?> message, @NonNull MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId == null
+                || SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return message; // CONNECT_ACK, heartbeat, ERROR... luôn đi qua
+        }
+
+        TrackedSession tracked = sessions.get(sessionId);
+        if (tracked == null) return message;
+
+        int pending = tracked.pending.get();
+        if (pending >= hardLimitFrames) {
+            disconnect(tracked, pending);
+            return null;
+        }
+        if (tracked.isSlow() && Boolean.TRUE.equals(message.getHeaders().get(DROPPABLE_HEADER))) {
+            droppedFrames.increment();
+            return null;
+        }
+
+        tracked.pending.incrementAndGet();
+        return message;
+    }
+
+    private void disconnect(TrackedSession tracked, int pending) {
+        if (!tracked.closing.compareAndSet(false, true)) return;
+        slowDisconnects.increment();
+        log.warn("🐢 Closing slow WebSocket session {} ({} frames pending)", tracked.getId(), pending);
+        try {
+            tracked.getDelegate().close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException e) {
+            log.debug("Failed to close slow session {}: {}", tracked.getId(), e.getMessage());
+        }
+    }
+
+    // ------------------- WebSocket transport -------------------
+
+    @Override
+    @NonNull
+    public WebSocketHandler decorate(@NonNull WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(@NonNull WebSocketSession session) throws Exception {
+                // Session bọc ở đây nằm DƯỚI buffer của Spring -> thấy đúng thời điểm frame thực sự được ghi
+                TrackedSession tracked = new TrackedSession(session);
+                sessions.put(session.getId(), tracked);
+                super.afterConnectionEstablished(tracked);
+            }
+
+            @Override
+            public void afterConnectionClosed(@NonNull WebSocketSession session, @NonNull CloseStatus closeStatus)
+                    throws Exception {
+                sessions.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    private final class TrackedSession extends WebSocketSessionDecorator {
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicBoolean closing = new AtomicBoolean(false);
+        private volatile long writeStartedAt;
+
+        private TrackedSession(WebSocketSession session) {
+            super(session);
+        }
+
+        private boolean isSlow() {
+            long started = writeStartedAt;
+            return pending.get() >= softLimitFrames
+                    || (started != 0 && System.currentTimeMillis() - started > slowWriteMs);
+        }
+
+        @Override
+        public void sendMessage(@NonNull WebSocketMessage<?> message) throws IOException {
+            writeStartedAt = System.currentTimeMillis();
+            try {
+                super.sendMessage(message);
+            } finally {
+                writeStartedAt = 0;
+                // Chỉ frame MESSAGE được đếm ở preSend
+                if (isMessageFrame(message)) {
+                    pending.updateAndGet(p -> p > 0 ? p - 1 : 0);
+                }
+            }
+        }
+    }
+
+    private static final byte[] MESSAGE_COMMAND = "MESSAGE\n".getBytes(StandardCharsets.US_ASCII);
+
+    // So vài byte đầu của frame, không decode cả payload thành String
+    private static boolean isMessageFrame(WebSocketMessage<?> message) {
+        if (!(message instanceof TextMessage text)) return false;
+        byte[] bytes = text.asBytes();
+        if (bytes.length < MESSAGE_COMMAND.length) return false;
+        for (int i = 0; i < MESSAGE_COMMAND.length; i++) {
+            if (bytes[i] != MESSAGE_COMMAND[i]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,215 @@
+package com.kt.social.domain.message.service;
+
+import com.kt.social.domain.message.repository.ConversationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Chạy trên PostgreSQL thật (Testcontainers): migration dùng JSONB, FOR UPDATE, ON CONFLICT và UPDATE ... RETURNING.
+ * Không dùng transaction của test vì service tự mở transaction riêng (REQUIRES_NEW) và phải thấy dữ liệu fixture.
+ */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Import(LegacyMessageMigrationService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LegacyMessageMigrationServiceTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private LegacyMessageMigrationService migrationService;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Long alice;
+    private Long bob;
+
+    @BeforeEach
+    void setUp() {
+        jdbc.execute("ALTER TABLE conversations ADD COLUMN IF NOT EXISTS messages jsonb");
+        jdbc.execute("""
+                TRUNCATE message_locations, messages, conversation_summary, conversation_member,
+                         conversations, users, user_credential CASCADE
+                """);
+        // Service nhớ trạng thái "đã migrate hết" giữa các lần gọi
+        ReflectionTestUtils.setField(migrationService, "drained", false);
+        ReflectionTestUtils.setField(migrationService, "legacyColumnExists", null);
+
+        alice = insertUser("alice");
+        bob = insertUser("bob");
+    }
+
+    @Test
+    void migratesLegacyJsonIntoRowsSeqsWatermarksAndLocations() {
+        Long conversationId = insertLegacyConversation("m");
+
+        migrationService.ensureMigrated(conversationId);
+
+        // Sắp theo createdAt (mảng cũ: tin thường addFirst, tin hệ thống addLast)
+        List<Map<String, Object>> rows = jdbc.queryForList("""
+                SELECT seq, message_id, sender_id, type, is_deleted, deleted_at, CAST(reactions AS text) AS reactions
+                FROM messages WHERE conversation_id = ? ORDER BY seq
+                """, conversationId);
+        assertThat(rows).extracting(r -> r.get("message_id")).containsExactly("m1", "m2", "m3", "m4");
+        assertThat(rows).extracting(r -> ((Number) r.get("seq")).longValue()).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(rows.get(0).get("reactions").toString()).contains("❤");
+        assertThat(rows.get(1).get("type")).isEqualTo("IMAGE");
+        assertThat(rows.get(2).get("is_deleted")).isEqualTo(true);
+        assertThat(rows.get(2).get("deleted_at")).isNotNull();
+        assertThat(rows.get(3).get("type")).isEqualTo("SYSTEM");
+
+        Map<String, Object> conversation = jdbc.queryForMap(
+                "SELECT last_message_seq, messages FROM conversations WHERE id = ?", conversationId);
+        assertThat(((Number) conversation.get("last_message_seq")).longValue()).isEqualTo(4L);
+        assertThat(conversation.get("messages")).isNull();
+
+        // readBy cũ -> watermark = seq lớn nhất từng user đã đọc
+        assertThat(readWatermark(conversationId, alice)).isEqualTo(3L);
+        assertThat(readWatermark(conversationId, bob)).isEqualTo(2L);
+
+        assertThat(jdbc.queryForList(
+                "SELECT message_id, seq FROM message_locations WHERE conversation_id = ? ORDER BY seq", conversationId))
+                .extracting(r -> r.get("message_id") + "@" + r.get("seq"))
+                .containsExactly("m1@1", "m2@2", "m3@3", "m4@4");
+
+        assertThat(jdbc.queryForObject(
+                "SELECT last_message_id FROM conversation_summary WHERE conversation_id = ?", String.class, conversationId))
+                .isEqualTo("m4");
+    }
+
+    @Test
+    void lazyMigrationAndBatchJobDoNotDoubleInsert() throws Exception {
+        Long first = insertLegacyConversation("a");
+        Long second = insertLegacyConversation("b");
+
+        // 2 luồng đọc cùng lúc + luồng ghi trong transaction riêng: FOR UPDATE chỉ cho 1 bên migrate
+        CompletableFuture<Void> reader1 = CompletableFuture.runAsync(() -> migrationService.ensureMigrated(first));
+        CompletableFuture<Void> reader2 = CompletableFuture.runAsync(() -> migrationService.ensureMigrated(first));
+        CompletableFuture.allOf(reader1, reader2).get();
+        migrationService.migrateIfNeeded(first);
+
+        // Job nền chỉ còn hội thoại thứ 2
+        migrationService.migratePendingBatch();
+        migrationService.migratePendingBatch(); // không còn gì -> đánh dấu drained
+        migrationService.ensureMigrated(second);
+
+        for (Long conversationId : List.of(first, second)) {
+            assertThat(count("SELECT COUNT(*) FROM messages WHERE conversation_id = ?", conversationId)).isEqualTo(4);
+            assertThat(count("SELECT COUNT(*) FROM message_locations WHERE conversation_id = ?", conversationId))
+                    .isEqualTo(4);
+            assertThat(count("SELECT last_message_seq FROM conversations WHERE id = ?", conversationId)).isEqualTo(4);
+        }
+    }
+
+    @Test
+    void allocateSequencesHandsOutContiguousRanges() {
+        Long legacy = insertLegacyConversation("m");
+        migrationService.migrateIfNeeded(legacy);
+        Long fresh = insertConversation(null);
+
+        // Hội thoại vừa migrate: seq mới tiếp nối lịch sử cũ
+        assertThat(allocate(legacy, 3)).isEqualTo(7L);
+        assertThat(allocate(legacy, 1)).isEqualTo(8L);
+
+        assertThat(allocate(fresh, 2)).isEqualTo(2L);
+        assertThat(allocate(fresh, 3)).isEqualTo(5L);
+        // Chỉ mục tìm kiếm đang bắt kịp -> tiến cùng
+        assertThat(count("SELECT search_indexed_seq FROM conversations WHERE id = ?", fresh)).isEqualTo(5);
+        // Lịch sử migrate chưa được index -> giữ nguyên cho backfill
+        assertThat(count("SELECT search_indexed_seq FROM conversations WHERE id = ?", legacy)).isEqualTo(0);
+
+        assertThat(allocate(-1L, 1)).isNull();
+    }
+
+    // message_id là khóa toàn cục -> mỗi hội thoại fixture dùng 1 tiền tố riêng
+    private Long insertLegacyConversation(String prefix) {
+        String json = """
+                [
+                  {"id": "%3$s3", "senderId": %1$d, "content": "oops", "createdAt": "2024-01-01T10:03:00Z",
+                   "deletedAt": "2024-01-01T10:05:00Z", "isDeleted": true, "readBy": [%1$d]},
+                  {"id": "%3$s2", "senderId": %2$d, "type": "IMAGE", "content": "",
+                   "media": [{"url": "https://cdn/x.png"}], "createdAt": "2024-01-01T10:02:00Z", "readBy": [%2$d, %1$d]},
+                  {"id": "%3$s1", "senderId": %1$d, "content": "hi", "createdAt": "2024-01-01T10:01:00Z",
+                   "reactions": [{"userId": %2$d, "emoji": "❤"}], "readBy": [%1$d, %2$d]},
+                  {"id": "%3$s4", "type": "SYSTEM", "content": "bob left", "createdAt": "2024-01-01T10:04:00Z", "readBy": []}
+                ]
+                """.formatted(alice, bob, prefix);
+        return insertConversation(json);
+    }
+
+    private Long insertConversation(String legacyJson) {
+        Long id = jdbc.queryForObject("""
+                INSERT INTO conversations (is_group, created_at, updated_at, messages)
+                VALUES (false, now(), now(), CAST(? AS jsonb))
+                RETURNING id
+                """, Long.class, legacyJson);
+        for (Long userId : List.of(alice, bob)) {
+            jdbc.update("""
+                    INSERT INTO conversation_member (conversation_id, user_id, joined_at, role, last_read_seq)
+                    VALUES (?, ?, now(), 'MEMBER', 0)
+                    """, id, userId);
+        }
+        return id;
+    }
+
+    private Long insertUser(String username) {
+        Long id = jdbc.queryForObject("""
+                INSERT INTO user_credential (username, password, status)
+                VALUES (?, 'x', 'ACTIVE')
+                RETURNING id
+                """, Long.class, username);
+        jdbc.update("INSERT INTO users (id, display_name) VALUES (?, ?)", id, username);
+        return id;
+    }
+
+    // Như MessageIngestionService: cấp seq trong transaction ghi của caller
+    private Long allocate(Long conversationId, int count) {
+        return new TransactionTemplate(transactionManager)
+                .execute(status -> conversationRepository.allocateSequences(conversationId, count, Instant.now()));
+    }
+
+    private Long readWatermark(Long conversationId, Long userId) {
+        return jdbc.queryForObject(
+                "SELECT last_read_seq FROM conversation_member WHERE conversation_id = ? AND user_id = ?",
+                Long.class, conversationId, userId);
+    }
+
+    private long count(String sql, Long id) {
+        Long value = jdbc.queryForObject(sql, Long.class, id);
+        return value != null ? value : 0L;
+    }
+}
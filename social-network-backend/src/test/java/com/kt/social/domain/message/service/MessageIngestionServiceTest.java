@@ -0,0 +1,230 @@
+package com.kt.social.domain.message.service;
+
+import com.kt.social.common.exception.BadRequestException;
+import com.kt.social.domain.message.enums.MessageType;
+import com.kt.social.domain.message.event.ChatMessageEvent;
+import com.kt.social.domain.message.mapper.MessageMapper;
+import com.kt.social.domain.message.repository.ConversationMemberRepository;
+import com.kt.social.domain.message.repository.ConversationRepository;
+import com.kt.social.domain.message.repository.MessageRepository;
+import com.kt.social.domain.message.service.MessageIngestionService.MessageDraft;
+import com.kt.social.infra.websocket.ChatBroadcaster;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MessageIngestionServiceTest {
+
+    private static final Long CONVERSATION_ID = 42L;
+
+    @Mock
+    private ConversationRepository conversationRepository;
+    @Mock
+    private ConversationMemberRepository memberRepository;
+    @Mock
+    private MessageRepository messageRepository;
+    @Mock(answer = Answers.CALLS_REAL_METHODS)
+    private MessageMapper messageMapper;
+    @Mock
+    private LegacyMessageMigrationService legacyMessageMigrationService;
+    @Mock
+    private MessageLocationService messageLocationService;
+    @Mock
+    private ConversationSummaryService conversationSummaryService;
+    @Mock
+    private MessageSearchService messageSearchService;
+    @Mock
+    private RecentMessageCache recentMessageCache;
+    @Mock
+    private ChatBroadcaster chatBroadcaster;
+    @Mock
+    private LargeGroupDeliveryService largeGroupDeliveryService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private MessageIngestionService service;
+
+    // seq cuối của hội thoại ("DB")
+    private final AtomicLong lastSeq = new AtomicLong();
+    // Task đã giao cho chatWriterExecutor, test tự chạy để kiểm soát thứ tự
+    private final List<Runnable> scheduledTasks = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionManager.getTransaction(any())).thenAnswer(inv -> new SimpleTransactionStatus());
+        lenient().when(conversationRepository.allocateSequences(eq(CONVERSATION_ID), anyInt(), any()))
+                .thenAnswer(inv -> lastSeq.addAndGet(inv.<Integer>getArgument(1)));
+
+        service = new MessageIngestionService(conversationRepository, memberRepository, messageRepository,
+                messageMapper, legacyMessageMigrationService, messageLocationService, conversationSummaryService,
+                messageSearchService, recentMessageCache, chatBroadcaster, largeGroupDeliveryService,
+                eventPublisher, transactionManager);
+        TaskExecutor executor = scheduledTasks::add;
+        ReflectionTestUtils.setField(service, "chatWriterExecutor", executor);
+        ReflectionTestUtils.setField(service, "batchSize", 2);
+        ReflectionTestUtils.setField(service, "maxPendingPerConversation", 100);
+        service.init();
+    }
+
+    @Test
+    void seqFollowsSubmitOrderAcrossBatchesInterleavedWithInlineWrites() {
+        CompletableFuture<ChatMessageEvent> a1 = service.submit(draft("a1"));
+        CompletableFuture<ChatMessageEvent> a2 = service.submit(draft("a2"));
+        CompletableFuture<ChatMessageEvent> a3 = service.submit(draft("a3"));
+        // Cả 3 tin dùng chung 1 writer -> chỉ 1 task được xếp
+        assertThat(scheduledTasks).hasSize(1);
+
+        ChatMessageEvent s1 = service.writeInline(systemDraft("s1"));
+        runScheduledTasks(); // batch [a1, a2] rồi [a3]
+        ChatMessageEvent s2 = service.writeInline(systemDraft("s2"));
+        CompletableFuture<ChatMessageEvent> a4 = service.submit(draft("a4"));
+        runScheduledTasks();
+
+        assertThat(s1.seq()).isEqualTo(1L);
+        assertThat(a1.join().seq()).isEqualTo(2L);
+        assertThat(a2.join().seq()).isEqualTo(3L);
+        assertThat(a3.join().seq()).isEqualTo(4L);
+        assertThat(s2.seq()).isEqualTo(5L);
+        assertThat(a4.join().seq()).isEqualTo(6L);
+        assertThat(a1.join().clientMessageId()).isEqualTo("a1");
+
+        // Broadcast đúng thứ tự seq
+        ArgumentCaptor<ChatMessageEvent> broadcast = ArgumentCaptor.forClass(ChatMessageEvent.class);
+        verify(chatBroadcaster, atLeastOnce()).toConversation(eq(CONVERSATION_ID), broadcast.capture());
+        assertThat(broadcast.getAllValues()).extracting(ChatMessageEvent::seq)
+                .containsExactly(1L, 2L, 3L, 4L, 5L, 6L);
+        assertThat(writers()).isEmpty();
+    }
+
+    @Test
+    void rejectsSubmitsOverPendingLimit() {
+        ReflectionTestUtils.setField(service, "maxPendingPerConversation", 2);
+
+        CompletableFuture<ChatMessageEvent> a1 = service.submit(draft("a1"));
+        CompletableFuture<ChatMessageEvent> a2 = service.submit(draft("a2"));
+
+        assertThatThrownBy(() -> service.submit(draft("a3")))
+                .isInstanceOf(BadRequestException.class);
+
+        // Hàng đợi được rút thì lại nhận tin
+        runScheduledTasks();
+        assertThat(a1.join().seq()).isEqualTo(1L);
+        assertThat(a2.join().seq()).isEqualTo(2L);
+
+        CompletableFuture<ChatMessageEvent> a4 = service.submit(draft("a4"));
+        runScheduledTasks();
+        assertThat(a4.join().seq()).isEqualTo(3L);
+    }
+
+    @Test
+    void failedBatchCompletesEveryAckExceptionally() {
+        RuntimeException failure = new IllegalStateException("insert failed");
+        when(messageRepository.saveAll(anyList()))
+                .thenThrow(failure)
+                .thenAnswer(inv -> inv.getArgument(0));
+
+        CompletableFuture<ChatMessageEvent> a1 = service.submit(draft("a1"));
+        CompletableFuture<ChatMessageEvent> a2 = service.submit(draft("a2"));
+        CompletableFuture<ChatMessageEvent> a3 = service.submit(draft("a3"));
+        runScheduledTasks(); // batch [a1, a2] lỗi, batch [a3] ghi được
+
+        for (CompletableFuture<ChatMessageEvent> ack : List.of(a1, a2)) {
+            assertThat(ack).isCompletedExceptionally();
+            assertThatThrownBy(ack::join).isInstanceOf(CompletionException.class).hasCause(failure);
+        }
+        assertThat(a3.join().clientMessageId()).isEqualTo("a3");
+
+        // Batch lỗi không được broadcast
+        ArgumentCaptor<ChatMessageEvent> broadcast = ArgumentCaptor.forClass(ChatMessageEvent.class);
+        verify(chatBroadcaster).toConversation(eq(CONVERSATION_ID), broadcast.capture());
+        assertThat(broadcast.getValue().clientMessageId()).isEqualTo("a3");
+        assertThat(writers()).isEmpty();
+    }
+
+    @Test
+    void writerIsReleasedAndRecreatedWithoutLosingQueuedMessages() {
+        ReflectionTestUtils.setField(service, "batchSize", 1);
+
+        // 1 lượt chạy chỉ drain tối đa 10 batch -> tin thứ 11 còn trong hàng đợi lúc writer nhả cờ
+        List<CompletableFuture<ChatMessageEvent>> acks = new ArrayList<>();
+        for (int i = 1; i <= 11; i++) {
+            acks.add(service.submit(draft("a" + i)));
+        }
+        assertThat(scheduledTasks).hasSize(1);
+
+        scheduledTasks.remove(0).run();
+        assertThat(acks.get(9)).isDone();
+        assertThat(acks.get(10)).isNotDone();
+        assertThat(writers()).containsKey(CONVERSATION_ID); // còn tin -> không được gỡ
+        assertThat(scheduledTasks).hasSize(1);              // và đã tự xếp lại
+
+        runScheduledTasks();
+        assertThat(writers()).isEmpty();
+
+        // Tin tới trong lúc writer đang ghi: cùng writer, được ghi ngay trong lượt đó
+        when(messageRepository.saveAll(anyList())).thenAnswer(inv -> {
+            if (acks.size() == 12) acks.add(service.submit(draft("a13")));
+            return inv.getArgument(0);
+        });
+        acks.add(service.submit(draft("a12"))); // writer mới sau khi writer cũ đã bị gỡ
+        runScheduledTasks();
+
+        assertThat(acks).hasSize(13);
+        assertThat(acks).allSatisfy(ack -> assertThat(ack).isCompleted());
+        assertThat(acks.stream().map(ack -> ack.join().seq()).toList())
+                .containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L, 12L, 13L);
+        assertThat(writers()).isEmpty();
+        assertThat(scheduledTasks).isEmpty();
+    }
+
+    private void runScheduledTasks() {
+        while (!scheduledTasks.isEmpty()) {
+            scheduledTasks.remove(0).run();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, ?> writers() {
+        return (Map<Long, ?>) ReflectionTestUtils.getField(service, "writers");
+    }
+
+    private static MessageDraft draft(String clientMessageId) {
+        return new MessageDraft(CONVERSATION_ID, 7L, "Alice", null, null, MessageType.TEXT,
+                "hello " + clientMessageId, null, clientMessageId);
+    }
+
+    private static MessageDraft systemDraft(String clientMessageId) {
+        return new MessageDraft(CONVERSATION_ID, null, null, null, null, MessageType.SYSTEM,
+                "member added", null, clientMessageId);
+    }
+}
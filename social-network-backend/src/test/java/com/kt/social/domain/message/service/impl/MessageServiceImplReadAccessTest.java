@@ -0,0 +1,114 @@
+package com.kt.social.domain.message.service.impl;
+
+import com.kt.social.common.exception.AccessDeniedException;
+import com.kt.social.common.vo.CursorPage;
+import com.kt.social.domain.message.dto.MessageResponse;
+import com.kt.social.domain.message.repository.ConversationRepository;
+import com.kt.social.domain.message.service.ConversationMembershipCache;
+import com.kt.social.domain.message.service.LegacyMessageMigrationService;
+import com.kt.social.domain.message.service.MessageArchiveService;
+import com.kt.social.domain.message.service.MessageLocationService;
+import com.kt.social.domain.message.service.MessageSearchService;
+import com.kt.social.domain.message.service.RecentMessageCache;
+import com.kt.social.domain.user.model.User;
+import com.kt.social.domain.user.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.function.Executable;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Mọi đường đọc lịch sử tin nhắn phải kiểm tra thành viên trước, kể cả khi hội thoại đang nằm trong cache.
+ */
+@ExtendWith(MockitoExtension.class)
+class MessageServiceImplReadAccessTest {
+
+    private static final Long CONVERSATION_ID = 42L;
+    private static final Long OUTSIDER_ID = 9L;
+    private static final Long MEMBER_ID = 7L;
+
+    @Mock
+    private ConversationRepository conversationRepository;
+    @Mock
+    private LegacyMessageMigrationService legacyMessageMigrationService;
+    @Mock
+    private MessageLocationService messageLocationService;
+    @Mock
+    private UserService userService;
+    @Mock
+    private MessageArchiveService messageArchiveService;
+    @Mock
+    private RecentMessageCache recentMessageCache;
+    @Mock
+    private ConversationMembershipCache membershipCache;
+    @Mock
+    private MessageSearchService messageSearchService;
+
+    @InjectMocks
+    private MessageServiceImpl messageService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().doThrow(new AccessDeniedException("Not a member."))
+                .when(membershipCache).requireMember(CONVERSATION_ID, OUTSIDER_ID);
+    }
+
+    @Test
+    void everyReadPathRejectsNonMembersEvenWhenConversationIsCached() {
+        when(userService.getCurrentUser()).thenReturn(User.builder().id(OUTSIDER_ID).build());
+        lenient().when(recentMessageCache.contains(CONVERSATION_ID)).thenReturn(true);
+
+        List<Executable> reads = List.of(
+                () -> messageService.getMessagesCursor(CONVERSATION_ID, null, 20),
+                () -> messageService.getMessagesCursor(CONVERSATION_ID, "m-1", 20),
+                () -> messageService.getMessagesBySeq(CONVERSATION_ID, 10L, null, 20),
+                () -> messageService.getMessagesBySeq(CONVERSATION_ID, null, 10L, 20),
+                () -> messageService.getMessagesAround(CONVERSATION_ID, null, 10L, 20),
+                () -> messageService.getMessagesAround(CONVERSATION_ID, "m-1", null, 20),
+                () -> messageService.searchMessages(CONVERSATION_ID, "hello", null, 20),
+                () -> messageService.getMessages(CONVERSATION_ID)
+        );
+        for (Executable read : reads) {
+            assertThrows(AccessDeniedException.class, read);
+        }
+
+        // Bị chặn trước khi chạm tới bất kỳ dữ liệu nào
+        verify(recentMessageCache, never()).pageBefore(any(), any(), anyInt());
+        verify(recentMessageCache, never()).pageAfter(any(), anyLong(), anyInt());
+        verify(recentMessageCache, never()).findSeq(any(), any());
+        verifyNoInteractions(messageArchiveService, messageLocationService, messageSearchService,
+                legacyMessageMigrationService, conversationRepository);
+    }
+
+    @Test
+    void memberReadsFromCachedConversationWithoutExistenceQueries() {
+        when(userService.getCurrentUser()).thenReturn(User.builder().id(MEMBER_ID).build());
+        when(recentMessageCache.contains(CONVERSATION_ID)).thenReturn(true);
+        when(recentMessageCache.pageBefore(CONVERSATION_ID, null, 21))
+                .thenReturn(new RecentMessageCache.CachedPage(List.of(), Map.of()));
+
+        CursorPage<MessageResponse> page = messageService.getMessagesBySeq(CONVERSATION_ID, null, null, 20);
+
+        assertThat(page.getContent()).isEmpty();
+        verify(membershipCache).requireMember(CONVERSATION_ID, MEMBER_ID);
+        verifyNoInteractions(legacyMessageMigrationService, conversationRepository, messageArchiveService);
+    }
+}
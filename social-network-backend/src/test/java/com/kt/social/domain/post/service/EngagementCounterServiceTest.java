@@ -0,0 +1,184 @@
+package com.kt.social.domain.post.service;
+
+import com.kt.social.common.repository.MaintenanceMarkerRepository;
+import com.kt.social.domain.comment.repository.CommentRepository;
+import com.kt.social.domain.post.enums.EngagementCounter;
+import com.kt.social.domain.post.repository.PostRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EngagementCounterServiceTest {
+
+    private static final int POSTS = 32;
+
+    @Mock
+    private PostRepository postRepository;
+    @Mock
+    private CommentRepository commentRepository;
+    @Mock
+    private MaintenanceMarkerRepository maintenanceMarkerRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private EngagementCounterService service;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionManager.getTransaction(any())).thenAnswer(inv -> new SimpleTransactionStatus());
+        service = new EngagementCounterService(postRepository, commentRepository, maintenanceMarkerRepository,
+                transactionManager);
+        service.init();
+    }
+
+    @Test
+    void concurrentIncrementsAcrossFlushesAreAppliedExactlyOnce() throws Exception {
+        // "DB": tổng delta đã flush theo postId
+        Map<Long, Long> flushed = new ConcurrentHashMap<>();
+        AtomicInteger flushCalls = new AtomicInteger();
+        when(postRepository.addReactCounts(any(), any())).thenAnswer(inv -> {
+            Long[] ids = inv.getArgument(0);
+            Long[] deltas = inv.getArgument(1);
+            for (int i = 0; i < ids.length; i++) {
+                flushed.merge(ids[i], deltas[i], Long::sum);
+            }
+            flushCalls.incrementAndGet();
+            return ids.length;
+        });
+
+        int writers = 8;
+        int incrementsPerWriter = 20_000;
+        AtomicLongArray expected = new AtomicLongArray(POSTS + 1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(writers + 1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < incrementsPerWriter; i++) {
+                        // Dồn phần lớn vào vài bài (ô nóng) + rải thưa các bài khác (ô bị gỡ khi rảnh rồi tạo lại)
+                        long postId = random.nextInt(4) == 0 ? 1 + random.nextInt(POSTS) : 1 + random.nextInt(2);
+                        long delta = random.nextInt(5) == 0 ? -1 : 1;
+                        service.increment(EngagementCounter.POST_REACTS, postId, delta);
+                        expected.addAndGet((int) postId, delta);
+                    }
+                    return null;
+                }));
+            }
+            Future<?> flusher = pool.submit(() -> {
+                start.await();
+                while (writing.get()) {
+                    service.flush();
+                }
+                return null;
+            });
+
+            start.countDown();
+            for (Future<?> f : futures) f.get(30, TimeUnit.SECONDS);
+            writing.set(false);
+            flusher.get(30, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        service.flush(); // phần còn lại sau lượt flush cuối của luồng flusher
+        service.flush(); // lượt rảnh: gỡ ô, không được flush thêm gì
+
+        assertThat(flushCalls.get()).isGreaterThan(1);
+        for (long postId = 1; postId <= POSTS; postId++) {
+            assertThat(flushed.getOrDefault(postId, 0L))
+                    .as("post %d", postId)
+                    .isEqualTo(expected.get((int) postId));
+            // Không còn delta treo (cả ô lẫn in-flight)
+            assertThat(service.current(EngagementCounter.POST_REACTS, postId, 1_000_000L)).isEqualTo(1_000_000L);
+        }
+    }
+
+    @Test
+    void failedFlushIsMergedBackAndRetriedOnce() {
+        AtomicInteger attempts = new AtomicInteger();
+        List<Long> applied = new ArrayList<>();
+        when(postRepository.addShareCounts(any(), any())).thenAnswer(inv -> {
+            Long[] deltas = inv.getArgument(1);
+            // Đang flush: delta in-flight vẫn được tính khi đọc
+            assertThat(service.current(EngagementCounter.POST_SHARES, 7L, 0)).isEqualTo(deltas[0]);
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("connection reset");
+            }
+            applied.add(deltas[0]);
+            return 1;
+        });
+
+        service.increment(EngagementCounter.POST_SHARES, 7L, 3);
+        service.flush();
+
+        // Lỗi: delta về lại ô, không mất và không bị tính 2 lần
+        assertThat(applied).isEmpty();
+        assertThat(service.current(EngagementCounter.POST_SHARES, 7L, 0)).isEqualTo(3);
+
+        service.increment(EngagementCounter.POST_SHARES, 7L, 2);
+        service.flush();
+
+        assertThat(applied).containsExactly(5L);
+        assertThat(service.current(EngagementCounter.POST_SHARES, 7L, 5)).isEqualTo(5);
+
+        service.flush();
+        verify(postRepository, times(2)).addShareCounts(any(), any());
+    }
+
+    @Test
+    void shareReconcileRunsOnlyForTheNodeThatClaimsTheMarker() {
+        ReflectionTestUtils.setField(service, "reconcileSharesOnStartup", true);
+        when(maintenanceMarkerRepository.claim(anyString(), any()))
+                .thenReturn("reconcile-share-count")
+                .thenReturn(null);
+        when(postRepository.reconcileShareCounts()).thenReturn(12);
+
+        service.reconcileShareCounts();
+        service.reconcileShareCounts(); // lần khởi động sau / node khác
+
+        verify(postRepository, times(1)).reconcileShareCounts();
+    }
+
+    @Test
+    void shareReconcileIsSkippedWhenDisabled() {
+        ReflectionTestUtils.setField(service, "reconcileSharesOnStartup", false);
+
+        service.reconcileShareCounts();
+
+        verify(maintenanceMarkerRepository, never()).claim(anyString(), any());
+        verify(postRepository, never()).reconcileShareCounts();
+    }
+}
@@ -0,0 +1,64 @@
+package com.kt.social.domain.user.service;
+
+import com.kt.social.domain.friendship.repository.FriendshipRepository;
+import com.kt.social.infra.websocket.ChatBroadcaster;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class PresenceServiceTest {
+
+    private static final Long VIEWER_ID = 100L;
+
+    @Mock
+    private FriendshipRepository friendshipRepository;
+    @Mock
+    private ChatBroadcaster chatBroadcaster;
+
+    private PresenceService presenceService;
+
+    @BeforeEach
+    void setUp() {
+        presenceService = new PresenceService(friendshipRepository, chatBroadcaster);
+        // 1, 2, 3 đang online; chỉ 1 và 3 là bạn của viewer (DB trả về không theo thứ tự)
+        lenient().when(friendshipRepository.findFriendIds(VIEWER_ID)).thenReturn(List.of(3L, 1L));
+        for (long id = 1; id <= 3; id++) {
+            presenceService.connected(id);
+        }
+    }
+
+    @Test
+    void onlyReportsOnlineFriendsOfTheViewer() {
+        assertThat(presenceService.onlineAmong(VIEWER_ID, List.of(3L, 2L, 4L, 1L, 3L)))
+                .containsExactly(3L, 1L);
+    }
+
+    @Test
+    void viewerWithoutSessionIsNotCached() {
+        presenceService.onlineAmong(VIEWER_ID, List.of(1L));
+        presenceService.onlineAmong(VIEWER_ID, List.of(1L));
+        verify(friendshipRepository, times(2)).findFriendIds(VIEWER_ID);
+
+        presenceService.connected(VIEWER_ID);
+        presenceService.onlineAmong(VIEWER_ID, List.of(1L));
+        presenceService.onlineAmong(VIEWER_ID, List.of(1L));
+        // connected() nạp + cache 1 lần, các lần hỏi sau dùng cache
+        verify(friendshipRepository, times(3)).findFriendIds(VIEWER_ID);
+    }
+
+    @Test
+    void emptyOrMissingViewerReturnsNothing() {
+        assertThat(presenceService.onlineAmong(null, List.of(1L))).isEmpty();
+        assertThat(presenceService.onlineAmong(VIEWER_ID, List.of())).isEmpty();
+    }
+}
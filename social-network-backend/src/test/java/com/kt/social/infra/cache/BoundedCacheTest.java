@@ -0,0 +1,48 @@
+package com.kt.social.infra.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BoundedCacheTest {
+
+    @Test
+    void evictsLeastRecentlyUsedEntriesWhenFull() {
+        BoundedCache<Long, String> cache = new BoundedCache<>(10);
+        for (long i = 1; i <= 10; i++) {
+            cache.put(i, "v" + i, i); // loadedAt tăng dần: entry 1 cũ nhất
+        }
+
+        // Entry cũ nhất nhưng vừa được đọc -> không bị đẩy ra
+        assertThat(cache.get(1L)).isEqualTo("v1");
+
+        cache.put(11L, "v11");
+
+        assertThat(cache.size()).isEqualTo(10);
+        assertThat(cache.get(1L)).isEqualTo("v1");
+        assertThat(cache.get(2L)).isNull();
+        assertThat(cache.get(11L)).isEqualTo("v11");
+    }
+
+    @Test
+    void replacingExistingKeyDoesNotEvict() {
+        BoundedCache<Long, String> cache = new BoundedCache<>(2);
+        cache.put(1L, "a", 1);
+        cache.put(2L, "b", 2);
+
+        cache.put(2L, "c");
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get(1L)).isEqualTo("a");
+        assertThat(cache.get(2L)).isEqualTo("c");
+    }
+
+    @Test
+    void getIfFreshHonoursTtlFromLoadTime() {
+        BoundedCache<Long, String> cache = new BoundedCache<>(10);
+        cache.put(1L, "a", System.currentTimeMillis() - 5_000);
+
+        assertThat(cache.getIfFresh(1L, 1_000)).isNull();
+        assertThat(cache.getIfFresh(1L, 10_000)).isEqualTo("a");
+    }
+}
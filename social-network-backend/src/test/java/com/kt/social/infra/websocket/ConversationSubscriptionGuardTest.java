@@ -0,0 +1,124 @@
+package com.kt.social.infra.websocket;
+
+import com.kt.social.common.constants.WebSocketConstants;
+import com.kt.social.common.exception.AccessDeniedException;
+import com.kt.social.domain.message.service.ConversationMembershipCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.security.Principal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ConversationSubscriptionGuardTest {
+
+    @Mock
+    private ConversationMembershipCache membershipCache;
+    @Mock
+    private MessageChannel channel;
+
+    private ConversationSubscriptionGuard guard;
+
+    @BeforeEach
+    void setUp() {
+        guard = new ConversationSubscriptionGuard(membershipCache);
+    }
+
+    @Test
+    void memberCanSubscribeToConversationQueue() {
+        when(membershipCache.isMember(42L, 7L)).thenReturn(true);
+        Message<?> message = subscribe(WebSocketConstants.CHAT_CONVERSATION_QUEUE + "/42", "7");
+
+        assertThat(guard.preSend(message, channel)).isSameAs(message);
+    }
+
+    @Test
+    void nonMemberIsRejected() {
+        when(membershipCache.isMember(42L, 9L)).thenReturn(false);
+        Message<?> message = subscribe(WebSocketConstants.CHAT_CONVERSATION_QUEUE + "/42", "9");
+
+        assertThatThrownBy(() -> guard.preSend(message, channel)).isInstanceOf(AccessDeniedException.class);
+    }
+
+    @Test
+    void malformedIdOrMissingPrincipalIsRejected() {
+        Message<?> badId = subscribe(WebSocketConstants.CHAT_CONVERSATION_QUEUE + "/abc", "7");
+        Message<?> anonymous = subscribe(WebSocketConstants.CHAT_CONVERSATION_QUEUE + "/42", null);
+
+        assertThatThrownBy(() -> guard.preSend(badId, channel)).isInstanceOf(AccessDeniedException.class);
+        assertThatThrownBy(() -> guard.preSend(anonymous, channel)).isInstanceOf(AccessDeniedException.class);
+        verifyNoInteractions(membershipCache);
+    }
+
+    @Test
+    void patternSubscriptionsAreRejected() {
+        for (String destination : new String[]{"/queue/**", "/queue/conversation*", "/topic/?",
+                WebSocketConstants.CHAT_CONVERSATION_QUEUE + "/{id}"}) {
+            Message<?> message = subscribe(destination, "7");
+
+            assertThatThrownBy(() -> guard.preSend(message, channel))
+                    .as(destination)
+                    .isInstanceOf(AccessDeniedException.class);
+        }
+        verifyNoInteractions(membershipCache);
+    }
+
+    @Test
+    void framesStopOnceSubscriberIsNoLongerMember() {
+        ConversationFrameFilter filter = new ConversationFrameFilter(guard, membershipCache);
+        when(membershipCache.isMember(42L, 7L)).thenReturn(true, true, false);
+        guard.preSend(subscribe(WebSocketConstants.CHAT_CONVERSATION_QUEUE + "/42", "7"), channel);
+
+        Message<?> frame = frame(WebSocketConstants.CHAT_CONVERSATION_QUEUE + "/42", "s1");
+        assertThat(filter.preSend(frame, channel)).isSameAs(frame);
+        // Bị xóa khỏi nhóm (cache đã invalidate) -> frame sau bị bỏ
+        assertThat(filter.preSend(frame, channel)).isNull();
+
+        // Session chưa từng SUBSCRIBE hội thoại / frame không phải của hội thoại
+        assertThat(filter.preSend(frame(WebSocketConstants.CHAT_CONVERSATION_QUEUE + "/42", "s2"), channel)).isNull();
+        Message<?> presence = frame(WebSocketConstants.PRESENCE_QUEUE, "s2");
+        assertThat(filter.preSend(presence, channel)).isSameAs(presence);
+    }
+
+    @Test
+    void otherDestinationsAreNotChecked() {
+        Message<?> message = subscribe(WebSocketConstants.PRESENCE_QUEUE, "7");
+
+        assertThat(guard.preSend(message, channel)).isSameAs(message);
+        verifyNoInteractions(membershipCache);
+    }
+
+    private static Message<?> subscribe(String destination, String userName) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setDestination(destination);
+        accessor.setSessionId("s1");
+        if (userName != null) {
+            Principal principal = () -> userName;
+            accessor.setUser(principal);
+        }
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    // Frame broker gửi ra clientOutboundChannel
+    private static Message<?> frame(String destination, String sessionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        accessor.setSessionId(sessionId);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}